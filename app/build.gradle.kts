@@ -9,6 +9,8 @@ plugins {
     // Apply the application plugin to add support for building a CLI application in Java.
     application
     id("org.openjfx.javafxplugin") version "0.1.0"
+    // JMH benchmarks in src/jmh, run with ./gradlew jmh
+    id("me.champeau.jmh") version "0.7.2"
 
 }
 
@@ -47,6 +49,31 @@ application {
     mainClass = "it.unicam.cs.mpgc.jbudget126118.view.JavaFX.MainApp"
 }
 
+tasks.register<JavaExec>("runServer") {
+    group = "application"
+    description = "Runs JBudget as a local HTTP API server, without JavaFX."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "it.unicam.cs.mpgc.jbudget126118.view.HTTP.LedgerHttpServer"
+}
+
+tasks.register<JavaExec>("generateLedger") {
+    group = "application"
+    description = "Generates a synthetic ledger, e.g. --args='--count=1000000 --format=xml'."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "it.unicam.cs.mpgc.jbudget126118.tools.LedgerGenerator"
+}
+
+tasks.register<JavaExec>("cli") {
+    group = "application"
+    description = "Runs a headless report or import without JavaFX, e.g. --args='balance --format=json'."
+    classpath = sourceSets["main"].runtimeClasspath
+    mainClass = "it.unicam.cs.mpgc.jbudget126118.view.CLI.LedgerCli"
+    standardInput = System.`in`
+    // Short-lived process: C1 only, and a class data archive created by the first run
+    jvmArgs("-XX:TieredStopAtLevel=1", "-XX:+AutoCreateSharedArchive",
+            "-XX:SharedArchiveFile=${layout.buildDirectory.get().asFile}/cli.jsa")
+}
+
 javafx {
     version = "21.0.7"
     modules = listOf("javafx.controls", "javafx.fxml", "javafx.web")
@@ -54,8 +81,43 @@ javafx {
 }
 
 
+jmh {
+    jmhVersion = "1.37"
+    resultFormat = "JSON"
+    resultsFile = layout.buildDirectory.file("results/jmh/results.json")
+    jvmArgs = listOf("-Xmx8g")
+    // Select benchmarks and sizes from the command line, e.g.
+    // ./gradlew jmh -PjmhIncludes=BalanceBenchmark
+    providers.gradleProperty("jmhIncludes").orNull?.let { includes = listOf(it) }
+}
+
 tasks.named<Test>("test") {
     // Use JUnit Platform for unit tests.
-    useJUnitPlatform()
+    useJUnitPlatform {
+        excludeTags("stress", "budget")
+    }
 }
 
+tasks.register<Test>("stressTest") {
+    group = "verification"
+    description = "Runs the multi-threaded throughput tests, tagged stress, and prints their scaling."
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    useJUnitPlatform {
+        includeTags("stress")
+    }
+    testLogging.showStandardStreams = true
+}
+
+tasks.register<Test>("budgetTest") {
+    group = "verification"
+    description = "Runs the time budgets of the hot paths, tagged budget, on ledgers of 10^6 rows."
+    testClassesDirs = sourceSets["test"].output.classesDirs
+    classpath = sourceSets["test"].runtimeClasspath
+    useJUnitPlatform {
+        includeTags("budget")
+    }
+    maxHeapSize = "4g"
+    providers.gradleProperty("budgetsTimeScale").orNull?.let { systemProperty("budgets.timeScale", it) }
+    testLogging.showStandardStreams = true
+}
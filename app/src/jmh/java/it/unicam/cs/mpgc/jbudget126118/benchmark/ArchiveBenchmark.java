@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.benchmark;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.persistency.BlockCompressedTransactionStore;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of BlockCompressedTransactionStore: a parallel full load, a sequential scan
+ * and the query of a single month, for different block sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ArchiveBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"1024", "4096", "16384"})
+    public int blockRows;
+
+    private Path file;
+    private BlockCompressedTransactionStore archive;
+    private LocalDate monthStart;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Transaction> transactions = LedgerFixture.transactions(size, 1024);
+        file = Files.createTempFile("jbudget-bench", ".jbz");
+        Files.delete(file);
+        archive = new BlockCompressedTransactionStore(file, List::of, blockRows, -1);
+        archive.saveAll(transactions);
+        monthStart = transactions.get(transactions.size() / 2).transactionDate().withDayOfMonth(1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        archive.close();
+        Files.delete(file);
+    }
+
+    @Benchmark
+    public List<Transaction> load() {
+        return archive.load();
+    }
+
+    @Benchmark
+    public long forEach() {
+        long[] count = {0};
+        archive.forEach(t -> count[0]++);
+        return count[0];
+    }
+
+    @Benchmark
+    public List<Transaction> loadMonth() {
+        return archive.load(monthStart, monthStart.plusMonths(1).minusDays(1));
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.benchmark;
+
+import it.unicam.cs.mpgc.jbudget126118.controller.filter.FilteredTransactions;
+import it.unicam.cs.mpgc.jbudget126118.model.Period;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of FilteredTransactions.filteredItems in every Mode, with and without a period.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class FilterBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000", "10000000"})
+    public int size;
+
+    @Param({"32", "1024"})
+    public int tagCount;
+
+    @Param({"ALL", "PAST", "FUTURE"})
+    public FilteredTransactions.Mode mode;
+
+    private List<Transaction> transactions;
+    private Period lastYear;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        transactions = LedgerFixture.transactions(size, tagCount);
+        lastYear = new Period(LocalDate.now().minusYears(1), LocalDate.now());
+    }
+
+    @Benchmark
+    public List<Transaction> filter() {
+        return new FilteredTransactions(transactions, mode, null, TransactionType.EXPENSE).filteredItems();
+    }
+
+    @Benchmark
+    public List<Transaction> filterPeriod() {
+        return new FilteredTransactions(transactions, mode, lastYear, TransactionType.EXPENSE).filteredItems();
+    }
+}
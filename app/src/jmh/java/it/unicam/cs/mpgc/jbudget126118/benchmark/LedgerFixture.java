@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.benchmark;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.persistency.XmlPersistency;
+import it.unicam.cs.mpgc.jbudget126118.tools.LedgerGenerator;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * LedgerFixture builds the deterministic ledgers used by the benchmarks with the LedgerGenerator.
+ * The same size and number of tags always produce the same transactions,
+ * so results of different runs can be compared.
+ */
+final class LedgerFixture {
+
+    static final long SEED = 42;
+
+    private LedgerFixture() {
+    }
+
+    /**
+     * Returns the generator of the ledgers with the given number of tags.
+     * @param tagCount the number of tags
+     * @return the generator
+     */
+    static LedgerGenerator generator(int tagCount) {
+        LedgerGenerator.Options defaults = LedgerGenerator.Options.defaults(SEED);
+        return new LedgerGenerator(new LedgerGenerator.Options(defaults.seed(), defaults.incomeRatio(),
+                defaults.futureRatio(), defaults.years(), tagCount, defaults.tagFanout(), defaults.today()));
+    }
+
+    /**
+     * Builds the transactions of a ledger.
+     * @param size the number of transactions
+     * @param tagCount the number of tags
+     * @return the transactions
+     */
+    static List<Transaction> transactions(int size, int tagCount) {
+        return generator(tagCount).transactions(size).toList();
+    }
+
+    /**
+     * Writes a transaction file and a tag file in the XML format of XmlPersistency.
+     * @param dir the directory of the files
+     * @param size the number of transactions
+     * @param tagCount the number of tags
+     * @return the persistency reading the files
+     * @throws IOException if the files cannot be written
+     */
+    static XmlPersistency writeXmlLedger(Path dir, int size, int tagCount) throws IOException {
+        return writeXmlLedger(dir, size, tagCount, XmlPersistency.FORMAT_VERSION);
+    }
+
+    /**
+     * Writes a transaction file in the given format version and a tag file in the XML format of XmlPersistency.
+     * @param dir the directory of the files
+     * @param size the number of transactions
+     * @param tagCount the number of tags
+     * @param formatVersion the format version of the transaction file
+     * @return the persistency reading the files
+     * @throws IOException if the files cannot be written
+     */
+    static XmlPersistency writeXmlLedger(Path dir, int size, int tagCount, int formatVersion) throws IOException {
+        Path transactionFile = dir.resolve("transaction.xml");
+        Path tagFile = dir.resolve("Tags.xml");
+        try (Writer transactionOut = Files.newBufferedWriter(transactionFile, StandardCharsets.UTF_8);
+             Writer tagOut = Files.newBufferedWriter(tagFile, StandardCharsets.UTF_8)) {
+            generator(tagCount).writeXml(size, transactionOut, tagOut, formatVersion);
+        }
+        return new XmlPersistency(transactionFile.toString(), tagFile.toString());
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.benchmark;
+
+import it.unicam.cs.mpgc.jbudget126118.controller.exporter.MonthlyStatementWriter;
+import it.unicam.cs.mpgc.jbudget126118.controller.exporter.TransactionExporter;
+import it.unicam.cs.mpgc.jbudget126118.controller.filter.FilteredTransactions;
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.MonthlyStatementGenerator;
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.TransactionBalance;
+import it.unicam.cs.mpgc.jbudget126118.model.Period;
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of the monthly statements: the MonthlyStatementGenerator with an increasing number of threads,
+ * with and without writing the files, against a filter and a TransactionBalance per month over the whole ledger.
+ * The baseline does not depend on the number of threads and is run only with threads = 1.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class MonthlyStatementBenchmark {
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    private List<Transaction> transactions;
+    private List<Tag> tags;
+    private MonthlyStatementGenerator generator;
+    private MonthlyStatementWriter writer;
+    private Path dir;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        transactions = LedgerFixture.transactions(size, 1024);
+        tags = LedgerFixture.generator(1024).tags();
+        generator = new MonthlyStatementGenerator(threads);
+        writer = new MonthlyStatementWriter(tags, threads);
+        dir = Files.createTempDirectory("jbudget-bench");
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public List<MonthlyStatementGenerator.MonthlyStatement> generate() {
+        return generator.generate(transactions);
+    }
+
+    @Benchmark
+    public List<Path> generateAndWrite() throws IOException {
+        return writer.write(generator.generate(transactions), dir, TransactionExporter.Format.CSV);
+    }
+
+    @Benchmark
+    public void filterPerMonth(Blackhole blackhole) {
+        if (threads != 1) {
+            return;
+        }
+        YearMonth first = YearMonth.from(transactions.stream().map(Transaction::transactionDate).min(Comparable::compareTo).orElseThrow());
+        YearMonth last = YearMonth.from(transactions.stream().map(Transaction::transactionDate).max(Comparable::compareTo).orElseThrow());
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            Period period = new Period(month.atDay(1), month.atEndOfMonth());
+            var income = new TransactionBalance(new FilteredTransactions(transactions, FilteredTransactions.Mode.ALL,
+                    period, TransactionType.INCOME).filteredItems());
+            var expense = new TransactionBalance(new FilteredTransactions(transactions, FilteredTransactions.Mode.ALL,
+                    period, TransactionType.EXPENSE).filteredItems());
+            blackhole.consume(income.getTotalIncome());
+            blackhole.consume(expense.getTotalExpense());
+            blackhole.consume(expense.getTagsAmountMap());
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.benchmark;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.XmlPersistency;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks of XmlPersistency: loading transactions and tags, and saving a transaction,
+ * with the transaction file in each format version.
+ * Sizes stop at 10^6 rows because the DOM of larger files does not fit a reasonable heap.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PersistencyBenchmark {
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"32", "1024"})
+    public int tagCount;
+
+    @Param({"1", "2"})
+    public int formatVersion;
+
+    private Path dir;
+    private XmlPersistency persistency;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dir = Files.createTempDirectory("jbudget-bench");
+        persistency = LedgerFixture.writeXmlLedger(dir, size, tagCount, formatVersion);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        try (var files = Files.list(dir)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    @Benchmark
+    public List<Transaction> load() {
+        return persistency.load();
+    }
+
+    @Benchmark
+    public List<Tag> loadTags() {
+        return persistency.loadTags();
+    }
+
+    /**
+     * Saves a transaction into a copy of the ledger of the benchmark state.
+     * Every save grows the file, so the copy is restored before each invocation,
+     * and every invocation measures a save into a file of the same size.
+     */
+    @Benchmark
+    public void save(SaveFile file) {
+        file.persistency.save(file.toSave);
+    }
+
+    /**
+     * A copy of the transaction file written by save, restored from the ledger of the benchmark before each save.
+     */
+    @State(Scope.Thread)
+    public static class SaveFile {
+        private Path pristine;
+        private Path copy;
+        private XmlPersistency persistency;
+        private Transaction toSave;
+
+        @Setup(Level.Trial)
+        public void setUp(PersistencyBenchmark benchmark) {
+            pristine = benchmark.dir.resolve("transaction.xml");
+            copy = benchmark.dir.resolve("transaction.save.xml");
+            persistency = new XmlPersistency(copy.toString(), benchmark.dir.resolve("Tags.xml").toString());
+            toSave = new Transaction(Long.MAX_VALUE, 10, TransactionType.EXPENSE, LocalDate.now(),
+                    List.of(new Tag(1, "Tag1", null)));
+        }
+
+        @Setup(Level.Invocation)
+        public void restoreFile() throws IOException {
+            Files.copy(pristine, copy, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.exporter;
+
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.MonthlyStatementGenerator.MonthlyStatement;
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionJson;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * MonthlyStatementWriter writes each monthly statement to its own file, statement-yyyy-MM.csv or .jsonl,
+ * with the files written concurrently by a pool of threads.
+ * - CSV: the summary as kind,name,amount rows (opening, income, expense and closing, then the expenses by tag),
+ *   an empty line, then the transactions of the month in the format of TransactionExporter.
+ * - JSON_LINES: the summary as an object on the first line, then a line per transaction of the month.
+ */
+public class MonthlyStatementWriter {
+
+    private final TransactionExporter exporter;
+    private final int threads;
+
+    /**
+     * Constructor for MonthlyStatementWriter.
+     * @param tags the tags with their parents, as loaded by the persistency
+     * @param threads the number of files written at the same time
+     */
+    public MonthlyStatementWriter(List<Tag> tags, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        this.exporter = new TransactionExporter(tags);
+        this.threads = threads;
+    }
+
+    /**
+     * Writes the statements to a directory, replacing the files of the same months.
+     * @param statements the statements
+     * @param directory the directory of the files, created if missing
+     * @param format the format of the files
+     * @return the files written, in the order of the statements
+     * @throws IOException if a file cannot be written
+     */
+    public List<Path> write(List<MonthlyStatement> statements, Path directory, TransactionExporter.Format format)
+            throws IOException {
+        Files.createDirectories(directory);
+        String extension = format == TransactionExporter.Format.CSV ? ".csv" : ".jsonl";
+        List<Callable<Path>> tasks = new ArrayList<>();
+        for (MonthlyStatement statement : statements) {
+            Path file = directory.resolve("statement-" + statement.month() + extension);
+            tasks.add(() -> {
+                try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+                    write(statement, format, out);
+                }
+                return file;
+            });
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Path> files = new ArrayList<>(tasks.size());
+            for (Future<Path> future : executor.invokeAll(tasks)) {
+                files.add(future.get());
+            }
+            return files;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Statement writing interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Writes a statement.
+     * @param statement the statement
+     * @param format the format of the statement
+     * @param out the writer, which should be buffered
+     * @throws IOException if the statement cannot be written
+     */
+    public void write(MonthlyStatement statement, TransactionExporter.Format format, Writer out) throws IOException {
+        if (format == TransactionExporter.Format.CSV) {
+            out.write("kind,name,amount\n");
+            out.append("balance,opening,").append(Double.toString(statement.opening())).append('\n');
+            out.append("total,income,").append(Double.toString(statement.income())).append('\n');
+            out.append("total,expense,").append(Double.toString(statement.expense())).append('\n');
+            out.append("balance,closing,").append(Double.toString(statement.closing())).append('\n');
+            for (Map.Entry<Tag, Double> entry : statement.expensesByTag().entrySet()) {
+                out.write("tag,");
+                TransactionExporter.writeCsvField(exporter.tagPath(entry.getKey()), out);
+                out.append(',').append(Double.toString(entry.getValue())).append('\n');
+            }
+            out.write("\nid,date,type,amount,tags\n");
+        } else {
+            out.append("{\"month\":\"").append(statement.month().toString())
+                    .append("\",\"opening\":").append(Double.toString(statement.opening()))
+                    .append(",\"income\":").append(Double.toString(statement.income()))
+                    .append(",\"expense\":").append(Double.toString(statement.expense()))
+                    .append(",\"closing\":").append(Double.toString(statement.closing()))
+                    .append(",\"tags\":{");
+            boolean first = true;
+            for (Map.Entry<Tag, Double> entry : statement.expensesByTag().entrySet()) {
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                TransactionJson.writeString(exporter.tagPath(entry.getKey()), out);
+                out.append(':').append(Double.toString(entry.getValue()));
+            }
+            out.write("}}\n");
+        }
+        for (Transaction t : statement.transactions()) {
+            exporter.write(t, format, out);
+        }
+    }
+}
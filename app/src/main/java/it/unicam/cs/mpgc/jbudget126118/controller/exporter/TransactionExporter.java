@@ -0,0 +1,220 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.exporter;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionJson;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+
+/**
+ * TransactionExporter writes the transactions of a persistency that satisfy a filter as CSV or JSON Lines.
+ * Transactions are read one at a time with {@link TransactionPersistency#forEach} and written as soon
+ * as they are read, so the memory used does not depend on the number of exported rows.
+ * Tags are written with their full path in the tag tree, such as {@code Cibo > Spesa},
+ * resolved by id against the tags of the persistency.
+ */
+public class TransactionExporter {
+
+    /**
+     * Format is an enumeration of the export formats.
+     * - CSV: a header and a row per transaction, with the tag paths separated by "; ".
+     * - JSON_LINES: an object per line, in the format of TransactionJson with the path of each tag.
+     */
+    public enum Format {
+        CSV,
+        JSON_LINES
+    }
+
+    private static final String PATH_SEPARATOR = " > ";
+
+    private final Map<Long, String> tagPaths = new HashMap<>();
+
+    /**
+     * Constructor for TransactionExporter.
+     * @param tags the tags with their parents, as loaded by the persistency
+     */
+    public TransactionExporter(List<Tag> tags) {
+        for (Tag tag : tags) {
+            tagPaths.putIfAbsent(tag.id(), path(tag));
+        }
+    }
+
+    /**
+     * Exports the transactions that satisfy a filter to a writer.
+     * The writer is flushed but not closed.
+     * @param persistency the persistency of the transactions
+     * @param filter the condition of the exported transactions
+     * @param format the format of the export
+     * @param out the writer, which should be buffered
+     * @return the number of exported transactions
+     * @throws IOException if the export cannot be written
+     */
+    public long export(TransactionPersistency persistency, Predicate<Transaction> filter, Format format, Writer out)
+            throws IOException {
+        long[] count = new long[1];
+        try {
+            if (format == Format.CSV) {
+                out.write("id,date,type,amount,tags\n");
+            }
+            persistency.forEach(t -> {
+                if (filter.test(t)) {
+                    try {
+                        write(t, format, out);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                    count[0]++;
+                }
+            });
+            out.flush();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        return count[0];
+    }
+
+    /**
+     * Exports the transactions that satisfy a filter to a file, replacing it.
+     * @param persistency the persistency of the transactions
+     * @param filter the condition of the exported transactions
+     * @param format the format of the export
+     * @param file the file
+     * @return the number of exported transactions
+     * @throws IOException if the file cannot be written
+     */
+    public long export(TransactionPersistency persistency, Predicate<Transaction> filter, Format format, Path file)
+            throws IOException {
+        try (Writer out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            return export(persistency, filter, format, out);
+        }
+    }
+
+    /**
+     * Writes a transaction as a row of an export, without the CSV header.
+     * An exporter can write from more than one thread at a time, each thread to its own writer.
+     * @param t the transaction
+     * @param format the format of the export
+     * @param out the writer
+     * @throws IOException if the row cannot be written
+     */
+    public void write(Transaction t, Format format, Writer out) throws IOException {
+        if (format == Format.CSV) {
+            writeCsv(t, out);
+        } else {
+            writeJson(t, out);
+        }
+    }
+
+    /**
+     * Returns the full path of a tag, from the root of the tag tree.
+     * Tags unknown to the exporter, or stored without their parent, are resolved by id.
+     * @param tag the tag
+     * @return the path of the tag
+     */
+    public String tagPath(Tag tag) {
+        String path = tagPaths.get(tag.id());
+        return path != null ? path : path(tag);
+    }
+
+    private void writeCsv(Transaction t, Writer out) throws IOException {
+        out.append(Long.toString(t.id())).append(',')
+                .append(t.transactionDate().toString()).append(',')
+                .append(t.transactionType().name()).append(',')
+                .append(Double.toString(t.amount())).append(',');
+        StringBuilder tags = new StringBuilder();
+        for (Tag tag : t.tags()) {
+            if (!tags.isEmpty()) {
+                tags.append("; ");
+            }
+            tags.append(tagPath(tag));
+        }
+        writeCsvField(tags, out);
+        out.write('\n');
+    }
+
+    private void writeJson(Transaction t, Writer out) throws IOException {
+        out.append("{\"id\":").append(Long.toString(t.id()))
+                .append(",\"amount\":").append(Double.toString(t.amount()))
+                .append(",\"type\":\"").append(t.transactionType().name())
+                .append("\",\"date\":\"").append(t.transactionDate().toString())
+                .append("\",\"tags\":[");
+        for (int i = 0; i < t.tags().size(); i++) {
+            Tag tag = t.tags().get(i);
+            if (i > 0) {
+                out.write(',');
+            }
+            out.append("{\"id\":").append(Long.toString(tag.id())).append(",\"name\":");
+            TransactionJson.writeString(tag.name(), out);
+            out.write(",\"path\":");
+            TransactionJson.writeString(tagPath(tag), out);
+            out.write('}');
+        }
+        out.write("]}\n");
+    }
+
+    static void writeCsvField(CharSequence value, Writer out) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            out.append(value);
+            return;
+        }
+        out.write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.write('"');
+            }
+            out.write(c);
+        }
+        out.write('"');
+    }
+
+    private String path(Tag tag) {
+        String name = tag.name();
+        Tag parent = tag.parent();
+        if (parent == null) {
+            return name;
+        }
+        String parentPath = tagPaths.get(parent.id());
+        return (parentPath != null ? parentPath : path(parent)) + PATH_SEPARATOR + name;
+    }
+}
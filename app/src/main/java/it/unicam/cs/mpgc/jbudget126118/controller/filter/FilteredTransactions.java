@@ -29,10 +29,15 @@ package it.unicam.cs.mpgc.jbudget126118.controller.filter;
 import it.unicam.cs.mpgc.jbudget126118.model.Period;
 import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
 import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerEvents;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerFilterEvent;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerMetrics;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionScan;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.function.Predicate;
 
 /**
  * FilteredTransactions is a class that implements the Filtered interface for Transaction objects.
@@ -52,7 +57,7 @@ public class FilteredTransactions implements Filtered<Transaction> {
         FUTURE
     }
 
-    private final List<Transaction> allTransactions;
+    private final TransactionScan allTransactions;
     private final Mode mode;
     private final Period period; // can be null
     private final TransactionType type;
@@ -67,6 +72,19 @@ public class FilteredTransactions implements Filtered<Transaction> {
      * @param type the type of transactions to filter (e.g., INCOME, EXPENSE)
      */
     public FilteredTransactions(List<Transaction> transactions, Mode mode, Period period, TransactionType type) {
+        this(TransactionScan.of(transactions), mode, period, type);
+    }
+
+    /**
+     * Constructor for FilteredTransactions over a scan, such as a store that runs the scans itself.
+     * The filter is applied by a single select of the scan, which creates objects only for the matching transactions.
+     *
+     * @param transactions the scan of the transactions to filter
+     * @param mode the filtering mode (ALL, PAST, FUTURE)
+     * @param period the period to filter transactions (can be null)
+     * @param type the type of transactions to filter (e.g., INCOME, EXPENSE)
+     */
+    public FilteredTransactions(TransactionScan transactions, Mode mode, Period period, TransactionType type) {
         this.allTransactions = transactions;
         this.mode = mode;
         this.period = period;
@@ -80,16 +98,83 @@ public class FilteredTransactions implements Filtered<Transaction> {
      */
     @Override
     public List<Transaction> filteredItems() {
+        long start = LedgerMetrics.start();
+        LedgerFilterEvent event = LedgerEvents.begin(new LedgerFilterEvent());
+        int inputRows = allTransactions.size();
+        List<Transaction> filtered = select();
+        LedgerMetrics.stop(LedgerMetrics.Operation.FILTER, start, inputRows);
+        event.end();
+        if (event.shouldCommit()) {
+            event.queryPath = queryPath();
+            event.transactionType = String.valueOf(type);
+            event.mode = mode.name();
+            event.inputRows = inputRows;
+            event.outputRows = filtered.size();
+            event.commit();
+        }
+        return filtered;
+    }
+
+    /**
+     * Returns the condition a transaction must satisfy to be kept by the filter,
+     * so that the same filter can be applied to transactions that are not collected in a list.
+     * The current date of PAST and FUTURE is the date when the predicate is created.
+     *
+     * @param mode the filtering mode (ALL, PAST, FUTURE)
+     * @param period the period to filter transactions (can be null)
+     * @param type the type of transactions to keep
+     * @return the condition of the filter
+     */
+    public static Predicate<Transaction> predicate(Mode mode, Period period, TransactionType type) {
+        LocalDate today = LocalDate.now();
+        return t -> t.transactionType() == type
+                && switch (mode) {
+                    case ALL -> true;
+                    case PAST -> t.transactionDate().isBefore(today);
+                    case FUTURE -> t.transactionDate().isAfter(today);
+                }
+                && (period == null || period.contains(t.transactionDate()));
+    }
+
+    /**
+     * Selects the transactions of the scan, turning the mode and the period into a single date range
+     * with the same bounds as the predicate.
+     * @return a list of filtered transactions
+     */
+    private List<Transaction> select() {
         LocalDate today = LocalDate.now();
-        return allTransactions.stream()
-            .filter(t -> t.transactionType() == type)
-            .filter(t -> switch (mode) {
-                case ALL -> true;
-                case PAST -> t.transactionDate().isBefore(today);
-                case FUTURE -> t.transactionDate().isAfter(today);
-            })
-            .filter(t -> period == null || period.contains(t.transactionDate()))
-            .collect(Collectors.toList());
-        
+        LocalDate from = switch (mode) {
+            case ALL, PAST -> null;
+            case FUTURE -> today.plusDays(1);
+        };
+        LocalDate to = switch (mode) {
+            case ALL, FUTURE -> null;
+            case PAST -> today.minusDays(1);
+        };
+        if (period != null) {
+            LocalDate start = period.getDataStartOrNow();
+            LocalDate end = period.getDataEndOrNow();
+            from = from == null || start.isAfter(from) ? start : from;
+            to = to == null || end.isBefore(to) ? end : to;
+        }
+        if (from != null && to != null && from.isAfter(to)) {
+            return new ArrayList<>();
+        }
+        return allTransactions.select(type, from, to);
+    }
+
+    /**
+     * Describes the predicates applied by the query, for diagnostic events.
+     * @return the applied predicates, joined by '+'
+     */
+    private String queryPath() {
+        String path = "type";
+        if (mode != Mode.ALL) {
+            path += "+mode";
+        }
+        if (period != null) {
+            path += "+period";
+        }
+        return path;
     }
 }
@@ -0,0 +1,386 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionIds;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * CsvStatementImporter imports a bank statement in CSV through a pipeline of three stages:
+ * - a reader thread splits the statement into chunks of lines;
+ * - parser threads, one per core, parse and validate the rows of each chunk and map them to tags;
+ * - the calling thread saves the transactions in batches through the persistency, in the order of the statement.
+ * Stages are connected by bounded queues, so a slow persistency slows down parsing and reading
+ * instead of filling the memory: at most a few chunks per parser are in flight at any time.
+ * Rows that are not valid are skipped and reported with their line number; if a DedupIndex of the ledger
+ * is given, rows already in the ledger are skipped too, so an overlapping statement can be imported again.
+ * The same pipeline can read a statement without saving it, e.g. to reconcile it with the ledger.
+ * Quoted fields can contain the delimiter and escaped quotes, but not line breaks.
+ */
+public class CsvStatementImporter {
+
+    private static final int CHUNK_SIZE = 4096;
+    private static final int MAX_REPORTED_ERRORS = 100;
+
+    private final TransactionPersistency persistency;
+    private final StatementFormat format;
+    private final TagRules rules;
+    private final int batchSize;
+    private final int parsers;
+
+    /**
+     * Constructor for CsvStatementImporter.
+     * @param persistency the persistency the transactions are saved to
+     * @param format the format of the statement
+     * @param rules the rules mapping descriptions to tags
+     * @param batchSize the number of transactions saved with a single call to the persistency
+     */
+    public CsvStatementImporter(TransactionPersistency persistency, StatementFormat format, TagRules rules, int batchSize) {
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        this.persistency = persistency;
+        this.format = format;
+        this.rules = rules;
+        this.batchSize = batchSize;
+        this.parsers = Math.max(1, Runtime.getRuntime().availableProcessors());
+    }
+
+    private record Chunk(long sequence, long firstLine, long firstId, List<String> lines) {
+        static final Chunk END = new Chunk(-1, -1, -1, List.of());
+    }
+
+    private record ParsedChunk(long sequence, int rows, List<Transaction> transactions, List<ImportReport.ImportError> errors) {
+        static final ParsedChunk END = new ParsedChunk(-1, 0, List.of(), List.of());
+    }
+
+    /**
+     * Imports a statement, without checking for duplicates.
+     * @param in the statement
+     * @param progress called on the calling thread after each saved batch
+     * @return the report of the import
+     * @throws IOException if the statement cannot be read
+     */
+    public ImportReport importFrom(Reader in, Consumer<ImportReport> progress) throws IOException {
+        return importFrom(in, null, progress);
+    }
+
+    /**
+     * Imports a statement.
+     * Ids of the new transactions are reserved from TransactionIds, a block per chunk of the statement,
+     * so they never collide with the ids handed out to other transactions, and grow with the position of the row.
+     * @param in the statement
+     * @param index the index of the transactions in the ledger, updated with the saved transactions,
+     *              or null to import every valid row
+     * @param progress called on the calling thread after each saved batch
+     * @return the report of the import
+     * @throws IOException if the statement cannot be read
+     */
+    public ImportReport importFrom(Reader in, DedupIndex index, Consumer<ImportReport> progress) throws IOException {
+        return run(in, index, true, persistency::saveAll, progress);
+    }
+
+    /**
+     * Reads a statement through the same pipeline as an import, passing the parsed rows to the caller
+     * in batches, in the order of the statement, instead of saving them.
+     * The ids of the rows are their line numbers, since they are not stored.
+     * @param in the statement
+     * @param rows called on the calling thread with each batch of parsed rows
+     * @return the report of the read, where the imported transactions are the rows passed to the caller
+     * @throws IOException if the statement cannot be read
+     */
+    public ImportReport readFrom(Reader in, Consumer<List<Transaction>> rows) throws IOException {
+        return run(in, null, false, rows, progress -> { });
+    }
+
+    private ImportReport run(Reader in, DedupIndex index, boolean newIds, Consumer<List<Transaction>> sink,
+                             Consumer<ImportReport> progress) throws IOException {
+        DedupIndex.Check check = index != null ? index.newCheck() : null;
+        long start = System.nanoTime();
+        BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(parsers * 2);
+        BlockingQueue<ParsedChunk> parsed = new ArrayBlockingQueue<>(parsers * 2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(parsers + 1);
+        try {
+            List<Future<?>> tasks = new ArrayList<>();
+            tasks.add(executor.submit(() -> {
+                readChunks(in, chunks, newIds);
+                return null;
+            }));
+            for (int i = 0; i < parsers; i++) {
+                tasks.add(executor.submit(() -> {
+                    parseChunks(chunks, parsed);
+                    return null;
+                }));
+            }
+
+            Map<Long, ParsedChunk> pending = new HashMap<>();
+            long nextSequence = 0;
+            long rowsRead = 0;
+            long imported = 0;
+            long duplicates = 0;
+            long rejected = 0;
+            List<ImportReport.ImportError> errors = new ArrayList<>();
+            List<Transaction> batch = new ArrayList<>(batchSize);
+            int ended = 0;
+            while (ended < parsers) {
+                ParsedChunk chunk = parsed.poll(100, TimeUnit.MILLISECONDS);
+                if (chunk == null) {
+                    rethrowFailure(tasks);
+                    continue;
+                }
+                if (chunk == ParsedChunk.END) {
+                    ended++;
+                    continue;
+                }
+                // parsers complete chunks out of order: save them in the order of the statement
+                pending.put(chunk.sequence(), chunk);
+                while ((chunk = pending.remove(nextSequence)) != null) {
+                    nextSequence++;
+                    rowsRead += chunk.rows();
+                    rejected += chunk.errors().size();
+                    for (ImportReport.ImportError error : chunk.errors()) {
+                        if (errors.size() < MAX_REPORTED_ERRORS) {
+                            errors.add(error);
+                        }
+                    }
+                    for (Transaction t : chunk.transactions()) {
+                        if (check != null && check.isDuplicate(t)) {
+                            duplicates++;
+                            continue;
+                        }
+                        batch.add(t);
+                        if (batch.size() == batchSize) {
+                            sink.accept(batch);
+                            if (check != null) {
+                                check.saved(batch);
+                            }
+                            imported += batch.size();
+                            batch = new ArrayList<>(batchSize);
+                            progress.accept(new ImportReport(rowsRead, imported, duplicates, rejected, List.copyOf(errors),
+                                    Duration.ofNanos(System.nanoTime() - start)));
+                        }
+                    }
+                }
+            }
+            rethrowFailure(tasks);
+            sink.accept(batch);
+            if (check != null) {
+                check.saved(batch);
+            }
+            imported += batch.size();
+            ImportReport report = new ImportReport(rowsRead, imported, duplicates, rejected, List.copyOf(errors),
+                    Duration.ofNanos(System.nanoTime() - start));
+            progress.accept(report);
+            return report;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Import interrupted");
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Reads the statement in chunks of lines, then tells every parser that the statement is over.
+     * Chunks are read in the order of the statement, so the blocks of ids reserved for them grow with the rows.
+     * @param newIds true to reserve new ids for the rows, false to use their line numbers
+     */
+    private void readChunks(Reader in, BlockingQueue<Chunk> chunks, boolean newIds) throws IOException, InterruptedException {
+        BufferedReader reader = in instanceof BufferedReader buffered ? buffered : new BufferedReader(in, 1 << 16);
+        long lineNumber = 0;
+        long sequence = 0;
+        List<String> lines = new ArrayList<>(CHUNK_SIZE);
+        long firstLine = 1;
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            if (lineNumber == 1 && format.header()) {
+                firstLine = 2;
+                continue;
+            }
+            lines.add(line);
+            if (lines.size() == CHUNK_SIZE) {
+                chunks.put(new Chunk(sequence++, firstLine, newIds ? TransactionIds.reserve(lines.size()) : firstLine, lines));
+                lines = new ArrayList<>(CHUNK_SIZE);
+                firstLine = lineNumber + 1;
+            }
+        }
+        if (!lines.isEmpty()) {
+            chunks.put(new Chunk(sequence, firstLine, newIds ? TransactionIds.reserve(lines.size()) : firstLine, lines));
+        }
+        for (int i = 0; i < parsers; i++) {
+            chunks.put(Chunk.END);
+        }
+    }
+
+    private void parseChunks(BlockingQueue<Chunk> chunks, BlockingQueue<ParsedChunk> parsed) throws InterruptedException {
+        Chunk chunk;
+        while ((chunk = chunks.take()) != Chunk.END) {
+            List<Transaction> transactions = new ArrayList<>(chunk.lines().size());
+            List<ImportReport.ImportError> errors = new ArrayList<>();
+            int rows = 0;
+            for (int i = 0; i < chunk.lines().size(); i++) {
+                String line = chunk.lines().get(i);
+                long lineNumber = chunk.firstLine() + i;
+                if (line.isBlank()) {
+                    continue;
+                }
+                rows++;
+                try {
+                    transactions.add(parseRow(line, chunk.firstId() + i));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    errors.add(new ImportReport.ImportError(lineNumber, e.getMessage()));
+                }
+            }
+            parsed.put(new ParsedChunk(chunk.sequence(), rows, transactions, errors));
+        }
+        parsed.put(ParsedChunk.END);
+    }
+
+    /**
+     * Parses and validates a row of the statement.
+     * @param line the row
+     * @param id the id of the transaction
+     * @return the transaction
+     * @throws IllegalArgumentException if the row is not valid
+     * @throws DateTimeParseException if the date is not valid
+     */
+    private Transaction parseRow(String line, long id) {
+        List<String> fields = splitLine(line, format.delimiter());
+        LocalDate date = LocalDate.parse(field(fields, format.dateColumn()).strip(), format.dateFormat());
+        double amount = parseAmount(field(fields, format.amountColumn()));
+        if (!Double.isFinite(amount) || amount == 0) {
+            throw new IllegalArgumentException("Invalid amount: " + field(fields, format.amountColumn()));
+        }
+        TransactionType type = format.typeColumn() >= 0
+                ? TransactionType.valueOf(field(fields, format.typeColumn()).strip().toUpperCase(Locale.ROOT))
+                : amount < 0 ? TransactionType.EXPENSE : TransactionType.INCOME;
+        String description = format.descriptionColumn() >= 0 ? field(fields, format.descriptionColumn()) : null;
+        return new Transaction(id, Math.abs(amount), type, date, rules.tagsFor(description));
+    }
+
+    private double parseAmount(String value) {
+        String amount = value.strip();
+        if (format.decimalComma()) {
+            amount = amount.replace(".", "").replace(',', '.');
+        }
+        return Double.parseDouble(amount);
+    }
+
+    private static String field(List<String> fields, int column) {
+        if (column >= fields.size()) {
+            throw new IllegalArgumentException("Missing column " + column);
+        }
+        return fields.get(column);
+    }
+
+    /**
+     * Splits a CSV line into its fields, removing the quotes around quoted fields.
+     * @param line the line
+     * @param delimiter the field delimiter
+     * @return the fields
+     * @throws IllegalArgumentException if a quoted field is not closed
+     */
+    static List<String> splitLine(String line, char delimiter) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        int i = 0;
+        while (true) {
+            if (i < line.length() && line.charAt(i) == '"') {
+                i++;
+                while (true) {
+                    if (i >= line.length()) {
+                        throw new IllegalArgumentException("Unclosed quoted field");
+                    }
+                    char c = line.charAt(i++);
+                    if (c == '"') {
+                        if (i < line.length() && line.charAt(i) == '"') {
+                            field.append('"');
+                            i++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        field.append(c);
+                    }
+                }
+            }
+            int end = line.indexOf(delimiter, i);
+            field.append(line, i, end < 0 ? line.length() : end);
+            fields.add(field.toString());
+            if (end < 0) {
+                return fields;
+            }
+            field.setLength(0);
+            i = end + 1;
+        }
+    }
+
+    /**
+     * Throws the failure of the first stage that failed, if any.
+     */
+    private static void rethrowFailure(List<Future<?>> tasks) throws IOException, InterruptedException {
+        for (Future<?> task : tasks) {
+            if (task.isDone()) {
+                try {
+                    task.get();
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException io) {
+                        throw io;
+                    }
+                    if (e.getCause() instanceof RuntimeException runtime) {
+                        throw runtime;
+                    }
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        }
+    }
+}
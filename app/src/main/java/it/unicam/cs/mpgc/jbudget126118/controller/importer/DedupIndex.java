@@ -0,0 +1,371 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+
+/**
+ * DedupIndex recognizes transactions already in the ledger by a fingerprint of their content:
+ * date, amount, type and tags, but not the id, which a re-import assigns anew.
+ * Lookups go first through a Bloom filter, which rejects most new transactions with a few bit probes,
+ * then through an exact table of fingerprints, so each check is O(1) whatever the size of the ledger.
+ * The table counts the transactions of each fingerprint, so a statement with two identical rows
+ * is recognized only if the ledger holds them both.
+ * The index is saved next to the ledger and is rebuilt from the persistency when the ledger
+ * was changed after the index was saved. The ledger is the file or the directory of the store in use,
+ * such as the transaction file of an XmlPersistency or the directory of a SegmentedTransactionStore:
+ * the size and the time of the last change of its files tell if it was changed.
+ * Instances are not thread-safe.
+ */
+public final class DedupIndex {
+
+    private static final int MAGIC = 0x4A424458; // "JBDX"
+    private static final int VERSION = 1;
+    private static final double FALSE_POSITIVE_RATE = 0.01;
+    private static final int MIN_CAPACITY = 1 << 10;
+
+    private long[] keys;
+    private int[] counts;
+    private int size;
+    private BloomFilter bloom;
+    private long bloomCapacity;
+
+    /**
+     * Constructor for an empty DedupIndex.
+     */
+    public DedupIndex() {
+        allocate(MIN_CAPACITY);
+    }
+
+    /**
+     * Builds the index of the given transactions.
+     * @param transactions the transactions of the ledger
+     * @return the index
+     */
+    public static DedupIndex of(Collection<Transaction> transactions) {
+        DedupIndex index = new DedupIndex();
+        index.allocate(tableCapacity(transactions.size()));
+        for (Transaction t : transactions) {
+            index.add(fingerprint(t), 1);
+        }
+        return index;
+    }
+
+    /**
+     * Returns the index of a ledger, loading it from its file if it is up to date with the ledger,
+     * or rebuilding it from the persistency otherwise.
+     * @param indexFile the file of the index
+     * @param ledger the file of the ledger, or the directory of a store kept in several files
+     * @param persistency the persistency of the ledger
+     * @return the index
+     */
+    public static DedupIndex forLedger(Path indexFile, Path ledger, TransactionPersistency persistency) {
+        try {
+            DedupIndex index = load(indexFile, ledger);
+            if (index != null) {
+                return index;
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return of(persistency.load());
+    }
+
+    /**
+     * Returns the fingerprint of the content of a transaction.
+     * Tags are taken by id and in any order, so the same tags in a different order give the same fingerprint.
+     * @param t the transaction
+     * @return the fingerprint, never 0
+     */
+    public static long fingerprint(Transaction t) {
+        long h = mix(t.transactionDate().toEpochDay());
+        h = mix(h ^ Double.doubleToLongBits(t.amount()));
+        h = mix(h ^ t.transactionType().ordinal());
+        long tagHash = 0;
+        for (Tag tag : t.tags()) {
+            tagHash += mix(tag.id()); // commutative, so the order of the tags does not matter
+        }
+        h = mix(h ^ tagHash ^ t.tags().size());
+        return h != 0 ? h : 1;
+    }
+
+    /**
+     * Returns the number of transactions of the ledger with the given fingerprint.
+     * @param fingerprint the fingerprint
+     * @return the number of transactions, 0 if none
+     */
+    public int count(long fingerprint) {
+        if (!bloom.mightContain(fingerprint)) {
+            return 0;
+        }
+        int slot = slot(fingerprint);
+        return keys[slot] == fingerprint ? counts[slot] : 0;
+    }
+
+    /**
+     * Adds transactions to the index.
+     * @param transactions the transactions added to the ledger
+     */
+    public void addAll(Collection<Transaction> transactions) {
+        for (Transaction t : transactions) {
+            add(fingerprint(t), 1);
+        }
+    }
+
+    /**
+     * Returns the number of distinct fingerprints in the index.
+     * @return the number of fingerprints
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Starts the check of an import against the index.
+     * @return the check, to be used for a single import
+     */
+    public Check newCheck() {
+        return new Check();
+    }
+
+    /**
+     * Check recognizes the duplicates of an import.
+     * The n-th occurrence of a fingerprint in the import is a duplicate if the ledger held at least n
+     * transactions with that fingerprint when the import started. Transactions saved by the import
+     * are added to the index with {@link #saved(Collection)}, but are not counted for the later rows of the import.
+     */
+    public final class Check {
+
+        private final DedupIndex seen = new DedupIndex();
+        private final DedupIndex added = new DedupIndex();
+
+        private Check() {
+        }
+
+        /**
+         * Checks if a transaction is already in the ledger.
+         * @param t the transaction to import
+         * @return true if the transaction is a duplicate and must be skipped
+         */
+        public boolean isDuplicate(Transaction t) {
+            long fingerprint = fingerprint(t);
+            int known = count(fingerprint);
+            if (known == 0) {
+                return false;
+            }
+            known -= added.count(fingerprint);
+            return known > 0 && seen.add(fingerprint, 1) <= known;
+        }
+
+        /**
+         * Adds the transactions saved by the import to the index.
+         * @param transactions the saved transactions
+         */
+        public void saved(Collection<Transaction> transactions) {
+            for (Transaction t : transactions) {
+                long fingerprint = fingerprint(t);
+                add(fingerprint, 1);
+                added.add(fingerprint, 1);
+            }
+        }
+    }
+
+    /**
+     * Saves the index next to the ledger, recording the state of the ledger it describes.
+     * It must be called after the ledger has been written.
+     * @param indexFile the file of the index
+     * @param ledger the file of the ledger, or the directory of a store kept in several files
+     * @throws IOException if the index cannot be written
+     */
+    public void save(Path indexFile, Path ledger) throws IOException {
+        Path temporary = indexFile.resolveSibling(indexFile.getFileName() + ".tmp");
+        long[] stamp = stamp(ledger);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(stamp[0]);
+            out.writeLong(stamp[1]);
+            out.writeInt(size);
+            for (int i = 0; i < keys.length; i++) {
+                if (keys[i] != 0) {
+                    out.writeLong(keys[i]);
+                    out.writeInt(counts[i]);
+                }
+            }
+        }
+        Files.move(temporary, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads an index saved by {@link #save(Path, Path)}.
+     * @return the index, or null if there is no index or it does not describe the current ledger
+     */
+    private static DedupIndex load(Path indexFile, Path ledger) throws IOException {
+        if (!Files.exists(indexFile)) {
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(indexFile), 1 << 16))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                return null;
+            }
+            long[] stamp = stamp(ledger);
+            if (in.readLong() != stamp[0] || in.readLong() != stamp[1]) {
+                return null;
+            }
+            int entries = in.readInt();
+            DedupIndex index = new DedupIndex();
+            index.allocate(tableCapacity(entries));
+            for (int i = 0; i < entries; i++) {
+                long fingerprint = in.readLong();
+                index.add(fingerprint, in.readInt());
+            }
+            return index;
+        }
+    }
+
+    /**
+     * Returns the state of a ledger: the size of its file and the time of its last change,
+     * or the total size and the latest change of the files of its directory; -1 for both if it does not exist.
+     */
+    private static long[] stamp(Path ledger) throws IOException {
+        if (!Files.exists(ledger)) {
+            return new long[] {-1, -1};
+        }
+        if (!Files.isDirectory(ledger)) {
+            return new long[] {Files.size(ledger), Files.getLastModifiedTime(ledger).toMillis()};
+        }
+        long[] stamp = {0, -1};
+        try (var files = Files.list(ledger)) {
+            for (Path file : files.toList()) {
+                if (Files.isRegularFile(file)) {
+                    stamp[0] += Files.size(file);
+                    stamp[1] = Math.max(stamp[1], Files.getLastModifiedTime(file).toMillis());
+                }
+            }
+        }
+        return stamp;
+    }
+
+    /**
+     * Adds occurrences of a fingerprint.
+     * @return the number of occurrences after the addition
+     */
+    private int add(long fingerprint, int occurrences) {
+        int slot = slot(fingerprint);
+        if (keys[slot] == fingerprint) {
+            return counts[slot] += occurrences;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            resize(keys.length * 2);
+            slot = slot(fingerprint);
+        }
+        keys[slot] = fingerprint;
+        counts[slot] = occurrences;
+        size++;
+        if (size > bloomCapacity) {
+            rebuildBloom(bloomCapacity * 2);
+        } else {
+            bloom.put(fingerprint);
+        }
+        return occurrences;
+    }
+
+    /**
+     * Returns the slot of a fingerprint in the open-addressing table: the slot holding it,
+     * or the empty slot where it would be added.
+     */
+    private int slot(long fingerprint) {
+        int mask = keys.length - 1;
+        int slot = (int) (fingerprint ^ (fingerprint >>> 32)) & mask;
+        while (keys[slot] != 0 && keys[slot] != fingerprint) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        counts = new int[capacity];
+        size = 0;
+        rebuildBloom(capacity / 2);
+    }
+
+    private void resize(int capacity) {
+        long[] oldKeys = keys;
+        int[] oldCounts = counts;
+        keys = new long[capacity];
+        counts = new int[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != 0) {
+                int slot = slot(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                counts[slot] = oldCounts[i];
+            }
+        }
+    }
+
+    private void rebuildBloom(long capacity) {
+        bloomCapacity = Math.max(capacity, MIN_CAPACITY);
+        bloom = new BloomFilter(bloomCapacity, FALSE_POSITIVE_RATE);
+        for (long key : keys) {
+            if (key != 0) {
+                bloom.put(key);
+            }
+        }
+    }
+
+    private static int tableCapacity(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 2L && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreading every input bit over the whole hash.
+     */
+    private static long mix(long h) {
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9a53fe1a85bL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
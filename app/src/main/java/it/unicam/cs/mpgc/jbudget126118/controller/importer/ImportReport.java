@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * ImportReport is the outcome of an import, or its progress while the import is running.
+ * @param rowsRead the rows read from the statement, without the header
+ * @param imported the transactions saved
+ * @param duplicates the rows skipped because they are already in the ledger
+ * @param rejected the rows rejected because they are not valid
+ * @param errors the first rejected rows, with the reason
+ * @param elapsed the time since the import started
+ */
+public record ImportReport(long rowsRead, long imported, long duplicates, long rejected, List<ImportError> errors, Duration elapsed) {
+
+    /**
+     * ImportError is a row of the statement that could not be imported.
+     * @param line the line number in the statement, starting from 1
+     * @param message the reason
+     */
+    public record ImportError(long line, String message) {
+    }
+
+    /**
+     * Returns the rows read per second.
+     * @return the throughput of the import
+     */
+    public double rowsPerSecond() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? rowsRead / seconds : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows read, %d imported, %d duplicates, %d rejected in %.2f s (%.0f rows/s)",
+                rowsRead, imported, duplicates, rejected, elapsed.toNanos() / 1e9, rowsPerSecond());
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * ReconciliationReport is the outcome of the reconciliation of a statement with the ledger.
+ * Every row of the statement is either matched, ambiguous or unmatched.
+ * @param matched the rows paired with a transaction of the ledger, in the order of the statement
+ * @param ambiguous the rows with more than one equally close transaction of the ledger, left to the user
+ * @param unmatchedStatement the rows with no transaction of the ledger, e.g. payments not recorded yet
+ * @param unmatchedLedger the transactions of the ledger in the dates of the statement that no row matched
+ *                        and that are not a candidate of an ambiguous row, e.g. payments not booked yet
+ * @param candidatesCompared the transactions of the ledger compared with a row
+ * @param indexTime the time spent building the index of the ledger
+ * @param elapsed the time spent matching the statement
+ */
+public record ReconciliationReport(List<Match> matched, List<Ambiguity> ambiguous, List<Transaction> unmatchedStatement,
+                                   List<Transaction> unmatchedLedger, long candidatesCompared,
+                                   Duration indexTime, Duration elapsed) {
+
+    /**
+     * Match is a row of the statement paired with a transaction of the ledger.
+     * @param row the row of the statement
+     * @param transaction the transaction of the ledger
+     */
+    public record Match(Transaction row, Transaction transaction) {
+    }
+
+    /**
+     * Ambiguity is a row of the statement with more than one equally close transaction of the ledger.
+     * @param row the row of the statement
+     * @param candidates the closest transactions of the ledger
+     */
+    public record Ambiguity(Transaction row, List<Transaction> candidates) {
+    }
+
+    /**
+     * Returns the number of rows of the statement.
+     * @return the rows reconciled
+     */
+    public long rows() {
+        return matched.size() + ambiguous.size() + unmatchedStatement.size();
+    }
+
+    /**
+     * Returns the rows matched per second, without the time spent building the index.
+     * @return the throughput of the reconciliation
+     */
+    public double rowsPerSecond() {
+        double seconds = elapsed.toNanos() / 1e9;
+        return seconds > 0 ? rows() / seconds : 0;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows: %d matched, %d ambiguous, %d unmatched, %d ledger transactions unmatched; "
+                        + "%d candidates compared, index %.2f s, match %.2f s (%.0f rows/s)",
+                rows(), matched.size(), ambiguous.size(), unmatchedStatement.size(), unmatchedLedger.size(),
+                candidatesCompared, indexTime.toNanos() / 1e9, elapsed.toNanos() / 1e9, rowsPerSecond());
+    }
+}
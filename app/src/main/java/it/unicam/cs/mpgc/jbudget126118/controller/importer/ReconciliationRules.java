@@ -0,0 +1,57 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+/**
+ * ReconciliationRules describes how far a row of a statement can be from a transaction of the ledger
+ * and still be the same transaction.
+ * The amount tolerance of a row is the largest of the absolute and the relative tolerance,
+ * e.g. 0.05 and 0.01 accept a difference of 5 cents on small amounts and of 1% on large ones.
+ * @param dateToleranceDays the maximum number of days between the two dates
+ * @param amountTolerance the maximum absolute difference between the two amounts
+ * @param relativeTolerance the maximum difference between the two amounts, as a fraction of the amount of the row
+ */
+public record ReconciliationRules(int dateToleranceDays, double amountTolerance, double relativeTolerance) {
+
+    /**
+     * Constructor for ReconciliationRules.
+     * @throws IllegalArgumentException if a tolerance is negative
+     */
+    public ReconciliationRules {
+        if (dateToleranceDays < 0 || !(amountTolerance >= 0) || !(relativeTolerance >= 0)) {
+            throw new IllegalArgumentException("Tolerances must not be negative");
+        }
+    }
+
+    /**
+     * Returns the default rules: dates up to 3 days apart, as a payment is usually booked
+     * by the bank a few days after it is made, and exact amounts.
+     * @return the default rules
+     */
+    public static ReconciliationRules defaults() {
+        return new ReconciliationRules(3, 0, 0);
+    }
+}
@@ -0,0 +1,55 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+import java.time.format.DateTimeFormatter;
+
+/**
+ * StatementFormat describes the columns of a bank statement in CSV.
+ * Columns are numbered from 0. The amount is signed: negative amounts are expenses and positive
+ * amounts are incomes, unless a type column holding INCOME or EXPENSE is given.
+ * @param delimiter the field delimiter
+ * @param header true if the first line holds the names of the columns
+ * @param dateColumn the column of the date
+ * @param amountColumn the column of the amount
+ * @param descriptionColumn the column of the description used by the tag rules, -1 if absent
+ * @param typeColumn the column of the type, -1 to derive the type from the sign of the amount
+ * @param dateFormat the format of the dates
+ * @param decimalComma true if amounts are written as 1.234,56 instead of 1234.56
+ */
+public record StatementFormat(char delimiter, boolean header, int dateColumn, int amountColumn,
+                              int descriptionColumn, int typeColumn, DateTimeFormatter dateFormat,
+                              boolean decimalComma) {
+
+    /**
+     * Returns the default format: {@code date,amount,description} with a header,
+     * ISO dates and signed amounts with a decimal point.
+     * @return the default format
+     */
+    public static StatementFormat defaults() {
+        return new StatementFormat(',', true, 0, 1, 2, -1, DateTimeFormatter.ISO_LOCAL_DATE, false);
+    }
+}
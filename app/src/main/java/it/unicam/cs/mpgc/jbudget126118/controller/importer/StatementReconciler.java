@@ -0,0 +1,275 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StatementReconciler pairs the rows of a bank statement with the transactions of the ledger, as a hash join:
+ * the ledger is indexed once by type and amount, in buckets as wide as the amount tolerance, and the
+ * transactions of each bucket are sorted by date, so a row is compared only with the transactions of
+ * the two or three buckets around its amount that fall in its date window, whatever the size of the ledger.
+ * Rows are matched in two passes, so that a close transaction is not taken by a row that matches another one exactly:
+ * - the first pass pairs the rows with a transaction of the same type, amount and date;
+ * - the second pass pairs each remaining row with the closest transaction left within the tolerances,
+ *   by amount and then by date; if more than one is equally close the row is left ambiguous, and evaluated
+ *   again once the other rows have taken their transactions, which may leave a single closest one.
+ * Each transaction of the ledger is paired with at most one row, and a paired transaction is never reported
+ * as a candidate of an ambiguous row. The reconciler can be reused
+ * for more than one statement, each reconciled against the whole ledger.
+ */
+public final class StatementReconciler {
+
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final byte FREE = 0;
+    private static final byte MATCHED = 1;
+    private static final byte CANDIDATE = 2;
+
+    private final ReconciliationRules rules;
+    private final Transaction[] ledger;
+    private final long[] cents;
+    private final long[] days;
+    private final Map<Long, int[]> buckets = new HashMap<>(); // positions in the ledger, sorted by date
+    private final long absoluteToleranceCents;
+    private final long bucketWidth;
+    private final Duration indexTime;
+
+    /**
+     * Constructor for StatementReconciler, which builds the index of the ledger.
+     * @param ledger the transactions of the ledger
+     * @param rules the tolerances of the matching
+     */
+    public StatementReconciler(Collection<Transaction> ledger, ReconciliationRules rules) {
+        long start = System.nanoTime();
+        this.rules = rules;
+        this.ledger = ledger.toArray(new Transaction[0]);
+        this.cents = new long[this.ledger.length];
+        this.days = new long[this.ledger.length];
+        for (int i = 0; i < this.ledger.length; i++) {
+            cents[i] = cents(this.ledger[i].amount());
+            days[i] = this.ledger[i].transactionDate().toEpochDay();
+        }
+        this.absoluteToleranceCents = cents(rules.amountTolerance());
+        // a relative tolerance widens the buckets to the tolerance of a typical amount,
+        // so that a row probes a few buckets instead of one per cent of its tolerance
+        long typicalCents = 0;
+        if (rules.relativeTolerance() > 0 && cents.length > 0) {
+            long[] sorted = cents.clone();
+            Arrays.sort(sorted);
+            typicalCents = sorted[sorted.length / 2];
+        }
+        this.bucketWidth = Math.max(1, Math.max(absoluteToleranceCents, Math.round(rules.relativeTolerance() * typicalCents)));
+
+        // positions sorted by date, so that each bucket is filled in order of date
+        long firstDay = Arrays.stream(days).min().orElse(0);
+        long[] byDate = new long[this.ledger.length];
+        for (int i = 0; i < byDate.length; i++) {
+            byDate[i] = (days[i] - firstDay) << 32 | i;
+        }
+        Arrays.sort(byDate);
+        Map<Long, int[]> sizes = new HashMap<>();
+        for (int i = 0; i < this.ledger.length; i++) {
+            sizes.computeIfAbsent(key(this.ledger[i].transactionType(), cents[i] / bucketWidth), k -> new int[1])[0]++;
+        }
+        Map<Long, int[]> filled = new HashMap<>();
+        for (long entry : byDate) {
+            int i = (int) entry;
+            long key = key(this.ledger[i].transactionType(), cents[i] / bucketWidth);
+            int[] bucket = buckets.computeIfAbsent(key, k -> new int[sizes.get(k)[0]]);
+            bucket[filled.computeIfAbsent(key, k -> new int[1])[0]++] = i;
+        }
+        this.indexTime = Duration.ofNanos(System.nanoTime() - start);
+    }
+
+    /**
+     * Reconciles a statement with the ledger.
+     * @param statement the rows of the statement, with positive amounts as read by the CsvStatementImporter
+     * @return the report of the reconciliation
+     */
+    public ReconciliationReport reconcile(List<Transaction> statement) {
+        long start = System.nanoTime();
+        byte[] state = new byte[ledger.length];
+        int[] pairedWith = new int[statement.size()];
+        Arrays.fill(pairedWith, -1);
+        List<List<Integer>> ambiguities = new ArrayList<>(statement.size());
+        long[] compared = {0};
+
+        for (int r = 0; r < statement.size(); r++) {
+            Transaction row = statement.get(r);
+            long rowCents = cents(row.amount());
+            long rowDay = row.transactionDate().toEpochDay();
+            int[] bucket = buckets.get(key(row.transactionType(), rowCents / bucketWidth));
+            if (bucket == null) {
+                continue;
+            }
+            for (int i = firstOnOrAfter(bucket, rowDay); i < bucket.length && days[bucket[i]] == rowDay; i++) {
+                compared[0]++;
+                int position = bucket[i];
+                if (state[position] == FREE && cents[position] == rowCents) {
+                    state[position] = MATCHED;
+                    pairedWith[r] = position;
+                    break;
+                }
+            }
+        }
+
+        List<Integer> pending = new ArrayList<>();
+        for (int r = 0; r < statement.size(); r++) {
+            ambiguities.add(null);
+            if (pairedWith[r] < 0) {
+                pending.add(r);
+            }
+        }
+        // transactions are only ever taken, so only the ambiguous rows can change, and only after a row is paired
+        boolean paired = true;
+        while (paired) {
+            paired = false;
+            List<Integer> stillAmbiguous = new ArrayList<>();
+            for (int r : pending) {
+                List<Integer> closest = closest(statement.get(r), state, compared);
+                if (closest.size() == 1) {
+                    state[closest.get(0)] = MATCHED;
+                    pairedWith[r] = closest.get(0);
+                    ambiguities.set(r, null);
+                    paired = true;
+                } else {
+                    ambiguities.set(r, closest.isEmpty() ? null : closest);
+                    if (!closest.isEmpty()) {
+                        stillAmbiguous.add(r);
+                    }
+                }
+            }
+            pending = stillAmbiguous;
+        }
+
+        List<ReconciliationReport.Match> matched = new ArrayList<>();
+        List<ReconciliationReport.Ambiguity> ambiguous = new ArrayList<>();
+        List<Transaction> unmatchedStatement = new ArrayList<>();
+        long firstDay = Long.MAX_VALUE;
+        long lastDay = Long.MIN_VALUE;
+        for (int r = 0; r < statement.size(); r++) {
+            Transaction row = statement.get(r);
+            firstDay = Math.min(firstDay, row.transactionDate().toEpochDay());
+            lastDay = Math.max(lastDay, row.transactionDate().toEpochDay());
+            if (pairedWith[r] >= 0) {
+                matched.add(new ReconciliationReport.Match(row, ledger[pairedWith[r]]));
+            } else if (ambiguities.get(r) != null) {
+                List<Transaction> candidates = new ArrayList<>();
+                for (int position : ambiguities.get(r)) {
+                    if (state[position] == FREE) {
+                        state[position] = CANDIDATE;
+                    }
+                    candidates.add(ledger[position]);
+                }
+                ambiguous.add(new ReconciliationReport.Ambiguity(row, candidates));
+            } else {
+                unmatchedStatement.add(row);
+            }
+        }
+        List<Transaction> unmatchedLedger = new ArrayList<>();
+        for (int i = 0; i < ledger.length; i++) {
+            if (state[i] == FREE && days[i] >= firstDay - rules.dateToleranceDays()
+                    && days[i] <= lastDay + rules.dateToleranceDays()) {
+                unmatchedLedger.add(ledger[i]);
+            }
+        }
+        return new ReconciliationReport(matched, ambiguous, unmatchedStatement, unmatchedLedger, compared[0],
+                indexTime, Duration.ofNanos(System.nanoTime() - start));
+    }
+
+    /**
+     * Returns the free transactions within the tolerances that are closest to a row,
+     * by difference of amount and then by distance of date.
+     * @return the positions of the closest transactions, empty if none is within the tolerances
+     */
+    private List<Integer> closest(Transaction row, byte[] state, long[] compared) {
+        long rowCents = cents(row.amount());
+        long rowDay = row.transactionDate().toEpochDay();
+        long tolerance = Math.max(absoluteToleranceCents, Math.round(rules.relativeTolerance() * rowCents));
+        List<Integer> closest = new ArrayList<>();
+        long bestAmount = Long.MAX_VALUE;
+        long bestDays = Long.MAX_VALUE;
+        for (long b = Math.floorDiv(rowCents - tolerance, bucketWidth); b <= Math.floorDiv(rowCents + tolerance, bucketWidth); b++) {
+            int[] bucket = buckets.get(key(row.transactionType(), b));
+            if (bucket == null) {
+                continue;
+            }
+            for (int i = firstOnOrAfter(bucket, rowDay - rules.dateToleranceDays());
+                 i < bucket.length && days[bucket[i]] <= rowDay + rules.dateToleranceDays(); i++) {
+                compared[0]++;
+                int position = bucket[i];
+                long amountDifference = Math.abs(cents[position] - rowCents);
+                if (state[position] != FREE || amountDifference > tolerance) {
+                    continue;
+                }
+                long dayDistance = Math.abs(days[position] - rowDay);
+                if (amountDifference < bestAmount || amountDifference == bestAmount && dayDistance < bestDays) {
+                    closest.clear();
+                    bestAmount = amountDifference;
+                    bestDays = dayDistance;
+                }
+                if (amountDifference == bestAmount && dayDistance == bestDays) {
+                    closest.add(position);
+                }
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Returns the index of the first transaction of a bucket on or after a day, by binary search.
+     */
+    private int firstOnOrAfter(int[] bucket, long day) {
+        int low = 0;
+        int high = bucket.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (days[bucket[middle]] < day) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static long key(TransactionType type, long bucket) {
+        return bucket * TYPES.length + type.ordinal();
+    }
+
+    private static long cents(double amount) {
+        return Math.round(Math.abs(amount) * 100);
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * TagRules maps the description of a statement row to tags.
+ * Each rule is a keyword and the name of a tag: a row gets the tag of every rule whose keyword
+ * appears in its description, ignoring case, in the order of the rules and up to three tags,
+ * as a transaction entered by hand. Tag names are resolved against the tags of the persistency,
+ * so a rule can only refer to an existing tag.
+ * Instances are immutable and can be shared by the threads of an import.
+ */
+public final class TagRules {
+
+    private static final int MAX_TAGS = 3;
+
+    private final String[] keywords;
+    private final Tag[] tags;
+
+    private TagRules(List<String> keywords, List<Tag> tags) {
+        this.keywords = keywords.toArray(String[]::new);
+        this.tags = tags.toArray(Tag[]::new);
+    }
+
+    /**
+     * Returns the rules that map nothing: every row is imported without tags.
+     * @return the empty rules
+     */
+    public static TagRules none() {
+        return new TagRules(List.of(), List.of());
+    }
+
+    /**
+     * Returns a rule for each tag, whose keyword is the name of the tag.
+     * @param tags the known tags
+     * @return the rules
+     */
+    public static TagRules byName(List<Tag> tags) {
+        List<String> keywords = new ArrayList<>();
+        for (Tag tag : tags) {
+            keywords.add(tag.name().toLowerCase(Locale.ROOT));
+        }
+        return new TagRules(keywords, tags);
+    }
+
+    /**
+     * Parses rules written one per line as {@code keyword=tag name}.
+     * Blank lines and lines starting with # are ignored.
+     * @param in the text of the rules
+     * @param knownTags the tags the rules can refer to
+     * @return the rules
+     * @throws IOException if the rules cannot be read
+     * @throws IllegalArgumentException if a line is malformed or refers to an unknown tag
+     */
+    public static TagRules parse(Reader in, List<Tag> knownTags) throws IOException {
+        Map<String, Tag> tagsByName = new HashMap<>();
+        for (Tag tag : knownTags) {
+            tagsByName.putIfAbsent(tag.name(), tag);
+        }
+        List<String> keywords = new ArrayList<>();
+        List<Tag> tags = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        int lineNumber = 0;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            line = line.strip();
+            if (line.isEmpty() || line.startsWith("#")) {
+                continue;
+            }
+            int eq = line.indexOf('=');
+            if (eq <= 0 || eq == line.length() - 1) {
+                throw new IllegalArgumentException("Rule " + lineNumber + " is not keyword=tag: " + line);
+            }
+            String name = line.substring(eq + 1).strip();
+            Tag tag = tagsByName.get(name);
+            if (tag == null) {
+                throw new IllegalArgumentException("Rule " + lineNumber + " refers to an unknown tag: " + name);
+            }
+            keywords.add(line.substring(0, eq).strip().toLowerCase(Locale.ROOT));
+            tags.add(tag);
+        }
+        return new TagRules(keywords, tags);
+    }
+
+    /**
+     * Returns the tags of a description.
+     * @param description the description of a statement row, can be null
+     * @return the tags of the matching rules, without duplicates and at most three
+     */
+    public List<Tag> tagsFor(String description) {
+        if (description == null || keywords.length == 0) {
+            return List.of();
+        }
+        String text = description.toLowerCase(Locale.ROOT);
+        List<Tag> matched = null;
+        for (int i = 0; i < keywords.length; i++) {
+            if (text.contains(keywords[i])) {
+                if (matched == null) {
+                    matched = new ArrayList<>(MAX_TAGS);
+                } else if (matched.contains(tags[i])) {
+                    continue;
+                }
+                matched.add(tags[i]);
+                if (matched.size() == MAX_TAGS) {
+                    break;
+                }
+            }
+        }
+        return matched == null ? List.of() : List.copyOf(matched);
+    }
+}
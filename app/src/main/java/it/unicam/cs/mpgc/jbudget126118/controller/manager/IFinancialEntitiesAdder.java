@@ -25,6 +25,7 @@
 
 package it.unicam.cs.mpgc.jbudget126118.controller.manager;
 
+import java.util.List;
 
 /**
  * IFinancialEntities is an interface that defines methods for managing financial entities
@@ -43,4 +44,16 @@ public interface IFinancialEntitiesAdder<T> {
      * @param entity the entity to add
      */
     public void add(T entity);
+
+    /**
+     *  Adds a batch of entities to the financial management system.
+     *  The default implementation adds them one by one.
+     *
+     * @param entities the entities to add
+     */
+    public default void addAll(List<T> entities) {
+        for (T entity : entities) {
+            add(entity);
+        }
+    }
 }
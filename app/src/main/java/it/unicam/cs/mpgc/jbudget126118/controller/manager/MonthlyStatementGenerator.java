@@ -0,0 +1,231 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.manager;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerAggregationEvent;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerEvents;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerMetrics;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * MonthlyStatementGenerator builds the statement of every month of a ledger with a single partition of the
+ * transactions, instead of filtering the whole ledger once per month.
+ * - the ledger is split into as many slices as threads, and each thread partitions its slice by month;
+ * - the partitions of each month are concatenated in the order of the ledger, and the totals, the expenses
+ *   by tag and the sorted transactions of the months are computed in parallel, one task per month;
+ * - the opening balance of each month is the running sum of the balances of the months before it.
+ * Months without transactions between the first and the last one are included, so that the closing balance
+ * of a statement is always the opening balance of the next one.
+ */
+public class MonthlyStatementGenerator {
+
+    /**
+     * Represents the statement of a month.
+     * @param month the month
+     * @param opening the balance of all the transactions before the month
+     * @param income the total income of the month
+     * @param expense the total expenses of the month
+     * @param expensesByTag the expenses of the month grouped by tag, as TransactionBalance.getTagsAmountMap()
+     * @param transactions the transactions of the month, sorted by date
+     */
+    public record MonthlyStatement(YearMonth month, double opening, double income, double expense,
+                                   Map<Tag, Double> expensesByTag, List<Transaction> transactions) {
+
+        /**
+         * Returns the balance at the end of the month.
+         * @return the opening balance plus the income minus the expenses of the month
+         */
+        public double closing() {
+            return opening + income - expense;
+        }
+    }
+
+    private final int threads;
+
+    /**
+     * Constructor for MonthlyStatementGenerator, using a thread per core.
+     */
+    public MonthlyStatementGenerator() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Constructor for MonthlyStatementGenerator.
+     * @param threads the number of threads computing the statements
+     */
+    public MonthlyStatementGenerator(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("The number of threads must be positive");
+        }
+        this.threads = threads;
+    }
+
+    /**
+     * Returns the number of threads computing the statements.
+     * @return the number of threads
+     */
+    public int threads() {
+        return threads;
+    }
+
+    /**
+     * Builds the statements of all the months from the first to the last transaction of a ledger.
+     * @param transactions the transactions of the ledger
+     * @return the statements, in order of month
+     */
+    public List<MonthlyStatement> generate(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return new ArrayList<>();
+        }
+        long start = LedgerMetrics.start();
+        LedgerAggregationEvent event = LedgerEvents.begin(new LedgerAggregationEvent());
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Callable<Map<Integer, List<Transaction>>>> slices = new ArrayList<>();
+            int sliceSize = (transactions.size() + threads - 1) / threads;
+            for (int from = 0; from < transactions.size(); from += sliceSize) {
+                List<Transaction> slice = transactions.subList(from, Math.min(from + sliceSize, transactions.size()));
+                slices.add(() -> partition(slice));
+            }
+            List<Map<Integer, List<Transaction>>> partitions = invokeAll(executor, slices);
+
+            int first = Integer.MAX_VALUE;
+            int last = Integer.MIN_VALUE;
+            for (Map<Integer, List<Transaction>> partition : partitions) {
+                for (int month : partition.keySet()) {
+                    first = Math.min(first, month);
+                    last = Math.max(last, month);
+                }
+            }
+            List<Callable<MonthlyStatement>> months = new ArrayList<>();
+            for (int month = first; month <= last; month++) {
+                List<List<Transaction>> parts = new ArrayList<>();
+                for (Map<Integer, List<Transaction>> partition : partitions) {
+                    List<Transaction> part = partition.get(month);
+                    if (part != null) {
+                        parts.add(part);
+                    }
+                }
+                YearMonth yearMonth = YearMonth.of(Math.floorDiv(month, 12), Math.floorMod(month, 12) + 1);
+                months.add(() -> summarize(yearMonth, parts));
+            }
+            List<MonthlyStatement> statements = invokeAll(executor, months);
+
+            // opening balances: the only step that depends on the previous months
+            double balance = 0;
+            for (int i = 0; i < statements.size(); i++) {
+                MonthlyStatement statement = statements.get(i);
+                statements.set(i, new MonthlyStatement(statement.month(), balance, statement.income(),
+                        statement.expense(), statement.expensesByTag(), statement.transactions()));
+                balance += statement.income() - statement.expense();
+            }
+            LedgerMetrics.stop(LedgerMetrics.Operation.MONTHLY_STATEMENTS, start, transactions.size());
+            event.end();
+            if (event.shouldCommit()) {
+                event.aggregation = "monthlyStatements";
+                event.inputRows = transactions.size();
+                event.groups = statements.size();
+                event.commit();
+            }
+            return statements;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Partitions a slice of the ledger by month, keeping the order of the slice.
+     */
+    private static Map<Integer, List<Transaction>> partition(List<Transaction> slice) {
+        Map<Integer, List<Transaction>> months = new HashMap<>();
+        for (Transaction t : slice) {
+            int month = t.transactionDate().getYear() * 12 + t.transactionDate().getMonthValue() - 1;
+            months.computeIfAbsent(month, m -> new ArrayList<>()).add(t);
+        }
+        return months;
+    }
+
+    /**
+     * Computes the statement of a month, without the opening balance.
+     */
+    private static MonthlyStatement summarize(YearMonth month, List<List<Transaction>> parts) {
+        int size = 0;
+        for (List<Transaction> part : parts) {
+            size += part.size();
+        }
+        List<Transaction> transactions = new ArrayList<>(size);
+        double income = 0;
+        double expense = 0;
+        Map<Tag, Double> expensesByTag = new HashMap<>();
+        for (List<Transaction> part : parts) {
+            for (Transaction t : part) {
+                transactions.add(t);
+                if (t.transactionType() == TransactionType.INCOME) {
+                    income += t.amount();
+                } else {
+                    expense += t.amount();
+                    for (Tag tag : t.tags()) {
+                        expensesByTag.merge(tag, t.amount(), Double::sum);
+                    }
+                }
+            }
+        }
+        transactions.sort(Comparator.comparing(Transaction::transactionDate));
+        return new MonthlyStatement(month, 0, income, expense, expensesByTag, transactions);
+    }
+
+    private static <T> List<T> invokeAll(ExecutorService executor, List<Callable<T>> tasks) {
+        List<T> results = new ArrayList<>(tasks.size());
+        try {
+            for (Future<T> future : executor.invokeAll(tasks)) {
+                results.add(future.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Statement generation interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) {
+                throw runtime;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+        return results;
+    }
+}
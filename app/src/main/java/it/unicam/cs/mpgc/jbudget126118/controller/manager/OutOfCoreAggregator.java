@@ -0,0 +1,373 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.manager;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * OutOfCoreAggregator sums the transactions of a persistency by tag and by period with bounded memory,
+ * for ledgers that do not fit in the heap.
+ * The transactions are read one at a time through TransactionPersistency.forEach and summed in memory
+ * until the number of groups reaches a limit; the groups are then sorted and spilled to a temporary run file.
+ * At the end the runs are merged, combining the groups with the same key, and the results are passed
+ * to the caller in order of type, tag and period, so that neither the transactions nor the results are
+ * ever held in memory at once. Like getTagsAmountMap(), a transaction counts towards each of its tags,
+ * and transactions without tags are left out when grouping by tag.
+ */
+public class OutOfCoreAggregator {
+
+    /** The default maximum number of groups held in memory before spilling. */
+    public static final int DEFAULT_MAX_GROUPS = 250_000;
+
+    private static final int MAX_MERGE_FAN_IN = 64;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final Comparator<Key> KEY_ORDER = Comparator.comparingInt(Key::type)
+            .thenComparingLong(Key::tag)
+            .thenComparingLong(Key::period);
+
+    /**
+     * Granularity is an enumeration of the periods the transactions can be grouped by.
+     * - NONE: no grouping by period.
+     * - DAY, MONTH, YEAR: one group per day, month or year.
+     */
+    public enum Granularity {
+        NONE,
+        DAY,
+        MONTH,
+        YEAR
+    }
+
+    /**
+     * Represents the sum of the transactions of a group.
+     * @param type the type of the transactions
+     * @param tag the tag of the group (null if not grouped by tag)
+     * @param period the first day of the period of the group (null if not grouped by period)
+     * @param total the sum of the amounts
+     * @param count the number of transactions
+     */
+    public record Group(TransactionType type, Tag tag, LocalDate period, double total, long count) {
+    }
+
+    private record Key(int type, long tag, long period) {
+        @Override
+        public int hashCode() {
+            // the default hash of a record collides often for small tag ids and consecutive periods
+            long h = (tag * 0x9E3779B97F4A7C15L + period) * 0xC2B2AE3D27D4EB4FL + type;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+
+    private final boolean byTag;
+    private final Granularity granularity;
+    private final int maxGroups;
+    private final Path temporaryDirectory;
+    private int spilledRuns;
+
+    /**
+     * Constructor for OutOfCoreAggregator.
+     * @param byTag true to group the transactions by tag
+     * @param granularity the period to group the transactions by
+     * @param maxGroups the maximum number of groups held in memory before spilling them to a run
+     * @param temporaryDirectory the directory of the run files
+     */
+    public OutOfCoreAggregator(boolean byTag, Granularity granularity, int maxGroups, Path temporaryDirectory) {
+        if (maxGroups < 1) {
+            throw new IllegalArgumentException("maxGroups must be positive");
+        }
+        this.byTag = byTag;
+        this.granularity = granularity;
+        this.maxGroups = maxGroups;
+        this.temporaryDirectory = temporaryDirectory;
+    }
+
+    /**
+     * Aggregates the transactions of a persistency that satisfy a filter.
+     * @param persistency the persistency, read one transaction at a time
+     * @param filter the condition of the transactions to aggregate, e.g. FilteredTransactions.predicate()
+     * @param result the action performed on each group, in order of type, tag id and period
+     * @return the number of transactions aggregated
+     * @throws IOException if the runs cannot be written or read
+     */
+    public long aggregate(TransactionPersistency persistency, Predicate<? super Transaction> filter,
+                          Consumer<? super Group> result) throws IOException {
+        Map<Key, double[]> groups = new HashMap<>();
+        Map<Long, Tag> tags = new HashMap<>();
+        List<Path> runs = new ArrayList<>();
+        List<Path> merged = new ArrayList<>(); // the runs of the merge pass in progress
+        long[] aggregated = {0};
+        spilledRuns = 0;
+        try {
+            persistency.forEach(t -> {
+                if (!filter.test(t)) {
+                    return;
+                }
+                aggregated[0]++;
+                long period = period(t.transactionDate());
+                if (!byTag) {
+                    add(groups, new Key(t.transactionType().ordinal(), 0, period), t.amount());
+                } else {
+                    for (Tag tag : t.tags()) {
+                        tags.putIfAbsent(tag.id(), tag);
+                        add(groups, new Key(t.transactionType().ordinal(), tag.id(), period), t.amount());
+                    }
+                }
+                if (groups.size() >= maxGroups) {
+                    runs.add(spill(groups));
+                }
+            });
+            if (runs.isEmpty()) {
+                List<Map.Entry<Key, double[]>> sorted = sortedEntries(groups);
+                for (Map.Entry<Key, double[]> entry : sorted) {
+                    result.accept(group(entry.getKey(), entry.getValue()[0], (long) entry.getValue()[1], tags));
+                }
+                return aggregated[0];
+            }
+            if (!groups.isEmpty()) {
+                runs.add(spill(groups));
+            }
+            while (runs.size() > MAX_MERGE_FAN_IN) {
+                for (int i = 0; i < runs.size(); i += MAX_MERGE_FAN_IN) {
+                    List<Path> batch = runs.subList(i, Math.min(i + MAX_MERGE_FAN_IN, runs.size()));
+                    Path run = newRun();
+                    merged.add(run);
+                    try (DataOutputStream out = openRun(run)) {
+                        merge(batch, (key, total, count) -> writeRecord(out, key, total, count));
+                    }
+                    deleteAll(batch);
+                }
+                runs.clear();
+                runs.addAll(merged);
+                merged.clear();
+            }
+            merge(runs, (key, total, count) -> result.accept(group(key, total, count, tags)));
+            return aggregated[0];
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            deleteAll(runs);
+            deleteAll(merged);
+        }
+    }
+
+    /**
+     * Returns the number of runs spilled by the last aggregation.
+     * @return the number of runs, 0 if the groups fitted in memory
+     */
+    public int spilledRuns() {
+        return spilledRuns;
+    }
+
+    private static void add(Map<Key, double[]> groups, Key key, double amount) {
+        double[] sum = groups.computeIfAbsent(key, k -> new double[2]);
+        sum[0] += amount;
+        sum[1]++;
+    }
+
+    private long period(LocalDate date) {
+        return switch (granularity) {
+            case NONE -> 0;
+            case DAY -> date.toEpochDay();
+            case MONTH -> date.getYear() * 12L + date.getMonthValue() - 1;
+            case YEAR -> date.getYear();
+        };
+    }
+
+    private LocalDate periodStart(long period) {
+        return switch (granularity) {
+            case NONE -> null;
+            case DAY -> LocalDate.ofEpochDay(period);
+            case MONTH -> LocalDate.of((int) Math.floorDiv(period, 12), Math.floorMod(period, 12) + 1, 1);
+            case YEAR -> LocalDate.of((int) period, 1, 1);
+        };
+    }
+
+    private Group group(Key key, double total, long count, Map<Long, Tag> tags) {
+        return new Group(TYPES[key.type()], byTag ? tags.get(key.tag()) : null, periodStart(key.period()), total, count);
+    }
+
+    private static List<Map.Entry<Key, double[]>> sortedEntries(Map<Key, double[]> groups) {
+        List<Map.Entry<Key, double[]>> sorted = new ArrayList<>(groups.entrySet());
+        sorted.sort(Map.Entry.comparingByKey(KEY_ORDER));
+        return sorted;
+    }
+
+    /**
+     * Writes the groups in memory to a new run, sorted by key, and clears them.
+     * @return the run
+     */
+    private Path spill(Map<Key, double[]> groups) {
+        try {
+            Path run = newRun();
+            try (DataOutputStream out = openRun(run)) {
+                for (Map.Entry<Key, double[]> entry : sortedEntries(groups)) {
+                    writeRecord(out, entry.getKey(), entry.getValue()[0], (long) entry.getValue()[1]);
+                }
+            }
+            groups.clear();
+            spilledRuns++;
+            return run;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private Path newRun() throws IOException {
+        return Files.createTempFile(temporaryDirectory, "jbudget-aggregate-", ".run");
+    }
+
+    private static DataOutputStream openRun(Path run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(run), BUFFER_SIZE));
+    }
+
+    private static void writeRecord(DataOutputStream out, Key key, double total, long count) {
+        try {
+            out.writeByte(key.type());
+            out.writeLong(key.tag());
+            out.writeLong(key.period());
+            out.writeDouble(total);
+            out.writeLong(count);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * A consumer of the merged groups.
+     */
+    @FunctionalInterface
+    private interface MergedGroupConsumer {
+        void accept(Key key, double total, long count) throws IOException;
+    }
+
+    /**
+     * Merges sorted runs, combining the records with the same key.
+     */
+    private static void merge(List<Path> runs, MergedGroupConsumer consumer) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Comparator.comparing(RunReader::key, KEY_ORDER));
+        RunReader reader = null; // the reader out of the queue, closed by the finally block on failure
+        try {
+            for (Path run : runs) {
+                reader = new RunReader(run);
+                if (reader.next()) {
+                    queue.add(reader);
+                } else {
+                    reader.close();
+                }
+                reader = null;
+            }
+            while (!queue.isEmpty()) {
+                reader = queue.poll();
+                Key key = reader.key;
+                double total = 0;
+                long count = 0;
+                while (reader != null) {
+                    total += reader.total;
+                    count += reader.count;
+                    if (reader.next()) {
+                        queue.add(reader);
+                    } else {
+                        reader.close();
+                    }
+                    reader = !queue.isEmpty() && queue.peek().key.equals(key) ? queue.poll() : null;
+                }
+                consumer.accept(key, total, count);
+            }
+        } finally {
+            if (reader != null) {
+                reader.close();
+            }
+            for (RunReader queued : queue) {
+                queued.close();
+            }
+        }
+    }
+
+    /**
+     * Reads the records of a run one at a time.
+     */
+    private static final class RunReader implements Closeable {
+        private final DataInputStream in;
+        private Key key;
+        private double total;
+        private long count;
+
+        private RunReader(Path run) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(Files.newInputStream(run), BUFFER_SIZE));
+        }
+
+        private Key key() {
+            return key;
+        }
+
+        private boolean next() throws IOException {
+            int type;
+            try {
+                type = in.readByte();
+            } catch (EOFException e) {
+                return false;
+            }
+            key = new Key(type, in.readLong(), in.readLong());
+            total = in.readDouble();
+            count = in.readLong();
+            return true;
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+
+    private static void deleteAll(List<Path> runs) throws IOException {
+        for (Path run : runs) {
+            Files.deleteIfExists(run);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.manager;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * RunningBalance computes the balance over time of a set of transactions, as a series of points
+ * ready to be drawn: the balance at the end of every day with transactions in a date range,
+ * downsampled to a maximum number of points.
+ * The transactions are reduced once to their net amount per day; transactions can then be added or removed
+ * one change at a time, and a series for any date range is computed from the cumulative balances per day,
+ * without going through the transactions again. A day whose transactions are all removed leaves the series.
+ * Downsampling uses Largest-Triangle-Three-Buckets, which keeps the first and last points and,
+ * for each bucket in between, the point that best preserves the shape of the series.
+ */
+public class RunningBalance {
+
+    /**
+     * Represents the balance at the end of a day.
+     * @param date the day
+     * @param balance the balance at the end of the day
+     */
+    public record Point(LocalDate date, double balance) {
+    }
+
+    private final TreeMap<Long, double[]> dailyNet = new TreeMap<>(); // epoch day -> net amount and count of the day
+    private long[] days = new long[0];
+    private double[] cumulative = new double[0]; // balance at the end of days[i]
+    private boolean dirty;
+
+    /**
+     * Constructor for RunningBalance.
+     * @param transactions the initial transactions
+     */
+    public RunningBalance(Collection<Transaction> transactions) {
+        add(transactions, 1);
+    }
+
+    /**
+     * Adds or removes transactions. Only the days of the transactions are updated.
+     * @param transactions the transactions to apply
+     * @param sign 1 to add the transactions, -1 to remove them
+     */
+    public void apply(Collection<Transaction> transactions, int sign) {
+        add(transactions, sign);
+    }
+
+    private void add(Collection<Transaction> transactions, int sign) {
+        for (Transaction t : transactions) {
+            double amount = t.transactionType() == TransactionType.INCOME ? t.amount() : -t.amount();
+            long day = t.transactionDate().toEpochDay();
+            double[] net = dailyNet.computeIfAbsent(day, key -> new double[2]);
+            net[0] += sign * amount;
+            net[1] += sign;
+            if (net[1] <= 0) {
+                dailyNet.remove(day); // no transactions left on the day, whatever the rounding of its net amount
+            }
+        }
+        dirty |= !transactions.isEmpty();
+    }
+
+    /**
+     * Returns the balance at the end of a day.
+     * @param date the day
+     * @return the sum of the incomes minus the expenses up to the day, included
+     */
+    public double balanceAt(LocalDate date) {
+        refresh();
+        int index = upperBound(date.toEpochDay()) - 1;
+        return index >= 0 ? cumulative[index] : 0;
+    }
+
+    /**
+     * Returns the balance over a date range, with at most the given number of points.
+     * The series starts with the balance at the start of the range and ends with the balance at its end;
+     * in between there is a point for every day with transactions, unless the series is downsampled.
+     * @param from the first day of the range (null for the first day with transactions)
+     * @param to the last day of the range (null for the last day with transactions)
+     * @param maxPoints the maximum number of points, at least 3
+     * @return the points of the series, in order of date; empty if there are no days in the range
+     */
+    public List<Point> series(LocalDate from, LocalDate to, int maxPoints) {
+        refresh();
+        if (days.length == 0 && (from == null || to == null)) {
+            return List.of();
+        }
+        long fromDay = from != null ? from.toEpochDay() : days[0];
+        long toDay = to != null ? to.toEpochDay() : days[days.length - 1];
+        if (fromDay > toDay) {
+            return List.of();
+        }
+        int first = upperBound(fromDay - 1); // first day >= fromDay
+        int last = upperBound(toDay);        // first day > toDay
+        int count = Math.max(0, last - first);
+
+        long[] x = new long[count + 2];
+        double[] y = new double[count + 2];
+        int n = 0;
+        double opening = first > 0 ? cumulative[first - 1] : 0;
+        if (count == 0 || days[first] > fromDay) {
+            x[n] = fromDay;
+            y[n++] = opening;
+        }
+        for (int i = first; i < last; i++) {
+            x[n] = days[i];
+            y[n++] = cumulative[i];
+        }
+        if (n == 0 || x[n - 1] < toDay) {
+            double closing = n > 0 ? y[n - 1] : opening;
+            x[n] = toDay;
+            y[n++] = closing;
+        }
+        return downsample(x, y, n, maxPoints);
+    }
+
+    /**
+     * Downsamples a series with Largest-Triangle-Three-Buckets.
+     * @param x the dates of the points, as epoch days
+     * @param y the balances of the points
+     * @param n the number of points
+     * @param maxPoints the maximum number of points, at least 3
+     * @return the selected points
+     */
+    static List<Point> downsample(long[] x, double[] y, int n, int maxPoints) {
+        if (maxPoints < 3) {
+            throw new IllegalArgumentException("maxPoints must be at least 3");
+        }
+        List<Point> points = new ArrayList<>(Math.min(n, maxPoints));
+        if (n <= maxPoints) {
+            for (int i = 0; i < n; i++) {
+                points.add(new Point(LocalDate.ofEpochDay(x[i]), y[i]));
+            }
+            return points;
+        }
+        double bucketSize = (double) (n - 2) / (maxPoints - 2);
+        int selected = 0;
+        points.add(new Point(LocalDate.ofEpochDay(x[0]), y[0]));
+        for (int bucket = 0; bucket < maxPoints - 2; bucket++) {
+            // average of the next bucket, the third vertex of the triangles
+            int nextStart = (int) ((bucket + 1) * bucketSize) + 1;
+            int nextEnd = Math.min((int) ((bucket + 2) * bucketSize) + 1, n);
+            double averageX = 0;
+            double averageY = 0;
+            for (int i = nextStart; i < nextEnd; i++) {
+                averageX += x[i];
+                averageY += y[i];
+            }
+            averageX /= nextEnd - nextStart;
+            averageY /= nextEnd - nextStart;
+
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            double maxArea = -1;
+            int best = start;
+            for (int i = start; i < end; i++) {
+                double area = Math.abs((x[selected] - averageX) * (y[i] - y[selected])
+                        - (x[selected] - x[i]) * (averageY - y[selected]));
+                if (area > maxArea) {
+                    maxArea = area;
+                    best = i;
+                }
+            }
+            points.add(new Point(LocalDate.ofEpochDay(x[best]), y[best]));
+            selected = best;
+        }
+        points.add(new Point(LocalDate.ofEpochDay(x[n - 1]), y[n - 1]));
+        return points;
+    }
+
+    /**
+     * Rebuilds the cumulative balances per day after a change.
+     */
+    private void refresh() {
+        if (!dirty) {
+            return;
+        }
+        days = new long[dailyNet.size()];
+        cumulative = new double[dailyNet.size()];
+        double balance = 0;
+        int i = 0;
+        for (Map.Entry<Long, double[]> day : dailyNet.entrySet()) {
+            balance += day.getValue()[0];
+            days[i] = day.getKey();
+            cumulative[i++] = balance;
+        }
+        dirty = false;
+    }
+
+    /**
+     * Returns the index of the first day after the given one.
+     */
+    private int upperBound(long day) {
+        int index = Arrays.binarySearch(days, day);
+        return index >= 0 ? index + 1 : -index - 1;
+    }
+}
@@ -29,8 +29,14 @@ package it.unicam.cs.mpgc.jbudget126118.controller.manager;
 import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
 import it.unicam.cs.mpgc.jbudget126118.model.Recurrence;
 import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionIds;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerEvents;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerMetrics;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.RecurrenceExpansionEvent;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 
 
 /**
@@ -64,29 +70,55 @@ public class TransactionAdder implements IFinancialEntitiesAdder<Transaction> {
         persistency.save(transaction);
     }
 
+    /**
+     * Adds a batch of transactions to the persistency layer with a single save.
+     * @param transactions the transactions to be added.
+     */
+    @Override
+    public void addAll(List<Transaction> transactions) {
+        persistency.saveAll(transactions);
+    }
+
 
     /**
      * Adds a recurrence of a transaction until a specified end date.
      * This method creates new transactions based on the provided transaction and recurrence period,
-     * and saves them to the persistency layer until the current date exceeds the end date.
+     * and saves them to the persistency layer as a single batch, up to the end date.
      * @param t the transaction to be repeated.
      * @param EndDate the date until which the recurrence should continue.
      * @param recurrence the recurrence details, including the period of recurrence.
      */
     public void addRecurrence(Transaction t, LocalDate EndDate, Recurrence recurrence) {
+        long start = LedgerMetrics.start();
+        RecurrenceExpansionEvent event = LedgerEvents.begin(new RecurrenceExpansionEvent());
         LocalDate currentDate = t.transactionDate();
+        List<LocalDate> dates = new ArrayList<>();
 
         while (currentDate.isBefore(EndDate) || currentDate.isEqual(EndDate)) {
-            Transaction newTransaction = new Transaction(
-                System.currentTimeMillis(),
-                Math.abs(t.amount()),
-                t.transactionType(),
-                currentDate,
-                t.tags()
-            );
-            add(newTransaction);
+            dates.add(currentDate);
             currentDate = currentDate.plusDays(recurrence.period());
         }
-
+        List<Transaction> occurrences = new ArrayList<>(dates.size());
+        if (!dates.isEmpty()) {
+            long firstId = TransactionIds.reserve(dates.size()); // the batch is saved at once, so ids must differ
+            for (LocalDate date : dates) {
+                Transaction newTransaction = new Transaction(
+                    firstId + occurrences.size(),
+                    Math.abs(t.amount()),
+                    t.transactionType(),
+                    date,
+                    t.tags()
+                );
+                occurrences.add(newTransaction);
+            }
+        }
+        persistency.saveAll(occurrences);
+        LedgerMetrics.stop(LedgerMetrics.Operation.ADD_RECURRENCE, start, occurrences.size());
+        event.end();
+        if (event.shouldCommit()) {
+            event.periodDays = recurrence.period();
+            event.occurrences = occurrences.size();
+            event.commit();
+        }
     }
 }
@@ -29,10 +29,13 @@ package it.unicam.cs.mpgc.jbudget126118.controller.manager;
 import it.unicam.cs.mpgc.jbudget126118.model.Tag;
 import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
 import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerAggregationEvent;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerEvents;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerMetrics;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionScan;
 
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
 
 
 /**
@@ -41,7 +44,9 @@ import java.util.stream.Collectors;
  * It provides methods to calculate total income, total expenses, and expenses grouped by tags.
  */
 public class TransactionBalance extends AbstractBalanceCalculator<Transaction> {
-    
+
+    private final TransactionScan scan;
+
     /**
      * Constructor for ManageBalance.
      * Initializes the ManageBalance object with a list of transactions.
@@ -49,6 +54,18 @@ public class TransactionBalance extends AbstractBalanceCalculator<Transaction> {
      */
     public TransactionBalance(List<Transaction> transactions) {
         super(transactions);
+        this.scan = TransactionScan.of(transactions);
+    }
+
+    /**
+     * Constructor for TransactionBalance over a scan, such as a store that runs the scans itself.
+     * The balances are calculated by the scans, without creating a Transaction object per row;
+     * the list of items of the calculator is then empty.
+     * @param scan the scan of the transactions to be managed.
+     */
+    public TransactionBalance(TransactionScan scan) {
+        super(List.of());
+        this.scan = scan;
     }
 
     /**
@@ -59,10 +76,19 @@ public class TransactionBalance extends AbstractBalanceCalculator<Transaction> {
      * @return  the total amount of transactions of the specified type.
      */
     private double getTotals(TransactionType type) {
-        return items.stream()
-                .filter(t -> t.transactionType() == type)
-                .mapToDouble(Transaction::amount)
-                .sum();
+        long start = LedgerMetrics.start();
+        LedgerAggregationEvent event = LedgerEvents.begin(new LedgerAggregationEvent());
+        int inputRows = scan.size();
+        double total = scan.sum(type, null, null);
+        LedgerMetrics.stop(LedgerMetrics.Operation.BALANCE_TOTALS, start, inputRows);
+        event.end();
+        if (event.shouldCommit()) {
+            event.aggregation = "totals." + type;
+            event.inputRows = inputRows;
+            event.groups = 1;
+            event.commit();
+        }
+        return total;
     }
 
     /**
@@ -94,13 +120,19 @@ public class TransactionBalance extends AbstractBalanceCalculator<Transaction> {
      */
     @Override
     public Map<Tag, Double> getTagsAmountMap() {
-        return items.stream()
-                .filter(t -> t.transactionType() == TransactionType.EXPENSE)
-                .flatMap(t -> t.tags().stream().map(tag -> Map.entry(tag, t.amount())))
-                .collect(Collectors.groupingBy(
-                        Map.Entry::getKey,
-                        Collectors.summingDouble(Map.Entry::getValue)
-                ));
+        long start = LedgerMetrics.start();
+        LedgerAggregationEvent event = LedgerEvents.begin(new LedgerAggregationEvent());
+        int inputRows = scan.size();
+        Map<Tag, Double> amounts = scan.sumByTag(TransactionType.EXPENSE);
+        LedgerMetrics.stop(LedgerMetrics.Operation.BALANCE_TAGS, start, inputRows);
+        event.end();
+        if (event.shouldCommit()) {
+            event.aggregation = "tagsAmountMap";
+            event.inputRows = inputRows;
+            event.groups = amounts.size();
+            event.commit();
+        }
+        return amounts;
     }
 
 
@@ -0,0 +1,232 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.scheduler;
+
+import java.util.function.Consumer;
+
+/**
+ * TimingWheel is a hierarchical timing wheel: it holds items with a deadline expressed in ticks
+ * and hands them over when the wheel is advanced past their deadline.
+ * The wheel has four levels of 64 slots; a slot of level L covers 64^L ticks.
+ * An item is put in the level of the highest 6-bit group where its deadline differs from the current tick,
+ * and when the current tick reaches the start of its slot, the slot is cascaded to the levels below.
+ * Every item is therefore moved at most four times, so scheduling, cancelling and expiring an item
+ * cost O(1) amortized regardless of how many items are pending.
+ * Deadlines farther than 64^4 ticks are kept in an overflow list, re-examined every 64^4 ticks.
+ * Slots are doubly linked lists, so a cancelled item is unlinked at once and the wheel holds only pending items.
+ * The wheel is not thread-safe.
+ * @param <T> the type of the scheduled items
+ */
+public class TimingWheel<T> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long SPAN_MASK = (1L << (LEVELS * SLOT_BITS)) - 1;
+
+    /**
+     * An item scheduled in the wheel, which can be used to cancel it.
+     * @param <T> the type of the item
+     */
+    public static final class Timeout<T> {
+        private final T item;
+        private final long deadline;
+        private Timeout<T> next;
+        private Timeout<T> previous;
+        private int level; // LEVELS for the overflow list
+        private int slot;
+        private boolean done; // expired or cancelled
+
+        private Timeout(T item, long deadline) {
+            this.item = item;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Returns the scheduled item.
+         * @return the item
+         */
+        public T item() {
+            return item;
+        }
+
+        /**
+         * Returns the tick at which the item expires.
+         * @return the deadline
+         */
+        public long deadline() {
+            return deadline;
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private final Timeout<T>[][] buckets = new Timeout[LEVELS][SLOTS];
+    private Timeout<T> overflow;
+    private long current;
+    private int size;
+
+    /**
+     * Constructor for TimingWheel.
+     * @param currentTick the current tick: items can be scheduled only after it
+     */
+    public TimingWheel(long currentTick) {
+        this.current = currentTick;
+    }
+
+    /**
+     * Returns the current tick of the wheel.
+     * @return the last tick the wheel has been advanced to
+     */
+    public long currentTick() {
+        return current;
+    }
+
+    /**
+     * Returns the number of items waiting to expire.
+     * @return the number of pending items
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Schedules an item.
+     * @param item the item
+     * @param deadline the tick at which the item expires, after the current tick
+     * @return the timeout of the item, to cancel it
+     * @throws IllegalArgumentException if the deadline is not after the current tick
+     */
+    public Timeout<T> schedule(T item, long deadline) {
+        if (deadline <= current) {
+            throw new IllegalArgumentException("deadline " + deadline + " is not after the current tick " + current);
+        }
+        Timeout<T> timeout = new Timeout<>(item, deadline);
+        place(timeout);
+        size++;
+        return timeout;
+    }
+
+    /**
+     * Cancels a scheduled item, unlinking its timeout from the wheel.
+     * @param timeout the timeout returned by schedule()
+     * @return true if the item was cancelled, false if it had already expired or been cancelled
+     */
+    public boolean cancel(Timeout<T> timeout) {
+        if (timeout.done) {
+            return false;
+        }
+        timeout.done = true;
+        unlink(timeout);
+        size--;
+        return true;
+    }
+
+    /**
+     * Advances the wheel one tick at a time up to the given tick,
+     * passing every item whose deadline is reached to the given action, in order of deadline.
+     * @param tick the tick to advance to; nothing happens if it is not after the current tick
+     * @param expired the action performed on the expired items
+     */
+    public void advanceTo(long tick, Consumer<? super T> expired) {
+        while (current < tick) {
+            if (size == 0) {
+                current = tick; // nothing can expire, and an empty wheel is valid at any tick
+                return;
+            }
+            current++;
+            if ((current & SPAN_MASK) == 0) {
+                Timeout<T> far = overflow;
+                overflow = null;
+                reinsert(far);
+            }
+            for (int level = LEVELS - 1; level >= 1; level--) {
+                if ((current & ((1L << (level * SLOT_BITS)) - 1)) == 0) {
+                    int slot = (int) (current >>> (level * SLOT_BITS)) & SLOT_MASK;
+                    Timeout<T> cascaded = buckets[level][slot];
+                    buckets[level][slot] = null;
+                    reinsert(cascaded);
+                }
+            }
+            // the items are taken one at a time, so that the action can cancel the others of the slot
+            int slot = (int) current & SLOT_MASK;
+            Timeout<T> timeout;
+            while ((timeout = buckets[0][slot]) != null) {
+                unlink(timeout);
+                timeout.done = true;
+                size--;
+                expired.accept(timeout.item);
+            }
+        }
+    }
+
+    private void reinsert(Timeout<T> timeout) {
+        while (timeout != null) {
+            Timeout<T> next = timeout.next;
+            place(timeout);
+            timeout = next;
+        }
+    }
+
+    private void unlink(Timeout<T> timeout) {
+        if (timeout.previous != null) {
+            timeout.previous.next = timeout.next;
+        } else if (timeout.level == LEVELS) {
+            overflow = timeout.next;
+        } else {
+            buckets[timeout.level][timeout.slot] = timeout.next;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout.previous;
+        }
+        timeout.next = null;
+        timeout.previous = null;
+    }
+
+    /**
+     * Links a timeout in the slot of the highest 6-bit group where its deadline differs from the current tick;
+     * a deadline equal to the current tick goes in the current slot of the first level.
+     */
+    private void place(Timeout<T> timeout) {
+        long difference = timeout.deadline ^ current;
+        int level = difference == 0 ? 0 : (63 - Long.numberOfLeadingZeros(difference)) / SLOT_BITS;
+        timeout.previous = null;
+        if (level >= LEVELS) {
+            timeout.level = LEVELS;
+            timeout.next = overflow;
+            overflow = timeout;
+        } else {
+            int slot = (int) (timeout.deadline >>> (level * SLOT_BITS)) & SLOT_MASK;
+            timeout.level = level;
+            timeout.slot = slot;
+            timeout.next = buckets[level][slot];
+            buckets[level][slot] = timeout;
+        }
+        if (timeout.next != null) {
+            timeout.next.previous = timeout;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.scheduler;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.persistency.ObservableTransactionPersistency;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * TransactionScheduler holds the future-dated transactions and notifies its listeners on the day they come due,
+ * that is when they move from the future to the present.
+ * The transactions are kept in a TimingWheel with a tick of one day, so that millions of pending transactions
+ * cost O(1) amortized each to schedule and to fire, and a single timer thread wakes up at every midnight
+ * (and at least every minute, to follow changes of the system clock) to advance the wheel.
+ * Attached to an ObservableTransactionPersistency, the scheduler follows every change of the persistency,
+ * including the occurrences saved by a recurrence.
+ */
+public class TransactionScheduler implements AutoCloseable {
+
+    private static final long MAX_SLEEP_MILLIS = Duration.ofMinutes(1).toMillis();
+
+    private final Clock clock;
+    private final TimingWheel<Transaction> wheel;
+    private final Map<Long, TimingWheel.Timeout<Transaction>> timeouts = new HashMap<>();
+    private final List<DueTransactionListener> listeners = new CopyOnWriteArrayList<>();
+    private Thread timer;
+    private boolean closed;
+
+    /**
+     * Constructor for TransactionScheduler using the system clock and time zone.
+     */
+    public TransactionScheduler() {
+        this(Clock.systemDefaultZone());
+    }
+
+    /**
+     * Constructor for TransactionScheduler.
+     * @param clock the clock that gives the current date
+     */
+    public TransactionScheduler(Clock clock) {
+        this.clock = clock;
+        this.wheel = new TimingWheel<>(LocalDate.now(clock).toEpochDay());
+    }
+
+    /**
+     * Schedules a transaction, replacing the scheduled transaction with the same id, if any.
+     * @param t the transaction
+     * @return true if the transaction was scheduled, false if its date is not in the future
+     */
+    public synchronized boolean schedule(Transaction t) {
+        cancel(t.id());
+        long day = t.transactionDate().toEpochDay();
+        if (day <= wheel.currentTick()) {
+            return false;
+        }
+        timeouts.put(t.id(), wheel.schedule(t, day));
+        return true;
+    }
+
+    /**
+     * Schedules the future transactions of a collection, ignoring the others.
+     * @param transactions the transactions
+     */
+    public synchronized void scheduleAll(Collection<Transaction> transactions) {
+        for (Transaction t : transactions) {
+            schedule(t);
+        }
+    }
+
+    /**
+     * Cancels a scheduled transaction.
+     * @param id the id of the transaction
+     * @return true if the transaction was cancelled, false if it was not scheduled
+     */
+    public synchronized boolean cancel(long id) {
+        TimingWheel.Timeout<Transaction> timeout = timeouts.remove(id);
+        return timeout != null && wheel.cancel(timeout);
+    }
+
+    /**
+     * Returns the number of transactions waiting to come due.
+     * @return the number of pending transactions
+     */
+    public synchronized int pending() {
+        return wheel.size();
+    }
+
+    /**
+     * Schedules the future transactions of a persistency and follows its changes:
+     * added transactions are scheduled and removed ones are cancelled.
+     * @param persistency the persistency to follow
+     */
+    public void attach(ObservableTransactionPersistency persistency) {
+        persistency.addChangeListener(change -> {
+            synchronized (this) {
+                for (Transaction t : change.removed()) {
+                    cancel(t.id());
+                }
+                scheduleAll(change.added());
+            }
+        });
+        persistency.forEach(this::schedule);
+    }
+
+    /**
+     * Registers a listener to be notified of the transactions that come due.
+     * @param listener the listener to add
+     */
+    public void addDueListener(DueTransactionListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener previously registered.
+     * @param listener the listener to remove
+     */
+    public void removeDueListener(DueTransactionListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Advances the schedule to the current date of the clock and notifies the transactions that came due.
+     * It is called by the timer thread, and can be called directly when the scheduler is not started.
+     */
+    public void advance() {
+        List<Transaction> due = new ArrayList<>();
+        synchronized (this) {
+            wheel.advanceTo(LocalDate.now(clock).toEpochDay(), t -> {
+                timeouts.remove(t.id());
+                due.add(t);
+            });
+        }
+        if (!due.isEmpty()) {
+            for (DueTransactionListener listener : listeners) {
+                listener.onDue(due);
+            }
+        }
+    }
+
+    /**
+     * Starts the timer thread.
+     * @throws IllegalStateException if the scheduler is already started or closed
+     */
+    public synchronized void start() {
+        if (timer != null || closed) {
+            throw new IllegalStateException("The scheduler is already started or closed");
+        }
+        timer = new Thread(this::run, "ledger-scheduler");
+        timer.setDaemon(true);
+        timer.start();
+    }
+
+    /**
+     * Stops the timer thread, if started.
+     */
+    @Override
+    public void close() {
+        Thread started;
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+            started = timer;
+        }
+        if (started != null && started != Thread.currentThread()) {
+            try {
+                started.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void run() {
+        while (true) {
+            advance();
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                long untilMidnight = Duration.between(clock.instant(),
+                        LocalDate.now(clock).plusDays(1).atStartOfDay(clock.getZone()).toInstant()).toMillis();
+                try {
+                    wait(Math.max(1, Math.min(untilMidnight, MAX_SLEEP_MILLIS)));
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (closed) {
+                    return;
+                }
+            }
+        }
+    }
+}
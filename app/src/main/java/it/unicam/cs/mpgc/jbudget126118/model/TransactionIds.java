@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.model;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * TransactionIds hands out the ids of new transactions.
+ * Ids follow the convention of the application, the current time in milliseconds, but they come from a single
+ * counter shared by everything that creates transactions (the panes, the importers, the CLI and the HTTP server),
+ * so an id is never handed out twice, even when many transactions are created in the same millisecond
+ * or a large import runs the counter ahead of the clock.
+ * Stores pass the largest id they load to seen(), so that ids handed out by an earlier run are not repeated either.
+ */
+public final class TransactionIds {
+
+    private static final AtomicLong LAST = new AtomicLong();
+
+    private TransactionIds() {
+    }
+
+    /**
+     * Returns a new id.
+     * @return the current time in milliseconds, or the last id handed out plus one if that is larger
+     */
+    public static long next() {
+        return reserve(1);
+    }
+
+    /**
+     * Reserves a block of consecutive ids, for a batch of transactions created at once.
+     * @param count the number of ids
+     * @return the first id of the block, the others follow it
+     * @throws IllegalArgumentException if count is not positive
+     */
+    public static long reserve(int count) {
+        if (count < 1) {
+            throw new IllegalArgumentException("count must be positive");
+        }
+        while (true) {
+            long last = LAST.get();
+            long first = Math.max(last + 1, System.currentTimeMillis());
+            if (LAST.compareAndSet(last, first + count - 1)) {
+                return first;
+            }
+        }
+    }
+
+    /**
+     * Records an id already in use, so that it is never handed out.
+     * @param id the id of a stored transaction
+     */
+    public static void seen(long id) {
+        if (id > LAST.get()) {
+            LAST.accumulateAndGet(id, Math::max);
+        }
+    }
+}
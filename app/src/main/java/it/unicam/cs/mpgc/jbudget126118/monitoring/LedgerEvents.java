@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.monitoring;
+
+import jdk.jfr.Event;
+import jdk.jfr.FlightRecorder;
+
+import java.util.List;
+
+/**
+ * LedgerEvents starts the Flight Recorder events of the ledger.
+ * The events are not registered when their classes are loaded, because registering an event
+ * initializes Flight Recorder, which costs more than the whole startup of a short command.
+ * They are registered the first time an event begins after Flight Recorder has been initialized,
+ * either at JVM startup or later with {@code jcmd <pid> JFR.start}; before that, events are never committed.
+ */
+public final class LedgerEvents {
+
+    private static final List<Class<? extends Event>> EVENTS = List.of(
+            LedgerLoadEvent.class,
+            LedgerSaveEvent.class,
+            LedgerFilterEvent.class,
+            LedgerAggregationEvent.class,
+            RecurrenceExpansionEvent.class);
+
+    private static volatile boolean registered;
+
+    private LedgerEvents() {
+    }
+
+    /**
+     * Begins the timing of an event, registering the events of the ledger if Flight Recorder is running.
+     * @param event the event
+     * @param <E> the type of the event
+     * @return the event
+     */
+    public static <E extends Event> E begin(E event) {
+        if (!registered && FlightRecorder.isInitialized()) {
+            register();
+        }
+        event.begin();
+        return event;
+    }
+
+    private static synchronized void register() {
+        if (!registered) {
+            EVENTS.forEach(FlightRecorder::register);
+            registered = true;
+        }
+    }
+}
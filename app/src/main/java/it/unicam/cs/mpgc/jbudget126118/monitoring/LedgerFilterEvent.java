@@ -0,0 +1,61 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.monitoring;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Registered;
+
+/**
+ * Flight Recorder event for a filter query over transactions.
+ * The query path lists the predicates the query actually applied, so that recordings
+ * can tell apart a plain type scan from a scan restricted by date mode or period.
+ */
+@Name("it.unicam.cs.mpgc.jbudget126118.LedgerFilter")
+@Label("Ledger Filter")
+@Category({"JBudget", "Query"})
+@Description("Filter of transactions by type, date mode and period")
+@Registered(false)
+public class LedgerFilterEvent extends jdk.jfr.Event {
+
+    @Label("Query Path")
+    @Description("Predicates applied by the query, e.g. type+mode+period")
+    public String queryPath;
+
+    @Label("Transaction Type")
+    public String transactionType;
+
+    @Label("Mode")
+    public String mode;
+
+    @Label("Input Rows")
+    public int inputRows;
+
+    @Label("Output Rows")
+    public int outputRows;
+}
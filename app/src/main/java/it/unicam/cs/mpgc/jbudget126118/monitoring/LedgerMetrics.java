@@ -0,0 +1,210 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.monitoring;
+
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LedgerMetrics records counts, latencies and bytes of the hot paths of persistence and queries,
+ * and exposes them through a platform MXBean, registered by {@link #register()} or at startup if metrics are enabled.
+ * Instrumented code brackets an operation with {@link #start()} and {@link #stop(Operation, long)}:
+ * when metrics are disabled (the default, unless the system property {@code jbudget.metrics} is true)
+ * {@code start} returns 0 after reading a single volatile flag and {@code stop} returns immediately,
+ * so the overhead is a couple of branches.
+ */
+public final class LedgerMetrics implements LedgerMetricsMXBean {
+
+    /**
+     * Operation is an enumeration of the instrumented operations.
+     */
+    public enum Operation {
+        XML_LOAD("xml.load"),
+        XML_SAVE("xml.save"),
+        XML_LOAD_TAGS("xml.loadTags"),
+        STORE_LOAD("store.load"),
+        STORE_SAVE("store.save"),
+        FILTER("filter.filteredItems"),
+        BALANCE_TOTALS("balance.totals"),
+        BALANCE_TAGS("balance.tagsAmountMap"),
+        ADD_RECURRENCE("adder.addRecurrence"),
+        MONTHLY_STATEMENTS("statements.generate");
+
+        private final String metricName;
+
+        Operation(String metricName) {
+            this.metricName = metricName;
+        }
+
+        /**
+         * Returns the name of the operation in the metrics.
+         * @return the name
+         */
+        public String metricName() {
+            return metricName;
+        }
+    }
+
+    private static final LedgerMetrics INSTANCE = new LedgerMetrics();
+
+    private static volatile boolean enabled = Boolean.getBoolean("jbudget.metrics");
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+    private final LongAdder[] rows = new LongAdder[Operation.values().length];
+    private final LongAdder[] bytesRead = new LongAdder[Operation.values().length];
+    private final LongAdder[] bytesWritten = new LongAdder[Operation.values().length];
+
+    private static boolean registered;
+
+    static {
+        if (enabled) {
+            register();
+        }
+    }
+
+    private LedgerMetrics() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            rows[i] = new LongAdder();
+            bytesRead[i] = new LongAdder();
+            bytesWritten[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Returns the metrics of the application.
+     * @return the metrics
+     */
+    public static LedgerMetrics get() {
+        return INSTANCE;
+    }
+
+    /**
+     * Registers the metrics in the platform MBean server, if not registered yet.
+     * Registration is explicit because starting the MBean server costs more than the startup
+     * of short-lived commands; the long-running entry points register at startup.
+     */
+    public static synchronized void register() {
+        if (registered) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE,
+                    new ObjectName("it.unicam.cs.mpgc.jbudget126118:type=LedgerMetrics"));
+            registered = true;
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Marks the start of an operation.
+     * @return the start time, or 0 if metrics are disabled
+     */
+    public static long start() {
+        return enabled ? System.nanoTime() : 0;
+    }
+
+    /**
+     * Records the end of an operation started with {@link #start()}.
+     * @param operation the operation
+     * @param start the value returned by {@link #start()}
+     */
+    public static void stop(Operation operation, long start) {
+        if (start != 0) {
+            INSTANCE.latencies[operation.ordinal()].record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Records the end of an operation started with {@link #start()}, together with the rows it processed.
+     * @param operation the operation
+     * @param start the value returned by {@link #start()}
+     * @param rowCount the number of rows processed
+     */
+    public static void stop(Operation operation, long start, long rowCount) {
+        if (start != 0) {
+            INSTANCE.latencies[operation.ordinal()].record(System.nanoTime() - start);
+            INSTANCE.rows[operation.ordinal()].add(rowCount);
+        }
+    }
+
+    /**
+     * Records bytes read by an operation.
+     * @param operation the operation
+     * @param bytes the number of bytes read
+     */
+    public static void bytesRead(Operation operation, long bytes) {
+        if (enabled) {
+            INSTANCE.bytesRead[operation.ordinal()].add(bytes);
+        }
+    }
+
+    /**
+     * Records bytes written by an operation.
+     * @param operation the operation
+     * @param bytes the number of bytes written
+     */
+    public static void bytesWritten(Operation operation, long bytes) {
+        if (enabled) {
+            INSTANCE.bytesWritten[operation.ordinal()].add(bytes);
+        }
+    }
+
+    @Override
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @Override
+    public void setEnabled(boolean enabled) {
+        LedgerMetrics.enabled = enabled;
+    }
+
+    @Override
+    public List<OperationStatistics> getOperations() {
+        List<OperationStatistics> statistics = new ArrayList<>();
+        for (Operation operation : Operation.values()) {
+            int i = operation.ordinal();
+            statistics.add(new OperationStatistics(operation.metricName(), latencies[i].getCount(), rows[i].sum(),
+                    bytesRead[i].sum(), bytesWritten[i].sum(), latencies[i]));
+        }
+        return statistics;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i].reset();
+            rows[i].reset();
+            bytesRead[i].reset();
+            bytesWritten[i].reset();
+        }
+    }
+}
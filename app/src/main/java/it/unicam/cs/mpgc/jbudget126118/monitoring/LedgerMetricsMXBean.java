@@ -0,0 +1,58 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.monitoring;
+
+import java.util.List;
+
+/**
+ * Management interface of the ledger metrics, registered in the platform MBean server
+ * as {@code it.unicam.cs.mpgc.jbudget126118:type=LedgerMetrics}.
+ */
+public interface LedgerMetricsMXBean {
+
+    /**
+     * Checks if metrics are being recorded.
+     * @return true if metrics are enabled, false otherwise
+     */
+    boolean isEnabled();
+
+    /**
+     * Enables or disables the recording of metrics.
+     * @param enabled true to record metrics, false to stop
+     */
+    void setEnabled(boolean enabled);
+
+    /**
+     * Returns the statistics of every instrumented operation.
+     * @return the statistics
+     */
+    List<OperationStatistics> getOperations();
+
+    /**
+     * Discards all the recorded metrics.
+     */
+    void reset();
+}
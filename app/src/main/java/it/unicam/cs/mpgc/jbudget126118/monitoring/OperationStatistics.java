@@ -0,0 +1,112 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.monitoring;
+
+/**
+ * Statistics of a ledger operation, as exposed by the LedgerMetricsMXBean.
+ * Durations are in microseconds.
+ */
+public class OperationStatistics {
+    private final String name;
+    private final long count;
+    private final long rows;
+    private final long bytesRead;
+    private final long bytesWritten;
+    private final double meanMicros;
+    private final double p50Micros;
+    private final double p90Micros;
+    private final double p99Micros;
+    private final double p999Micros;
+    private final double maxMicros;
+
+    /**
+     * Constructor for OperationStatistics.
+     * @param name the name of the operation
+     * @param count the number of executions
+     * @param rows the number of rows processed
+     * @param bytesRead the number of bytes read
+     * @param bytesWritten the number of bytes written
+     * @param latency the histogram of the durations, in nanoseconds
+     */
+    public OperationStatistics(String name, long count, long rows, long bytesRead, long bytesWritten,
+                               LatencyHistogram latency) {
+        this.name = name;
+        this.count = count;
+        this.rows = rows;
+        this.bytesRead = bytesRead;
+        this.bytesWritten = bytesWritten;
+        this.meanMicros = latency.getMean() / 1e3;
+        this.p50Micros = latency.getPercentile(0.50) / 1e3;
+        this.p90Micros = latency.getPercentile(0.90) / 1e3;
+        this.p99Micros = latency.getPercentile(0.99) / 1e3;
+        this.p999Micros = latency.getPercentile(0.999) / 1e3;
+        this.maxMicros = latency.getMax() / 1e3;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getRows() {
+        return rows;
+    }
+
+    public long getBytesRead() {
+        return bytesRead;
+    }
+
+    public long getBytesWritten() {
+        return bytesWritten;
+    }
+
+    public double getMeanMicros() {
+        return meanMicros;
+    }
+
+    public double getP50Micros() {
+        return p50Micros;
+    }
+
+    public double getP90Micros() {
+        return p90Micros;
+    }
+
+    public double getP99Micros() {
+        return p99Micros;
+    }
+
+    public double getP999Micros() {
+        return p999Micros;
+    }
+
+    public double getMaxMicros() {
+        return maxMicros;
+    }
+}
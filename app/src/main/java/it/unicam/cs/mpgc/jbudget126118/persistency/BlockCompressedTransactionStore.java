@@ -0,0 +1,582 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * BlockCompressedTransactionStore is a file-based implementation of the TransactionPersistency interface
+ * for archived ledgers, which are large, rarely changed and mostly read by period.
+ * Transactions are sorted by date and stored in blocks of a fixed number of rows, each compressed on its own
+ * with a Deflater, and an index at the end of the file keeps the position, the sizes and the date range of every block:
+ * - a period query decompresses only the blocks whose date range overlaps the period;
+ * - a full load decompresses the blocks in parallel and returns them in the order of the file.
+ * Saves append new blocks, compressed in parallel, followed by a new index; the header holds the length of the file
+ * as of the last complete save, so an interrupted save is discarded when the store is opened again.
+ * The last block stays open while it has fewer rows than a block: a save merges it with the new transactions
+ * and writes it again, so small saves do not leave a block per save.
+ * The superseded last block and index are dead bytes until a later save writes over them: a save is written
+ * right after the other blocks when it fits before the committed index, or after the index otherwise,
+ * so the dead bytes of the last block and index are never more than two saves. The dead bytes left between blocks
+ * when a save fills the last block are removed by copying the archive to a new file, after a save if they are
+ * more than half of the file, and on close if they are more than a quarter.
+ * Tags are stored in the blocks with their names, as TransactionCodec does, and loadTags() uses the given tag loader.
+ */
+public class BlockCompressedTransactionStore implements TransactionPersistency, Closeable {
+
+    /** The default number of transactions in a block. */
+    public static final int DEFAULT_BLOCK_ROWS = 4096;
+
+    private static final int MAGIC = 0x4A425A41; // "JBZA"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = Integer.BYTES * 2 + Long.BYTES; // magic, version, committed length
+    private static final int FOOTER_SIZE = Long.BYTES + Integer.BYTES; // index position, magic
+    private static final int INDEX_ENTRY_SIZE = Long.BYTES + Integer.BYTES * 3 + Long.BYTES * 2;
+
+    /**
+     * The position, the sizes and the date range of a compressed block.
+     */
+    private record Block(long position, int compressedSize, int rawSize, int rows, long firstDay, long lastDay) {
+    }
+
+    private record CompressedBlock(byte[] data, int rawSize, int rows, long firstDay, long lastDay) {
+    }
+
+    private final Path file;
+    private final Supplier<List<Tag>> tagLoader;
+    private final int blockRows;
+    private final int level;
+    private FileChannel channel;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<Block> blocks = new ArrayList<>();
+    private long indexPosition;
+    private long committedLength;
+
+    /**
+     * Constructor for BlockCompressedTransactionStore with the default block size and compression level.
+     * @param file the archive file, created if missing
+     * @param tagLoader the source of the tags returned by loadTags()
+     * @throws IOException if the archive cannot be opened or is not valid
+     */
+    public BlockCompressedTransactionStore(Path file, Supplier<List<Tag>> tagLoader) throws IOException {
+        this(file, tagLoader, DEFAULT_BLOCK_ROWS, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Constructor for BlockCompressedTransactionStore.
+     * Smaller blocks make period queries decompress less, larger blocks compress better.
+     * @param file the archive file, created if missing
+     * @param tagLoader the source of the tags returned by loadTags()
+     * @param blockRows the number of transactions in a block written by this store
+     * @param level the Deflater compression level of the blocks written by this store, from 0 to 9, or -1 for the default
+     * @throws IOException if the archive cannot be opened or is not valid
+     */
+    public BlockCompressedTransactionStore(Path file, Supplier<List<Tag>> tagLoader, int blockRows, int level)
+            throws IOException {
+        if (blockRows < 1) {
+            throw new IllegalArgumentException("blockRows must be positive");
+        }
+        if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException("level must be between -1 and 9");
+        }
+        this.file = file;
+        this.tagLoader = tagLoader;
+        this.blockRows = blockRows;
+        this.level = level;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            open();
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads the header and the index, or writes an empty archive if the file is empty.
+     */
+    private void open() throws IOException {
+        if (channel.size() == 0) {
+            commit(HEADER_SIZE);
+            return;
+        }
+        ByteBuffer header = readFully(0, HEADER_SIZE);
+        if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+            throw new IOException("Not a compressed ledger archive: " + file);
+        }
+        committedLength = header.getLong();
+        if (committedLength < HEADER_SIZE + Integer.BYTES + FOOTER_SIZE || committedLength > channel.size()) {
+            throw new IOException("Corrupted compressed ledger archive: " + file);
+        }
+        channel.truncate(committedLength); // an interrupted save
+        ByteBuffer footer = readFully(committedLength - FOOTER_SIZE, FOOTER_SIZE);
+        indexPosition = footer.getLong();
+        if (footer.getInt() != MAGIC) {
+            throw new IOException("Corrupted compressed ledger archive: " + file);
+        }
+        ByteBuffer count = readFully(indexPosition, Integer.BYTES);
+        int blockCount = count.getInt();
+        ByteBuffer index = readFully(indexPosition + Integer.BYTES, blockCount * INDEX_ENTRY_SIZE);
+        for (int i = 0; i < blockCount; i++) {
+            blocks.add(new Block(index.getLong(), index.getInt(), index.getInt(), index.getInt(),
+                    index.getLong(), index.getLong()));
+        }
+    }
+
+    /**
+     * Loads all the transactions, decompressing the blocks in parallel.
+     * @return a list of transactions, in the order of the archive.
+     * @throws UncheckedIOException if a block cannot be read
+     */
+    @Override
+    public List<Transaction> load() {
+        lock.readLock().lock();
+        try {
+            return decompress(blocks);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the transactions of a period, decompressing only the blocks whose date range overlaps it.
+     * @param from the first day of the period, or null for no lower bound
+     * @param to the last day of the period, or null for no upper bound
+     * @return the transactions of the period, in the order of the archive
+     * @throws UncheckedIOException if a block cannot be read
+     */
+    public List<Transaction> load(LocalDate from, LocalDate to) {
+        long first = from != null ? from.toEpochDay() : Long.MIN_VALUE;
+        long last = to != null ? to.toEpochDay() : Long.MAX_VALUE;
+        List<Block> selected = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            for (Block block : blocks) {
+                if (block.lastDay() >= first && block.firstDay() <= last) {
+                    selected.add(block);
+                }
+            }
+            List<Transaction> transactions = decompress(selected);
+            transactions.removeIf(t -> t.transactionDate().toEpochDay() < first || t.transactionDate().toEpochDay() > last);
+            return transactions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Performs an action on each transaction, decompressing one block at a time,
+     * so a full scan needs the memory of a single block.
+     * Exceptions thrown by the action are passed to the caller.
+     * @param action the action to perform
+     * @throws UncheckedIOException if a block cannot be read
+     */
+    @Override
+    public void forEach(Consumer<? super Transaction> action) {
+        lock.readLock().lock();
+        try {
+            for (Block block : blocks) {
+                read(block).forEach(action);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the tags through the tag loader.
+     * @return the list of tags.
+     */
+    @Override
+    public List<Tag> loadTags() {
+        return tagLoader.get();
+    }
+
+    /**
+     * Appends a transaction to the last block, or to a new block if the last one is full.
+     * Every save rewrites the last block and the index, so use saveAll() for batches.
+     * @param t the transaction to save.
+     * @throws UncheckedIOException if the transaction cannot be written
+     */
+    @Override
+    public void save(Transaction t) {
+        saveAll(List.of(t));
+    }
+
+    /**
+     * Appends a batch of transactions, sorted by date together with the rows of the last block if it is not full,
+     * in new blocks compressed in parallel.
+     * @param transactions the transactions to save.
+     * @throws UncheckedIOException if the transactions cannot be written
+     */
+    @Override
+    public void saveAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        List<Block> previous = new ArrayList<>(blocks);
+        boolean committed = false;
+        try {
+            Block open = !blocks.isEmpty() && blocks.get(blocks.size() - 1).rows() < blockRows
+                    ? blocks.remove(blocks.size() - 1) : null;
+            List<Transaction> sorted = new ArrayList<>(open != null ? read(open) : List.of());
+            sorted.addAll(transactions);
+            sorted.sort(Comparator.comparing(Transaction::transactionDate));
+            List<CompressedBlock> compressed = IntStream.range(0, (sorted.size() + blockRows - 1) / blockRows)
+                    .parallel()
+                    .mapToObj(i -> compress(sorted.subList(i * blockRows, Math.min((i + 1) * blockRows, sorted.size()))))
+                    .toList();
+            long position = freePosition(open, compressed);
+            for (CompressedBlock block : compressed) {
+                writeFully(channel, position, ByteBuffer.wrap(block.data()));
+                blocks.add(new Block(position, block.data().length, block.rawSize(), block.rows(),
+                        block.firstDay(), block.lastDay()));
+                position += block.data().length;
+            }
+            commit(position);
+            committed = true;
+            if (channel.size() > committedLength) {
+                channel.truncate(committedLength); // the superseded blocks and index after the new one
+            }
+            if (deadBytes() * 2 > committedLength) {
+                compact(true);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (!committed) {
+                blocks.clear();
+                blocks.addAll(previous);
+            }
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns where a save can write its blocks and index without touching the committed archive:
+     * right after the blocks it keeps, if the save fits before the committed last block and index,
+     * or at the end of the file otherwise.
+     * @param open the last block replaced by the save, or null
+     * @param compressed the blocks of the save
+     */
+    private long freePosition(Block open, List<CompressedBlock> compressed) {
+        long end = HEADER_SIZE;
+        for (Block block : blocks) {
+            end = Math.max(end, block.position() + block.compressedSize());
+        }
+        long length = indexSize(blocks.size() + compressed.size());
+        for (CompressedBlock block : compressed) {
+            length += block.data().length;
+        }
+        long committedStart = open != null ? Math.min(open.position(), indexPosition) : indexPosition;
+        return end + length <= committedStart ? end : committedLength;
+    }
+
+    /**
+     * Returns the number of transactions in the archive.
+     * @return the number of transactions
+     */
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return blocks.stream().mapToLong(Block::rows).sum();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of blocks in the archive.
+     * @return the number of blocks
+     */
+    public int blockCount() {
+        lock.readLock().lock();
+        try {
+            return blocks.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of blocks a period query decompresses.
+     * @param from the first day of the period, or null for no lower bound
+     * @param to the last day of the period, or null for no upper bound
+     * @return the number of blocks whose date range overlaps the period
+     */
+    public int blockCount(LocalDate from, LocalDate to) {
+        long first = from != null ? from.toEpochDay() : Long.MIN_VALUE;
+        long last = to != null ? to.toEpochDay() : Long.MAX_VALUE;
+        lock.readLock().lock();
+        try {
+            return (int) blocks.stream().filter(b -> b.lastDay() >= first && b.firstDay() <= last).count();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the compression ratio of the blocks, the size of the encoded transactions over the compressed size.
+     * @return the compression ratio, 0 for an empty archive
+     */
+    public double compressionRatio() {
+        lock.readLock().lock();
+        try {
+            long raw = 0;
+            long compressed = 0;
+            for (Block block : blocks) {
+                raw += block.rawSize();
+                compressed += block.compressedSize();
+            }
+            return compressed == 0 ? 0 : (double) raw / compressed;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Closes the archive file, compacting it first if more than a quarter of it is dead bytes.
+     * @throws IOException if the file cannot be compacted or closed
+     */
+    @Override
+    public void close() throws IOException {
+        lock.writeLock().lock();
+        try {
+            if (channel.isOpen() && deadBytes() * 4 > committedLength) {
+                compact(false);
+            }
+        } finally {
+            channel.close();
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the bytes of the committed archive that are not in the header, the blocks or the index.
+     */
+    private long deadBytes() {
+        long live = HEADER_SIZE + indexSize(blocks.size());
+        for (Block block : blocks) {
+            live += block.compressedSize();
+        }
+        return committedLength - live;
+    }
+
+    /**
+     * Copies the blocks one after the other to a new file with a new index, then replaces the archive with it.
+     * The archive is left as it is until the copy is complete, so an interrupted compaction loses nothing.
+     * @param reopen true to open the compacted archive, false to leave the store closed
+     */
+    private void compact(boolean reopen) throws IOException {
+        Path copy = file.resolveSibling(file.getFileName() + ".compact");
+        List<Block> moved = new ArrayList<>(blocks.size());
+        long position = HEADER_SIZE;
+        long length;
+        try (FileChannel out = FileChannel.open(copy, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            for (Block block : blocks) {
+                writeFully(out, position, readFully(block.position(), block.compressedSize()));
+                moved.add(new Block(position, block.compressedSize(), block.rawSize(), block.rows(),
+                        block.firstDay(), block.lastDay()));
+                position += block.compressedSize();
+            }
+            length = writeIndex(out, moved, position);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(copy);
+            throw e;
+        }
+        channel.close();
+        try {
+            Files.move(copy, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            blocks.clear();
+            blocks.addAll(moved);
+            indexPosition = position;
+            committedLength = length;
+        } finally {
+            if (reopen) {
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            }
+        }
+    }
+
+    /**
+     * Writes the index of the blocks at the given position and commits it.
+     */
+    private void commit(long position) throws IOException {
+        committedLength = writeIndex(channel, blocks, position);
+        indexPosition = position;
+    }
+
+    /**
+     * Writes the index and the footer at the given position, then commits them by updating the header.
+     * Both steps are forced to the disk, so the header never refers to an index that is not complete.
+     * @return the committed length of the file
+     */
+    private static long writeIndex(FileChannel target, List<Block> blocks, long position) throws IOException {
+        ByteBuffer index = ByteBuffer.allocate((int) indexSize(blocks.size()));
+        index.putInt(blocks.size());
+        for (Block block : blocks) {
+            index.putLong(block.position()).putInt(block.compressedSize()).putInt(block.rawSize()).putInt(block.rows())
+                    .putLong(block.firstDay()).putLong(block.lastDay());
+        }
+        index.putLong(position).putInt(MAGIC);
+        writeFully(target, position, index.flip());
+        target.force(false);
+        long length = position + index.capacity();
+        writeFully(target, 0, ByteBuffer.allocate(HEADER_SIZE).putInt(MAGIC).putInt(VERSION).putLong(length).flip());
+        target.force(false);
+        return length;
+    }
+
+    private static long indexSize(int blockCount) {
+        return Integer.BYTES + (long) blockCount * INDEX_ENTRY_SIZE + FOOTER_SIZE;
+    }
+
+    /**
+     * Encodes and compresses a block of transactions sorted by date.
+     */
+    private CompressedBlock compress(List<Transaction> rows) {
+        try {
+            ByteArrayOutputStream raw = new ByteArrayOutputStream(rows.size() * 64);
+            DataOutputStream out = new DataOutputStream(raw);
+            for (Transaction t : rows) {
+                out.writeLong(t.id());
+                TransactionCodec.write(out, t);
+            }
+            byte[] input = raw.toByteArray();
+            Deflater deflater = new Deflater(level);
+            try {
+                deflater.setInput(input);
+                deflater.finish();
+                ByteArrayOutputStream compressed = new ByteArrayOutputStream(input.length / 4 + 64);
+                byte[] buffer = new byte[16 * 1024];
+                while (!deflater.finished()) {
+                    compressed.write(buffer, 0, deflater.deflate(buffer));
+                }
+                return new CompressedBlock(compressed.toByteArray(), input.length, rows.size(),
+                        rows.get(0).transactionDate().toEpochDay(), rows.get(rows.size() - 1).transactionDate().toEpochDay());
+            } finally {
+                deflater.end();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Decompresses blocks in parallel, keeping their order.
+     */
+    private List<Transaction> decompress(List<Block> selected) {
+        List<List<Transaction>> parts = selected.parallelStream().map(this::read).toList();
+        List<Transaction> transactions = new ArrayList<>(parts.stream().mapToInt(List::size).sum());
+        parts.forEach(transactions::addAll);
+        return transactions;
+    }
+
+    /**
+     * Reads and decompresses a block.
+     */
+    private List<Transaction> read(Block block) {
+        try {
+            ByteBuffer compressed = readFully(block.position(), block.compressedSize());
+            byte[] raw = new byte[block.rawSize()];
+            Inflater inflater = new Inflater();
+            try {
+                inflater.setInput(compressed);
+                int length = 0;
+                while (length < raw.length && !inflater.finished()) {
+                    int inflated = inflater.inflate(raw, length, raw.length - length);
+                    if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                        break;
+                    }
+                    length += inflated;
+                }
+                if (length != raw.length) {
+                    throw new IOException("Truncated block at " + block.position() + " in " + file);
+                }
+            } finally {
+                inflater.end();
+            }
+            DataInputStream in = new DataInputStream(new ByteArrayInputStream(raw));
+            Map<Long, Tag> tags = new HashMap<>();
+            List<Transaction> transactions = new ArrayList<>(block.rows());
+            for (int i = 0; i < block.rows(); i++) {
+                transactions.add(TransactionCodec.read(in, in.readLong(), tags));
+            }
+            return transactions;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Corrupted block at " + block.position() + " in " + file, e));
+        }
+    }
+
+    private ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("Unexpected end of " + file);
+            }
+        }
+        return buffer.flip();
+    }
+
+    private static void writeFully(FileChannel target, long position, ByteBuffer buffer) throws IOException {
+        long start = position - buffer.position();
+        while (buffer.hasRemaining()) {
+            target.write(buffer, start + buffer.position());
+        }
+    }
+}
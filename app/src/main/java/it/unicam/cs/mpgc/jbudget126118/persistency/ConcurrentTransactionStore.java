@@ -0,0 +1,492 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionIds;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerEvents;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerLoadEvent;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerMetrics;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerSaveEvent;
+
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * ConcurrentTransactionStore is an in-memory implementation of the TransactionPersistency interface
+ * that can be safely shared by several writers.
+ * Transactions are partitioned by month: writers take only the lock of the stripe their month maps to,
+ * so that writers working on different months proceed in parallel,
+ * while readers never take a lock and always see a consistent snapshot of every partition.
+ * The store can optionally be backed by another persistency, which is used to seed the store
+ * and to which every saved transaction is written through.
+ * Every save is notified to the registered listeners once the saved transactions are visible to readers.
+ * Updates and deletes are written through to the delegate, which must support them, and replace
+ * the partition of the month with a copy, so readers keep seeing either the old or the new partition.
+ * The ids of the transactions loaded from the delegate are passed to TransactionIds, so new ids never repeat them.
+ */
+public class ConcurrentTransactionStore implements ObservableTransactionPersistency {
+
+    private static final int DEFAULT_STRIPES = 16;
+
+    private final TransactionPersistency delegate; // can be null
+    private final ReentrantLock[] stripes;
+    private final ConcurrentHashMap<YearMonth, Partition> partitions = new ConcurrentHashMap<>();
+    private final List<TransactionChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final ReentrantLock editLock = new ReentrantLock(); // serializes updates and deletes
+    private volatile long reloads; // replaceAll calls, written with all the stripes held
+
+    /**
+     * Constructor for ConcurrentTransactionStore with the default number of lock stripes.
+     * @param delegate the persistency used to seed the store and to write transactions through (can be null)
+     */
+    public ConcurrentTransactionStore(TransactionPersistency delegate) {
+        this(delegate, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructor for ConcurrentTransactionStore.
+     * Loads all the transactions of the delegate, if any, into the in-memory partitions.
+     * @param delegate the persistency used to seed the store and to write transactions through (can be null)
+     * @param stripeCount the number of write locks, rounded up to a power of two
+     */
+    public ConcurrentTransactionStore(TransactionPersistency delegate, int stripeCount) {
+        if (stripeCount <= 0) {
+            throw new IllegalArgumentException("stripeCount must be positive");
+        }
+        this.delegate = delegate;
+        int size = 1;
+        while (size < stripeCount) {
+            size <<= 1;
+        }
+        this.stripes = new ReentrantLock[size];
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        if (delegate != null) {
+            List<Transaction> loaded = delegate.load();
+            for (Transaction t : loaded) {
+                append(t);
+            }
+            seenIds(loaded);
+        }
+    }
+
+    /**
+     * Returns a snapshot of all the transactions in the store, ordered by month.
+     * This method never blocks writers: each partition is read up to the last completed write.
+     * @return a list of transactions.
+     */
+    @Override
+    public List<Transaction> load() {
+        long start = LedgerMetrics.start();
+        LedgerLoadEvent event = LedgerEvents.begin(new LedgerLoadEvent());
+        List<YearMonth> months = new ArrayList<>(partitions.keySet());
+        months.sort(null);
+        List<Transaction> snapshot = new ArrayList<>();
+        for (YearMonth month : months) {
+            partitions.get(month).copyTo(snapshot);
+        }
+        LedgerMetrics.stop(LedgerMetrics.Operation.STORE_LOAD, start, snapshot.size());
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "store";
+            event.rows = snapshot.size();
+            event.commit();
+        }
+        return snapshot;
+    }
+
+    /**
+     * Performs an action on each transaction, month by month, without copying the store.
+     * Like load(), it never blocks writers and sees each partition up to the last completed write.
+     * @param action the action to perform
+     */
+    @Override
+    public void forEach(Consumer<? super Transaction> action) {
+        List<YearMonth> months = new ArrayList<>(partitions.keySet());
+        months.sort(null);
+        for (YearMonth month : months) {
+            partitions.get(month).forEach(action);
+        }
+    }
+
+    /**
+     * Loads the tags from the delegate.
+     * @return the list of tags, or an empty list if the store has no delegate.
+     */
+    @Override
+    public List<Tag> loadTags() {
+        return delegate != null ? delegate.loadTags() : List.of();
+    }
+
+    /**
+     * Saves a transaction in the partition of its month, writing it through to the delegate if present.
+     * Only the stripe lock of that month is held, so saves on other stripes are not blocked.
+     * @param t the transaction to save.
+     */
+    @Override
+    public void save(Transaction t) {
+        saveAll(List.of(t));
+    }
+
+    /**
+     * Saves a batch of transactions, writing them through to the delegate with a single call,
+     * and notifies the listeners with a single change.
+     * @param transactions the transactions to save.
+     */
+    @Override
+    public void saveAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        long start = LedgerMetrics.start();
+        LedgerSaveEvent event = LedgerEvents.begin(new LedgerSaveEvent());
+        long reloadsBefore = reloads;
+        if (delegate != null) {
+            delegate.saveAll(transactions);
+        }
+        List<Transaction> added = transactions;
+        for (int i = 0; i < transactions.size(); i++) {
+            Transaction t = transactions.get(i);
+            ReentrantLock lock = stripeFor(YearMonth.from(t.transactionDate()));
+            lock.lock();
+            try {
+                // a reload of the delegate after the write through has already brought the transaction in
+                if (reloads != reloadsBefore && holds(t)) {
+                    if (added == transactions) {
+                        added = new ArrayList<>(transactions.subList(0, i));
+                    }
+                } else {
+                    append(t);
+                    if (added != transactions) {
+                        added.add(t);
+                    }
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        LedgerMetrics.stop(LedgerMetrics.Operation.STORE_SAVE, start, transactions.size());
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "store";
+            event.rows = transactions.size();
+            event.commit();
+        }
+        if (!added.isEmpty()) {
+            fireChange(TransactionChange.added(added));
+        }
+    }
+
+    /**
+     * Replaces the transaction with the given id, writing it through to the delegate if present,
+     * and notifies the listeners with a single change that removes the previous version and adds the new one.
+     * If the date changes month, the transaction moves to the partition of the new month.
+     * @param id the id of the transaction to replace.
+     * @param t the new content of the transaction, stored with the given id.
+     * @return true if the transaction was found and replaced, false if there is no transaction with that id.
+     * @throws UnsupportedOperationException if the delegate does not support updates.
+     */
+    @Override
+    public boolean update(long id, Transaction t) {
+        return replace(id, t.id() == id ? t : new Transaction(id, t.amount(), t.transactionType(), t.transactionDate(), t.tags()));
+    }
+
+    /**
+     * Removes the transaction with the given id, writing the delete through to the delegate if present,
+     * and notifies the listeners with a change that removes it.
+     * @param id the id of the transaction to remove.
+     * @return true if the transaction was found and removed, false if there is no transaction with that id.
+     * @throws UnsupportedOperationException if the delegate does not support deletes.
+     */
+    @Override
+    public boolean delete(long id) {
+        return replace(id, null);
+    }
+
+    /**
+     * Replaces or removes a transaction. Edits are serialized among themselves, while saves only wait
+     * for the stripes of the months involved.
+     * @param id the id of the transaction
+     * @param replacement the new content of the transaction, null to remove it
+     * @return true if the transaction was found
+     */
+    private boolean replace(long id, Transaction replacement) {
+        Transaction previous;
+        editLock.lock();
+        try {
+            previous = find(id);
+            if (previous == null) {
+                return false;
+            }
+            if (delegate != null && !(replacement != null ? delegate.update(id, replacement) : delegate.delete(id))) {
+                return false;
+            }
+            YearMonth from = YearMonth.from(previous.transactionDate());
+            YearMonth to = replacement != null ? YearMonth.from(replacement.transactionDate()) : from;
+            int first = Math.min(stripeIndex(from), stripeIndex(to));
+            int second = Math.max(stripeIndex(from), stripeIndex(to));
+            stripes[first].lock();
+            stripes[second].lock();
+            try {
+                Partition partition = partitions.get(from);
+                int index = partition != null ? partition.indexOf(id) : -1;
+                if (index < 0) {
+                    return true; // a reload of the delegate replaced the store meanwhile, and it holds the change already
+                }
+                previous = partition.items[index];
+                partitions.put(from, partition.without(index));
+                if (replacement != null) {
+                    append(replacement);
+                }
+            } finally {
+                stripes[second].unlock();
+                stripes[first].unlock();
+            }
+        } finally {
+            editLock.unlock();
+        }
+        fireChange(new TransactionChange(replacement != null ? List.of(replacement) : List.of(), List.of(previous)));
+        return true;
+    }
+
+    /**
+     * Looks for a transaction by id in every partition.
+     * @param id the id of the transaction
+     * @return the transaction, or null if there is no transaction with that id
+     */
+    private Transaction find(long id) {
+        for (Partition partition : partitions.values()) {
+            int index = partition.indexOf(id);
+            if (index >= 0) {
+                return partition.items[index];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Adds transactions that are already in the delegate, such as transactions appended to its file
+     * by another program, without writing them through, and notifies the listeners with a single change.
+     * Transactions whose id is already in the partition of their month are skipped.
+     * @param transactions the transactions to add.
+     */
+    public void addLoaded(List<Transaction> transactions) {
+        List<Transaction> added = new ArrayList<>(transactions.size());
+        for (Transaction t : transactions) {
+            ReentrantLock lock = stripeFor(YearMonth.from(t.transactionDate()));
+            lock.lock();
+            try {
+                if (!holds(t)) {
+                    append(t);
+                    added.add(t);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+        if (added.isEmpty()) {
+            return;
+        }
+        seenIds(added);
+        fireChange(TransactionChange.added(added));
+    }
+
+    /**
+     * Replaces all the transactions of the store with transactions loaded again from the delegate,
+     * without writing them through, and notifies the listeners with a single change
+     * that removes the previous transactions and adds the new ones.
+     * All the stripes are held during the replacement, so no save is lost, but readers
+     * running at the same time may see some months already replaced and others not yet.
+     * @param transactions the new content of the store.
+     */
+    public void replaceAll(List<Transaction> transactions) {
+        List<Transaction> previous;
+        for (ReentrantLock stripe : stripes) {
+            stripe.lock();
+        }
+        try {
+            previous = load();
+            reloads++;
+            partitions.clear();
+            for (Transaction t : transactions) {
+                append(t);
+            }
+        } finally {
+            for (ReentrantLock stripe : stripes) {
+                stripe.unlock();
+            }
+        }
+        seenIds(transactions);
+        fireChange(new TransactionChange(List.copyOf(transactions), previous));
+    }
+
+    @Override
+    public void addChangeListener(TransactionChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TransactionChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Passes the largest id of transactions loaded from the delegate to TransactionIds.
+     * @param transactions the loaded transactions
+     */
+    private static void seenIds(List<Transaction> transactions) {
+        long max = 0;
+        for (Transaction t : transactions) {
+            max = Math.max(max, t.id());
+        }
+        TransactionIds.seen(max);
+    }
+
+    /**
+     * Notifies a change to all the registered listeners.
+     * @param change the change to notify
+     */
+    private void fireChange(TransactionChange change) {
+        for (TransactionChangeListener listener : listeners) {
+            listener.onChange(change);
+        }
+    }
+
+    /**
+     * Returns the number of transactions currently visible in the store.
+     * @return the number of transactions.
+     */
+    public int size() {
+        int size = 0;
+        for (Partition partition : partitions.values()) {
+            size += partition.size;
+        }
+        return size;
+    }
+
+    /**
+     * Tells whether the partition of the month of a transaction holds its id.
+     * Must be called with the stripe lock of the month held.
+     */
+    private boolean holds(Transaction t) {
+        Partition partition = partitions.get(YearMonth.from(t.transactionDate()));
+        return partition != null && partition.indexOf(t.id()) >= 0;
+    }
+
+    /**
+     * Appends a transaction to the partition of its month.
+     * The caller must hold the stripe lock of that month, or be the only thread using the store.
+     * @param t the transaction to append
+     */
+    private void append(Transaction t) {
+        partitions.computeIfAbsent(YearMonth.from(t.transactionDate()), k -> new Partition()).append(t);
+    }
+
+    /**
+     * Returns the lock that guards the given month.
+     * @param month the month of the partition
+     * @return the stripe lock of the month
+     */
+    private ReentrantLock stripeFor(YearMonth month) {
+        return stripes[stripeIndex(month)];
+    }
+
+    private int stripeIndex(YearMonth month) {
+        int h = month.hashCode();
+        h ^= (h >>> 16);
+        return h & (stripes.length - 1);
+    }
+
+    /**
+     * Partition is an append-only array of the transactions of a single month.
+     * Writes are serialized by the stripe lock, while reads are lock-free: the element is stored
+     * before the size is published, and a grown array is published before its new elements,
+     * so a reader that sees a given size always sees the elements up to that size.
+     * A removal never changes a partition: it builds a copy without the element, which replaces the partition.
+     */
+    private static final class Partition {
+        private volatile Transaction[] items = new Transaction[16];
+        private volatile int size;
+
+        private void append(Transaction t) {
+            Transaction[] current = items;
+            int n = size;
+            if (n == current.length) {
+                current = Arrays.copyOf(current, n * 2);
+                items = current;
+            }
+            current[n] = t;
+            size = n + 1;
+        }
+
+        private int indexOf(long id) {
+            int n = size;
+            Transaction[] snapshot = items;
+            for (int i = 0; i < n; i++) {
+                if (snapshot[i].id() == id) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Partition without(int index) {
+            int n = size;
+            Partition copy = new Partition();
+            Transaction[] remaining = new Transaction[Math.max(16, n)];
+            System.arraycopy(items, 0, remaining, 0, index);
+            System.arraycopy(items, index + 1, remaining, index, n - index - 1);
+            copy.items = remaining;
+            copy.size = n - 1;
+            return copy;
+        }
+
+        private void forEach(Consumer<? super Transaction> action) {
+            int n = size;
+            Transaction[] snapshot = items;
+            for (int i = 0; i < n; i++) {
+                action.accept(snapshot[i]);
+            }
+        }
+
+        private void copyTo(List<Transaction> out) {
+            int n = size;
+            Transaction[] snapshot = items;
+            for (int i = 0; i < n; i++) {
+                out.add(snapshot[i]);
+            }
+        }
+    }
+}
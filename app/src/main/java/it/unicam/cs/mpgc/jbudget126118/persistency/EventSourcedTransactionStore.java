@@ -0,0 +1,750 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionIds;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * EventSourcedTransactionStore is a file-based implementation of the ObservableTransactionPersistency interface
+ * that records every change as an event, to keep an audit trail and to undo and redo changes.
+ * Adds, updates and deletes are appended to an event log with the transaction before and after the change,
+ * and the current transactions are kept in memory.
+ * Every given number of events a binary snapshot of the transactions is written in the background,
+ * together with the position of the log it covers, so that opening the store loads the snapshot
+ * and replays only the events after it.
+ * Undo and redo apply the inverse of the last change, or the change again, and are logged as events too:
+ * their cost depends only on the size of the change, not on the size of the ledger.
+ * The changes that can be undone and redone are saved with the snapshot and rebuilt from the events after it,
+ * so a change can be undone by a later session, such as another run of the command line.
+ * The log is forced to the disk before a snapshot that covers it is written, and a snapshot that covers more
+ * than the log holds is ignored, so opening the store never skips events.
+ * Tags are not stored in the log: they are loaded through the given tag loader.
+ */
+public class EventSourcedTransactionStore implements ObservableTransactionPersistency, Closeable {
+
+    /** The default number of events between two snapshots. */
+    public static final int DEFAULT_SNAPSHOT_INTERVAL = 10_000;
+    /** The default number of changes that can be undone. */
+    public static final int DEFAULT_UNDO_LIMIT = 1000;
+
+    private static final String LOG_FILE = "events.log";
+    private static final String SNAPSHOT_FILE = "snapshot.bin";
+    private static final int SNAPSHOT_MAGIC = 0x4A424553; // "JBES"
+    private static final int SNAPSHOT_VERSION = 1;
+    private static final int EVENT_HEADER_SIZE = 3 * Long.BYTES + 2 + Long.BYTES; // sequence, change, time, kind, origin, id
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Kind is an enumeration of the changes recorded by the events.
+     */
+    public enum Kind {
+        ADD,
+        UPDATE,
+        DELETE
+    }
+
+    /**
+     * Origin is an enumeration of the causes of an event:
+     * an edit of the ledger, or the undo or redo of a previous edit.
+     */
+    public enum Origin {
+        EDIT,
+        UNDO,
+        REDO
+    }
+
+    /**
+     * Represents an event of the log.
+     * @param sequence the position of the event in the log, starting from 1
+     * @param change the sequence of the first event of the change, shared by the events of a saveAll
+     * @param timestamp the time the event was recorded
+     * @param kind the kind of change
+     * @param origin the cause of the event
+     * @param before the transaction before the change (null for an ADD)
+     * @param after the transaction after the change (null for a DELETE)
+     */
+    public record Event(long sequence, long change, Instant timestamp, Kind kind, Origin origin,
+                        Transaction before, Transaction after) {
+    }
+
+    /**
+     * A change of a single transaction, from before to after; null stands for no transaction.
+     */
+    private record Change(Transaction before, Transaction after) {
+
+        private Change inverse() {
+            return new Change(after, before);
+        }
+
+        private long id() {
+            return after != null ? after.id() : before.id();
+        }
+
+        private Kind kind() {
+            return before == null ? Kind.ADD : after == null ? Kind.DELETE : Kind.UPDATE;
+        }
+    }
+
+    private final Path directory;
+    private final Supplier<List<Tag>> tagLoader;
+    private final int snapshotInterval;
+    private final int undoLimit;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final LinkedHashMap<Long, Transaction> transactions = new LinkedHashMap<>();
+    private final Deque<List<Change>> undoStack = new ArrayDeque<>();
+    private final Deque<List<Change>> redoStack = new ArrayDeque<>();
+    private final List<TransactionChangeListener> listeners = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean snapshotting = new AtomicBoolean();
+    private final ExecutorService snapshotter = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ledger-snapshot");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(BUFFER_SIZE);
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private FileChannel log;
+    private long logSize;
+    private long sequence;
+    private int eventsSinceSnapshot;
+
+    /**
+     * Constructor for EventSourcedTransactionStore with the default snapshot interval and undo limit.
+     * @param directory the directory of the event log and of the snapshot, created if missing
+     * @param tagLoader the source of the tags returned by loadTags()
+     * @throws IOException if the snapshot or the event log cannot be read
+     */
+    public EventSourcedTransactionStore(Path directory, Supplier<List<Tag>> tagLoader) throws IOException {
+        this(directory, tagLoader, DEFAULT_SNAPSHOT_INTERVAL, DEFAULT_UNDO_LIMIT);
+    }
+
+    /**
+     * Constructor for EventSourcedTransactionStore.
+     * Loads the latest snapshot, if any, and replays the events logged after it.
+     * @param directory the directory of the event log and of the snapshot, created if missing
+     * @param tagLoader the source of the tags returned by loadTags()
+     * @param snapshotInterval the number of events between two snapshots
+     * @param undoLimit the number of changes that can be undone
+     * @throws IOException if the snapshot or the event log cannot be read
+     */
+    public EventSourcedTransactionStore(Path directory, Supplier<List<Tag>> tagLoader, int snapshotInterval,
+                                        int undoLimit) throws IOException {
+        if (snapshotInterval <= 0) {
+            throw new IllegalArgumentException("snapshotInterval must be positive");
+        }
+        if (undoLimit < 0) {
+            throw new IllegalArgumentException("undoLimit must not be negative");
+        }
+        this.directory = directory;
+        this.tagLoader = tagLoader;
+        this.snapshotInterval = snapshotInterval;
+        this.undoLimit = undoLimit;
+        open();
+    }
+
+    /**
+     * Returns a copy of the current transactions, in the order they were first added.
+     * @return a list of transactions.
+     */
+    @Override
+    public List<Transaction> load() {
+        lock.readLock().lock();
+        try {
+            return new ArrayList<>(transactions.values());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Performs an action on each current transaction without copying them.
+     * Writers wait until the iteration is complete.
+     * @param action the action to perform
+     */
+    @Override
+    public void forEach(Consumer<? super Transaction> action) {
+        lock.readLock().lock();
+        try {
+            transactions.values().forEach(action);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the tags through the tag loader.
+     * @return the list of tags.
+     */
+    @Override
+    public List<Tag> loadTags() {
+        return tagLoader.get();
+    }
+
+    /**
+     * Adds a transaction, or replaces the transaction with the same id.
+     * @param t the transaction to save.
+     * @throws UncheckedIOException if the event cannot be logged
+     */
+    @Override
+    public void save(Transaction t) {
+        saveAll(List.of(t));
+    }
+
+    /**
+     * Adds a batch of transactions, or replaces the transactions with the same ids,
+     * as a single change that is undone at once.
+     * @param batch the transactions to save.
+     * @throws UncheckedIOException if the events cannot be logged
+     */
+    @Override
+    public void saveAll(List<Transaction> batch) {
+        TransactionChange change;
+        lock.writeLock().lock();
+        try {
+            List<Change> changes = new ArrayList<>(batch.size());
+            for (Transaction t : batch) {
+                changes.add(new Change(transactions.get(t.id()), t));
+            }
+            change = commit(changes, Origin.EDIT);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireChange(change);
+    }
+
+    /**
+     * Replaces a transaction.
+     * @param id the id of the transaction to replace.
+     * @param t the new content of the transaction, stored with the given id.
+     * @return true if the transaction was found and replaced, false if there is no transaction with that id.
+     * @throws UncheckedIOException if the event cannot be logged
+     */
+    @Override
+    public boolean update(long id, Transaction t) {
+        TransactionChange change;
+        lock.writeLock().lock();
+        try {
+            Transaction before = transactions.get(id);
+            if (before == null) {
+                return false;
+            }
+            Transaction after = new Transaction(id, t.amount(), t.transactionType(), t.transactionDate(), t.tags());
+            change = commit(List.of(new Change(before, after)), Origin.EDIT);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireChange(change);
+        return true;
+    }
+
+    /**
+     * Deletes a transaction.
+     * @param id the id of the transaction to delete.
+     * @return true if the transaction was found and deleted, false if there is no transaction with that id.
+     * @throws UncheckedIOException if the event cannot be logged
+     */
+    @Override
+    public boolean delete(long id) {
+        TransactionChange change;
+        lock.writeLock().lock();
+        try {
+            Transaction before = transactions.get(id);
+            if (before == null) {
+                return false;
+            }
+            change = commit(List.of(new Change(before, null)), Origin.EDIT);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireChange(change);
+        return true;
+    }
+
+    /**
+     * Undoes the last change that has not been undone yet.
+     * @return true if a change was undone, false if there is nothing to undo
+     * @throws UncheckedIOException if the event cannot be logged
+     */
+    public boolean undo() {
+        TransactionChange change;
+        lock.writeLock().lock();
+        try {
+            List<Change> last = undoStack.peekFirst();
+            if (last == null) {
+                return false;
+            }
+            List<Change> inverse = new ArrayList<>(last.size());
+            for (int i = last.size() - 1; i >= 0; i--) {
+                inverse.add(last.get(i).inverse());
+            }
+            change = commit(inverse, Origin.UNDO);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireChange(change);
+        return true;
+    }
+
+    /**
+     * Applies again the last undone change.
+     * @return true if a change was redone, false if there is nothing to redo
+     * @throws UncheckedIOException if the event cannot be logged
+     */
+    public boolean redo() {
+        TransactionChange change;
+        lock.writeLock().lock();
+        try {
+            List<Change> last = redoStack.peekFirst();
+            if (last == null) {
+                return false;
+            }
+            change = commit(last, Origin.REDO);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        fireChange(change);
+        return true;
+    }
+
+    /**
+     * Checks if there is a change to undo.
+     * @return true if undo() would undo a change
+     */
+    public boolean canUndo() {
+        lock.readLock().lock();
+        try {
+            return !undoStack.isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Checks if there is a change to redo.
+     * @return true if redo() would redo a change
+     */
+    public boolean canRedo() {
+        lock.readLock().lock();
+        try {
+            return !redoStack.isEmpty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Performs an action on each event of the log, from the first one, reading one event at a time.
+     * Writers wait until the log has been read.
+     * @param action the action to perform
+     * @throws IOException if the log cannot be read
+     */
+    public void history(Consumer<? super Event> action) throws IOException {
+        lock.readLock().lock();
+        try {
+            readLog(0, logSize, action);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void addChangeListener(TransactionChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeChangeListener(TransactionChangeListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Waits for a pending snapshot and closes the event log.
+     * @throws IOException if the event log cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        snapshotter.shutdown();
+        try {
+            snapshotter.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            log.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        Path logPath = directory.resolve(LOG_FILE);
+        if (!Files.exists(logPath)) {
+            Files.createFile(logPath);
+        }
+        long size = Files.size(logPath);
+        long offset = 0;
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        if (Files.exists(snapshot)) {
+            try {
+                offset = readSnapshot(snapshot);
+                if (offset > size) {
+                    throw new IOException("Ledger snapshot past the end of the event log: " + snapshot);
+                }
+            } catch (IOException e) {
+                // the log is complete: replay it from the start, and drop the snapshot, which would otherwise
+                // cover the wrong events once the log grows past its position
+                e.printStackTrace();
+                Files.delete(snapshot);
+                transactions.clear();
+                undoStack.clear();
+                redoStack.clear();
+                sequence = 0;
+                offset = 0;
+            }
+        }
+        List<Change> replayed = new ArrayList<>();
+        Origin[] replayedOrigin = new Origin[1];
+        long[] replayedChange = new long[1];
+        long valid = readLog(offset, size, event -> {
+            if (!replayed.isEmpty() && event.change() != replayedChange[0]) {
+                record(List.copyOf(replayed), replayedOrigin[0]);
+                replayed.clear();
+            }
+            Change change = new Change(event.before(), event.after());
+            sequence = event.sequence();
+            apply(change);
+            replayed.add(change);
+            replayedOrigin[0] = event.origin();
+            replayedChange[0] = event.change();
+        });
+        if (!replayed.isEmpty()) {
+            record(List.copyOf(replayed), replayedOrigin[0]);
+        }
+        log = FileChannel.open(logPath, StandardOpenOption.WRITE);
+        if (valid < size) {
+            log.truncate(valid); // an event cut short by a crash
+        }
+        logSize = valid;
+        for (long id : transactions.keySet()) {
+            TransactionIds.seen(id);
+        }
+    }
+
+    /**
+     * Moves a change between the undo and the redo stacks: an edit can be undone and discards the changes
+     * that could be redone, an undo moves the last edit to the changes that can be redone, and a redo moves it back.
+     * Must be called with the write lock held, or while opening the store.
+     * @param changes the changes of the edit, not used for an undo or a redo
+     * @param origin the cause of the change
+     */
+    private void record(List<Change> changes, Origin origin) {
+        switch (origin) {
+            case EDIT -> {
+                redoStack.clear();
+                if (undoLimit > 0) {
+                    undoStack.push(changes);
+                    if (undoStack.size() > undoLimit) {
+                        undoStack.removeLast();
+                    }
+                }
+            }
+            case UNDO -> {
+                List<Change> undone = undoStack.pollFirst();
+                if (undone != null) {
+                    redoStack.push(undone);
+                }
+            }
+            case REDO -> {
+                List<Change> redone = redoStack.pollFirst();
+                if (redone != null) {
+                    undoStack.push(redone);
+                }
+            }
+        }
+    }
+
+    /**
+     * Logs the events of the changes, applies them to the transactions and records them for undo and redo.
+     * The changes are applied only if the events are written, so a failed write leaves the store unchanged.
+     * Must be called with the write lock held.
+     * @return the change to notify to the listeners
+     */
+    private TransactionChange commit(List<Change> changes, Origin origin) {
+        long time = System.currentTimeMillis();
+        try {
+            long next = sequence;
+            long first = sequence + 1;
+            for (Change change : changes) {
+                writeEvent(++next, first, time, origin, change);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+            long position = logSize;
+            while (buffer.hasRemaining()) {
+                position += log.write(buffer, position);
+            }
+            logSize = position;
+            sequence = next;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            pending.reset();
+        }
+        List<Transaction> added = new ArrayList<>();
+        List<Transaction> removed = new ArrayList<>();
+        for (Change change : changes) {
+            apply(change);
+            if (change.before() != null) {
+                removed.add(change.before());
+            }
+            if (change.after() != null) {
+                added.add(change.after());
+            }
+        }
+        record(changes, origin);
+        eventsSinceSnapshot += changes.size();
+        if (eventsSinceSnapshot >= snapshotInterval && snapshotting.compareAndSet(false, true)) {
+            eventsSinceSnapshot = 0;
+            Transaction[] state = transactions.values().toArray(new Transaction[0]);
+            List<List<Change>> undo = new ArrayList<>(undoStack);
+            List<List<Change>> redo = new ArrayList<>(redoStack);
+            long snapshotSequence = sequence;
+            long snapshotOffset = logSize;
+            snapshotter.execute(() -> {
+                try {
+                    writeSnapshot(state, undo, redo, snapshotSequence, snapshotOffset);
+                } catch (IOException e) {
+                    e.printStackTrace(); // the next interval tries again, and the log is still complete
+                } finally {
+                    snapshotting.set(false);
+                }
+            });
+        }
+        return new TransactionChange(List.copyOf(added), List.copyOf(removed));
+    }
+
+    private void apply(Change change) {
+        if (change.after() != null) {
+            transactions.put(change.id(), change.after());
+        } else {
+            transactions.remove(change.id());
+        }
+    }
+
+    private void writeEvent(long eventSequence, long first, long time, Origin origin, Change change)
+            throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(eventSequence);
+        out.writeLong(first);
+        out.writeLong(time);
+        out.writeByte(change.kind().ordinal());
+        out.writeByte(origin.ordinal());
+        out.writeLong(change.id());
+        if (change.before() != null) {
+            TransactionCodec.write(out, change.before());
+        }
+        if (change.after() != null) {
+            TransactionCodec.write(out, change.after());
+        }
+        pendingOut.writeInt(bytes.size());
+        bytes.writeTo(pendingOut);
+    }
+
+    /**
+     * Reads the complete events of the log between two positions, stopping at an event cut short.
+     * @return the position after the last complete event
+     */
+    private long readLog(long from, long to, Consumer<? super Event> action) throws IOException {
+        long offset = from;
+        Map<Long, Tag> tags = new HashMap<>();
+        try (FileChannel channel = FileChannel.open(directory.resolve(LOG_FILE), StandardOpenOption.READ);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(
+                     Channels.newInputStream(channel.position(from)), BUFFER_SIZE))) {
+            while (to - offset >= Integer.BYTES) {
+                int length = in.readInt();
+                if (length < EVENT_HEADER_SIZE || offset + Integer.BYTES + length > to) {
+                    break;
+                }
+                long eventSequence = in.readLong();
+                long change = in.readLong();
+                Instant time = Instant.ofEpochMilli(in.readLong());
+                Kind kind = Kind.values()[in.readByte()];
+                Origin origin = Origin.values()[in.readByte()];
+                long id = in.readLong();
+                Transaction before = kind == Kind.ADD ? null : TransactionCodec.read(in, id, tags);
+                Transaction after = kind == Kind.DELETE ? null : TransactionCodec.read(in, id, tags);
+                action.accept(new Event(eventSequence, change, time, kind, origin, before, after));
+                offset += Integer.BYTES + length;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Writes a snapshot to a temporary file and moves it over the previous one,
+     * so that a crash leaves either snapshot complete.
+     * The events the snapshot covers are forced to the disk first, since a snapshot must never cover events
+     * that a crash could still lose.
+     */
+    private void writeSnapshot(Transaction[] state, List<List<Change>> undo, List<List<Change>> redo,
+                               long snapshotSequence, long snapshotOffset) throws IOException {
+        log.force(false);
+        Path snapshot = directory.resolve(SNAPSHOT_FILE);
+        Path temporary = directory.resolve(SNAPSHOT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(channel), BUFFER_SIZE));
+            out.writeInt(SNAPSHOT_MAGIC);
+            out.writeInt(SNAPSHOT_VERSION);
+            out.writeLong(snapshotSequence);
+            out.writeLong(snapshotOffset);
+            out.writeInt(state.length);
+            for (Transaction t : state) {
+                out.writeLong(t.id());
+                TransactionCodec.write(out, t);
+            }
+            writeStack(out, undo);
+            writeStack(out, redo);
+            out.flush();
+            channel.force(true);
+        }
+        Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Loads the transactions of a snapshot.
+     * @return the position of the log after the last event included in the snapshot
+     */
+    private long readSnapshot(Path snapshot) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Files.newInputStream(snapshot), BUFFER_SIZE))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                throw new IOException("Not a ledger snapshot: " + snapshot);
+            }
+            sequence = in.readLong();
+            long offset = in.readLong();
+            int count = in.readInt();
+            Map<Long, Tag> tags = new HashMap<>();
+            for (int i = 0; i < count; i++) {
+                long id = in.readLong();
+                transactions.put(id, TransactionCodec.read(in, id, tags));
+            }
+            readStack(in, tags, undoStack);
+            readStack(in, tags, redoStack);
+            return offset;
+        } catch (EOFException e) {
+            throw new IOException("Truncated ledger snapshot: " + snapshot, e);
+        }
+    }
+
+    /**
+     * Writes the changes of an undo or redo stack, from the top, each change as its kind, id and transactions.
+     */
+    private static void writeStack(DataOutputStream out, List<List<Change>> stack) throws IOException {
+        out.writeInt(stack.size());
+        for (List<Change> changes : stack) {
+            out.writeInt(changes.size());
+            for (Change change : changes) {
+                out.writeByte(change.kind().ordinal());
+                out.writeLong(change.id());
+                if (change.before() != null) {
+                    TransactionCodec.write(out, change.before());
+                }
+                if (change.after() != null) {
+                    TransactionCodec.write(out, change.after());
+                }
+            }
+        }
+    }
+
+    /**
+     * Reads the changes of a stack written by writeStack(), keeping the undo limit.
+     */
+    private void readStack(DataInputStream in, Map<Long, Tag> tags, Deque<List<Change>> stack) throws IOException {
+        int size = in.readInt();
+        for (int i = 0; i < size; i++) {
+            int count = in.readInt();
+            List<Change> changes = new ArrayList<>(count);
+            for (int j = 0; j < count; j++) {
+                Kind kind = Kind.values()[in.readByte()];
+                long id = in.readLong();
+                Transaction before = kind == Kind.ADD ? null : TransactionCodec.read(in, id, tags);
+                Transaction after = kind == Kind.DELETE ? null : TransactionCodec.read(in, id, tags);
+                changes.add(new Change(before, after));
+            }
+            if (stack.size() < undoLimit) {
+                stack.addLast(changes);
+            }
+        }
+    }
+
+    /**
+     * Notifies a change to all the registered listeners.
+     * @param change the change to notify
+     */
+    private void fireChange(TransactionChange change) {
+        for (TransactionChangeListener listener : listeners) {
+            listener.onChange(change);
+        }
+    }
+}
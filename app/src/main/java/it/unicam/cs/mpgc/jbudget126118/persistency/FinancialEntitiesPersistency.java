@@ -47,4 +47,39 @@ public interface FinancialEntitiesPersistency<T> {
      */
     public void save(T entity);
 
+    /**
+     * Saves a batch of financial entities.
+     * The default implementation saves them one by one; implementations should override it
+     * when they can persist the whole batch at once.
+     * @param entities the financial entities to be saved, of type T.
+     */
+    public default void saveAll(List<T> entities) {
+        for (T entity : entities) {
+            save(entity);
+        }
+    }
+
+    /**
+     * Replaces the financial entity with the given id.
+     * The default implementation does not support updates.
+     * @param id the id of the entity to replace.
+     * @param entity the new content of the entity, stored with the given id.
+     * @return true if the entity was found and replaced, false if there is no entity with that id.
+     * @throws UnsupportedOperationException if the persistency does not support updates.
+     */
+    public default boolean update(long id, T entity) {
+        throw new UnsupportedOperationException("update is not supported by " + getClass().getSimpleName());
+    }
+
+    /**
+     * Removes the financial entity with the given id.
+     * The default implementation does not support deletes.
+     * @param id the id of the entity to remove.
+     * @return true if the entity was found and removed, false if there is no entity with that id.
+     * @throws UnsupportedOperationException if the persistency does not support deletes.
+     */
+    public default boolean delete(long id) {
+        throw new UnsupportedOperationException("delete is not supported by " + getClass().getSimpleName());
+    }
+
 }
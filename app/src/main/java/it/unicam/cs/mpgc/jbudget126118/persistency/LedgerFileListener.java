@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+
+import java.util.List;
+
+/**
+ * Listener notified by a LedgerFileWatcher when the ledger files are modified by another program.
+ * Listeners are called on the thread of the watcher, so they should return quickly
+ * and hand the changes over to their own thread if needed (e.g. the JavaFX application thread).
+ */
+public interface LedgerFileListener {
+
+    /**
+     * Called when transactions have been appended to the transaction file and nothing else has changed.
+     * @param appended the appended transactions, in file order
+     */
+    void onTransactionsAppended(List<Transaction> appended);
+
+    /**
+     * Called when the transaction file has changed in some other way and has been loaded again.
+     * @param transactions all the transactions of the file
+     */
+    void onTransactionsReloaded(List<Transaction> transactions);
+
+    /**
+     * Called when the tag file has changed and has been loaded again.
+     * The default implementation ignores the change.
+     * @param tags all the tags of the file
+     */
+    default void onTagsReloaded(List<Tag> tags) {
+    }
+}
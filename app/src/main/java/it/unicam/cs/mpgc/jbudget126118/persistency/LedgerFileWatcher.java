@@ -0,0 +1,316 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32C;
+
+import static java.nio.file.StandardWatchEventKinds.ENTRY_CREATE;
+import static java.nio.file.StandardWatchEventKinds.ENTRY_MODIFY;
+import static java.nio.file.StandardWatchEventKinds.OVERFLOW;
+
+/**
+ * LedgerFileWatcher watches the files of an XmlPersistency for changes made by other programs,
+ * such as sync tools, and notifies its listeners with the new content.
+ * The watcher remembers where the closing tag of the root element was and a checksum of the file before it:
+ * if the file has grown and that part is unchanged, only the transactions after it are parsed;
+ * otherwise the whole file is loaded again. Changes to the tag file always reload the tags, and the transactions
+ * too, since their tags are resolved against the tag file.
+ * Events are coalesced until the files have been quiet for a short time, so that a file written
+ * in several steps is read once. The writes of the XmlPersistency itself are not reported: the file is examined
+ * under the read lock of the persistency, and the state the persistency records after each of its saves
+ * becomes the baseline of the watcher, so that only what other programs appended after it is parsed.
+ */
+public class LedgerFileWatcher implements Closeable {
+
+    private static final long QUIET_MILLIS = 200;
+
+    private final XmlPersistency persistency;
+    private final Path transactionFile;
+    private final Path tagFile;
+    private final WatchService watchService;
+    private final List<LedgerFileListener> listeners = new CopyOnWriteArrayList<>();
+    private Thread thread;
+
+    // state of the transaction file after the last change handled
+    private long size;
+    private long modified;
+    private long rootEnd; // position of the closing tag of the root element, -1 if not found
+    private long prefixChecksum; // checksum of the file before rootEnd
+    private XmlPersistency.SavedState adoptedSave; // the last save of the persistency taken as baseline
+
+    /**
+     * The transactions read after a change of the transaction file.
+     * @param transactions the appended transactions, or all of them
+     * @param appended true if only the appended transactions were read
+     */
+    private record Change(List<Transaction> transactions, boolean appended) {
+    }
+
+    /**
+     * Constructor for LedgerFileWatcher.
+     * Registers the directories of the transaction and tag files and reads the current state of the transaction file.
+     * @param persistency the persistency whose files are watched
+     * @throws IOException if the directories cannot be watched or the transaction file cannot be read
+     */
+    public LedgerFileWatcher(XmlPersistency persistency) throws IOException {
+        this.persistency = persistency;
+        this.transactionFile = persistency.transactionFile().toAbsolutePath();
+        this.tagFile = persistency.tagFile().toAbsolutePath();
+        this.watchService = FileSystems.getDefault().newWatchService();
+        transactionFile.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        if (!tagFile.getParent().equals(transactionFile.getParent())) {
+            tagFile.getParent().register(watchService, ENTRY_CREATE, ENTRY_MODIFY);
+        }
+        try {
+            persistency.readLocked(() -> {
+                try {
+                    adoptedSave = persistency.lastSave();
+                    return readState(-1, 0);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Registers a listener to be notified of the changes of the files.
+     * @param listener the listener to add
+     */
+    public void addListener(LedgerFileListener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Removes a listener previously registered.
+     * @param listener the listener to remove
+     */
+    public void removeListener(LedgerFileListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Starts watching the files on a daemon thread.
+     * @throws IllegalStateException if the watcher is already started
+     */
+    public synchronized void start() {
+        if (thread != null) {
+            throw new IllegalStateException("The watcher is already started");
+        }
+        thread = new Thread(this::run, "ledger-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops watching the files.
+     * @throws IOException if the watch service cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+    }
+
+    private void run() {
+        try {
+            while (true) {
+                boolean transactionsChanged = false;
+                boolean tagsChanged = false;
+                WatchKey key = watchService.take();
+                // coalesce the events until the files are quiet
+                while (key != null) {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == OVERFLOW) {
+                            transactionsChanged = true;
+                            tagsChanged = true;
+                            continue;
+                        }
+                        Path changed = directory.resolve((Path) event.context());
+                        transactionsChanged |= changed.equals(transactionFile);
+                        tagsChanged |= changed.equals(tagFile);
+                    }
+                    key.reset();
+                    key = watchService.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS);
+                }
+                if (transactionsChanged) {
+                    transactionFileChanged();
+                }
+                if (tagsChanged) {
+                    var tags = persistency.loadTags();
+                    for (LedgerFileListener listener : listeners) {
+                        listener.onTagsReloaded(tags);
+                    }
+                    // the tags of the transactions are resolved against the tag file
+                    List<Transaction> transactions = persistency.load();
+                    for (LedgerFileListener listener : listeners) {
+                        listener.onTransactionsReloaded(transactions);
+                    }
+                }
+            }
+        } catch (ClosedWatchServiceException | InterruptedException e) {
+            // closed
+        }
+    }
+
+    /**
+     * Handles a change of the transaction file, notifying the listeners once the read lock of the persistency
+     * is released, so that they can save through it.
+     */
+    private void transactionFileChanged() {
+        Change change = persistency.readLocked(this::readChange);
+        if (change == null) {
+            return;
+        }
+        for (LedgerFileListener listener : listeners) {
+            if (change.appended()) {
+                listener.onTransactionsAppended(change.transactions());
+            } else {
+                listener.onTransactionsReloaded(change.transactions());
+            }
+        }
+    }
+
+    /**
+     * Reads a change of the transaction file: skips the writes of the persistency,
+     * parses only the tail if transactions were appended, and loads the whole file otherwise.
+     * Must be called with the read lock of the persistency held.
+     * @return the change, or null if the file holds nothing the listeners do not have
+     */
+    private Change readChange() {
+        try {
+            if (!Files.exists(transactionFile)) {
+                return null; // replaced by a rename that is not complete yet: the next event reads it
+            }
+            XmlPersistency.SavedState saved = persistency.lastSave();
+            if (saved != null && saved != adoptedSave) {
+                boolean unchangedSinceAdopted = adoptedSave != null && adoptedSave.chain() == saved.chain()
+                        && adoptedSave.size() == size && adoptedSave.modified() == modified;
+                boolean unchangedSinceBase = saved.baseSize() == size && saved.baseModified() == modified;
+                adoptedSave = saved;
+                if (!unchangedSinceAdopted && !unchangedSinceBase) {
+                    return reload(); // another program wrote the file before the persistency saved it
+                }
+                // written by the persistency, whose users already have the transactions
+                size = saved.size();
+                modified = saved.modified();
+                rootEnd = saved.rootEnd();
+                prefixChecksum = saved.prefixChecksum();
+            }
+            long newSize = Files.size(transactionFile);
+            long newModified = Files.getLastModifiedTime(transactionFile).toMillis();
+            if (newSize == size && newModified == modified) {
+                return null;
+            }
+            long previousRootEnd = rootEnd;
+            if (previousRootEnd >= 0 && newSize > size && readState(previousRootEnd, prefixChecksum)) {
+                return new Change(persistency.loadFrom(previousRootEnd), true);
+            }
+        } catch (Exception e) {
+            e.printStackTrace(); // fall back to a full reload
+        }
+        return reload();
+    }
+
+    private Change reload() {
+        try {
+            readState(-1, 0);
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+        return new Change(persistency.load(), false);
+    }
+
+    /**
+     * Reads the size, the modification time, the position of the closing root tag and the checksum
+     * of the content before it, in a single pass over the file.
+     * If a previous position is given, the checksum of the content before it is compared
+     * with the expected one, and the state is updated only if they are equal.
+     * @param previousRootEnd the position of the closing root tag before the change, or -1
+     * @param expectedChecksum the checksum of the content before previousRootEnd
+     * @return true if the content before previousRootEnd is unchanged, or no position was given
+     */
+    private boolean readState(long previousRootEnd, long expectedChecksum) throws IOException {
+        if (!Files.exists(transactionFile)) {
+            size = 0;
+            modified = 0;
+            rootEnd = -1;
+            prefixChecksum = 0;
+            return previousRootEnd < 0;
+        }
+        try (FileChannel channel = FileChannel.open(transactionFile, StandardOpenOption.READ)) {
+            long newSize = channel.size();
+            long newModified = Files.getLastModifiedTime(transactionFile).toMillis();
+            long newRootEnd = XmlPersistency.findRootEnd(channel, newSize);
+            if (previousRootEnd > newRootEnd) {
+                return false;
+            }
+            CRC32C checksum = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            long position = 0;
+            long end = newRootEnd >= 0 ? newRootEnd : 0;
+            while (position < end) {
+                long stop = previousRootEnd > position ? Math.min(previousRootEnd, end) : end;
+                buffer.clear().limit((int) Math.min(buffer.capacity(), stop - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    return false;
+                }
+                buffer.flip();
+                checksum.update(buffer);
+                position += read;
+                if (position == previousRootEnd && checksum.getValue() != expectedChecksum) {
+                    return false;
+                }
+            }
+            size = newSize;
+            modified = newModified;
+            rootEnd = newRootEnd;
+            prefixChecksum = checksum.getValue();
+            return true;
+        }
+    }
+}
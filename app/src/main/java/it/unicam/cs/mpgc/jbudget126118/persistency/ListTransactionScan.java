@@ -0,0 +1,86 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * ListTransactionScan runs the scans of a TransactionScan with streams over a list of transactions.
+ */
+final class ListTransactionScan implements TransactionScan {
+
+    private final List<Transaction> transactions;
+
+    /**
+     * Constructor for ListTransactionScan.
+     * @param transactions the transactions to scan
+     */
+    ListTransactionScan(List<Transaction> transactions) {
+        this.transactions = transactions;
+    }
+
+    @Override
+    public int size() {
+        return transactions.size();
+    }
+
+    @Override
+    public double sum(TransactionType type, LocalDate from, LocalDate to) {
+        return transactions.stream()
+                .filter(t -> t.transactionType() == type && inRange(t.transactionDate(), from, to))
+                .mapToDouble(Transaction::amount)
+                .sum();
+    }
+
+    @Override
+    public Map<Tag, Double> sumByTag(TransactionType type) {
+        return transactions.stream()
+                .filter(t -> t.transactionType() == type)
+                .flatMap(t -> t.tags().stream().map(tag -> Map.entry(tag, t.amount())))
+                .collect(Collectors.groupingBy(
+                        Map.Entry::getKey,
+                        Collectors.summingDouble(Map.Entry::getValue)
+                ));
+    }
+
+    @Override
+    public List<Transaction> select(TransactionType type, LocalDate from, LocalDate to) {
+        return transactions.stream()
+                .filter(t -> t.transactionType() == type && inRange(t.transactionDate(), from, to))
+                .collect(Collectors.toList());
+    }
+
+    private static boolean inRange(LocalDate date, LocalDate from, LocalDate to) {
+        return (from == null || !date.isBefore(from)) && (to == null || !date.isAfter(to));
+    }
+}
@@ -0,0 +1,490 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+
+import java.io.Closeable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * OffHeapTransactionStore is an in-memory implementation of the TransactionPersistency interface
+ * that keeps the transactions in columns outside the Java heap, so that the size of the ledger
+ * does not add to the work of the garbage collector.
+ * Rows are stored in fixed-size chunks of direct memory, one region per column: id, amount, epoch day,
+ * type and the first three tags, each tag as an index into a small on-heap dictionary; the few transactions
+ * with more tags keep the others in an on-heap map by row, so no tag is ever dropped.
+ * Typed accessors read a single column of a row, and the bulk scans of TransactionScan, {@link #sum}, {@link #sumByTag}
+ * and {@link #select}, read only the columns they need and create objects only for the rows they return.
+ * The memory is owned by the store: {@link #close()} releases the chunks and any later access fails.
+ * Like ConcurrentTransactionStore, the store can be seeded from another persistency,
+ * to which every saved transaction is written through.
+ */
+public class OffHeapTransactionStore implements TransactionPersistency, TransactionScan, Closeable {
+
+    /** The number of tags of a transaction stored in the columns; further tags are kept on the heap. */
+    public static final int INLINE_TAGS = 3;
+
+    private static final int CHUNK_SHIFT = 16;
+    private static final int CHUNK_ROWS = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_ROWS - 1;
+    private static final int ID_OFFSET = 0;
+    private static final int AMOUNT_OFFSET = ID_OFFSET + CHUNK_ROWS * Long.BYTES;
+    private static final int DAY_OFFSET = AMOUNT_OFFSET + CHUNK_ROWS * Double.BYTES;
+    private static final int TYPE_OFFSET = DAY_OFFSET + CHUNK_ROWS * Long.BYTES;
+    private static final int TAG_COUNT_OFFSET = TYPE_OFFSET + CHUNK_ROWS;
+    private static final int TAGS_OFFSET = TAG_COUNT_OFFSET + CHUNK_ROWS;
+    private static final int CHUNK_BYTES = TAGS_OFFSET + CHUNK_ROWS * INLINE_TAGS * Integer.BYTES;
+    private static final TransactionType[] TYPES = TransactionType.values();
+    private static final int[] NO_TAGS = {};
+
+    private final TransactionPersistency delegate; // can be null
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private final List<Tag> tagDictionary = new ArrayList<>();
+    private final Map<Tag, Integer> tagIndexes = new HashMap<>();
+    private final Map<Integer, int[]> overflowTags = new HashMap<>(); // row -> tags beyond INLINE_TAGS
+    private int size;
+    private boolean closed;
+
+    /**
+     * Constructor for OffHeapTransactionStore.
+     * Copies all the transactions of the delegate, if any, one at a time into the columns.
+     * @param delegate the persistency used to seed the store and to write transactions through (can be null)
+     */
+    public OffHeapTransactionStore(TransactionPersistency delegate) {
+        this.delegate = delegate;
+        if (delegate != null) {
+            delegate.forEach(this::append);
+        }
+    }
+
+    /**
+     * Returns the number of transactions in the store.
+     * @return the number of rows
+     */
+    @Override
+    public int size() {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the bytes of direct memory held by the store.
+     * @return the allocated off-heap bytes
+     */
+    public long offHeapBytes() {
+        lock.readLock().lock();
+        try {
+            return (long) chunks.size() * CHUNK_BYTES;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the id of a row.
+     * @param row the row, between 0 and size() - 1
+     * @return the id of the transaction
+     */
+    public long id(int row) {
+        lock.readLock().lock();
+        try {
+            return chunk(row).getLong(ID_OFFSET + (row & CHUNK_MASK) * Long.BYTES);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the amount of a row.
+     * @param row the row, between 0 and size() - 1
+     * @return the amount of the transaction
+     */
+    public double amount(int row) {
+        lock.readLock().lock();
+        try {
+            return chunk(row).getDouble(AMOUNT_OFFSET + (row & CHUNK_MASK) * Double.BYTES);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the date of a row.
+     * @param row the row, between 0 and size() - 1
+     * @return the date of the transaction
+     */
+    public LocalDate date(int row) {
+        lock.readLock().lock();
+        try {
+            return LocalDate.ofEpochDay(chunk(row).getLong(DAY_OFFSET + (row & CHUNK_MASK) * Long.BYTES));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the type of a row.
+     * @param row the row, between 0 and size() - 1
+     * @return the type of the transaction
+     */
+    public TransactionType type(int row) {
+        lock.readLock().lock();
+        try {
+            return TYPES[chunk(row).get(TYPE_OFFSET + (row & CHUNK_MASK))];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the tags of a row.
+     * @param row the row, between 0 and size() - 1
+     * @return the tags of the transaction
+     */
+    public List<Tag> tags(int row) {
+        lock.readLock().lock();
+        try {
+            return readTags(chunk(row), row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the transaction of a row.
+     * @param row the row, between 0 and size() - 1
+     * @return a new Transaction with the content of the row
+     */
+    public Transaction get(int row) {
+        lock.readLock().lock();
+        try {
+            return read(chunk(row), row);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Sums the amounts of the transactions of a type in a date range,
+     * reading only the type, date and amount columns.
+     * @param type the type of the transactions
+     * @param from the first date of the range, inclusive (null for no lower bound)
+     * @param to the last date of the range, inclusive (null for no upper bound)
+     * @return the sum of the amounts
+     */
+    @Override
+    public double sum(TransactionType type, LocalDate from, LocalDate to) {
+        long fromDay = from != null ? from.toEpochDay() : Long.MIN_VALUE;
+        long toDay = to != null ? to.toEpochDay() : Long.MAX_VALUE;
+        byte wanted = (byte) type.ordinal();
+        double total = 0;
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            for (int c = 0; c < chunks.size(); c++) {
+                ByteBuffer chunk = chunks.get(c);
+                int rows = rowsIn(c);
+                for (int i = 0; i < rows; i++) {
+                    if (chunk.get(TYPE_OFFSET + i) != wanted) {
+                        continue;
+                    }
+                    long day = chunk.getLong(DAY_OFFSET + i * Long.BYTES);
+                    if (day >= fromDay && day <= toDay) {
+                        total += chunk.getDouble(AMOUNT_OFFSET + i * Double.BYTES);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return total;
+    }
+
+    /**
+     * Sums the amounts of the transactions of a type by tag, reading only the type, amount and tag columns.
+     * A transaction counts towards each of its tags.
+     * @param type the type of the transactions
+     * @return a map where keys are tags and values are the sums of the amounts of their transactions
+     */
+    @Override
+    public Map<Tag, Double> sumByTag(TransactionType type) {
+        byte wanted = (byte) type.ordinal();
+        Map<Tag, Double> amounts = new HashMap<>();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            double[] totals = new double[tagDictionary.size()];
+            boolean[] used = new boolean[tagDictionary.size()];
+            for (int c = 0; c < chunks.size(); c++) {
+                ByteBuffer chunk = chunks.get(c);
+                int rows = rowsIn(c);
+                for (int i = 0; i < rows; i++) {
+                    if (chunk.get(TYPE_OFFSET + i) != wanted) {
+                        continue;
+                    }
+                    double amount = chunk.getDouble(AMOUNT_OFFSET + i * Double.BYTES);
+                    int tagCount = chunk.get(TAG_COUNT_OFFSET + i);
+                    for (int k = 0; k < Math.min(tagCount, INLINE_TAGS); k++) {
+                        int tag = chunk.getInt(TAGS_OFFSET + (i * INLINE_TAGS + k) * Integer.BYTES);
+                        totals[tag] += amount;
+                        used[tag] = true;
+                    }
+                    if (tagCount > INLINE_TAGS) {
+                        for (int tag : overflowTags.get((c << CHUNK_SHIFT) + i)) {
+                            totals[tag] += amount;
+                            used[tag] = true;
+                        }
+                    }
+                }
+            }
+            for (int tag = 0; tag < totals.length; tag++) {
+                if (used[tag]) {
+                    amounts.merge(tagDictionary.get(tag), totals[tag], Double::sum);
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return amounts;
+    }
+
+    /**
+     * Returns the transactions of a type in a date range, in the order they were saved.
+     * Only the rows that match are turned into Transaction objects.
+     * @param type the type of the transactions
+     * @param from the first date of the range, inclusive (null for no lower bound)
+     * @param to the last date of the range, inclusive (null for no upper bound)
+     * @return the matching transactions
+     */
+    @Override
+    public List<Transaction> select(TransactionType type, LocalDate from, LocalDate to) {
+        long fromDay = from != null ? from.toEpochDay() : Long.MIN_VALUE;
+        long toDay = to != null ? to.toEpochDay() : Long.MAX_VALUE;
+        byte wanted = (byte) type.ordinal();
+        List<Transaction> selected = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            for (int c = 0; c < chunks.size(); c++) {
+                ByteBuffer chunk = chunks.get(c);
+                int rows = rowsIn(c);
+                for (int i = 0; i < rows; i++) {
+                    if (chunk.get(TYPE_OFFSET + i) != wanted) {
+                        continue;
+                    }
+                    long day = chunk.getLong(DAY_OFFSET + i * Long.BYTES);
+                    if (day >= fromDay && day <= toDay) {
+                        selected.add(read(chunk, (c << CHUNK_SHIFT) + i));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return selected;
+    }
+
+    /**
+     * Loads all the transactions, creating a Transaction object for every row.
+     * Prefer the bulk scans or forEach() on large ledgers.
+     * @return a list of transactions.
+     */
+    @Override
+    public List<Transaction> load() {
+        List<Transaction> transactions = new ArrayList<>(size());
+        forEach(transactions::add);
+        return transactions;
+    }
+
+    /**
+     * Performs an action on each transaction, in the order they were saved, creating one object at a time.
+     * Writers wait until the iteration is complete.
+     * @param action the action to perform
+     */
+    @Override
+    public void forEach(Consumer<? super Transaction> action) {
+        lock.readLock().lock();
+        try {
+            checkOpen();
+            for (int c = 0; c < chunks.size(); c++) {
+                ByteBuffer chunk = chunks.get(c);
+                int rows = rowsIn(c);
+                for (int i = 0; i < rows; i++) {
+                    action.accept(read(chunk, (c << CHUNK_SHIFT) + i));
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the tags from the delegate.
+     * @return the list of tags, or an empty list if the store has no delegate.
+     */
+    @Override
+    public List<Tag> loadTags() {
+        return delegate != null ? delegate.loadTags() : List.of();
+    }
+
+    /**
+     * Saves a transaction, writing it through to the delegate if present.
+     * @param t the transaction to save.
+     */
+    @Override
+    public void save(Transaction t) {
+        saveAll(List.of(t));
+    }
+
+    /**
+     * Saves a batch of transactions, writing them through to the delegate with a single call.
+     * @param transactions the transactions to save.
+     */
+    @Override
+    public void saveAll(List<Transaction> transactions) {
+        if (delegate != null) {
+            delegate.saveAll(transactions);
+        }
+        for (Transaction t : transactions) {
+            append(t);
+        }
+    }
+
+    /**
+     * Releases the memory of the columns. The store cannot be used afterwards.
+     * Direct memory is returned to the system once the released chunks are collected.
+     */
+    @Override
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            closed = true;
+            chunks.clear();
+            overflowTags.clear();
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void append(Transaction t) {
+        lock.writeLock().lock();
+        try {
+            checkOpen();
+            if ((size & CHUNK_MASK) == 0 && size >> CHUNK_SHIFT == chunks.size()) {
+                chunks.add(ByteBuffer.allocateDirect(CHUNK_BYTES).order(ByteOrder.nativeOrder()));
+            }
+            ByteBuffer chunk = chunks.get(size >> CHUNK_SHIFT);
+            int i = size & CHUNK_MASK;
+            chunk.putLong(ID_OFFSET + i * Long.BYTES, t.id());
+            chunk.putDouble(AMOUNT_OFFSET + i * Double.BYTES, t.amount());
+            chunk.putLong(DAY_OFFSET + i * Long.BYTES, t.transactionDate().toEpochDay());
+            chunk.put(TYPE_OFFSET + i, (byte) t.transactionType().ordinal());
+            int tagCount = t.tags().size();
+            // a count above INLINE_TAGS only marks the rows with overflow tags, whose number is that of the map entry
+            chunk.put(TAG_COUNT_OFFSET + i, (byte) Math.min(tagCount, INLINE_TAGS + 1));
+            for (int k = 0; k < Math.min(tagCount, INLINE_TAGS); k++) {
+                chunk.putInt(TAGS_OFFSET + (i * INLINE_TAGS + k) * Integer.BYTES, tagIndex(t.tags().get(k)));
+            }
+            if (tagCount > INLINE_TAGS) {
+                int[] overflow = new int[tagCount - INLINE_TAGS];
+                for (int k = 0; k < overflow.length; k++) {
+                    overflow[k] = tagIndex(t.tags().get(INLINE_TAGS + k));
+                }
+                overflowTags.put(size, overflow);
+            }
+            size++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private int tagIndex(Tag tag) {
+        return tagIndexes.computeIfAbsent(tag, key -> {
+            tagDictionary.add(key);
+            return tagDictionary.size() - 1;
+        });
+    }
+
+    private Transaction read(ByteBuffer chunk, int row) {
+        int i = row & CHUNK_MASK;
+        return new Transaction(
+                chunk.getLong(ID_OFFSET + i * Long.BYTES),
+                chunk.getDouble(AMOUNT_OFFSET + i * Double.BYTES),
+                TYPES[chunk.get(TYPE_OFFSET + i)],
+                LocalDate.ofEpochDay(chunk.getLong(DAY_OFFSET + i * Long.BYTES)),
+                readTags(chunk, row));
+    }
+
+    private List<Tag> readTags(ByteBuffer chunk, int row) {
+        int i = row & CHUNK_MASK;
+        int tagCount = chunk.get(TAG_COUNT_OFFSET + i);
+        int[] overflow = tagCount > INLINE_TAGS ? overflowTags.get(row) : NO_TAGS;
+        List<Tag> tags = new ArrayList<>(Math.min(tagCount, INLINE_TAGS) + overflow.length);
+        for (int k = 0; k < Math.min(tagCount, INLINE_TAGS); k++) {
+            tags.add(tagDictionary.get(chunk.getInt(TAGS_OFFSET + (i * INLINE_TAGS + k) * Integer.BYTES)));
+        }
+        for (int tag : overflow) {
+            tags.add(tagDictionary.get(tag));
+        }
+        return tags;
+    }
+
+    private ByteBuffer chunk(int row) {
+        checkOpen();
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + " out of " + size);
+        }
+        return chunks.get(row >> CHUNK_SHIFT);
+    }
+
+    private int rowsIn(int chunk) {
+        return Math.min(CHUNK_ROWS, size - (chunk << CHUNK_SHIFT));
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("The store is closed");
+        }
+    }
+}
@@ -0,0 +1,682 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionIds;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * SegmentedTransactionStore is a file-based implementation of the TransactionPersistency interface
+ * that supports updating and deleting single transactions without rewriting the ledger.
+ * Transactions are appended as records to segment files in a directory: an update appends the new
+ * version of the transaction and a delete appends a tombstone, so every change costs one append.
+ * An in-memory index maps the id of every live transaction to the location of its latest record;
+ * reads scan the segments in order and skip tombstones and records that the index no longer points to.
+ * When the share of dead records in the sealed segments crosses a threshold, a background compactor
+ * rewrites the sealed segments into a single segment that holds only the live records.
+ * The index is rebuilt by replaying the segments when the store is opened.
+ * Tags are not stored in the segments: they are loaded through the given tag loader.
+ */
+public class SegmentedTransactionStore implements TransactionPersistency, Closeable {
+
+    /** The default size after which the active segment is sealed and a new one is started. */
+    public static final long DEFAULT_SEGMENT_SIZE = 16L << 20;
+    /** The default share of dead records in the sealed segments that triggers a compaction. */
+    public static final double DEFAULT_COMPACTION_THRESHOLD = 0.5;
+
+    private static final int MIN_COMPACTION_RECORDS = 1024;
+    private static final int FLUSH_SIZE = 64 * 1024;
+    private static final byte PUT = 1;
+    private static final byte DELETE = 2;
+    private static final int HEADER_SIZE = 1 + Long.BYTES; // kind and id
+    private static final int OFFSET_BITS = 40;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{10})-(\\d{4})\\.dat");
+
+    private final Path directory;
+    private final Supplier<List<Tag>> tagLoader;
+    private final long segmentSize;
+    private final double compactionThreshold;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Long> index = new HashMap<>(); // id -> location of the live record
+    private final TreeMap<Integer, Segment> segments = new TreeMap<>(); // by number, oldest first
+    private final AtomicBoolean compacting = new AtomicBoolean(); // a background compaction is scheduled
+    private final Object compactionLock = new Object();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(r -> {
+        Thread thread = new Thread(r, "ledger-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream(FLUSH_SIZE);
+    private final DataOutputStream pendingOut = new DataOutputStream(pending);
+    private Segment active;
+    private FileChannel activeChannel;
+
+    /**
+     * A segment file with the counts used to decide when to compact.
+     * Segments are numbered in order of creation; a compacted segment takes the number of the newest
+     * segment it replaces and a higher generation.
+     */
+    private static final class Segment {
+        private final int number;
+        private final int generation;
+        private final Path path;
+        private long size;
+        private int records;
+        private int dead;
+
+        private Segment(int number, int generation, Path path, long size) {
+            this.number = number;
+            this.generation = generation;
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Constructor for SegmentedTransactionStore with the default segment size and compaction threshold.
+     * @param directory the directory of the segment files, created if missing
+     * @param tagLoader the source of the tags returned by loadTags()
+     * @throws IOException if the segments cannot be read
+     */
+    public SegmentedTransactionStore(Path directory, Supplier<List<Tag>> tagLoader) throws IOException {
+        this(directory, tagLoader, DEFAULT_SEGMENT_SIZE, DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Constructor for SegmentedTransactionStore.
+     * Opens the segments in the directory and rebuilds the index by replaying them.
+     * @param directory the directory of the segment files, created if missing
+     * @param tagLoader the source of the tags returned by loadTags()
+     * @param segmentSize the size in bytes after which the active segment is sealed
+     * @param compactionThreshold the share of dead records in the sealed segments, between 0 and 1,
+     *                            that triggers a compaction
+     * @throws IOException if the segments cannot be read
+     */
+    public SegmentedTransactionStore(Path directory, Supplier<List<Tag>> tagLoader, long segmentSize,
+                                     double compactionThreshold) throws IOException {
+        if (segmentSize <= 0) {
+            throw new IllegalArgumentException("segmentSize must be positive");
+        }
+        if (compactionThreshold <= 0 || compactionThreshold > 1) {
+            throw new IllegalArgumentException("compactionThreshold must be in (0, 1]");
+        }
+        this.directory = directory;
+        this.tagLoader = tagLoader;
+        this.segmentSize = segmentSize;
+        this.compactionThreshold = compactionThreshold;
+        open();
+    }
+
+    /**
+     * Loads all the live transactions, in the order they were last written.
+     * @return a list of transactions.
+     */
+    @Override
+    public List<Transaction> load() {
+        List<Transaction> transactions = new ArrayList<>();
+        forEach(transactions::add);
+        return transactions;
+    }
+
+    /**
+     * Performs an action on each live transaction, reading the segments one record at a time.
+     * Writers wait until the scan is complete.
+     * Exceptions thrown by the action are passed to the caller.
+     * @param action the action to perform
+     * @throws UncheckedIOException if a segment cannot be read
+     */
+    @Override
+    public void forEach(Consumer<? super Transaction> action) {
+        lock.readLock().lock();
+        try {
+            Map<Long, Tag> tags = new HashMap<>();
+            for (Segment segment : segments.values()) {
+                scan(segment, (location, in, length) -> {
+                    byte kind = in.readByte();
+                    long id = in.readLong();
+                    if (kind == PUT && isLive(id, location)) {
+                        action.accept(TransactionCodec.read(in, id, tags));
+                    } else {
+                        in.skipNBytes(length - HEADER_SIZE);
+                    }
+                });
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the tags through the tag loader.
+     * @return the list of tags.
+     */
+    @Override
+    public List<Tag> loadTags() {
+        return tagLoader.get();
+    }
+
+    /**
+     * Appends a transaction. A transaction with the id of a stored one replaces it.
+     * @param t the transaction to save.
+     * @throws UncheckedIOException if the transaction cannot be written
+     */
+    @Override
+    public void save(Transaction t) {
+        saveAll(List.of(t));
+    }
+
+    /**
+     * Appends a batch of transactions with as few writes as possible.
+     * Transactions with the id of a stored one replace it.
+     * @param transactions the transactions to save.
+     * @throws UncheckedIOException if the transactions cannot be written
+     */
+    @Override
+    public void saveAll(List<Transaction> transactions) {
+        lock.writeLock().lock();
+        try {
+            for (Transaction t : transactions) {
+                put(t);
+            }
+            flush();
+            maybeCompact();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Replaces a stored transaction by appending its new version.
+     * @param id the id of the transaction to replace.
+     * @param t the new content of the transaction, stored with the given id.
+     * @return true if the transaction was found and replaced, false if there is no transaction with that id.
+     * @throws UncheckedIOException if the transaction cannot be written
+     */
+    @Override
+    public boolean update(long id, Transaction t) {
+        lock.writeLock().lock();
+        try {
+            if (!index.containsKey(id)) {
+                return false;
+            }
+            put(new Transaction(id, t.amount(), t.transactionType(), t.transactionDate(), t.tags()));
+            flush();
+            maybeCompact();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Deletes a stored transaction by appending a tombstone.
+     * @param id the id of the transaction to delete.
+     * @return true if the transaction was found and deleted, false if there is no transaction with that id.
+     * @throws UncheckedIOException if the tombstone cannot be written
+     */
+    @Override
+    public boolean delete(long id) {
+        lock.writeLock().lock();
+        try {
+            Long previous = index.remove(id);
+            if (previous == null) {
+                return false;
+            }
+            segmentOf(previous).dead++;
+            append(new byte[0], DELETE, id).dead++;
+            flush();
+            maybeCompact();
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the number of live transactions.
+     * @return the number of live transactions
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return index.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the share of dead records, tombstones included, among all the records in the segments.
+     * @return the dead-record ratio, 0 for an empty store
+     */
+    public double deadRatio() {
+        lock.readLock().lock();
+        try {
+            long records = 0;
+            long dead = 0;
+            for (Segment segment : segments.values()) {
+                records += segment.records;
+                dead += segment.dead;
+            }
+            return records == 0 ? 0 : (double) dead / records;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Seals the active segment and compacts all the segments in the calling thread,
+     * regardless of the compaction threshold. Writers are only blocked while the segments are swapped.
+     * @throws IOException if the segments cannot be rewritten
+     */
+    public void compact() throws IOException {
+        synchronized (compactionLock) {
+            lock.writeLock().lock();
+            try {
+                if (active.records > 0) {
+                    roll();
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            compactSealed();
+        }
+    }
+
+    /**
+     * Stops the compactor and closes the active segment.
+     * @throws IOException if the active segment cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        lock.writeLock().lock();
+        try {
+            activeChannel.close();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Segment> found = new ArrayList<>();
+        try (var files = Files.list(directory)) {
+            for (Path path : (Iterable<Path>) files::iterator) {
+                Matcher matcher = SEGMENT_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    found.add(new Segment(Integer.parseInt(matcher.group(1)), Integer.parseInt(matcher.group(2)),
+                            path, Files.size(path)));
+                } else if (path.getFileName().toString().endsWith(".dat.tmp")) {
+                    Files.delete(path); // an interrupted compaction
+                }
+            }
+        }
+        // the newest compaction replaces every segment up to its number, even if their removal was interrupted
+        Segment compacted = null;
+        for (Segment segment : found) {
+            if (segment.generation > 0 && (compacted == null || segment.generation > compacted.generation)) {
+                compacted = segment;
+            }
+        }
+        for (Segment segment : found) {
+            if (compacted != null && segment != compacted && segment.number <= compacted.number) {
+                Files.delete(segment.path);
+            } else {
+                segments.put(segment.number, segment);
+            }
+        }
+        for (Segment segment : segments.values()) {
+            replay(segment);
+        }
+        for (long id : index.keySet()) {
+            TransactionIds.seen(id);
+        }
+        if (segments.isEmpty() || segments.lastEntry().getValue().generation > 0) {
+            active = newSegment(segments.isEmpty() ? 1 : segments.lastKey() + 1);
+        } else {
+            active = segments.lastEntry().getValue();
+        }
+        activeChannel = FileChannel.open(active.path, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Rebuilds the index and the counts from the records of a segment.
+     * A record cut short by a crash can only be at the end of the segment, and it is truncated.
+     */
+    private void replay(Segment segment) throws IOException {
+        long valid = scan(segment, (location, in, length) -> {
+            byte kind = in.readByte();
+            long id = in.readLong();
+            in.skipNBytes(length - HEADER_SIZE);
+            segment.records++;
+            Long previous = kind == PUT ? index.put(id, location) : index.remove(id);
+            if (previous != null) {
+                segmentOf(previous).dead++;
+            }
+            if (kind == DELETE) {
+                segment.dead++;
+            }
+        });
+        if (valid < segment.size) {
+            try (FileChannel channel = FileChannel.open(segment.path, StandardOpenOption.WRITE)) {
+                channel.truncate(valid);
+            }
+            segment.size = valid;
+        }
+    }
+
+    /**
+     * A visitor of the records of a segment, positioned after the length of the record.
+     */
+    @FunctionalInterface
+    private interface RecordVisitor {
+        void visit(long location, DataInputStream in, int length) throws IOException;
+    }
+
+    /**
+     * Visits the complete records of a segment, stopping at a truncated one.
+     * The visitor must consume exactly the length of the record.
+     * @return the size of the complete records
+     */
+    private static long scan(Segment segment, RecordVisitor visitor) throws IOException {
+        long offset = 0;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                Channels.newInputStream(FileChannel.open(segment.path, StandardOpenOption.READ)), FLUSH_SIZE))) {
+            while (segment.size - offset >= Integer.BYTES) {
+                int length = in.readInt();
+                if (length < HEADER_SIZE || offset + Integer.BYTES + length > segment.size) {
+                    break;
+                }
+                visitor.visit(location(segment.number, offset), in, length);
+                offset += Integer.BYTES + length;
+            }
+        }
+        return offset;
+    }
+
+    private void put(Transaction t) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        TransactionCodec.write(out, t);
+        Segment segment = append(bytes.toByteArray(), PUT, t.id());
+        Long previous = index.put(t.id(), location(segment.number, segment.size - bytes.size() - Integer.BYTES - HEADER_SIZE));
+        if (previous != null) {
+            segmentOf(previous).dead++;
+        }
+    }
+
+    /**
+     * Adds a record to the pending writes of the active segment, sealing it first if it is full.
+     * @return the segment of the record, whose size already includes it
+     */
+    private Segment append(byte[] body, byte kind, long id) throws IOException {
+        int length = Integer.BYTES + HEADER_SIZE + body.length;
+        if (active.size > 0 && active.size + length > segmentSize) {
+            roll();
+        }
+        pendingOut.writeInt(HEADER_SIZE + body.length);
+        pendingOut.writeByte(kind);
+        pendingOut.writeLong(id);
+        pendingOut.write(body);
+        active.size += length;
+        active.records++;
+        if (pending.size() >= FLUSH_SIZE) {
+            flush();
+        }
+        return active;
+    }
+
+    /**
+     * Writes the pending records at the end of the active segment.
+     */
+    private void flush() throws IOException {
+        if (pending.size() == 0) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(pending.toByteArray());
+        long position = active.size - buffer.remaining();
+        while (buffer.hasRemaining()) {
+            position += activeChannel.write(buffer, position);
+        }
+        pending.reset();
+    }
+
+    private void roll() throws IOException {
+        flush();
+        activeChannel.close();
+        active = newSegment(active.number + 1);
+        activeChannel = FileChannel.open(active.path, StandardOpenOption.WRITE);
+    }
+
+    private Segment newSegment(int number) throws IOException {
+        Segment segment = new Segment(number, 0, directory.resolve(segmentName(number, 0)), 0);
+        Files.createFile(segment.path);
+        segments.put(number, segment);
+        return segment;
+    }
+
+    /**
+     * Starts a background compaction if the sealed segments have enough dead records.
+     * Must be called with the write lock held.
+     */
+    private void maybeCompact() {
+        long records = 0;
+        long dead = 0;
+        for (Segment segment : segments.headMap(active.number).values()) {
+            records += segment.records;
+            dead += segment.dead;
+        }
+        if (records >= MIN_COMPACTION_RECORDS && dead >= records * compactionThreshold
+                && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    synchronized (compactionLock) {
+                        compactSealed();
+                    }
+                } catch (IOException e) {
+                    e.printStackTrace();
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    /**
+     * Rewrites the live records of all the sealed segments into a new segment.
+     * The records are copied without blocking writers; the index is then updated for the records
+     * that are still live and the old segments are removed. Tombstones are dropped, because
+     * every segment that could hold an older version of their transaction is part of the compaction.
+     * Must be called with the compaction lock held.
+     */
+    private void compactSealed() throws IOException {
+        List<Segment> sources;
+        lock.readLock().lock();
+        try {
+            sources = new ArrayList<>(segments.headMap(active.number).values());
+        } finally {
+            lock.readLock().unlock();
+        }
+        if (sources.isEmpty()) {
+            return;
+        }
+        int number = sources.get(sources.size() - 1).number;
+        int generation = 0;
+        for (Segment source : sources) {
+            generation = Math.max(generation, source.generation);
+        }
+        Segment compacted = new Segment(number, generation + 1,
+                directory.resolve(segmentName(number, generation + 1)), 0);
+        Path temporary = compacted.path.resolveSibling(compacted.path.getFileName() + ".tmp");
+
+        MovedRecords moved = new MovedRecords();
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                    Channels.newOutputStream(channel), FLUSH_SIZE));
+            for (Segment source : sources) {
+                scan(source, (location, in, length) -> {
+                    byte kind = in.readByte();
+                    long id = in.readLong();
+                    if (kind == PUT && isLiveLocked(id, location)) {
+                        moved.add(id, location, location(compacted.number, compacted.size));
+                        out.writeInt(length);
+                        out.writeByte(kind);
+                        out.writeLong(id);
+                        copy(in, out, length - HEADER_SIZE);
+                        compacted.size += Integer.BYTES + length;
+                        compacted.records++;
+                    } else {
+                        in.skipNBytes(length - HEADER_SIZE);
+                    }
+                });
+            }
+            out.flush();
+            channel.force(true);
+        }
+
+        lock.writeLock().lock();
+        try {
+            Files.move(temporary, compacted.path, StandardCopyOption.ATOMIC_MOVE);
+            for (int i = 0; i < moved.size; i++) {
+                long id = moved.ids[i];
+                Long current = index.get(id);
+                if (current != null && current == moved.from[i]) {
+                    index.put(id, moved.to[i]);
+                } else {
+                    compacted.dead++; // updated or deleted while it was being copied
+                }
+            }
+            for (Segment source : sources) {
+                segments.remove(source.number);
+                Files.delete(source.path);
+            }
+            segments.put(compacted.number, compacted);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * The ids and the old and new locations of the records copied by a compaction.
+     */
+    private static final class MovedRecords {
+        private long[] ids = new long[1024];
+        private long[] from = new long[1024];
+        private long[] to = new long[1024];
+        private int size;
+
+        private void add(long id, long oldLocation, long newLocation) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+                from = Arrays.copyOf(from, size * 2);
+                to = Arrays.copyOf(to, size * 2);
+            }
+            ids[size] = id;
+            from[size] = oldLocation;
+            to[size] = newLocation;
+            size++;
+        }
+    }
+
+    private static void copy(DataInputStream in, OutputStream out, int length) throws IOException {
+        byte[] buffer = new byte[length];
+        in.readFully(buffer);
+        out.write(buffer);
+    }
+
+    private boolean isLive(long id, long location) {
+        Long current = index.get(id);
+        return current != null && current == location;
+    }
+
+    private boolean isLiveLocked(long id, long location) {
+        lock.readLock().lock();
+        try {
+            return isLive(id, location);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Segment segmentOf(long location) {
+        return segments.get((int) (location >>> OFFSET_BITS));
+    }
+
+    private static long location(int segment, long offset) {
+        return ((long) segment << OFFSET_BITS) | offset;
+    }
+
+    private static String segmentName(int number, int generation) {
+        return String.format("segment-%010d-%04d.dat", number, generation);
+    }
+}
@@ -0,0 +1,66 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+
+import java.util.List;
+
+/**
+ * Represents a change of the transactions stored in a persistency.
+ * A change made by a single save contains one added transaction,
+ * while a batch change contains all the transactions added or removed together.
+ * @param added the transactions added by the change
+ * @param removed the transactions removed by the change
+ */
+public record TransactionChange(List<Transaction> added, List<Transaction> removed) {
+
+    /**
+     * Creates a change that adds the given transactions.
+     * @param transactions the added transactions
+     * @return the change
+     */
+    public static TransactionChange added(List<Transaction> transactions) {
+        return new TransactionChange(List.copyOf(transactions), List.of());
+    }
+
+    /**
+     * Creates a change that removes the given transactions.
+     * @param transactions the removed transactions
+     * @return the change
+     */
+    public static TransactionChange removed(List<Transaction> transactions) {
+        return new TransactionChange(List.of(), List.copyOf(transactions));
+    }
+
+    /**
+     * Checks if the change involves more than one transaction.
+     * @return true if the change is a batch, false otherwise
+     */
+    public boolean isBatch() {
+        return added.size() + removed.size() > 1;
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TransactionCodec encodes the content of a transaction in the compact binary form
+ * shared by the file-based stores: amount, type, epoch day and tags, each tag as id and name.
+ * The id is not part of the encoding, because the stores keep it in their record headers.
+ */
+final class TransactionCodec {
+
+    private TransactionCodec() {
+    }
+
+    /**
+     * Writes the content of a transaction.
+     * @param out the output
+     * @param t the transaction
+     * @throws IOException if the output cannot be written
+     */
+    static void write(DataOutput out, Transaction t) throws IOException {
+        out.writeDouble(t.amount());
+        out.writeByte(t.transactionType().ordinal());
+        out.writeLong(t.transactionDate().toEpochDay());
+        out.writeByte(t.tags().size());
+        for (Tag tag : t.tags()) {
+            out.writeLong(tag.id());
+            out.writeUTF(tag.name());
+        }
+    }
+
+    /**
+     * Reads the content of a transaction written by {@link #write(DataOutput, Transaction)}.
+     * Tags read with the same id and name are shared through the given cache.
+     * @param in the input
+     * @param id the id of the transaction
+     * @param tags the tags read so far, by id
+     * @return the transaction
+     * @throws IOException if the input cannot be read
+     */
+    static Transaction read(DataInput in, long id, Map<Long, Tag> tags) throws IOException {
+        double amount = in.readDouble();
+        TransactionType type = TransactionType.values()[in.readByte()];
+        LocalDate date = LocalDate.ofEpochDay(in.readLong());
+        int tagCount = in.readUnsignedByte();
+        List<Tag> transactionTags = new ArrayList<>(tagCount);
+        for (int i = 0; i < tagCount; i++) {
+            long tagId = in.readLong();
+            String name = in.readUTF();
+            Tag tag = tags.get(tagId);
+            if (tag == null || !tag.name().equals(name)) {
+                tag = new Tag(tagId, name, null);
+                tags.put(tagId, tag);
+            }
+            transactionTags.add(tag);
+        }
+        return new Transaction(id, amount, type, date, transactionTags);
+    }
+}
@@ -0,0 +1,366 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+
+/**
+ * TransactionJson converts transactions from and to JSON.
+ * A transaction is represented by an object such as
+ * {@code {"id":1,"amount":40.0,"type":"EXPENSE","date":"2025-06-01","tags":[{"id":17,"name":"Spesa"}]}}.
+ * The parser accepts any well-formed JSON, but only the fields above are used.
+ */
+public final class TransactionJson {
+
+    private TransactionJson() {
+    }
+
+    /**
+     * Returns the JSON representation of a transaction.
+     * @param t the transaction
+     * @return the JSON object
+     */
+    public static String toJson(Transaction t) {
+        StringBuilder sb = new StringBuilder(96);
+        write(t, sb);
+        return sb.toString();
+    }
+
+    /**
+     * Writes the JSON representation of a transaction.
+     * @param t the transaction
+     * @param out where the JSON object is written
+     */
+    public static void write(Transaction t, Appendable out) {
+        try {
+            out.append("{\"id\":").append(Long.toString(t.id()))
+                    .append(",\"amount\":").append(Double.toString(t.amount()))
+                    .append(",\"type\":\"").append(t.transactionType().name())
+                    .append("\",\"date\":\"").append(t.transactionDate().toString())
+                    .append("\",\"tags\":[");
+            for (int i = 0; i < t.tags().size(); i++) {
+                Tag tag = t.tags().get(i);
+                if (i > 0) {
+                    out.append(',');
+                }
+                out.append("{\"id\":").append(Long.toString(tag.id())).append(",\"name\":");
+                writeString(tag.name(), out);
+                out.append('}');
+            }
+            out.append("]}");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Writes a JSON string, escaping the characters that need it.
+     * @param s the string
+     * @param out where the JSON string is written
+     * @throws IOException if the string cannot be written
+     */
+    public static void writeString(String s, Appendable out) throws IOException {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+
+    /**
+     * Parses a transaction from a JSON object.
+     * The id is optional, the tags can be given either as objects with id and name or as names only.
+     * @param json the JSON object
+     * @param tagResolver resolves a tag name to the tag, returns null if the name is unknown
+     * @param idSupplier supplies the id of a transaction without id
+     * @return the transaction
+     * @throws IllegalArgumentException if the JSON is malformed or a field is missing or invalid
+     */
+    public static Transaction parse(String json, Function<String, Tag> tagResolver, LongSupplier idSupplier) {
+        return toTransaction(new Parser(json).parseDocument(), tagResolver, idSupplier);
+    }
+
+    /**
+     * Parses a list of transactions from a JSON array of objects.
+     * @param json the JSON array
+     * @param tagResolver resolves a tag name to the tag, returns null if the name is unknown
+     * @param idSupplier supplies the id of a transaction without id
+     * @return the transactions
+     * @throws IllegalArgumentException if the JSON is malformed or a field is missing or invalid
+     */
+    public static List<Transaction> parseArray(String json, Function<String, Tag> tagResolver,
+                                               LongSupplier idSupplier) {
+        Object value = new Parser(json).parseDocument();
+        if (!(value instanceof List<?> items)) {
+            throw new IllegalArgumentException("Expected a JSON array");
+        }
+        List<Transaction> transactions = new ArrayList<>(items.size());
+        for (Object item : items) {
+            transactions.add(toTransaction(item, tagResolver, idSupplier));
+        }
+        return transactions;
+    }
+
+    private static Transaction toTransaction(Object value, Function<String, Tag> tagResolver,
+                                             LongSupplier idSupplier) {
+        if (!(value instanceof Map<?, ?> obj)) {
+            throw new IllegalArgumentException("Expected a JSON object");
+        }
+        try {
+            long id = obj.get("id") instanceof Number n ? n.longValue() : idSupplier.getAsLong();
+            double amount = ((Number) required(obj, "amount")).doubleValue();
+            if (!Double.isFinite(amount) || amount < 0) {
+                // the type tells income from expense, amounts are never negative as in the application
+                throw new IllegalArgumentException("Invalid transaction: the amount must be a non-negative number");
+            }
+            TransactionType type = TransactionType.valueOf((String) required(obj, "type"));
+            LocalDate date = LocalDate.parse((String) required(obj, "date"));
+
+            List<Tag> tags = new ArrayList<>();
+            if (obj.get("tags") instanceof List<?> tagValues) {
+                for (Object tagValue : tagValues) {
+                    tags.add(toTag(tagValue, tagResolver));
+                }
+            }
+            return new Transaction(id, amount, type, date, tags);
+        } catch (ClassCastException e) {
+            throw new IllegalArgumentException("Invalid transaction: a field has the wrong type", e);
+        } catch (DateTimeException e) {
+            throw new IllegalArgumentException("Invalid transaction: " + e.getMessage(), e);
+        }
+    }
+
+    private static Tag toTag(Object value, Function<String, Tag> tagResolver) {
+        if (value instanceof Map<?, ?> obj) {
+            return new Tag(((Number) required(obj, "id")).longValue(), (String) required(obj, "name"), null);
+        }
+        Tag tag = tagResolver.apply((String) value);
+        if (tag == null) {
+            throw new IllegalArgumentException("Unknown tag: " + value);
+        }
+        return tag;
+    }
+
+    private static Object required(Map<?, ?> obj, String field) {
+        Object value = obj.get(field);
+        if (value == null) {
+            throw new IllegalArgumentException("Missing field: " + field);
+        }
+        return value;
+    }
+
+    /**
+     * Minimal recursive descent parser producing maps, lists, strings, numbers, booleans and null.
+     */
+    private static final class Parser {
+        private final String s;
+        private int pos;
+
+        private Parser(String s) {
+            this.s = s;
+        }
+
+        private Object parseDocument() {
+            Object value = parseValue();
+            skipWhitespace();
+            if (pos != s.length()) {
+                throw error("Unexpected content");
+            }
+            return value;
+        }
+
+        private Object parseValue() {
+            skipWhitespace();
+            if (pos >= s.length()) {
+                throw error("Unexpected end of input");
+            }
+            char c = s.charAt(pos);
+            return switch (c) {
+                case '{' -> parseObject();
+                case '[' -> parseArray();
+                case '"' -> parseString();
+                case 't' -> literal("true", Boolean.TRUE);
+                case 'f' -> literal("false", Boolean.FALSE);
+                case 'n' -> literal("null", null);
+                default -> parseNumber();
+            };
+        }
+
+        private Map<String, Object> parseObject() {
+            Map<String, Object> obj = new LinkedHashMap<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == '}') {
+                pos++;
+                return obj;
+            }
+            while (true) {
+                skipWhitespace();
+                if (peek() != '"') {
+                    throw error("Expected a field name");
+                }
+                String key = parseString();
+                skipWhitespace();
+                expect(':');
+                obj.put(key, parseValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect('}');
+                    return obj;
+                }
+            }
+        }
+
+        private List<Object> parseArray() {
+            List<Object> list = new ArrayList<>();
+            pos++;
+            skipWhitespace();
+            if (peek() == ']') {
+                pos++;
+                return list;
+            }
+            while (true) {
+                list.add(parseValue());
+                skipWhitespace();
+                if (peek() == ',') {
+                    pos++;
+                } else {
+                    expect(']');
+                    return list;
+                }
+            }
+        }
+
+        private String parseString() {
+            StringBuilder sb = new StringBuilder();
+            pos++;
+            while (pos < s.length()) {
+                char c = s.charAt(pos++);
+                if (c == '"') {
+                    return sb.toString();
+                }
+                if (c != '\\') {
+                    sb.append(c);
+                    continue;
+                }
+                if (pos >= s.length()) {
+                    break;
+                }
+                char e = s.charAt(pos++);
+                switch (e) {
+                    case 'n' -> sb.append('\n');
+                    case 'r' -> sb.append('\r');
+                    case 't' -> sb.append('\t');
+                    case 'b' -> sb.append('\b');
+                    case 'f' -> sb.append('\f');
+                    case 'u' -> {
+                        if (pos + 4 > s.length()) {
+                            throw error("Invalid escape");
+                        }
+                        sb.append((char) Integer.parseInt(s.substring(pos, pos + 4), 16));
+                        pos += 4;
+                    }
+                    default -> sb.append(e);
+                }
+            }
+            throw error("Unterminated string");
+        }
+
+        private Number parseNumber() {
+            int start = pos;
+            while (pos < s.length() && "+-0123456789.eE".indexOf(s.charAt(pos)) >= 0) {
+                pos++;
+            }
+            String number = s.substring(start, pos);
+            try {
+                if (number.indexOf('.') < 0 && number.indexOf('e') < 0 && number.indexOf('E') < 0) {
+                    return Long.parseLong(number);
+                }
+                return Double.parseDouble(number);
+            } catch (NumberFormatException e) {
+                throw error("Invalid number");
+            }
+        }
+
+        private Object literal(String word, Object value) {
+            if (!s.startsWith(word, pos)) {
+                throw error("Invalid literal");
+            }
+            pos += word.length();
+            return value;
+        }
+
+        private void expect(char c) {
+            if (peek() != c) {
+                throw error("Expected '" + c + "'");
+            }
+            pos++;
+        }
+
+        private char peek() {
+            return pos < s.length() ? s.charAt(pos) : '\0';
+        }
+
+        private void skipWhitespace() {
+            while (pos < s.length() && Character.isWhitespace(s.charAt(pos))) {
+                pos++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at position " + pos);
+        }
+    }
+}
@@ -29,6 +29,7 @@ import it.unicam.cs.mpgc.jbudget126118.model.Tag;
 import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 
 /**
@@ -61,5 +62,17 @@ public interface TransactionPersistency extends FinancialEntitiesPersistency<Tra
      */
     @Override
     void save(Transaction t);
+
+    /**
+     * Performs an action on each stored transaction, in the order of load().
+     * The default implementation loads all the transactions first; implementations that can read
+     * the transactions one at a time should override it, so that a full scan needs constant memory.
+     * Exceptions thrown by the action are passed to the caller, and so are the errors of the storage,
+     * as UncheckedIOException, so that a scan never ends early without the caller knowing.
+     * @param action the action to perform
+     */
+    default void forEach(Consumer<? super Transaction> action) {
+        load().forEach(action);
+    }
 }
 
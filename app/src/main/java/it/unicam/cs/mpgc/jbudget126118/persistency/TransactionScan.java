@@ -0,0 +1,82 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interface for a source of transactions that runs the scans of the filters and of the balances itself.
+ * A store can implement it to answer them from its own layout, such as the columns of an OffHeapTransactionStore,
+ * without creating a Transaction object per row; {@link #of(List)} scans a list of transactions.
+ */
+public interface TransactionScan {
+
+    /**
+     * Returns a scan of a list of transactions.
+     * @param transactions the transactions to scan
+     * @return a scan that reads the list on every call
+     */
+    static TransactionScan of(List<Transaction> transactions) {
+        return new ListTransactionScan(transactions);
+    }
+
+    /**
+     * Returns the number of transactions.
+     * @return the number of transactions scanned by each call
+     */
+    int size();
+
+    /**
+     * Sums the amounts of the transactions of a type in a date range.
+     * @param type the type of the transactions
+     * @param from the first date of the range, inclusive (null for no lower bound)
+     * @param to the last date of the range, inclusive (null for no upper bound)
+     * @return the sum of the amounts
+     */
+    double sum(TransactionType type, LocalDate from, LocalDate to);
+
+    /**
+     * Sums the amounts of the transactions of a type by tag. A transaction counts towards each of its tags.
+     * @param type the type of the transactions
+     * @return a map where keys are tags and values are the sums of the amounts of their transactions
+     */
+    Map<Tag, Double> sumByTag(TransactionType type);
+
+    /**
+     * Returns the transactions of a type in a date range, in the order of the source.
+     * @param type the type of the transactions
+     * @param from the first date of the range, inclusive (null for no lower bound)
+     * @param to the last date of the range, inclusive (null for no upper bound)
+     * @return the matching transactions
+     */
+    List<Transaction> select(TransactionType type, LocalDate from, LocalDate to);
+}
@@ -26,15 +26,41 @@
 package it.unicam.cs.mpgc.jbudget126118.persistency;
 
 
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.CRC32C;
 
 import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.Transformer;
 import javax.xml.transform.TransformerFactory;
 import javax.xml.transform.dom.DOMSource;
@@ -43,16 +69,52 @@ import javax.xml.transform.stream.StreamResult;
 import it.unicam.cs.mpgc.jbudget126118.model.Tag;
 import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
 import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerEvents;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerLoadEvent;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerMetrics;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerSaveEvent;
 import org.w3c.dom.*;
 
 /**
  * XmlPersistency is a class that implements the TransactionPersistency interface.
  * It provides methods to load and save transactions and tags (for tags only load) from/to XML files.
  * The transactions are stored in an XML file with a specific structure, allowing for easy retrieval and manipulation.
+ * The transaction file has two format versions, told apart by the version attribute of the root element:
+ * - version 1 (no attribute) repeats the name of each tag in every transaction, {@code <tag id="3" name="Cibo"/>};
+ * - version 2 refers to the tags of the tag file by id only, {@code <tag id="3"/>}, and writes the name
+ *   only for the tags missing from the tag file, so that they are not lost.
+ * Both versions are read, and the tags are always resolved by id against the tag file, with their parents,
+ * so names cannot drift from the tag file. Saves keep the version of the existing file, new files are
+ * written in version 2, and upgrade() rewrites a version 1 file in version 2.
  */
 public class XmlPersistency implements TransactionPersistency {
+    /** The version of the transaction file written for new files and by upgrade(). */
+    public static final int FORMAT_VERSION = 2;
+
+    private static final byte[] ROOT_END = "</transactions>".getBytes(StandardCharsets.UTF_8);
+    private static final int TAIL_SEARCH_BYTES = 4096;
+
     private final String xmlTransactionFile;
     private final String xmlTagFile;
+    private final ReadWriteLock fileLock = new ReentrantReadWriteLock(); // save rewrites the whole file
+    private volatile SavedState lastSave; // written under the write lock, null until the first save
+    private long saveChains; // guarded by the write lock
+    private volatile TagDictionary tagDictionary; // tags by id, with the state of the tag file they were read from
+
+    private record TagDictionary(long size, long modified, Map<Long, Tag> tags) {
+    }
+
+    /**
+     * The state of the transaction file right after a save of this persistency: its size, its modification time,
+     * the position of the closing tag of the root element and a checksum of the content before it.
+     * Consecutive saves, each of which found the file as the previous one left it, share a chain number;
+     * the base is the size and modification time of the file before the first save of the chain.
+     * A watcher that last saw the base, or the state of an earlier save of the same chain, therefore knows
+     * that no other program wrote the file in between.
+     */
+    record SavedState(long size, long modified, long rootEnd, long prefixChecksum,
+                      long chain, long baseSize, long baseModified) {
+    }
 
     /**
      * Constructor for the class XmlPersistency
@@ -74,7 +136,11 @@ public class XmlPersistency implements TransactionPersistency {
     @Override
     public List<Transaction> load() {
         List<Transaction> transactions = new ArrayList<>();
+        long start = LedgerMetrics.start();
+        LedgerLoadEvent event = LedgerEvents.begin(new LedgerLoadEvent());
 
+        Map<Long, Tag> dictionary = tagDictionary();
+        fileLock.readLock().lock();
         try {
             Document doc = DocumentBuilderFactory.newInstance()
                 .newDocumentBuilder().parse(xmlTransactionFile);
@@ -95,8 +161,7 @@ public class XmlPersistency implements TransactionPersistency {
                 for (int j = 0; j < tagNodes.getLength(); j++) {
                     Element tagEl = (Element) tagNodes.item(j);
                     long tagId = Long.parseLong(tagEl.getAttribute("id"));
-                    String name = tagEl.getAttribute("name");
-                    tags.add(new Tag(tagId, name, null)); // Ignoriamo i parent per ora
+                    tags.add(resolveTag(dictionary, tagId, tagEl.hasAttribute("name") ? tagEl.getAttribute("name") : null));
                 }
 
                 transactions.add(new Transaction(id, amount, type, date, tags));
@@ -104,12 +169,359 @@ public class XmlPersistency implements TransactionPersistency {
 
         } catch (Exception e) {
             e.printStackTrace();
+        } finally {
+            fileLock.readLock().unlock();
+        }
+        if (start != 0) {
+            LedgerMetrics.bytesRead(LedgerMetrics.Operation.XML_LOAD, new File(xmlTransactionFile).length());
+            LedgerMetrics.stop(LedgerMetrics.Operation.XML_LOAD, start, transactions.size());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "xml.transactions";
+            event.file = xmlTransactionFile;
+            event.fileSize = new File(xmlTransactionFile).length();
+            event.rows = transactions.size();
+            event.commit();
         }
 
         return transactions;
     }
 
 
+    /**
+     * Reads the transactions of the XML file one at a time and performs an action on each of them.
+     * Unlike load(), the file is streamed instead of being parsed into a document,
+     * so a full scan needs constant memory whatever the size of the file.
+     * @param action the action to perform
+     * @throws UncheckedIOException if the file does not exist, cannot be read or is malformed, e.g. truncated;
+     *         the transactions before that point have already been passed to the action
+     */
+    @Override
+    public void forEach(Consumer<? super Transaction> action) {
+        Map<Long, Tag> dictionary = tagDictionary();
+        fileLock.readLock().lock();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xmlTransactionFile), 1 << 16)) {
+            parse(in, dictionary, action);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (XMLStreamException e) {
+            throw new UncheckedIOException(new IOException("Malformed transaction file: " + e.getMessage(), e));
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Loads the transactions written after the given position of the XML file,
+     * which must be the position of the closing tag of the root element in an earlier version of the file.
+     * It is used to read only the transactions appended to the file by another program.
+     * @param offset the position of the closing tag of the root element before the append
+     * @return the transactions after the position
+     * @throws IOException if the file cannot be read
+     * @throws XMLStreamException if the content after the position is not a sequence of transactions
+     */
+    List<Transaction> loadFrom(long offset) throws IOException, XMLStreamException {
+        List<Transaction> transactions = new ArrayList<>();
+        Map<Long, Tag> dictionary = tagDictionary();
+        fileLock.readLock().lock();
+        try (FileInputStream file = new FileInputStream(xmlTransactionFile)) {
+            file.getChannel().position(offset);
+            InputStream in = new SequenceInputStream(
+                    new ByteArrayInputStream("<transactions>".getBytes(StandardCharsets.UTF_8)),
+                    new BufferedInputStream(file, 1 << 16));
+            parse(in, dictionary, transactions::add);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+        return transactions;
+    }
+
+    /**
+     * Returns the state of the XML file right after the last save of this persistency,
+     * so that the writes of this persistency can be told apart from the writes of other programs.
+     * Read it with {@link #readLocked}, so that no save runs between reading it and reading the file.
+     * @return the state of the file after the last save, or null if nothing has been saved
+     */
+    SavedState lastSave() {
+        return lastSave;
+    }
+
+    /**
+     * Runs an action holding the read lock of the file, so that no save of this persistency runs meanwhile.
+     * The action must not save through this persistency.
+     * @param action the action to run
+     * @return the result of the action
+     */
+    <R> R readLocked(Supplier<R> action) {
+        fileLock.readLock().lock();
+        try {
+            return action.get();
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the last closing tag of the root element in the last bytes of a transaction file.
+     * @param channel the channel of the file
+     * @param fileSize the size of the file
+     * @return the position of the tag, or -1 if it is not found
+     * @throws IOException if the file cannot be read
+     */
+    static long findRootEnd(FileChannel channel, long fileSize) throws IOException {
+        int length = (int) Math.min(TAIL_SEARCH_BYTES, fileSize);
+        ByteBuffer tail = ByteBuffer.allocate(length);
+        long start = fileSize - length;
+        while (tail.hasRemaining() && channel.read(tail, start + tail.position()) >= 0) {
+            // read until the buffer is full
+        }
+        byte[] bytes = tail.array();
+        for (int i = tail.position() - ROOT_END.length; i >= 0; i--) {
+            int j = 0;
+            while (j < ROOT_END.length && bytes[i + j] == ROOT_END[j]) {
+                j++;
+            }
+            if (j == ROOT_END.length) {
+                return start + i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Records the state of the file after a save. Must be called with the write lock held.
+     * @param before the size and the modification time of the file before the save
+     */
+    private void recordSave(long[] before) throws IOException {
+        SavedState previous = lastSave;
+        boolean consecutive = previous != null && previous.size() == before[0] && previous.modified() == before[1];
+        try (FileChannel channel = FileChannel.open(transactionFile(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long rootEnd = findRootEnd(channel, size);
+            CRC32C checksum = new CRC32C();
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+            for (long position = 0; position < rootEnd; ) {
+                buffer.clear().limit((int) Math.min(buffer.capacity(), rootEnd - position));
+                int read = channel.read(buffer, position);
+                if (read < 0) {
+                    break;
+                }
+                checksum.update(buffer.flip());
+                position += read;
+            }
+            long modified = Files.getLastModifiedTime(transactionFile()).toMillis();
+            lastSave = consecutive
+                    ? new SavedState(size, modified, rootEnd, checksum.getValue(),
+                            previous.chain(), previous.baseSize(), previous.baseModified())
+                    : new SavedState(size, modified, rootEnd, checksum.getValue(), ++saveChains, before[0], before[1]);
+        }
+    }
+
+    /**
+     * Returns the size and the modification time of the file, both 0 if it does not exist.
+     */
+    private long[] fileState() throws IOException {
+        Path file = transactionFile();
+        if (!Files.exists(file)) {
+            return new long[] {0, 0};
+        }
+        return new long[] {Files.size(file), Files.getLastModifiedTime(file).toMillis()};
+    }
+
+    /**
+     * Returns the path of the XML file of the transactions.
+     * @return the path of the file
+     */
+    Path transactionFile() {
+        return Path.of(xmlTransactionFile);
+    }
+
+    /**
+     * Returns the path of the XML file of the tags.
+     * @return the path of the file
+     */
+    Path tagFile() {
+        return Path.of(xmlTagFile);
+    }
+
+    /**
+     * Parses a stream of transactions of either version with a StAX reader, performing an action on each of them.
+     * @param in the XML stream
+     * @param dictionary the tags of the tag file by id
+     * @param action the action to perform
+     * @throws XMLStreamException if the stream is malformed
+     */
+    private static void parse(InputStream in, Map<Long, Tag> dictionary, Consumer<? super Transaction> action)
+            throws XMLStreamException {
+        XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+        try {
+            long id = 0;
+            double amount = 0;
+            TransactionType type = null;
+            LocalDate date = null;
+            List<Tag> tags = new ArrayList<>();
+            while (reader.hasNext()) {
+                int next = reader.next();
+                if (next == XMLStreamConstants.START_ELEMENT) {
+                    switch (reader.getLocalName()) {
+                        case "transaction" -> {
+                            id = Long.parseLong(reader.getAttributeValue(null, "id"));
+                            tags = new ArrayList<>();
+                        }
+                        case "amount" -> amount = Double.parseDouble(reader.getElementText());
+                        case "type" -> type = TransactionType.valueOf(reader.getElementText());
+                        case "date" -> date = LocalDate.parse(reader.getElementText());
+                        case "tag" -> tags.add(resolveTag(dictionary, Long.parseLong(reader.getAttributeValue(null, "id")),
+                                reader.getAttributeValue(null, "name")));
+                        default -> {
+                        }
+                    }
+                } else if (next == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("transaction")) {
+                    action.accept(new Transaction(id, amount, type, date, tags));
+                }
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Resolves a tag of a transaction against the tag file.
+     * @param dictionary the tags of the tag file by id
+     * @param id the id of the tag
+     * @param name the name written in the transaction file, null if the file refers to the tag by id only
+     * @return the tag of the tag file, or a tag without parent if the tag file does not have it
+     */
+    private static Tag resolveTag(Map<Long, Tag> dictionary, long id, String name) {
+        Tag tag = dictionary.get(id);
+        if (tag != null) {
+            return tag;
+        }
+        return new Tag(id, name != null ? name : "#" + id, null);
+    }
+
+    /**
+     * Returns the tags of the tag file by id, reading the file again only when it has changed.
+     * @return the tags by id
+     */
+    private Map<Long, Tag> tagDictionary() {
+        File file = new File(xmlTagFile);
+        long size = file.length();
+        long modified = file.lastModified();
+        TagDictionary dictionary = tagDictionary;
+        if (dictionary == null || dictionary.size() != size || dictionary.modified() != modified) {
+            Map<Long, Tag> tags = new HashMap<>();
+            for (Tag tag : loadTags()) {
+                tags.putIfAbsent(tag.id(), tag);
+            }
+            dictionary = new TagDictionary(size, modified, tags);
+            tagDictionary = dictionary;
+        }
+        return dictionary.tags();
+    }
+
+    /**
+     * Returns the format version of the transaction file.
+     * @return the version, or FORMAT_VERSION if the file does not exist
+     * @throws IOException if the file cannot be read
+     */
+    public int formatVersion() throws IOException {
+        if (!new File(xmlTransactionFile).exists()) {
+            return FORMAT_VERSION;
+        }
+        fileLock.readLock().lock();
+        try (InputStream in = new BufferedInputStream(new FileInputStream(xmlTransactionFile))) {
+            XMLStreamReader reader = XMLInputFactory.newInstance().createXMLStreamReader(in);
+            try {
+                while (reader.hasNext()) {
+                    if (reader.next() == XMLStreamConstants.START_ELEMENT) {
+                        return version(reader.getAttributeValue(null, "version"));
+                    }
+                }
+                return FORMAT_VERSION;
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            throw new IOException("Malformed transaction file: " + e.getMessage(), e);
+        } finally {
+            fileLock.readLock().unlock();
+        }
+    }
+
+    private static int version(String attribute) {
+        return attribute == null || attribute.isEmpty() ? 1 : Integer.parseInt(attribute);
+    }
+
+    /**
+     * Rewrites the transaction file in the current format version, if it is older.
+     * The file is streamed to a temporary file, which then replaces it, so the upgrade needs constant memory
+     * and an interrupted upgrade leaves the old file in place.
+     * @return true if the file was rewritten, false if it was already in the current version
+     * @throws IOException if the file cannot be read or written
+     */
+    public boolean upgrade() throws IOException {
+        if (formatVersion() >= FORMAT_VERSION) {
+            return false;
+        }
+        Map<Long, Tag> dictionary = tagDictionary();
+        Path file = transactionFile();
+        Path temporary = file.resolveSibling(file.getFileName() + ".upgrade");
+        fileLock.writeLock().lock();
+        try {
+            long[] before = fileState();
+            try (InputStream in = new BufferedInputStream(new FileInputStream(xmlTransactionFile), 1 << 16);
+                 Writer out = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+                out.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?><transactions version=\""
+                        + FORMAT_VERSION + "\">\n");
+                StringBuilder sb = new StringBuilder(256);
+                try {
+                    parse(in, Map.of(), t -> {
+                        sb.setLength(0);
+                        appendTransaction(sb, t, dictionary);
+                        try {
+                            out.append(sb);
+                        } catch (IOException e) {
+                            throw new UncheckedIOException(e);
+                        }
+                    });
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                } catch (XMLStreamException e) {
+                    throw new IOException("Malformed transaction file: " + e.getMessage(), e);
+                }
+                out.write("</transactions>\n");
+            }
+            Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            recordSave(before);
+            return true;
+        } finally {
+            Files.deleteIfExists(temporary);
+            fileLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Appends a transaction in format version 2 to a builder, with the indentation of the saved files.
+     */
+    private static void appendTransaction(StringBuilder sb, Transaction t, Map<Long, Tag> dictionary) {
+        sb.append("    <transaction id=\"").append(t.id()).append("\">\n")
+                .append("        <amount>").append(t.amount()).append("</amount>\n")
+                .append("        <type>").append(t.transactionType()).append("</type>\n")
+                .append("        <date>").append(t.transactionDate().format(DateTimeFormatter.ISO_DATE)).append("</date>\n")
+                .append("        <tags>\n");
+        for (Tag tag : t.tags()) {
+            sb.append("            <tag id=\"").append(tag.id()).append('"');
+            if (!dictionary.containsKey(tag.id())) {
+                sb.append(" name=\"").append(tag.name().replace("&", "&amp;").replace("<", "&lt;")
+                        .replace("\"", "&quot;")).append('"');
+            }
+            sb.append("/>\n");
+        }
+        sb.append("        </tags>\n    </transaction>\n");
+    }
+
     /**
      * Loads tags from the XML file.
      * This method reads the XML file containing tags and parses it to create a list of Tag objects.
@@ -120,6 +532,8 @@ public class XmlPersistency implements TransactionPersistency {
     @Override
     public List<Tag> loadTags() {
         List<Tag> allTags = new ArrayList<>();
+        long start = LedgerMetrics.start();
+        LedgerLoadEvent event = LedgerEvents.begin(new LedgerLoadEvent());
 
         try {
             if (!(new File(xmlTagFile).exists())) {
@@ -142,6 +556,18 @@ public class XmlPersistency implements TransactionPersistency {
         } catch (Exception e) {
             e.printStackTrace();
         }
+        if (start != 0) {
+            LedgerMetrics.bytesRead(LedgerMetrics.Operation.XML_LOAD_TAGS, new File(xmlTagFile).length());
+            LedgerMetrics.stop(LedgerMetrics.Operation.XML_LOAD_TAGS, start, allTags.size());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "xml.tags";
+            event.file = xmlTagFile;
+            event.fileSize = new File(xmlTagFile).length();
+            event.rows = allTags.size();
+            event.commit();
+        }
 
         return allTags;
     }
@@ -175,10 +601,28 @@ public class XmlPersistency implements TransactionPersistency {
      * This method creates or updates the XML file with the provided transaction data.
      * * If the file does not exist, it creates a new file with a root element.
      * * If the file exists, it appends the new transaction to the existing list of transactions.
+     * * Concurrent calls are serialized, so that no parse/rewrite cycle can overwrite another one.
      * * @param t The transaction to save.
      */
     @Override
     public void save(Transaction t) {
+        saveAll(List.of(t));
+    }
+
+    /**
+     * Saves a batch of transactions to the XML file.
+     * The file is parsed and rewritten only once for the whole batch.
+     * * @param transactions The transactions to save.
+     */
+    @Override
+    public void saveAll(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        long start = LedgerMetrics.start();
+        LedgerSaveEvent event = LedgerEvents.begin(new LedgerSaveEvent());
+        Map<Long, Tag> dictionary = tagDictionary();
+        fileLock.writeLock().lock();
         try {
             DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
             DocumentBuilder builder = factory.newDocumentBuilder();
@@ -190,44 +634,155 @@ public class XmlPersistency implements TransactionPersistency {
             } else {
                 doc = builder.newDocument();
                 Element root = doc.createElement("transactions");
+                root.setAttribute("version", String.valueOf(FORMAT_VERSION));
                 doc.appendChild(root);
             }
 
             Element root = doc.getDocumentElement();
-            Element tx = doc.createElement("transaction");
-            tx.setAttribute("id", String.valueOf(t.id()));
+            // keep the version of the file, so that a version 1 file is still read by older versions
+            Map<Long, Tag> referenced = version(root.getAttribute("version")) >= 2 ? dictionary : Map.of();
+            for (Transaction t : transactions) {
+                root.appendChild(createTransactionElement(doc, t, referenced));
+            }
+
+            write(doc);
 
-            Element amount = doc.createElement("amount");
-            amount.setTextContent(String.valueOf(t.amount()));
-            tx.appendChild(amount);
+        } catch (Exception e) {
+            e.printStackTrace();
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+        if (start != 0) {
+            LedgerMetrics.bytesWritten(LedgerMetrics.Operation.XML_SAVE, new File(xmlTransactionFile).length());
+            LedgerMetrics.stop(LedgerMetrics.Operation.XML_SAVE, start, transactions.size());
+        }
+        event.end();
+        if (event.shouldCommit()) {
+            event.source = "xml.transactions";
+            event.file = xmlTransactionFile;
+            event.fileSize = new File(xmlTransactionFile).length();
+            event.rows = transactions.size();
+            event.commit();
+        }
+    }
 
-            Element type = doc.createElement("type");
-            type.setTextContent(t.transactionType().toString());
-            tx.appendChild(type);
+    /**
+     * Replaces the transaction with the given id, rewriting the file.
+     * @param id the id of the transaction to replace.
+     * @param t the new content of the transaction, stored with the given id.
+     * @return true if the transaction was found and replaced, false if there is no transaction with that id.
+     * @throws UncheckedIOException if the file cannot be read or written
+     */
+    @Override
+    public boolean update(long id, Transaction t) {
+        return rewrite(id, new Transaction(id, t.amount(), t.transactionType(), t.transactionDate(), t.tags()));
+    }
 
-            Element date = doc.createElement("date");
-            date.setTextContent(t.transactionDate().format(DateTimeFormatter.ISO_DATE));
-            tx.appendChild(date);
+    /**
+     * Removes the transaction with the given id, rewriting the file.
+     * @param id the id of the transaction to remove.
+     * @return true if the transaction was found and removed, false if there is no transaction with that id.
+     * @throws UncheckedIOException if the file cannot be read or written
+     */
+    @Override
+    public boolean delete(long id) {
+        return rewrite(id, null);
+    }
 
-            Element tagsEl = doc.createElement("tags");
-            for (Tag tag : t.tags()) {
-                Element tagEl = doc.createElement("tag");
-                tagEl.setAttribute("id", String.valueOf(tag.id()));
-                tagEl.setAttribute("name", tag.name());
-                tagsEl.appendChild(tagEl);
+    /**
+     * Replaces or removes the element of a transaction and rewrites the file, keeping its format version.
+     * @param id the id of the transaction
+     * @param replacement the new content of the transaction, null to remove it
+     * @return true if the transaction was found
+     */
+    private boolean rewrite(long id, Transaction replacement) {
+        if (!new File(xmlTransactionFile).exists()) {
+            return false;
+        }
+        Map<Long, Tag> dictionary = tagDictionary();
+        fileLock.writeLock().lock();
+        try {
+            Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(xmlTransactionFile);
+            Element root = doc.getDocumentElement();
+            String key = String.valueOf(id);
+            NodeList transactionNodes = root.getElementsByTagName("transaction");
+            for (int i = 0; i < transactionNodes.getLength(); i++) {
+                Element txEl = (Element) transactionNodes.item(i);
+                if (!txEl.getAttribute("id").equals(key)) {
+                    continue;
+                }
+                if (replacement != null) {
+                    Map<Long, Tag> referenced = version(root.getAttribute("version")) >= 2 ? dictionary : Map.of();
+                    root.replaceChild(createTransactionElement(doc, replacement, referenced), txEl);
+                } else {
+                    Node indentation = txEl.getPreviousSibling();
+                    if (indentation != null && indentation.getNodeType() == Node.TEXT_NODE
+                            && indentation.getTextContent().isBlank()) {
+                        root.removeChild(indentation);
+                    }
+                    root.removeChild(txEl);
+                }
+                write(doc);
+                return true;
             }
-            tx.appendChild(tagsEl);
-
-            root.appendChild(tx);
+            return false;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (Exception e) {
+            throw new UncheckedIOException(new IOException("Cannot rewrite " + xmlTransactionFile + ": " + e.getMessage(), e));
+        } finally {
+            fileLock.writeLock().unlock();
+        }
+    }
 
-            Transformer transformer = TransformerFactory.newInstance().newTransformer();
-            DOMSource source = new DOMSource(doc);
-            StreamResult result = new StreamResult(new FileOutputStream(xmlTransactionFile));
-            transformer.transform(source, result);
+    /**
+     * Writes a document to the transaction file and records the state of the file after the save.
+     * Must be called with the write lock held.
+     * @param doc the document of the transactions
+     */
+    private void write(Document doc) throws Exception {
+        long[] before = fileState();
+        Transformer transformer = TransformerFactory.newInstance().newTransformer();
+        try (FileOutputStream out = new FileOutputStream(xmlTransactionFile)) {
+            transformer.transform(new DOMSource(doc), new StreamResult(out));
+        }
+        recordSave(before);
+    }
 
-        } catch (Exception e) {
-            e.printStackTrace();
+    /**
+     * Creates the XML element representing a transaction.
+     * @param doc The document the element belongs to.
+     * @param t The transaction to represent.
+     * @param referenced The tags referred to by id only, empty for format version 1.
+     * @return the transaction element.
+     */
+    private Element createTransactionElement(Document doc, Transaction t, Map<Long, Tag> referenced) {
+        Element tx = doc.createElement("transaction");
+        tx.setAttribute("id", String.valueOf(t.id()));
+
+        Element amount = doc.createElement("amount");
+        amount.setTextContent(String.valueOf(t.amount()));
+        tx.appendChild(amount);
+
+        Element type = doc.createElement("type");
+        type.setTextContent(t.transactionType().toString());
+        tx.appendChild(type);
+
+        Element date = doc.createElement("date");
+        date.setTextContent(t.transactionDate().format(DateTimeFormatter.ISO_DATE));
+        tx.appendChild(date);
+
+        Element tagsEl = doc.createElement("tags");
+        for (Tag tag : t.tags()) {
+            Element tagEl = doc.createElement("tag");
+            tagEl.setAttribute("id", String.valueOf(tag.id()));
+            if (!referenced.containsKey(tag.id())) {
+                tagEl.setAttribute("name", tag.name());
+            }
+            tagsEl.appendChild(tagEl);
         }
+        tx.appendChild(tagsEl);
+        return tx;
     }
     
 }
@@ -0,0 +1,171 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.tools;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * HttpLoadGenerator is a command line load generator for the LedgerHttpServer.
+ * It runs a number of concurrent clients, each one on its own virtual thread, sending a mix
+ * of add, query and balance requests for the given duration, then reports the throughput
+ * and the latency percentiles of every kind of request.
+ * Usage: {@code HttpLoadGenerator [baseUrl] [clients] [seconds]}
+ */
+public final class HttpLoadGenerator {
+
+    private static final String[] OPERATIONS = {"add", "query", "balance"};
+
+    private HttpLoadGenerator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://127.0.0.1:8080";
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+
+        List<Future<LatencyRecorder[]>> results = new ArrayList<>();
+        try (ExecutorService workers = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int c = 0; c < clients; c++) {
+                results.add(workers.submit(() -> runClient(client, baseUrl, deadline)));
+            }
+        }
+
+        LatencyRecorder[] total = new LatencyRecorder[OPERATIONS.length];
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            total[op] = new LatencyRecorder();
+        }
+        for (Future<LatencyRecorder[]> result : results) {
+            LatencyRecorder[] recorders = result.get();
+            for (int op = 0; op < OPERATIONS.length; op++) {
+                total[op].addAll(recorders[op]);
+            }
+        }
+
+        LatencyRecorder all = new LatencyRecorder();
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            report(OPERATIONS[op], total[op], seconds);
+            all.addAll(total[op]);
+        }
+        report("total", all, seconds);
+    }
+
+    private static LatencyRecorder[] runClient(HttpClient client, String baseUrl, long deadline) {
+        LatencyRecorder[] recorders = new LatencyRecorder[OPERATIONS.length];
+        for (int op = 0; op < OPERATIONS.length; op++) {
+            recorders[op] = new LatencyRecorder();
+        }
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        while (System.nanoTime() < deadline) {
+            int op = random.nextInt(10) < 2 ? 0 : random.nextInt(10) < 7 ? 1 : 2; // 20% add, 56% query, 24% balance
+            HttpRequest request = switch (op) {
+                case 0 -> HttpRequest.newBuilder(URI.create(baseUrl + "/transactions"))
+                        .POST(HttpRequest.BodyPublishers.ofString(String.format(
+                                "{\"amount\":%d,\"type\":\"%s\",\"date\":\"%s\",\"tags\":[]}",
+                                1 + random.nextInt(500), random.nextBoolean() ? "INCOME" : "EXPENSE",
+                                LocalDate.now().minusDays(random.nextInt(365)))))
+                        .build();
+                case 1 -> HttpRequest.newBuilder(URI.create(baseUrl + "/transactions?type=EXPENSE&mode=PAST")).GET().build();
+                default -> HttpRequest.newBuilder(URI.create(baseUrl + "/balance?mode=ALL")).GET().build();
+            };
+            long start = System.nanoTime();
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() >= 400) {
+                    recorders[op].errors++;
+                    continue;
+                }
+            } catch (Exception e) {
+                recorders[op].errors++;
+                continue;
+            }
+            recorders[op].record(System.nanoTime() - start);
+        }
+        return recorders;
+    }
+
+    private static void report(String name, LatencyRecorder recorder, int seconds) {
+        long[] sorted = recorder.sorted();
+        System.out.printf("%-8s requests=%d errors=%d throughput=%.0f req/s p50=%.2f ms p90=%.2f ms p99=%.2f ms p99.9=%.2f ms max=%.2f ms%n",
+                name, sorted.length, recorder.errors, sorted.length / (double) seconds,
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), sorted.length == 0 ? 0 : sorted[sorted.length - 1] / 1e6);
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    /**
+     * Records the latencies of one kind of request, in nanoseconds.
+     */
+    private static final class LatencyRecorder {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+
+        private void record(long nanos) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+        }
+
+        private void addAll(LatencyRecorder other) {
+            for (int i = 0; i < other.size; i++) {
+                record(other.latencies[i]);
+            }
+            errors += other.errors;
+        }
+
+        private long[] sorted() {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,388 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.tools;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionJson;
+import it.unicam.cs.mpgc.jbudget126118.persistency.XmlPersistency;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * LedgerGenerator produces deterministic synthetic ledgers for scale testing.
+ * The same options, including the reference date, always produce the same tags and transactions,
+ * in chronological order.
+ * A ledger mixes random transactions with recurring ones (salary, rent, bills, groceries),
+ * covers a number of years ending in the future, so that part of the rows are future-dated,
+ * and uses a tag tree whose depth is controlled by its fanout.
+ * Transactions are produced one at a time, so ledgers of any size can be written in constant memory,
+ * in the XML format of XmlPersistency or as JSON Lines.
+ * Usage: {@code LedgerGenerator --count=1000000 --format=xml|jsonl --out=transaction.xml --tags=Tags.xml
+ * [--version=2] [--seed=42] [--income=0.3] [--future=0.1] [--years=5] [--tagCount=64] [--fanout=4] [--today=yyyy-MM-dd]}
+ */
+public class LedgerGenerator {
+
+    /**
+     * Options of a generated ledger.
+     * @param seed the seed of the random generator
+     * @param incomeRatio the share of random transactions that are INCOME, between 0 and 1
+     * @param futureRatio the share of the covered days that are after today, between 0 and 1
+     * @param years the number of years covered by the ledger
+     * @param tagCount the number of tags
+     * @param tagFanout the number of children of every tag, smaller values give deeper hierarchies
+     * @param today the day splitting past and future transactions
+     */
+    public record Options(long seed, double incomeRatio, double futureRatio, int years, int tagCount, int tagFanout,
+                          LocalDate today) {
+
+        /**
+         * Returns the default options: 30% income, 10% future days, 5 years, 64 tags with fanout 4,
+         * with the current date as today.
+         * @param seed the seed of the random generator
+         * @return the default options
+         */
+        public static Options defaults(long seed) {
+            return new Options(seed, 0.3, 0.1, 5, 64, 4, LocalDate.now());
+        }
+    }
+
+    private static final long FIRST_ID = 1_700_000_000_000L;
+    private static final int MAX_TAGS_PER_TRANSACTION = 3; // as in AddTransactionPane
+
+    private final Options options;
+    private final List<Tag> tags;
+    private final List<Tag> leaves;
+
+    /**
+     * Constructor for LedgerGenerator.
+     * @param options the options of the ledger
+     */
+    public LedgerGenerator(Options options) {
+        if (options.tagCount() < 1 || options.tagFanout() < 1 || options.years() < 1) {
+            throw new IllegalArgumentException("tagCount, tagFanout and years must be positive");
+        }
+        this.options = options;
+        this.tags = buildTags(options.tagCount(), options.tagFanout());
+        this.leaves = new ArrayList<>();
+        Map<Tag, Boolean> hasChildren = new HashMap<>();
+        for (Tag tag : tags) {
+            if (tag.parent() != null) {
+                hasChildren.put(tag.parent(), true);
+            }
+        }
+        for (Tag tag : tags) {
+            if (!hasChildren.containsKey(tag)) {
+                leaves.add(tag);
+            }
+        }
+    }
+
+    /**
+     * Returns the tags of the ledger, parents before children.
+     * @return the tags
+     */
+    public List<Tag> tags() {
+        return tags;
+    }
+
+    /**
+     * Returns the transactions of a ledger of the given size.
+     * The stream is sequential and lazy: transactions are generated while the stream is consumed.
+     * @param count the number of transactions
+     * @return the transactions, in chronological order
+     */
+    public Stream<Transaction> transactions(long count) {
+        return StreamSupport.stream(Spliterators.spliterator(new TransactionIterator(count), count,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE), false);
+    }
+
+    /**
+     * Writes a ledger in the current XML format of XmlPersistency.
+     * @param count the number of transactions
+     * @param transactionOut where the transaction file is written
+     * @param tagOut where the tag file is written
+     * @throws IOException if the files cannot be written
+     */
+    public void writeXml(long count, Writer transactionOut, Writer tagOut) throws IOException {
+        writeXml(count, transactionOut, tagOut, XmlPersistency.FORMAT_VERSION);
+    }
+
+    /**
+     * Writes a ledger in the XML format of XmlPersistency.
+     * @param count the number of transactions
+     * @param transactionOut where the transaction file is written
+     * @param tagOut where the tag file is written
+     * @param version the format version of the transaction file, 1 to repeat the tag names in every transaction
+     * @throws IOException if the files cannot be written
+     */
+    public void writeXml(long count, Writer transactionOut, Writer tagOut, int version) throws IOException {
+        if (version < 1 || version > XmlPersistency.FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unknown format version: " + version);
+        }
+        writeTagsXml(tagOut);
+        transactionOut.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>"
+                + (version == 1 ? "<transactions>\n" : "<transactions version=\"" + version + "\">\n"));
+        Iterator<Transaction> it = new TransactionIterator(count);
+        StringBuilder sb = new StringBuilder(256);
+        while (it.hasNext()) {
+            Transaction t = it.next();
+            sb.setLength(0);
+            sb.append("    <transaction id=\"").append(t.id()).append("\">\n")
+                    .append("        <amount>").append(t.amount()).append("</amount>\n")
+                    .append("        <type>").append(t.transactionType()).append("</type>\n")
+                    .append("        <date>").append(t.transactionDate()).append("</date>\n")
+                    .append("        <tags>\n");
+            for (Tag tag : t.tags()) {
+                sb.append("            <tag id=\"").append(tag.id()).append('"');
+                if (version == 1) {
+                    sb.append(" name=\"").append(escapeXml(tag.name())).append('"');
+                }
+                sb.append("/>\n");
+            }
+            sb.append("        </tags>\n    </transaction>\n");
+            transactionOut.append(sb);
+        }
+        transactionOut.write("</transactions>\n");
+        transactionOut.flush();
+    }
+
+    /**
+     * Writes the transactions of a ledger as JSON Lines, one TransactionJson object per line.
+     * @param count the number of transactions
+     * @param out where the transactions are written
+     * @throws IOException if the transactions cannot be written
+     */
+    public void writeJsonLines(long count, Writer out) throws IOException {
+        Iterator<Transaction> it = new TransactionIterator(count);
+        while (it.hasNext()) {
+            TransactionJson.write(it.next(), out);
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes the tags in the XML format read by XmlPersistency.loadTags.
+     * @param out where the tags are written
+     * @throws IOException if the tags cannot be written
+     */
+    public void writeTagsXml(Writer out) throws IOException {
+        Map<Tag, List<Tag>> children = new HashMap<>();
+        for (Tag tag : tags) {
+            if (tag.parent() != null) {
+                children.computeIfAbsent(tag.parent(), k -> new ArrayList<>()).add(tag);
+            }
+        }
+        out.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<tags>\n");
+        for (Tag tag : tags) {
+            if (tag.parent() == null) {
+                writeTagXml(out, tag, children, 1);
+            }
+        }
+        out.write("</tags>\n");
+        out.flush();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Map<String, String> arguments = new HashMap<>();
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Invalid argument: " + arg);
+            }
+            arguments.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        Options defaults = Options.defaults(42);
+        Options options = new Options(
+                Long.parseLong(arguments.getOrDefault("seed", String.valueOf(defaults.seed()))),
+                Double.parseDouble(arguments.getOrDefault("income", String.valueOf(defaults.incomeRatio()))),
+                Double.parseDouble(arguments.getOrDefault("future", String.valueOf(defaults.futureRatio()))),
+                Integer.parseInt(arguments.getOrDefault("years", String.valueOf(defaults.years()))),
+                Integer.parseInt(arguments.getOrDefault("tagCount", String.valueOf(defaults.tagCount()))),
+                Integer.parseInt(arguments.getOrDefault("fanout", String.valueOf(defaults.tagFanout()))),
+                LocalDate.parse(arguments.getOrDefault("today", defaults.today().toString())));
+        long count = Long.parseLong(arguments.getOrDefault("count", "1000000"));
+        String format = arguments.getOrDefault("format", "xml");
+        Path out = Path.of(arguments.getOrDefault("out", format.equals("xml") ? "transaction.xml" : "transactions.jsonl"));
+        Path tagFile = Path.of(arguments.getOrDefault("tags", "Tags.xml"));
+
+        LedgerGenerator generator = new LedgerGenerator(options);
+        long start = System.nanoTime();
+        try (BufferedWriter transactionOut = Files.newBufferedWriter(out, StandardCharsets.UTF_8);
+             BufferedWriter tagOut = Files.newBufferedWriter(tagFile, StandardCharsets.UTF_8)) {
+            switch (format) {
+                case "xml" -> generator.writeXml(count, transactionOut, tagOut, Integer.parseInt(
+                        arguments.getOrDefault("version", String.valueOf(XmlPersistency.FORMAT_VERSION))));
+                case "jsonl" -> {
+                    generator.writeTagsXml(tagOut);
+                    generator.writeJsonLines(count, transactionOut);
+                }
+                default -> throw new IllegalArgumentException("Unknown format: " + format);
+            }
+        }
+        System.out.printf("Generated %d transactions in %s (%d bytes) in %.1f s%n",
+                count, out, Files.size(out), (System.nanoTime() - start) / 1e9);
+    }
+
+    private static List<Tag> buildTags(int count, int fanout) {
+        List<Tag> tags = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Tag parent = i < fanout ? null : tags.get(i / fanout - 1);
+            tags.add(new Tag(i + 1, "Tag" + (i + 1), parent));
+        }
+        return tags;
+    }
+
+    private static void writeTagXml(Writer out, Tag tag, Map<Tag, List<Tag>> children, int level) throws IOException {
+        String indent = "    ".repeat(level);
+        List<Tag> sub = children.getOrDefault(tag, List.of());
+        out.write(indent + "<tag id=\"" + tag.id() + "\" name=\"" + escapeXml(tag.name()) + "\""
+                + (sub.isEmpty() ? "/>\n" : ">\n"));
+        if (!sub.isEmpty()) {
+            for (Tag child : sub) {
+                writeTagXml(out, child, children, level + 1);
+            }
+            out.write(indent + "</tag>\n");
+        }
+    }
+
+    private static String escapeXml(String s) {
+        return s.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * Recurring transaction of the generated ledgers.
+     * @param type the type of the transactions
+     * @param amount the amount of the transactions
+     * @param periodDays the number of days between two transactions
+     * @param offsetDays the first day of the ledger with a transaction
+     * @param tagIndex the index of the leaf tag of the transactions
+     */
+    private record RecurringPattern(TransactionType type, double amount, int periodDays, int offsetDays, int tagIndex) {
+    }
+
+    /**
+     * Generates the transactions day by day: every day gets its recurring transactions
+     * and a share of random transactions, until the requested count is reached.
+     */
+    private final class TransactionIterator implements Iterator<Transaction> {
+        private final long count;
+        private final Random random = new Random(options.seed());
+        private final LocalDate firstDay;
+        private final double randomPerDay;
+        private final List<RecurringPattern> patterns = new ArrayList<>();
+        private final ArrayDeque<Transaction> today = new ArrayDeque<>();
+        private long emitted;
+        private int day;
+        private double pending;
+
+        private TransactionIterator(long count) {
+            this.count = count;
+            int totalDays = options.years() * 365;
+            int futureDays = (int) Math.round(totalDays * options.futureRatio());
+            this.firstDay = options.today().plusDays(futureDays - totalDays);
+
+            patterns.add(new RecurringPattern(TransactionType.INCOME, 2200, 30, 26, 0));
+            patterns.add(new RecurringPattern(TransactionType.EXPENSE, 850, 30, 0, 1));
+            patterns.add(new RecurringPattern(TransactionType.EXPENSE, 120, 60, 14, 2));
+            patterns.add(new RecurringPattern(TransactionType.EXPENSE, 65, 7, 5, 3));
+            double recurringPerDay = 0;
+            for (RecurringPattern pattern : patterns) {
+                recurringPerDay += 1.0 / pattern.periodDays();
+            }
+            this.randomPerDay = Math.max(0, (double) count / totalDays - recurringPerDay);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return emitted < count;
+        }
+
+        @Override
+        public Transaction next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            while (today.isEmpty()) {
+                fillDay();
+            }
+            emitted++;
+            return today.poll();
+        }
+
+        private void fillDay() {
+            LocalDate date = firstDay.plusDays(day);
+            for (RecurringPattern pattern : patterns) {
+                if (day >= pattern.offsetDays() && (day - pattern.offsetDays()) % pattern.periodDays() == 0) {
+                    add(pattern.type(), pattern.amount(), date, leaves.get(pattern.tagIndex() % leaves.size()));
+                }
+            }
+            pending += randomPerDay;
+            while (pending >= 1) {
+                pending--;
+                boolean income = random.nextDouble() < options.incomeRatio();
+                // log-normal amounts: many small expenses, few large ones
+                double amount = Math.exp((income ? 6.5 : 3.5) + random.nextGaussian() * 0.9);
+                add(income ? TransactionType.INCOME : TransactionType.EXPENSE, amount, date,
+                        leaves.get(random.nextInt(leaves.size())));
+            }
+            day++;
+        }
+
+        private void add(TransactionType type, double amount, LocalDate date, Tag leaf) {
+            if (emitted + today.size() >= count) {
+                return;
+            }
+            // the leaf and its nearest ancestors, the tags of the tag file as XmlPersistency resolves them
+            List<Tag> txTags = new ArrayList<>(MAX_TAGS_PER_TRANSACTION);
+            for (Tag tag = leaf; tag != null && txTags.size() < MAX_TAGS_PER_TRANSACTION; tag = tag.parent()) {
+                txTags.add(tag);
+            }
+            long id = FIRST_ID + emitted + today.size();
+            today.add(new Transaction(id, Math.round(amount * 100) / 100.0, type, date, txTags));
+        }
+    }
+}
@@ -0,0 +1,934 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.view.CLI;
+
+import it.unicam.cs.mpgc.jbudget126118.controller.exporter.MonthlyStatementWriter;
+import it.unicam.cs.mpgc.jbudget126118.controller.exporter.TransactionExporter;
+import it.unicam.cs.mpgc.jbudget126118.controller.filter.FilteredTransactions;
+import it.unicam.cs.mpgc.jbudget126118.controller.importer.CsvStatementImporter;
+import it.unicam.cs.mpgc.jbudget126118.controller.importer.DedupIndex;
+import it.unicam.cs.mpgc.jbudget126118.controller.importer.ImportReport;
+import it.unicam.cs.mpgc.jbudget126118.controller.importer.ReconciliationReport;
+import it.unicam.cs.mpgc.jbudget126118.controller.importer.ReconciliationRules;
+import it.unicam.cs.mpgc.jbudget126118.controller.importer.StatementReconciler;
+import it.unicam.cs.mpgc.jbudget126118.controller.importer.StatementFormat;
+import it.unicam.cs.mpgc.jbudget126118.controller.importer.TagRules;
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.MonthlyStatementGenerator;
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.OutOfCoreAggregator;
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.TransactionBalance;
+import it.unicam.cs.mpgc.jbudget126118.model.Period;
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionIds;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.BlockCompressedTransactionStore;
+import it.unicam.cs.mpgc.jbudget126118.persistency.EventSourcedTransactionStore;
+import it.unicam.cs.mpgc.jbudget126118.persistency.OffHeapTransactionStore;
+import it.unicam.cs.mpgc.jbudget126118.persistency.SegmentedTransactionStore;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionJson;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionScan;
+import it.unicam.cs.mpgc.jbudget126118.persistency.XmlPersistency;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.FileDescriptor;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * LedgerCli runs reports and imports directly against the persistency, without starting JavaFX,
+ * so that a balance can be printed in a fraction of the startup time of MainApp.
+ * This class and everything it uses must not depend on JavaFX classes.
+ * Usage: {@code LedgerCli <command> [--option=value...]}, with the commands:
+ * - query: prints the transactions filtered by --type, --mode, --from and --to
+ * - balance: prints totals and expenses grouped by tag, filtered by --mode, --from and --to
+ * - tags: prints the tags
+ * - report: prints totals and counts grouped by tag and/or period (--by=tag,month), filtered by --type, --mode,
+ *   --from and --to; the ledger is read one transaction at a time and at most --max-groups groups are held
+ *   in memory, the others are spilled to sorted runs in --temp-dir and merged, so it works on ledgers larger than the heap
+ * - statements: writes a statement per month to the directory --out, with the opening and closing balance, the totals,
+ *   the expenses by tag and the transactions of the month; --from and --to select the months written, while the
+ *   opening balances always include the earlier transactions; the months are computed and written by --threads threads
+ * - export: writes the filtered transactions with the full paths of their tags to --out (a file, or - for stdout),
+ *   reading the ledger one transaction at a time
+ * - import: adds the transactions read as JSON lines from --in (a file, or - for stdin), in batches of --batch
+ * - import-csv: adds the rows of a bank statement in CSV read from --in, mapping descriptions to tags
+ *   with the rules in --rules (or by tag name if not given); --columns names the columns in order,
+ *   among date, amount, description, type and - for a column to ignore; rows already in the ledger are
+ *   skipped using the index saved next to the ledger file or store directory, unless --dedup=false
+ * - reconcile: pairs the rows of a bank statement in CSV, read with the options of import-csv, with the transactions
+ *   of the ledger, within --date-tolerance days and --amount-tolerance or --relative-tolerance of the amount, and prints
+ *   each row as matched, ambiguous or unmatched, then the transactions of the ledger that no row matched; nothing is saved
+ * - upgrade: rewrites the transaction file in the current format version of XmlPersistency,
+ *   which refers to the tags of the tag file by id instead of repeating their names
+ * - archive: writes the ledger to --out as a BlockCompressedTransactionStore, reporting the compression ratio
+ *   and the load throughput of the archive
+ * - update: replaces the amount, --type or --date of the transaction --id, keeping the others
+ * - delete: removes the transaction --id
+ * - undo, redo: undo the last change of the ledger, or apply again the last undone one, even if made by an earlier run
+ * - history: prints the changes of the ledger, one event per transaction changed, oldest first
+ * Every command accepts --transactions and --tags for the ledger files, and reports accept --format=csv|json.
+ * With --store=segmented the transactions are kept in a SegmentedTransactionStore in the directory --segments,
+ * which updates and deletes single transactions with an append instead of rewriting the transaction file;
+ * the tags are still read from --tags.
+ * With --store=offheap the transactions of the transaction file are copied into an OffHeapTransactionStore,
+ * which writes the added ones through to the file; query and balance then scan its columns
+ * instead of the loaded transactions.
+ * With --store=eventsourced the changes are logged as events by an EventSourcedTransactionStore in the directory
+ * --events, which keeps the history of the ledger for undo, redo and history; the tags are still read from --tags.
+ * With --archive the commands read the transactions from a compressed archive instead of the transaction file;
+ * query and balance then decompress only the blocks of the period given by --from and --to.
+ * The json format prints one object per line (JSON Lines), so the output is streamed as it is produced.
+ */
+public final class LedgerCli {
+
+    private static final String USAGE = """
+            Usage: LedgerCli <command> [--option=value...]
+              query   [--type=EXPENSE|INCOME] [--mode=ALL|PAST|FUTURE] [--from=yyyy-MM-dd] [--to=yyyy-MM-dd] [--format=csv|json]
+              balance [--mode=ALL|PAST|FUTURE] [--from=yyyy-MM-dd] [--to=yyyy-MM-dd] [--format=csv|json]
+              tags    [--format=csv|json]
+              report  [--by=tag|day|month|year|tag,month...] [--type=EXPENSE|INCOME] [--mode=ALL|PAST|FUTURE] [--from=yyyy-MM-dd]
+                      [--to=yyyy-MM-dd] [--max-groups=250000] [--temp-dir=dir] [--format=csv|json]
+              statements [--out=dir] [--from=yyyy-MM-dd] [--to=yyyy-MM-dd] [--threads=cores] [--format=csv|json]
+              export  [--type=EXPENSE|INCOME] [--mode=ALL|PAST|FUTURE] [--from=yyyy-MM-dd] [--to=yyyy-MM-dd] [--format=csv|json] [--out=file|-]
+              import  [--in=file.jsonl|-] [--batch=10000]
+              import-csv [--in=statement.csv|-] [--rules=rules.txt] [--columns=date,amount,description]
+                         [--delimiter=,] [--date-format=yyyy-MM-dd] [--decimal-comma=false] [--header=true] [--batch=50000] [--dedup=true]
+              reconcile  [--in=statement.csv|-] [--date-tolerance=3] [--amount-tolerance=0] [--relative-tolerance=0] [--format=csv|json]
+                         [--rules=rules.txt] [--columns=date,amount,description] [--delimiter=,] [--date-format=yyyy-MM-dd] ...
+              upgrade
+              archive [--out=ledger.jbz] [--block-rows=4096] [--level=-1]
+              update  --id=id [--amount=amount] [--type=EXPENSE|INCOME] [--date=yyyy-MM-dd]
+              delete  --id=id
+              undo
+              redo
+              history [--format=csv|json]
+            Common options: --transactions=transaction.xml --tags=Tags.xml --archive=ledger.jbz
+                            --store=xml|segmented|offheap|eventsourced --segments=ledger.segments
+                            --events=ledger.events""";
+
+    private final TransactionPersistency persistency;
+    private final Map<String, String> options;
+    private final Writer out;
+
+    /**
+     * Constructor for LedgerCli.
+     * @param persistency the persistency the commands run against
+     * @param options the options of the command, without the leading dashes
+     * @param out the writer the results are written to
+     */
+    public LedgerCli(TransactionPersistency persistency, Map<String, String> options, Writer out) {
+        this.persistency = persistency;
+        this.options = options;
+        this.out = out;
+    }
+
+    public static void main(String[] args) {
+        if (args.length == 0 || args[0].equals("help") || args[0].equals("--help")) {
+            System.out.println(USAGE);
+            return;
+        }
+        try {
+            Map<String, String> options = parseOptions(args);
+            XmlPersistency xml = new XmlPersistency(
+                    options.getOrDefault("transactions", "transaction.xml"),
+                    options.getOrDefault("tags", "Tags.xml"));
+            TransactionPersistency persistency;
+            if (options.containsKey("archive") && !args[0].equals("archive")) {
+                persistency = new BlockCompressedTransactionStore(Path.of(options.get("archive")), xml::loadTags);
+            } else {
+                persistency = switch (options.getOrDefault("store", "xml")) {
+                    case "xml" -> xml;
+                    case "segmented" -> new SegmentedTransactionStore(
+                            Path.of(options.getOrDefault("segments", "ledger.segments")), xml::loadTags);
+                    case "offheap" -> new OffHeapTransactionStore(xml);
+                    case "eventsourced" -> new EventSourcedTransactionStore(
+                            Path.of(options.getOrDefault("events", "ledger.events")), xml::loadTags);
+                    default -> throw new IllegalArgumentException("Unknown store: " + options.get("store"));
+                };
+            }
+            Writer out = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(FileDescriptor.out), StandardCharsets.UTF_8), 1 << 16);
+            try {
+                new LedgerCli(persistency, options, out).run(args[0]);
+            } finally {
+                if (persistency instanceof Closeable store) {
+                    store.close();
+                }
+            }
+            out.flush();
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            System.err.println("jbudget: " + e.getMessage());
+            System.err.println(USAGE);
+            System.exit(2);
+        } catch (IOException e) {
+            System.err.println("jbudget: " + e.getMessage());
+            System.exit(1);
+        } catch (UncheckedIOException e) {
+            System.err.println("jbudget: " + e.getCause().getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * Runs a command.
+     * @param command the name of the command
+     * @throws IOException if the output cannot be written or the input cannot be read
+     * @throws IllegalArgumentException if the command or one of its options is invalid
+     */
+    public void run(String command) throws IOException {
+        switch (command) {
+            case "query" -> query();
+            case "balance" -> balance();
+            case "tags" -> tags();
+            case "report" -> report();
+            case "statements" -> statements();
+            case "export" -> export();
+            case "import" -> importTransactions();
+            case "import-csv" -> importStatement();
+            case "reconcile" -> reconcile();
+            case "upgrade" -> upgrade();
+            case "archive" -> archive();
+            case "update" -> update();
+            case "delete" -> delete();
+            case "undo" -> undo();
+            case "redo" -> redo();
+            case "history" -> history();
+            default -> throw new IllegalArgumentException("Unknown command: " + command);
+        }
+    }
+
+    private void query() throws IOException {
+        TransactionType type = TransactionType.valueOf(options.getOrDefault("type", TransactionType.EXPENSE.name()));
+        List<Transaction> items = new FilteredTransactions(scan(period()), mode(), period(), type).filteredItems();
+        boolean json = json();
+        if (!json) {
+            out.write("id,date,type,amount,tags\n");
+        }
+        for (Transaction t : items) {
+            if (json) {
+                TransactionJson.write(t, out);
+            } else {
+                out.append(Long.toString(t.id())).append(',')
+                        .append(t.transactionDate().toString()).append(',')
+                        .append(t.transactionType().name()).append(',')
+                        .append(Double.toString(t.amount())).append(',');
+                writeCsvField(t.tags().stream().map(Tag::name).collect(Collectors.joining(";")));
+            }
+            out.write('\n');
+        }
+    }
+
+    private void balance() throws IOException {
+        FilteredTransactions.Mode mode = mode();
+        Period period = period();
+        TransactionScan all = scan(period);
+        var income = new TransactionBalance(new FilteredTransactions(all, mode, period, TransactionType.INCOME).filteredItems());
+        var expense = new TransactionBalance(new FilteredTransactions(all, mode, period, TransactionType.EXPENSE).filteredItems());
+        double totalIncome = income.getTotalIncome();
+        double totalExpense = expense.getTotalExpense();
+        Map<Tag, Double> tagAmounts = expense.getTagsAmountMap();
+
+        if (json()) {
+            out.append("{\"income\":").append(Double.toString(totalIncome))
+                    .append(",\"expense\":").append(Double.toString(totalExpense))
+                    .append(",\"balance\":").append(Double.toString(totalIncome - totalExpense))
+                    .append(",\"tags\":{");
+            boolean first = true;
+            for (Map.Entry<Tag, Double> entry : tagAmounts.entrySet()) {
+                if (!first) {
+                    out.write(',');
+                }
+                first = false;
+                TransactionJson.writeString(entry.getKey().name(), out);
+                out.append(':').append(Double.toString(entry.getValue()));
+            }
+            out.write("}}\n");
+        } else {
+            out.write("kind,name,amount\n");
+            out.append("total,income,").append(Double.toString(totalIncome)).append('\n');
+            out.append("total,expense,").append(Double.toString(totalExpense)).append('\n');
+            out.append("total,balance,").append(Double.toString(totalIncome - totalExpense)).append('\n');
+            for (Map.Entry<Tag, Double> entry : tagAmounts.entrySet()) {
+                out.write("tag,");
+                writeCsvField(entry.getKey().name());
+                out.append(',').append(Double.toString(entry.getValue())).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Loads the transactions a period query needs: those of the period if the ledger is a compressed archive,
+     * which then decompresses only the blocks of the period, all of them otherwise.
+     * @param period the period of the query (can be null)
+     * @return the transactions to filter
+     */
+    private List<Transaction> load(Period period) {
+        if (period != null && persistency instanceof BlockCompressedTransactionStore archive) {
+            return archive.load(period.getDataStartOrNow(), period.getDataEndOrNow());
+        }
+        return persistency.load();
+    }
+
+    /**
+     * Returns the transactions a period query filters: the ledger itself if it runs the scans,
+     * as an OffHeapTransactionStore does, the transactions loaded for the period otherwise.
+     * @param period the period of the query (can be null)
+     * @return the scan to filter
+     */
+    private TransactionScan scan(Period period) {
+        if (persistency instanceof TransactionScan scan) {
+            return scan;
+        }
+        return TransactionScan.of(load(period));
+    }
+
+    private void tags() throws IOException {
+        boolean json = json();
+        if (!json) {
+            out.write("id,name,parent\n");
+        }
+        for (Tag tag : persistency.loadTags()) {
+            if (json) {
+                out.append("{\"id\":").append(Long.toString(tag.id())).append(",\"name\":");
+                TransactionJson.writeString(tag.name(), out);
+                out.append(",\"parent\":").append(tag.parent() != null ? Long.toString(tag.parent().id()) : "null");
+                out.write("}\n");
+            } else {
+                out.append(Long.toString(tag.id())).append(',');
+                writeCsvField(tag.name());
+                out.append(',').append(tag.parent() != null ? Long.toString(tag.parent().id()) : "").append('\n');
+            }
+        }
+    }
+
+    /**
+     * Prints the groups of an OutOfCoreAggregator as they are merged, reporting the spilled runs on stderr.
+     * Without --type both income and expenses are reported.
+     */
+    private void report() throws IOException {
+        boolean byTag = false;
+        OutOfCoreAggregator.Granularity granularity = OutOfCoreAggregator.Granularity.NONE;
+        for (String key : options.getOrDefault("by", "tag").split(",")) {
+            switch (key.trim()) {
+                case "tag" -> byTag = true;
+                case "day" -> granularity = OutOfCoreAggregator.Granularity.DAY;
+                case "month" -> granularity = OutOfCoreAggregator.Granularity.MONTH;
+                case "year" -> granularity = OutOfCoreAggregator.Granularity.YEAR;
+                default -> throw new IllegalArgumentException("Unknown grouping: " + key);
+            }
+        }
+        int maxGroups = Integer.parseInt(options.getOrDefault("max-groups",
+                Integer.toString(OutOfCoreAggregator.DEFAULT_MAX_GROUPS)));
+        if (maxGroups < 1) {
+            throw new IllegalArgumentException("The maximum number of groups must be positive");
+        }
+        Path temporaryDirectory = Path.of(options.getOrDefault("temp-dir", System.getProperty("java.io.tmpdir")));
+        Predicate<Transaction> filter;
+        if (options.containsKey("type")) {
+            filter = FilteredTransactions.predicate(mode(), period(), TransactionType.valueOf(options.get("type")));
+        } else {
+            filter = FilteredTransactions.predicate(mode(), period(), TransactionType.INCOME)
+                    .or(FilteredTransactions.predicate(mode(), period(), TransactionType.EXPENSE));
+        }
+
+        boolean json = json();
+        if (!json) {
+            out.write("type,tag,period,total,count\n");
+        }
+        OutOfCoreAggregator aggregator = new OutOfCoreAggregator(byTag, granularity, maxGroups, temporaryDirectory);
+        long start = System.nanoTime();
+        long count = aggregator.aggregate(persistency, filter, group -> {
+            try {
+                String period = group.period() != null ? group.period().toString() : null;
+                if (json) {
+                    out.append("{\"type\":\"").append(group.type().name()).append("\",\"tag\":");
+                    if (group.tag() != null) {
+                        TransactionJson.writeString(group.tag().name(), out);
+                    } else {
+                        out.write("null");
+                    }
+                    out.append(",\"period\":").append(period != null ? "\"" + period + "\"" : "null")
+                            .append(",\"total\":").append(Double.toString(group.total()))
+                            .append(",\"count\":").append(Long.toString(group.count()))
+                            .append("}\n");
+                } else {
+                    out.append(group.type().name()).append(',');
+                    writeCsvField(group.tag() != null ? group.tag().name() : "");
+                    out.append(',').append(period != null ? period : "")
+                            .append(',').append(Double.toString(group.total()))
+                            .append(',').append(Long.toString(group.count())).append('\n');
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        System.err.printf("Aggregated %d transactions in %.2f s (%d spilled runs)%n",
+                count, (System.nanoTime() - start) / 1e9, aggregator.spilledRuns());
+    }
+
+    /**
+     * Generates the monthly statements of the whole ledger and writes those of the months overlapping --from and --to,
+     * reporting the time of each step on stderr.
+     */
+    private void statements() throws IOException {
+        int threads = Integer.parseInt(options.getOrDefault("threads",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        LocalDate from = options.containsKey("from") ? LocalDate.parse(options.get("from")) : LocalDate.MIN;
+        LocalDate to = options.containsKey("to") ? LocalDate.parse(options.get("to")) : LocalDate.MAX;
+        TransactionExporter.Format format = json() ? TransactionExporter.Format.JSON_LINES : TransactionExporter.Format.CSV;
+
+        long start = System.nanoTime();
+        List<Transaction> all = persistency.load();
+        long loaded = System.nanoTime();
+        List<MonthlyStatementGenerator.MonthlyStatement> statements = new ArrayList<>();
+        for (MonthlyStatementGenerator.MonthlyStatement statement : new MonthlyStatementGenerator(threads).generate(all)) {
+            if (!statement.month().atEndOfMonth().isBefore(from) && !statement.month().atDay(1).isAfter(to)) {
+                statements.add(statement);
+            }
+        }
+        long generated = System.nanoTime();
+        List<Path> files = new MonthlyStatementWriter(persistency.loadTags(), threads)
+                .write(statements, Path.of(options.getOrDefault("out", "statements")), format);
+        long written = System.nanoTime();
+        for (Path file : files) {
+            out.append(file.toString()).append('\n');
+        }
+        System.err.printf("Loaded %d transactions in %.2f s, generated %d statements in %.2f s, written in %.2f s (%d threads)%n",
+                all.size(), (loaded - start) / 1e9, statements.size(), (generated - loaded) / 1e9,
+                (written - generated) / 1e9, threads);
+    }
+
+    private void export() throws IOException {
+        TransactionType type = TransactionType.valueOf(options.getOrDefault("type", TransactionType.EXPENSE.name()));
+        TransactionExporter.Format format = json() ? TransactionExporter.Format.JSON_LINES : TransactionExporter.Format.CSV;
+        TransactionExporter exporter = new TransactionExporter(persistency.loadTags());
+        String file = options.getOrDefault("out", "-");
+        long start = System.nanoTime();
+        long count = file.equals("-")
+                ? exporter.export(persistency, FilteredTransactions.predicate(mode(), period(), type), format, out)
+                : exporter.export(persistency, FilteredTransactions.predicate(mode(), period(), type), format, Path.of(file));
+        System.err.printf("Exported %d transactions in %.2f s%n", count, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Imports transactions written as JSON lines, in the format of TransactionJson.
+     * Tags can be given by name, and transactions without id get a new one.
+     * Transactions are saved in batches, so the ledger file is rewritten once per batch.
+     */
+    private void importTransactions() throws IOException {
+        String in = options.getOrDefault("in", "-");
+        int batchSize = Integer.parseInt(options.getOrDefault("batch", "10000"));
+        if (batchSize < 1) {
+            throw new IllegalArgumentException("The batch size must be positive");
+        }
+        Map<String, Tag> tagsByName = new HashMap<>();
+        for (Tag tag : persistency.loadTags()) {
+            tagsByName.putIfAbsent(tag.name(), tag);
+        }
+        seedIds();
+
+        long start = System.nanoTime();
+        long count = 0;
+        long lineNumber = 0;
+        List<Transaction> batch = new ArrayList<>(batchSize);
+        try (BufferedReader reader = in.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(in), StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                try {
+                    batch.add(TransactionJson.parse(line, tagsByName::get, TransactionIds::next));
+                } catch (IllegalArgumentException | DateTimeParseException e) {
+                    throw new IllegalArgumentException("Line " + lineNumber + ": " + e.getMessage(), e);
+                }
+                if (batch.size() == batchSize) {
+                    persistency.saveAll(batch);
+                    count += batch.size();
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+        }
+        persistency.saveAll(batch);
+        count += batch.size();
+        System.err.printf("Imported %d transactions in %.2f s%n", count, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Passes the largest id of the ledger to TransactionIds, so that the imported transactions never reuse
+     * an id handed out by another run, such as an import that ran the ids ahead of the clock.
+     */
+    private void seedIds() throws IOException {
+        long[] max = {0};
+        try {
+            persistency.forEach(t -> max[0] = Math.max(max[0], t.id()));
+        } catch (UncheckedIOException e) {
+            if (!(e.getCause() instanceof FileNotFoundException)) {
+                throw e.getCause();
+            }
+            // a new ledger, which has no ids yet
+        }
+        TransactionIds.seen(max[0]);
+    }
+
+    /**
+     * Returns the path the transactions are written to: the directory of a segmented or event-sourced store,
+     * otherwise the transaction file, which an off-heap store writes through to.
+     */
+    private Path ledgerPath() {
+        if (persistency instanceof SegmentedTransactionStore) {
+            return Path.of(options.getOrDefault("segments", "ledger.segments"));
+        }
+        if (persistency instanceof EventSourcedTransactionStore) {
+            return Path.of(options.getOrDefault("events", "ledger.events"));
+        }
+        return Path.of(options.getOrDefault("transactions", "transaction.xml"));
+    }
+
+    /**
+     * Imports a bank statement in CSV with the CsvStatementImporter, reporting the progress on stderr.
+     * Rows already in the ledger are skipped with the DedupIndex saved next to the store in use.
+     */
+    private void importStatement() throws IOException {
+        CsvStatementImporter importer = new CsvStatementImporter(persistency, statementFormat(), tagRules(),
+                Integer.parseInt(options.getOrDefault("batch", "50000")));
+        Path ledger = ledgerPath();
+        Path indexFile = ledger.resolveSibling(ledger.getFileName() + ".dedup");
+        DedupIndex index = Boolean.parseBoolean(options.getOrDefault("dedup", "true"))
+                ? DedupIndex.forLedger(indexFile, ledger, persistency) : null;
+        seedIds();
+
+        String in = options.getOrDefault("in", "-");
+        ImportReport report;
+        try (BufferedReader reader = in.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(in), StandardCharsets.UTF_8)) {
+            report = importer.importFrom(reader, index, progress -> System.err.println(progress));
+        } finally {
+            if (index != null) {
+                index.save(indexFile, ledger);
+            }
+        }
+        for (ImportReport.ImportError error : report.errors()) {
+            System.err.println("Line " + error.line() + ": " + error.message());
+        }
+    }
+
+    /**
+     * Reconciles a bank statement with the ledger using a StatementReconciler, reporting the statistics on stderr.
+     * Each line of the output is a row of the statement with the transaction it is paired with, if any;
+     * an ambiguous row is printed once per candidate.
+     */
+    private void reconcile() throws IOException {
+        ReconciliationRules rules = new ReconciliationRules(
+                Integer.parseInt(options.getOrDefault("date-tolerance", "3")),
+                Double.parseDouble(options.getOrDefault("amount-tolerance", "0")),
+                Double.parseDouble(options.getOrDefault("relative-tolerance", "0")));
+        CsvStatementImporter importer = new CsvStatementImporter(persistency, statementFormat(), tagRules(), 50000);
+        List<Transaction> statement = new ArrayList<>();
+        String in = options.getOrDefault("in", "-");
+        ImportReport read;
+        try (BufferedReader reader = in.equals("-")
+                ? new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8))
+                : Files.newBufferedReader(Path.of(in), StandardCharsets.UTF_8)) {
+            read = importer.readFrom(reader, statement::addAll);
+        }
+        for (ImportReport.ImportError error : read.errors()) {
+            System.err.println("Line " + error.line() + ": " + error.message());
+        }
+
+        ReconciliationReport report = new StatementReconciler(persistency.load(), rules).reconcile(statement);
+        boolean json = json();
+        if (!json) {
+            out.write("status,date,type,amount,ledger_id,ledger_date,ledger_amount\n");
+        }
+        for (ReconciliationReport.Match match : report.matched()) {
+            writeReconciled("matched", match.row(), match.transaction(), json);
+        }
+        for (ReconciliationReport.Ambiguity ambiguity : report.ambiguous()) {
+            for (Transaction candidate : ambiguity.candidates()) {
+                writeReconciled("ambiguous", ambiguity.row(), candidate, json);
+            }
+        }
+        for (Transaction row : report.unmatchedStatement()) {
+            writeReconciled("unmatched", row, null, json);
+        }
+        for (Transaction transaction : report.unmatchedLedger()) {
+            writeReconciled("ledger-only", null, transaction, json);
+        }
+        System.err.println(report);
+    }
+
+    private void writeReconciled(String status, Transaction row, Transaction transaction, boolean json) throws IOException {
+        if (json) {
+            out.append("{\"status\":\"").append(status).append('"');
+            if (row != null) {
+                out.append(",\"date\":\"").append(row.transactionDate().toString())
+                        .append("\",\"type\":\"").append(row.transactionType().name())
+                        .append("\",\"amount\":").append(Double.toString(row.amount()));
+            }
+            if (transaction != null) {
+                out.append(",\"ledger\":");
+                TransactionJson.write(transaction, out);
+            }
+            out.write("}\n");
+        } else {
+            Transaction typed = row != null ? row : transaction;
+            out.append(status).append(',')
+                    .append(row != null ? row.transactionDate().toString() : "").append(',')
+                    .append(typed.transactionType().name()).append(',')
+                    .append(row != null ? Double.toString(row.amount()) : "").append(',')
+                    .append(transaction != null ? Long.toString(transaction.id()) : "").append(',')
+                    .append(transaction != null ? transaction.transactionDate().toString() : "").append(',')
+                    .append(transaction != null ? Double.toString(transaction.amount()) : "").append('\n');
+        }
+    }
+
+    /**
+     * Upgrades the transaction file to the current format version, reporting the sizes before and after on stderr.
+     * Only a ledger stored by an XmlPersistency can be upgraded.
+     */
+    private void upgrade() throws IOException {
+        if (!(persistency instanceof XmlPersistency xml)) {
+            throw new IllegalArgumentException("Only XML ledgers can be upgraded");
+        }
+        Path file = Path.of(options.getOrDefault("transactions", "transaction.xml"));
+        int version = xml.formatVersion();
+        long sizeBefore = Files.size(file);
+        long start = System.nanoTime();
+        if (!xml.upgrade()) {
+            System.err.printf("%s is already in format version %d%n", file, version);
+            return;
+        }
+        long sizeAfter = Files.size(file);
+        System.err.printf("Upgraded %s from format version %d to %d in %.2f s: %d -> %d bytes (%.0f%%)%n",
+                file, version, XmlPersistency.FORMAT_VERSION, (System.nanoTime() - start) / 1e9,
+                sizeBefore, sizeAfter, 100.0 * sizeAfter / sizeBefore);
+    }
+
+    /**
+     * Writes the ledger to a compressed archive, replacing it, then reads it back to measure
+     * the compression ratio and the throughput of a parallel load and of a sequential scan.
+     */
+    private void archive() throws IOException {
+        Path file = Path.of(options.getOrDefault("out", "ledger.jbz"));
+        int blockRows = Integer.parseInt(options.getOrDefault("block-rows",
+                Integer.toString(BlockCompressedTransactionStore.DEFAULT_BLOCK_ROWS)));
+        int level = Integer.parseInt(options.getOrDefault("level", "-1"));
+        long start = System.nanoTime();
+        List<Transaction> all = persistency.load();
+        long loaded = System.nanoTime();
+        Files.deleteIfExists(file);
+        try (BlockCompressedTransactionStore archive = new BlockCompressedTransactionStore(file, persistency::loadTags,
+                blockRows, level)) {
+            archive.saveAll(all);
+        }
+        long written = System.nanoTime();
+        long sourceSize = sourceSize();
+        long archiveSize = Files.size(file);
+        try (BlockCompressedTransactionStore archive = new BlockCompressedTransactionStore(file, persistency::loadTags)) {
+            long readStart = System.nanoTime();
+            int rows = archive.load().size();
+            long readEnd = System.nanoTime();
+            long[] scanned = {0};
+            archive.forEach(t -> scanned[0]++);
+            long scanEnd = System.nanoTime();
+            System.err.printf("Loaded %d transactions in %.2f s, archived in %.2f s: %d blocks, %d bytes (%s%.1fx the encoded rows)%n",
+                    rows, (loaded - start) / 1e9, (written - loaded) / 1e9, archive.blockCount(), archiveSize,
+                    sourceSize < 0 ? "" : String.format("%.1fx the %d bytes of the source, ", (double) sourceSize / archiveSize, sourceSize),
+                    archive.compressionRatio());
+            System.err.printf("Parallel load: %.2f s (%.0f rows/s, %.1f MB/s compressed); sequential scan: %.2f s (%.0f rows/s)%n",
+                    (readEnd - readStart) / 1e9, rows / ((readEnd - readStart) / 1e9),
+                    archiveSize / 1e6 / ((readEnd - readStart) / 1e9),
+                    (scanEnd - readEnd) / 1e9, scanned[0] / ((scanEnd - readEnd) / 1e9));
+        }
+    }
+
+    /**
+     * Returns the bytes of the ledger the transactions were read from: the transaction file of an XML ledger,
+     * or the files of the directory of a segmented or event-sourced store.
+     * @return the size of the source, -1 if the ledger is kept elsewhere
+     */
+    private long sourceSize() throws IOException {
+        if (persistency instanceof XmlPersistency) {
+            return Files.size(Path.of(options.getOrDefault("transactions", "transaction.xml")));
+        }
+        if (persistency instanceof SegmentedTransactionStore) {
+            return directorySize(Path.of(options.getOrDefault("segments", "ledger.segments")));
+        }
+        if (persistency instanceof EventSourcedTransactionStore) {
+            return directorySize(Path.of(options.getOrDefault("events", "ledger.events")));
+        }
+        return -1;
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        long size = 0;
+        try (var files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                if (Files.isRegularFile(file)) {
+                    size += Files.size(file);
+                }
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Replaces the fields given by --amount, --type and --date of the transaction --id, keeping its tags.
+     */
+    private void update() {
+        long id = id();
+        Transaction[] found = new Transaction[1];
+        persistency.forEach(t -> {
+            if (t.id() == id) {
+                found[0] = t;
+            }
+        });
+        if (found[0] == null) {
+            throw new IllegalArgumentException("No transaction with id " + id);
+        }
+        Transaction t = found[0];
+        double amount = options.containsKey("amount") ? Double.parseDouble(options.get("amount")) : t.amount();
+        if (!Double.isFinite(amount) || amount < 0) {
+            throw new IllegalArgumentException("The amount must be a non-negative number");
+        }
+        TransactionType type = options.containsKey("type") ? TransactionType.valueOf(options.get("type")) : t.transactionType();
+        LocalDate date = options.containsKey("date") ? LocalDate.parse(options.get("date")) : t.transactionDate();
+        boolean updated;
+        try {
+            updated = persistency.update(id, new Transaction(id, amount, type, date, t.tags()));
+        } catch (UnsupportedOperationException e) {
+            throw new IllegalArgumentException("The ledger is read-only: " + e.getMessage(), e);
+        }
+        if (!updated) {
+            throw new IllegalArgumentException("No transaction with id " + id);
+        }
+        System.err.printf("Updated transaction %d%n", id);
+    }
+
+    /**
+     * Removes the transaction --id.
+     */
+    private void delete() {
+        long id = id();
+        boolean deleted;
+        try {
+            deleted = persistency.delete(id);
+        } catch (UnsupportedOperationException e) {
+            throw new IllegalArgumentException("The ledger is read-only: " + e.getMessage(), e);
+        }
+        if (!deleted) {
+            throw new IllegalArgumentException("No transaction with id " + id);
+        }
+        System.err.printf("Deleted transaction %d%n", id);
+    }
+
+    /**
+     * Undoes the last change of the ledger that has not been undone yet.
+     */
+    private void undo() {
+        if (!eventLog().undo()) {
+            throw new IllegalArgumentException("Nothing to undo");
+        }
+        System.err.println("Undone the last change");
+    }
+
+    /**
+     * Applies again the last undone change of the ledger.
+     */
+    private void redo() {
+        if (!eventLog().redo()) {
+            throw new IllegalArgumentException("Nothing to redo");
+        }
+        System.err.println("Redone the last undone change");
+    }
+
+    /**
+     * Prints the events of the ledger, with the transaction after the change, or before it for a delete.
+     * The events of a change made at once, such as an import, share the sequence of its first event.
+     */
+    private void history() throws IOException {
+        boolean json = json();
+        if (!json) {
+            out.write("sequence,change,time,origin,kind,id,date,type,amount\n");
+        }
+        eventLog().history(event -> {
+            try {
+                writeEvent(event, json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private void writeEvent(EventSourcedTransactionStore.Event event, boolean json) throws IOException {
+        if (json) {
+            out.append("{\"sequence\":").append(Long.toString(event.sequence()))
+                    .append(",\"change\":").append(Long.toString(event.change()))
+                    .append(",\"time\":\"").append(event.timestamp().toString())
+                    .append("\",\"origin\":\"").append(event.origin().name())
+                    .append("\",\"kind\":\"").append(event.kind().name())
+                    .append("\",\"before\":");
+            writeJsonOrNull(event.before());
+            out.write(",\"after\":");
+            writeJsonOrNull(event.after());
+            out.write("}\n");
+        } else {
+            Transaction t = event.after() != null ? event.after() : event.before();
+            out.append(Long.toString(event.sequence())).append(',')
+                    .append(Long.toString(event.change())).append(',')
+                    .append(event.timestamp().toString()).append(',')
+                    .append(event.origin().name()).append(',')
+                    .append(event.kind().name()).append(',')
+                    .append(Long.toString(t.id())).append(',')
+                    .append(t.transactionDate().toString()).append(',')
+                    .append(t.transactionType().name()).append(',')
+                    .append(Double.toString(t.amount())).append('\n');
+        }
+    }
+
+    private void writeJsonOrNull(Transaction t) throws IOException {
+        if (t == null) {
+            out.write("null");
+        } else {
+            TransactionJson.write(t, out);
+        }
+    }
+
+    private EventSourcedTransactionStore eventLog() {
+        if (persistency instanceof EventSourcedTransactionStore store) {
+            return store;
+        }
+        throw new IllegalArgumentException("The ledger keeps no history: use --store=eventsourced");
+    }
+
+    private long id() {
+        String id = options.get("id");
+        if (id == null) {
+            throw new IllegalArgumentException("The id of the transaction is required");
+        }
+        return Long.parseLong(id);
+    }
+
+    /**
+     * Returns the format of the statement given by --columns, --delimiter, --header, --date-format and --decimal-comma.
+     */
+    private StatementFormat statementFormat() {
+        List<String> columns = List.of(options.getOrDefault("columns", "date,amount,description").split(","));
+        String delimiter = options.getOrDefault("delimiter", ",");
+        if (delimiter.length() != 1) {
+            throw new IllegalArgumentException("The delimiter must be a single character");
+        }
+        if (!columns.contains("date") || !columns.contains("amount")) {
+            throw new IllegalArgumentException("The columns must include date and amount");
+        }
+        return new StatementFormat(delimiter.charAt(0),
+                Boolean.parseBoolean(options.getOrDefault("header", "true")),
+                columns.indexOf("date"), columns.indexOf("amount"), columns.indexOf("description"), columns.indexOf("type"),
+                DateTimeFormatter.ofPattern(options.getOrDefault("date-format", "yyyy-MM-dd")),
+                Boolean.parseBoolean(options.getOrDefault("decimal-comma", "false")));
+    }
+
+    /**
+     * Returns the rules mapping descriptions to tags read from --rules, or the rules matching tags by name.
+     */
+    private TagRules tagRules() throws IOException {
+        List<Tag> tags = persistency.loadTags();
+        if (!options.containsKey("rules")) {
+            return TagRules.byName(tags);
+        }
+        try (BufferedReader reader = Files.newBufferedReader(Path.of(options.get("rules")), StandardCharsets.UTF_8)) {
+            return TagRules.parse(reader, tags);
+        }
+    }
+
+    private void writeCsvField(String value) throws IOException {
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            out.write(value);
+        } else {
+            out.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+    }
+
+    private boolean json() {
+        String format = options.getOrDefault("format", "csv");
+        return switch (format) {
+            case "csv" -> false;
+            case "json" -> true;
+            default -> throw new IllegalArgumentException("Unknown format: " + format);
+        };
+    }
+
+    private FilteredTransactions.Mode mode() {
+        return FilteredTransactions.Mode.valueOf(options.getOrDefault("mode", FilteredTransactions.Mode.ALL.name()));
+    }
+
+    private Period period() {
+        String from = options.get("from");
+        String to = options.get("to");
+        if (from == null && to == null) {
+            return null;
+        }
+        return new Period(from != null ? LocalDate.parse(from) : null, to != null ? LocalDate.parse(to) : null);
+    }
+
+    private static Map<String, String> parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String arg = args[i];
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Invalid argument: " + arg);
+            }
+            options.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        return options;
+    }
+}
@@ -0,0 +1,310 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.view.HTTP;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import it.unicam.cs.mpgc.jbudget126118.controller.filter.FilteredTransactions;
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.TransactionAdder;
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.TransactionBalance;
+import it.unicam.cs.mpgc.jbudget126118.model.Period;
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionIds;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerMetrics;
+import it.unicam.cs.mpgc.jbudget126118.persistency.ConcurrentTransactionStore;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionJson;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
+import it.unicam.cs.mpgc.jbudget126118.persistency.XmlPersistency;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * LedgerHttpServer exposes the ledger through a local HTTP API, so that JBudget can run
+ * without JavaFX and be fed by scripts. Every request is handled on its own virtual thread.
+ * Endpoints:
+ * - POST /transactions: adds the transaction in the body
+ * - POST /transactions/batch: adds the JSON array of transactions in the body
+ * - GET /transactions?type=EXPENSE&amp;mode=ALL&amp;from=yyyy-MM-dd&amp;to=yyyy-MM-dd: returns the filtered transactions
+ * - GET /balance?mode=ALL&amp;from=yyyy-MM-dd&amp;to=yyyy-MM-dd: returns totals and expenses grouped by tag
+ * Transactions use the format of TransactionJson; tags can also be given by name. Tags must be tags of
+ * the ledger: a tag given as an object is looked up by its id and must have the same name.
+ * The server gives every added transaction a new id, ignoring the id in the body, so that a client
+ * can neither duplicate nor overwrite a transaction of the ledger.
+ * Unknown paths are answered with 404, known paths with an unsupported method with 405,
+ * and invalid transactions, such as transactions with a negative amount, with 400.
+ */
+public class LedgerHttpServer {
+
+    private final TransactionPersistency persistency;
+    private final TransactionAdder adder;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, Tag> tagsByName = new HashMap<>();
+    private final Map<Long, Tag> tagsById = new HashMap<>();
+
+    /**
+     * Constructor for LedgerHttpServer.
+     * @param persistency the persistency used by the endpoints, which must support concurrent use
+     * @param port the port to listen on, 0 to choose a free one
+     * @throws IOException if the server cannot be bound
+     */
+    public LedgerHttpServer(TransactionPersistency persistency, int port) throws IOException {
+        this.persistency = persistency;
+        this.adder = new TransactionAdder(persistency);
+        for (Tag tag : persistency.loadTags()) {
+            tagsByName.putIfAbsent(tag.name(), tag);
+            tagsById.put(tag.id(), tag);
+        }
+        // the ids given by the server must follow those already in the ledger
+        long[] maxId = {0};
+        persistency.forEach(t -> maxId[0] = Math.max(maxId[0], t.id()));
+        TransactionIds.seen(maxId[0]);
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 0);
+        server.setExecutor(executor);
+        server.createContext("/transactions", handler(this::handleTransactions));
+        server.createContext("/balance", handler(this::handleBalance));
+    }
+
+    /**
+     * Starts the server.
+     */
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * Stops the server, waiting at most one second for the running requests.
+     */
+    public void stop() {
+        server.stop(1);
+        executor.shutdown();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     * @return the port
+     */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        String transactionFile = args.length > 1 ? args[1] : "transaction.xml";
+        String tagFile = args.length > 2 ? args[2] : "Tags.xml";
+        LedgerMetrics.register();
+
+        LedgerHttpServer server = new LedgerHttpServer(
+                new ConcurrentTransactionStore(new XmlPersistency(transactionFile, tagFile)), port);
+        server.start();
+        System.out.println("JBudget server listening on http://127.0.0.1:" + server.getPort());
+    }
+
+    private void handleTransactions(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+
+        if (!path.equals("/transactions") && !path.equals("/transactions/batch")) {
+            send(exchange, 404, error("Not found"));
+        } else if (path.equals("/transactions/batch") && method.equals("POST")) {
+            List<Transaction> transactions = toNewTransactions(
+                    TransactionJson.parseArray(readBody(exchange), tagsByName::get, () -> 0));
+            adder.addAll(transactions);
+            send(exchange, 201, "{\"added\":" + transactions.size() + "}");
+        } else if (path.equals("/transactions") && method.equals("POST")) {
+            Transaction t = toNewTransactions(
+                    List.of(TransactionJson.parse(readBody(exchange), tagsByName::get, () -> 0))).get(0);
+            adder.add(t);
+            send(exchange, 201, TransactionJson.toJson(t));
+        } else if (path.equals("/transactions") && method.equals("GET")) {
+            Map<String, String> query = queryParameters(exchange);
+            TransactionType type = TransactionType.valueOf(query.getOrDefault("type", TransactionType.EXPENSE.name()));
+            List<Transaction> items = new FilteredTransactions(persistency.load(), mode(query), period(query), type)
+                    .filteredItems();
+
+            StringBuilder body = new StringBuilder(items.size() * 96 + 2).append('[');
+            for (int i = 0; i < items.size(); i++) {
+                if (i > 0) {
+                    body.append(',');
+                }
+                TransactionJson.write(items.get(i), body);
+            }
+            send(exchange, 200, body.append(']').toString());
+        } else {
+            send(exchange, 405, error("Method not allowed"));
+        }
+    }
+
+    private void handleBalance(HttpExchange exchange) throws IOException {
+        if (!exchange.getRequestURI().getPath().equals("/balance")) {
+            send(exchange, 404, error("Not found"));
+            return;
+        }
+        if (!exchange.getRequestMethod().equals("GET")) {
+            send(exchange, 405, error("Method not allowed"));
+            return;
+        }
+        Map<String, String> query = queryParameters(exchange);
+        List<Transaction> all = persistency.load();
+        FilteredTransactions.Mode mode = mode(query);
+        Period period = period(query);
+
+        var income = new TransactionBalance(new FilteredTransactions(all, mode, period, TransactionType.INCOME).filteredItems());
+        var expense = new TransactionBalance(new FilteredTransactions(all, mode, period, TransactionType.EXPENSE).filteredItems());
+        double totalIncome = income.getTotalIncome();
+        double totalExpense = expense.getTotalExpense();
+
+        StringBuilder body = new StringBuilder()
+                .append("{\"income\":").append(totalIncome)
+                .append(",\"expense\":").append(totalExpense)
+                .append(",\"balance\":").append(totalIncome - totalExpense)
+                .append(",\"tags\":{");
+        boolean first = true;
+        for (Map.Entry<Tag, Double> entry : expense.getTagsAmountMap().entrySet()) {
+            if (!first) {
+                body.append(',');
+            }
+            first = false;
+            TransactionJson.writeString(entry.getKey().name(), body);
+            body.append(':').append(entry.getValue());
+        }
+        send(exchange, 200, body.append("}}").toString());
+    }
+
+    /**
+     * Gives new ids to the transactions of a request and replaces their tags with the tags of the ledger.
+     * @param parsed the transactions of the request
+     * @return the transactions to add
+     * @throws IllegalArgumentException if a tag is not a tag of the ledger
+     */
+    private List<Transaction> toNewTransactions(List<Transaction> parsed) {
+        if (parsed.isEmpty()) {
+            return parsed;
+        }
+        long firstId = TransactionIds.reserve(parsed.size());
+        List<Transaction> transactions = new ArrayList<>(parsed.size());
+        for (int i = 0; i < parsed.size(); i++) {
+            Transaction t = parsed.get(i);
+            List<Tag> tags = new ArrayList<>(t.tags().size());
+            for (Tag tag : t.tags()) {
+                Tag known = tagsById.get(tag.id());
+                if (known == null || !known.name().equals(tag.name())) {
+                    throw new IllegalArgumentException("Unknown tag: " + tag.id() + " " + tag.name());
+                }
+                tags.add(known);
+            }
+            transactions.add(new Transaction(firstId + i, t.amount(), t.transactionType(), t.transactionDate(), tags));
+        }
+        return transactions;
+    }
+
+    private static FilteredTransactions.Mode mode(Map<String, String> query) {
+        return FilteredTransactions.Mode.valueOf(query.getOrDefault("mode", FilteredTransactions.Mode.ALL.name()));
+    }
+
+    private static Period period(Map<String, String> query) {
+        String from = query.get("from");
+        String to = query.get("to");
+        if (from == null && to == null) {
+            return null;
+        }
+        return new Period(from != null ? LocalDate.parse(from) : null, to != null ? LocalDate.parse(to) : null);
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null || raw.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            parameters.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        return new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String error(String message) {
+        StringBuilder sb = new StringBuilder("{\"error\":");
+        try {
+            TransactionJson.writeString(message == null ? "" : message, sb);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return sb.append('}').toString();
+    }
+
+    /**
+     * Wraps an endpoint, turning invalid requests into 400 responses and failures into 500 responses.
+     * @param endpoint the endpoint
+     * @return the handler of the endpoint
+     */
+    private static HttpHandler handler(HttpHandler endpoint) {
+        return exchange -> {
+            try {
+                endpoint.handle(exchange);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                send(exchange, 400, error(e.getMessage()));
+            } catch (Exception e) {
+                e.printStackTrace();
+                send(exchange, 500, error("Internal error"));
+            } finally {
+                exchange.close();
+            }
+        };
+    }
+}
@@ -29,6 +29,7 @@ import it.unicam.cs.mpgc.jbudget126118.controller.manager.TransactionAdder;
 import it.unicam.cs.mpgc.jbudget126118.model.Recurrence;
 import it.unicam.cs.mpgc.jbudget126118.model.Tag;
 import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionIds;
 import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
 import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
 import it.unicam.cs.mpgc.jbudget126118.persistency.XmlPersistency;
@@ -157,7 +158,7 @@ public class AddTransactionPane extends VBox {
                             .ifPresent(selectedTags::add);
                 }
 
-                Transaction t = new Transaction(System.currentTimeMillis(), amount, type, date, selectedTags);
+                Transaction t = new Transaction(TransactionIds.next(), amount, type, date, selectedTags);
 
                 if (recurrence != Recurrence.NONE && endRecurrencePicker.getValue() != null) {
                     adder.addRecurrence(t, endRecurrencePicker.getValue(), recurrence);
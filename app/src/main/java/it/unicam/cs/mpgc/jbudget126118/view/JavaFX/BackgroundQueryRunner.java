@@ -0,0 +1,161 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.view.JavaFX;
+
+import javafx.beans.property.ReadOnlyBooleanProperty;
+import javafx.beans.property.ReadOnlyBooleanWrapper;
+import javafx.beans.property.ReadOnlyDoubleProperty;
+import javafx.beans.property.ReadOnlyDoubleWrapper;
+import javafx.concurrent.Task;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * BackgroundQueryRunner runs the queries of a pane (load, filter and aggregation) outside the
+ * JavaFX application thread, so that the UI stays responsive on large ledgers.
+ * Only the latest submitted query matters: submitting a new one cancels the previous one,
+ * and the result of a stale query is never published.
+ * The result is handed back on the JavaFX application thread in a single callback,
+ * so that the pane can apply it with one batched update.
+ * All the methods of this class must be called on the JavaFX application thread.
+ */
+public class BackgroundQueryRunner {
+
+    private static final ExecutorService EXECUTOR = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final ReadOnlyDoubleWrapper progress = new ReadOnlyDoubleWrapper(0);
+    private final ReadOnlyBooleanWrapper running = new ReadOnlyBooleanWrapper(false);
+    private Task<?> current;
+
+    /**
+     * Query is a computation executed in background.
+     * @param <R> the type of the result of the query
+     */
+    @FunctionalInterface
+    public interface Query<R> {
+
+        /**
+         * Executes the query.
+         * @param progress the progress of the query, which also reports whether the query has been cancelled
+         * @return the result of the query
+         * @throws Exception if the query fails
+         */
+        R run(Progress progress) throws Exception;
+    }
+
+    /**
+     * Progress lets a running query report how much work has been done and check whether
+     * it has been cancelled by a newer query, in which case it should stop as soon as possible.
+     */
+    public interface Progress {
+
+        /**
+         * Updates the progress of the query.
+         * @param workDone the amount of work done
+         * @param max the total amount of work
+         */
+        void update(long workDone, long max);
+
+        /**
+         * Checks if the query has been cancelled.
+         * @return true if the query has been cancelled, false otherwise
+         */
+        boolean isCancelled();
+    }
+
+    /**
+     * Submits a query, cancelling the one still running, if any.
+     * @param query the query to run in background
+     * @param onResult the consumer of the result, called on the JavaFX application thread
+     *                 only if no newer query has been submitted in the meantime
+     * @param <R> the type of the result of the query
+     */
+    public <R> void submit(Query<R> query, Consumer<R> onResult) {
+        if (current != null) {
+            current.cancel(true);
+        }
+
+        Task<R> task = new Task<>() {
+            @Override
+            protected R call() throws Exception {
+                Task<R> self = this;
+                return query.run(new Progress() {
+                    @Override
+                    public void update(long workDone, long max) {
+                        updateProgress(workDone, max);
+                    }
+
+                    @Override
+                    public boolean isCancelled() {
+                        return self.isCancelled();
+                    }
+                });
+            }
+        };
+        task.setOnSucceeded(e -> {
+            if (current == task) {
+                finish();
+                onResult.accept(task.getValue());
+            }
+        });
+        task.setOnFailed(e -> {
+            if (current == task) {
+                finish();
+            }
+            task.getException().printStackTrace();
+        });
+
+        current = task;
+        progress.bind(task.progressProperty());
+        running.set(true);
+        EXECUTOR.execute(task);
+    }
+
+    /**
+     * Returns the progress of the current query, between 0 and 1, or -1 if it is not known yet.
+     * @return the progress property
+     */
+    public ReadOnlyDoubleProperty progressProperty() {
+        return progress.getReadOnlyProperty();
+    }
+
+    /**
+     * Returns whether a query is running.
+     * @return the running property
+     */
+    public ReadOnlyBooleanProperty runningProperty() {
+        return running.getReadOnlyProperty();
+    }
+
+    private void finish() {
+        current = null;
+        progress.unbind();
+        progress.set(1);
+        running.set(false);
+    }
+}
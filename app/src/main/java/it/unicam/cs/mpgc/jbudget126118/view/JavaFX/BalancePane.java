@@ -26,18 +26,29 @@
 package it.unicam.cs.mpgc.jbudget126118.view.JavaFX;
 
 import it.unicam.cs.mpgc.jbudget126118.controller.filter.FilteredTransactions;
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.RunningBalance;
 import it.unicam.cs.mpgc.jbudget126118.controller.manager.TransactionBalance;
 import it.unicam.cs.mpgc.jbudget126118.model.Period;
 import it.unicam.cs.mpgc.jbudget126118.model.Tag;
 import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
 import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.ObservableTransactionPersistency;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionChange;
 import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
+import javafx.application.Platform;
 import javafx.geometry.Insets;
+import javafx.scene.chart.LineChart;
+import javafx.scene.chart.NumberAxis;
 import javafx.scene.chart.PieChart;
+import javafx.scene.chart.XYChart;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
 import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.util.StringConverter;
 
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -45,9 +56,14 @@ import java.util.Map;
  * BalancePane is a JavaFX pane that provides an interface for analyzing
  * the financial balance of transactions. It allows users to filter transactions
  * by date and type, view total income and expenses, and visualize the data
- * using a pie chart and a table of tag amounts.
+ * using a pie chart and a table of tag amounts, together with a line chart of the balance over time.
+ * If the persistency notifies its changes, totals, chart and table are kept up to date
+ * by applying only the amounts of the transactions added or removed.
  */
 public class BalancePane extends VBox {
+    // amounts below half a cent are shown as zero, and are left only by the rounding of removed transactions
+    private static final double ZERO_AMOUNT = 0.005;
+
     private final ComboBox<String> modeFilterBox = new ComboBox<>();
     private final DatePicker startDatePicker = new DatePicker();
     private final DatePicker endDatePicker = new DatePicker();
@@ -55,9 +71,27 @@ public class BalancePane extends VBox {
     private final Label expenseLabel = new Label();
     private final PieChart pieChart = new PieChart();
     private final TableView<TagAmount> tagTable = new TableView<>();
+    private final NumberAxis dateAxis = new NumberAxis();
+    private final NumberAxis balanceAxis = new NumberAxis();
+    private final LineChart<Number, Number> balanceChart = new LineChart<>(dateAxis, balanceAxis);
+    private final ProgressBar progressBar = new ProgressBar();
+    private final BackgroundQueryRunner queryRunner = new BackgroundQueryRunner();
 
     private final TransactionPersistency persistency;
 
+    // filter of the analysis shown, changes are applied only if they match it
+    private FilteredTransactions.Mode appliedMode;
+    private Period appliedPeriod;
+    private boolean staleResult; // a change arrived while the analysis was running
+
+    // analysis shown, updated in place by the changes
+    private double totalIncome;
+    private double totalExpense;
+    private final Map<Tag, Double> tagAmounts = new HashMap<>();
+    private final Map<Tag, PieChart.Data> slices = new HashMap<>();
+    private final Map<Tag, Integer> tagRows = new HashMap<>();
+    private RunningBalance runningBalance; // null until built, or when it missed a change
+
     /**
      * Constructor for BalancePane.
      * Initializes the pane with controls for filtering transactions,
@@ -78,6 +112,10 @@ public class BalancePane extends VBox {
         updateButton.setOnAction(e -> updateBalance());
 
         setupTagTable();
+        setupBalanceChart();
+
+        progressBar.progressProperty().bind(queryRunner.progressProperty());
+        progressBar.visibleProperty().bind(queryRunner.runningProperty());
 
         HBox chartAndTable = new HBox(20, pieChart, tagTable);
         chartAndTable.setPadding(new Insets(10));
@@ -87,10 +125,16 @@ public class BalancePane extends VBox {
                 new Label("Data Inizio:"), startDatePicker,
                 new Label("Data Fine:"), endDatePicker,
                 updateButton,
+                progressBar,
                 incomeLabel, expenseLabel,
-                chartAndTable
+                chartAndTable,
+                balanceChart
         );
 
+        if (persistency instanceof ObservableTransactionPersistency observable) {
+            observable.addChangeListener(change -> Platform.runLater(() -> applyChange(change)));
+        }
+
         updateBalance();
     }
 
@@ -111,15 +155,41 @@ public class BalancePane extends VBox {
         tagTable.setColumnResizePolicy(TableView.UNCONSTRAINED_RESIZE_POLICY);
     }
 
+    /**
+     * Sets up the line chart of the balance over time.
+     * The x axis holds dates as epoch days, shown as dates; the chart is drawn again when its width changes,
+     * because the number of points drawn depends on it.
+     */
+    private void setupBalanceChart() {
+        dateAxis.setForceZeroInRange(false);
+        dateAxis.setTickLabelFormatter(new StringConverter<>() {
+            @Override
+            public String toString(Number day) {
+                return LocalDate.ofEpochDay(day.longValue()).toString();
+            }
+
+            @Override
+            public Number fromString(String date) {
+                return LocalDate.parse(date).toEpochDay();
+            }
+        });
+        balanceAxis.setForceZeroInRange(false);
+        balanceChart.setTitle("Saldo nel tempo");
+        balanceChart.setCreateSymbols(false);
+        balanceChart.setAnimated(false);
+        balanceChart.setLegendVisible(false);
+        balanceChart.widthProperty().addListener((observable, oldWidth, newWidth) -> showBalanceChart());
+    }
+
     /**
      * Updates the balance analysis by loading all transactions,
      * filtering them based on the selected date range and mode,
      * calculating total income and expenses,
      * and updating the pie chart and tag table.
+     * The analysis runs in background and replaces any analysis still running for this pane;
+     * labels, chart and table are updated together when it completes.
      */
     private void updateBalance() {
-        List<Transaction> allTransactions = persistency.load();
-
         Period period = null;
         if (startDatePicker.getValue() != null || endDatePicker.getValue() != null) {
             period = new Period(startDatePicker.getValue(), endDatePicker.getValue());
@@ -131,60 +201,270 @@ public class BalancePane extends VBox {
             default -> FilteredTransactions.Mode.ALL;
         };
 
-        // Income
-        var filteredIncome = new FilteredTransactions(allTransactions, mode, period, TransactionType.INCOME);
-        var incomeBalance = new TransactionBalance(filteredIncome.filteredItems());
+        runAnalysis(mode, period);
+    }
+
+    /**
+     * Runs again the analysis of the applied filter, for changes that do not come from the persistency,
+     * such as future transactions becoming past ones when their date is reached.
+     */
+    public void refresh() {
+        runAnalysis(appliedMode, appliedPeriod);
+    }
+
+    /**
+     * Runs in background the balance analysis.
+     * @param mode the filtering mode
+     * @param period the period to filter transactions (can be null)
+     */
+    private void runAnalysis(FilteredTransactions.Mode mode, Period period) {
+        appliedMode = mode;
+        appliedPeriod = period;
+        staleResult = false;
+        boolean buildSeries = runningBalance == null; // a new range reuses the balance per day
 
-        // Expense
-        var filteredExpense = new FilteredTransactions(allTransactions, mode, period, TransactionType.EXPENSE);
-        var expenseBalance = new TransactionBalance(filteredExpense.filteredItems());
+        queryRunner.submit(progress -> {
+            progress.update(0, 3);
+            List<Transaction> allTransactions = persistency.load();
+            if (progress.isCancelled()) {
+                return null;
+            }
+            progress.update(1, 3);
 
-        incomeLabel.setText(String.format("Totale Entrate: %.2f", incomeBalance.getTotalIncome()));
-        expenseLabel.setText(String.format("Totale Uscite: %.2f", expenseBalance.getTotalExpense()));
+            // Income
+            var filteredIncome = new FilteredTransactions(allTransactions, mode, period, TransactionType.INCOME);
+            var incomeBalance = new TransactionBalance(filteredIncome.filteredItems());
+            if (progress.isCancelled()) {
+                return null;
+            }
+            progress.update(2, 3);
 
-        updatePieChart(expenseBalance);
-        updateTagTable(expenseBalance);
+            // Expense
+            var filteredExpense = new FilteredTransactions(allTransactions, mode, period, TransactionType.EXPENSE);
+            var expenseBalance = new TransactionBalance(filteredExpense.filteredItems());
+
+            return new BalanceResult(incomeBalance.getTotalIncome(), expenseBalance.getTotalExpense(),
+                    expenseBalance.getTagsAmountMap(), buildSeries ? new RunningBalance(allTransactions) : null);
+        }, result -> {
+            showBalance(result);
+            if (staleResult) {
+                runningBalance = null;
+                runAnalysis(appliedMode, appliedPeriod);
+            }
+        });
+    }
+
+    /**
+     * Shows the result of a balance analysis, replacing labels, pie chart and tag table.
+     * @param result the result of the analysis
+     */
+    private void showBalance(BalanceResult result) {
+        totalIncome = result.totalIncome();
+        totalExpense = result.totalExpense();
+        tagAmounts.clear();
+        tagAmounts.putAll(result.tagAmounts());
+        showTotals();
+
+        updatePieChart(result.tagAmounts());
+        updateTagTable(result.tagAmounts());
+        if (result.runningBalance() != null) {
+            runningBalance = result.runningBalance();
+        }
+        showBalanceChart();
+    }
+
+    /**
+     * Draws the balance over the applied period and mode, with at most one point per pixel of the chart,
+     * so that drawing costs the same however many transactions the range holds.
+     */
+    private void showBalanceChart() {
+        if (runningBalance == null) {
+            return;
+        }
+        LocalDate today = LocalDate.now();
+        LocalDate from = appliedMode == FilteredTransactions.Mode.FUTURE ? today.plusDays(1) : null;
+        LocalDate to = appliedMode == FilteredTransactions.Mode.PAST ? today.minusDays(1) : null;
+        if (appliedPeriod != null) {
+            LocalDate start = appliedPeriod.getDataStartOrNow();
+            LocalDate end = appliedPeriod.getDataEndOrNow();
+            from = from == null || start.isAfter(from) ? start : from;
+            to = to == null || end.isBefore(to) ? end : to;
+        }
+        int maxPoints = Math.max(3, (int) balanceChart.getWidth());
+        if (balanceChart.getWidth() <= 0) {
+            maxPoints = 800; // not laid out yet
+        }
+
+        List<XYChart.Data<Number, Number>> data = new ArrayList<>();
+        for (RunningBalance.Point point : runningBalance.series(from, to, maxPoints)) {
+            data.add(new XYChart.Data<>(point.date().toEpochDay(), point.balance()));
+        }
+        XYChart.Series<Number, Number> series = new XYChart.Series<>();
+        series.getData().setAll(data);
+        balanceChart.getData().setAll(List.of(series));
+    }
+
+    /**
+     * Shows the total income and expense.
+     */
+    private void showTotals() {
+        incomeLabel.setText(String.format("Totale Entrate: %.2f", totalIncome));
+        expenseLabel.setText(String.format("Totale Uscite: %.2f", totalExpense));
+    }
+
+    /**
+     * Applies a change of the persistency to the analysis shown.
+     * Only the amounts of the transactions in the change are added or subtracted,
+     * and only the slices and rows of their tags are updated,
+     * so the cost of a single insert does not depend on the number of transactions.
+     * If the analysis is still running, its result may or may not contain the change,
+     * so the analysis is run again as soon as it completes.
+     * @param change the change to apply
+     */
+    private void applyChange(TransactionChange change) {
+        if (queryRunner.runningProperty().get()) {
+            staleResult = true;
+            return;
+        }
+        applyTransactions(change.added(), 1);
+        applyTransactions(change.removed(), -1);
+        showTotals();
+        if (runningBalance != null) {
+            runningBalance.apply(change.added(), 1);
+            runningBalance.apply(change.removed(), -1);
+            showBalanceChart();
+        }
+    }
+
+    /**
+     * Adds to, or subtracts from, the analysis shown the transactions matching its filter.
+     * @param transactions the transactions to apply
+     * @param sign 1 to add the transactions, -1 to subtract them
+     */
+    private void applyTransactions(List<Transaction> transactions, int sign) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        var income = new FilteredTransactions(transactions, appliedMode, appliedPeriod, TransactionType.INCOME);
+        totalIncome += sign * new TransactionBalance(income.filteredItems()).getTotalIncome();
+
+        var expense = new FilteredTransactions(transactions, appliedMode, appliedPeriod, TransactionType.EXPENSE);
+        var expenseBalance = new TransactionBalance(expense.filteredItems());
+        totalExpense += sign * expenseBalance.getTotalExpense();
+        expenseBalance.getTagsAmountMap().forEach((tag, amount) ->
+                updateTagAmount(tag, tagAmounts.merge(tag, sign * amount, Double::sum)));
+    }
+
+    /**
+     * Updates the slice and the row of a single tag, creating them if the tag is new
+     * and removing them if its transactions are gone, that is, if its amount is back to zero.
+     * @param tag the tag to update
+     * @param amount the new amount of the tag
+     */
+    private void updateTagAmount(Tag tag, double amount) {
+        if (Math.abs(amount) < ZERO_AMOUNT) {
+            removeTagAmount(tag);
+            return;
+        }
+        PieChart.Data slice = slices.get(tag);
+        if (slice == null) {
+            slice = new PieChart.Data(tag.name(), amount);
+            slices.put(tag, slice);
+            pieChart.getData().add(slice);
+        } else {
+            slice.setPieValue(amount);
+        }
+        bindSliceName(slice, tag, amount);
+
+        TagAmount row = new TagAmount(tag.name(), String.format("%.2f €", amount));
+        Integer index = tagRows.get(tag);
+        if (index == null) {
+            tagRows.put(tag, tagTable.getItems().size());
+            tagTable.getItems().add(row);
+        } else {
+            tagTable.getItems().set(index, row);
+        }
+    }
+
+    /**
+     * Removes the amount, the slice and the row of a tag, moving up the rows that follow it.
+     * @param tag the tag to remove
+     */
+    private void removeTagAmount(Tag tag) {
+        tagAmounts.remove(tag);
+        PieChart.Data slice = slices.remove(tag);
+        if (slice != null) {
+            pieChart.getData().remove(slice);
+        }
+        Integer index = tagRows.remove(tag);
+        if (index != null) {
+            tagTable.getItems().remove(index.intValue());
+            tagRows.replaceAll((other, row) -> row > index ? row - 1 : row);
+        }
     }
 
     /**
      * Updates the pie chart with the expense balance data.
-     * It clears the existing data and adds new slices based on the tags and their amounts.
+     * It replaces the existing data with new slices based on the tags and their amounts.
      * 
-     * @param expenseBalance The TransactionBalance object containing the expense data.
+     * @param tagAmounts The expense amounts grouped by tag.
      */
-    private void updatePieChart(TransactionBalance expenseBalance) {
-        pieChart.getData().clear();
-        Map<Tag, Double> tagAmounts = expenseBalance.getTagsAmountMap();
+    private void updatePieChart(Map<Tag, Double> tagAmounts) {
+        List<PieChart.Data> data = new ArrayList<>();
+        slices.clear();
 
         tagAmounts.forEach((tag, amount) -> {
             PieChart.Data slice = new PieChart.Data(tag.name(), amount);
-            pieChart.getData().add(slice);
-
-            slice.nameProperty().bind(
-                    javafx.beans.binding.Bindings.concat(
-                            tag.name(), " (",
-                            String.format("%.2f", amount), "€)"
-                    )
-            );
+            data.add(slice);
+            slices.put(tag, slice);
+            bindSliceName(slice, tag, amount);
         });
+        pieChart.getData().setAll(data);
+    }
+
+    /**
+     * Binds the name of a slice to the name and the amount of its tag.
+     * @param slice the slice of the pie chart
+     * @param tag the tag of the slice
+     * @param amount the amount of the tag
+     */
+    private void bindSliceName(PieChart.Data slice, Tag tag, double amount) {
+        slice.nameProperty().bind(
+                javafx.beans.binding.Bindings.concat(
+                        tag.name(), " (",
+                        String.format("%.2f", amount), "€)"
+                )
+        );
     }
 
     /**
      * Updates the tag table with the amounts associated with each tag.
-     * It clears the existing items in the table and adds new TagAmount objects
+     * It replaces the existing items in the table with new TagAmount objects
      * based on the expense balance data.
-     * @param expenseBalance The TransactionBalance object containing the expense data.
+     * @param tagAmounts The expense amounts grouped by tag.
      */
-    private void updateTagTable(TransactionBalance expenseBalance) {
-        Map<Tag, Double> tagAmounts = expenseBalance.getTagsAmountMap();
-
-        tagTable.getItems().clear();
+    private void updateTagTable(Map<Tag, Double> tagAmounts) {
+        List<TagAmount> rows = new ArrayList<>();
+        tagRows.clear();
         tagAmounts.forEach((tag, amount) -> {
-            tagTable.getItems().add(new TagAmount(
+            tagRows.put(tag, rows.size());
+            rows.add(new TagAmount(
                     tag.name(),
                     String.format("%.2f €", amount)
             ));
         });
+        tagTable.getItems().setAll(rows);
+    }
+
+    /**
+     * Result of a balance analysis computed in background.
+     * @param totalIncome the total income
+     * @param totalExpense the total expense
+     * @param tagAmounts the expense amounts grouped by tag
+     * @param runningBalance the balance per day of all the transactions (null if it was not rebuilt)
+     */
+    private record BalanceResult(double totalIncome, double totalExpense, Map<Tag, Double> tagAmounts,
+                                 RunningBalance runningBalance) {
     }
 
     /**
@@ -25,26 +25,47 @@
 
 package it.unicam.cs.mpgc.jbudget126118.view.JavaFX;
 
+import it.unicam.cs.mpgc.jbudget126118.controller.scheduler.TransactionScheduler;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.monitoring.LedgerMetrics;
+import it.unicam.cs.mpgc.jbudget126118.persistency.ConcurrentTransactionStore;
+import it.unicam.cs.mpgc.jbudget126118.persistency.EventSourcedTransactionStore;
+import it.unicam.cs.mpgc.jbudget126118.persistency.LedgerFileListener;
+import it.unicam.cs.mpgc.jbudget126118.persistency.LedgerFileWatcher;
+import it.unicam.cs.mpgc.jbudget126118.persistency.ObservableTransactionPersistency;
+import it.unicam.cs.mpgc.jbudget126118.persistency.SegmentedTransactionStore;
 import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
 import it.unicam.cs.mpgc.jbudget126118.persistency.XmlPersistency;
 import javafx.application.Application;
+import javafx.application.Platform;
 import javafx.scene.Scene;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
 import javafx.stage.Stage;
 
-import java.net.MalformedURLException;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Main application class for the JBudget application.
  * This class sets up the main window with tabs for adding transactions,
  * viewing transactions, and analyzing the budget.
  * It uses JavaFX for the GUI components.
+ * The ledger is read from the XML transaction file, or with --store=segmented from a SegmentedTransactionStore
+ * in the directory --segments, which writes every edit as an append instead of rewriting the transaction file,
+ * or with --store=eventsourced from an EventSourcedTransactionStore in the directory --events,
+ * whose changes can be undone and redone from the transactions tab.
  */
 public class MainApp extends Application {
     private final String xmltransactionfile = "transaction.xml";
     private final String xmltagfile = "tags.xml";
-    private final TransactionPersistency persistency = new XmlPersistency(xmltransactionfile, xmltagfile);
+    private final XmlPersistency xmlPersistency = new XmlPersistency(xmltransactionfile, xmltagfile);
+    private final TransactionScheduler scheduler = new TransactionScheduler();
+    private TransactionPersistency ledger;
+    private LedgerFileWatcher fileWatcher;
 
     /**
      * The main entry point for the JavaFX application.
@@ -53,16 +74,23 @@ public class MainApp extends Application {
      * and "Analisi Bilancio". Each tab is associated with a specific pane
      * for handling the respective functionality.
      * @param primaryStage The primary stage for this application, onto which the application scene can be set.
+     * @throws IOException if the store of the ledger cannot be opened
      */
     @Override
-    public void start(Stage primaryStage) throws MalformedURLException {
+    public void start(Stage primaryStage) throws IOException {
+        ledger = openLedger(getParameters().getNamed());
+        // a store that notifies its changes is used as it is, the others are cached in memory
+        TransactionPersistency persistency = ledger instanceof ObservableTransactionPersistency observable
+                ? observable : new ConcurrentTransactionStore(ledger);
 
         TabPane tabPane = new TabPane();
         tabPane.setTabClosingPolicy(TabPane.TabClosingPolicy.UNAVAILABLE); // Opzionale: impedisce la chiusura delle tab
 
         Tab addTransactionTab = new Tab("Aggiungi Transazione", new AddTransactionPane(persistency));
-        Tab viewTransactionsTab = new Tab("Visualizza Transazioni", new ViewTransactionPane(persistency));
-        Tab balanceTab = new Tab("Analisi Bilancio", new BalancePane(persistency));
+        ViewTransactionPane viewTransactionPane = new ViewTransactionPane(persistency);
+        Tab viewTransactionsTab = new Tab("Visualizza Transazioni", viewTransactionPane);
+        BalancePane balancePane = new BalancePane(persistency);
+        Tab balanceTab = new Tab("Analisi Bilancio", balancePane);
 
         tabPane.getTabs().addAll(addTransactionTab, viewTransactionsTab, balanceTab);
 
@@ -77,12 +105,86 @@ public class MainApp extends Application {
         viewTransactionsTab.setClosable(false);
         balanceTab.setClosable(false);
 
+        // le transazioni programmate che arrivano a scadenza passano da future a passate
+        if (persistency instanceof ObservableTransactionPersistency observable) {
+            scheduler.attach(observable);
+        }
+        scheduler.addDueListener(due -> Platform.runLater(() -> {
+            viewTransactionPane.refresh();
+            balancePane.refresh();
+        }));
+        scheduler.start();
+
+        // i file modificati da altri programmi (es. strumenti di sincronizzazione) vengono riletti
+        if (ledger == xmlPersistency) {
+            watchLedgerFiles((ConcurrentTransactionStore) persistency);
+        }
+
         primaryStage.setTitle("Gestione Budget");
         primaryStage.setScene(scene);
         primaryStage.show();
     }
 
+    /**
+     * Opens the store of the ledger chosen by the --store parameter: the XML transaction file, the default,
+     * a SegmentedTransactionStore in the directory given by --segments or an EventSourcedTransactionStore
+     * in the directory given by --events, whose tags are read from the tag file.
+     * @param parameters the named parameters of the application
+     * @return the store the edits are written to
+     * @throws IOException if the store cannot be opened
+     */
+    private TransactionPersistency openLedger(Map<String, String> parameters) throws IOException {
+        return switch (parameters.getOrDefault("store", "xml")) {
+            case "xml" -> xmlPersistency;
+            case "segmented" -> new SegmentedTransactionStore(
+                    Path.of(parameters.getOrDefault("segments", "ledger.segments")), xmlPersistency::loadTags);
+            case "eventsourced" -> new EventSourcedTransactionStore(
+                    Path.of(parameters.getOrDefault("events", "ledger.events")), xmlPersistency::loadTags);
+            default -> throw new IllegalArgumentException("Unknown store: " + parameters.get("store"));
+        };
+    }
+
+    /**
+     * Reloads the transactions written to the XML files by other programs.
+     * @param store the store that caches the transactions of the XML files
+     */
+    private void watchLedgerFiles(ConcurrentTransactionStore store) {
+        try {
+            fileWatcher = new LedgerFileWatcher(xmlPersistency);
+            fileWatcher.addListener(new LedgerFileListener() {
+                @Override
+                public void onTransactionsAppended(List<Transaction> appended) {
+                    store.addLoaded(appended);
+                }
+
+                @Override
+                public void onTransactionsReloaded(List<Transaction> transactions) {
+                    store.replaceAll(transactions);
+                }
+            });
+            fileWatcher.start();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops the scheduler of the future transactions and the watcher of the files when the application exits,
+     * and closes the store of the ledger.
+     */
+    @Override
+    public void stop() throws IOException {
+        scheduler.close();
+        if (fileWatcher != null) {
+            fileWatcher.close();
+        }
+        if (ledger instanceof Closeable closeable) {
+            closeable.close();
+        }
+    }
+
     public static void main(String[] args) {
+        LedgerMetrics.register();
         launch(args);
     }
 }
\ No newline at end of file
@@ -0,0 +1,267 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.view.JavaFX;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import javafx.collections.ObservableListBase;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * TransactionRowList is the list of rows shown by the transaction table.
+ * It is backed directly by the result of a query: no per-row model object is created,
+ * the table only keeps the order in which the transactions are shown, and each cell
+ * formats its value when it becomes visible.
+ * Sorting reorders an array of indexes using primitive keys (epoch day, type ordinal, amount),
+ * so no boxing or string formatting happens while sorting.
+ * This list is not modifiable through the List interface: rows are added and removed
+ * with {@link #append(List)} and {@link #removeAllById(Set)}.
+ */
+public class TransactionRowList extends ObservableListBase<Transaction> {
+
+    /**
+     * SortKey is an enumeration of the columns the rows can be sorted by.
+     */
+    public enum SortKey {
+        DATE,
+        TYPE,
+        AMOUNT,
+        TAGS
+    }
+
+    private List<Transaction> rows;
+    private int[] order; // position in the table -> index in rows
+
+    /**
+     * Constructor for TransactionRowList.
+     * @param transactions the transactions to show, in their initial order
+     */
+    public TransactionRowList(List<Transaction> transactions) {
+        this.rows = new ArrayList<>(transactions);
+        this.order = identity(rows.size());
+    }
+
+    @Override
+    public Transaction get(int index) {
+        return rows.get(order[index]);
+    }
+
+    @Override
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * Appends the given transactions at the end of the table, without sorting them.
+     * @param transactions the transactions to append
+     */
+    public void append(List<Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        int from = order.length;
+        int[] grown = Arrays.copyOf(order, from + transactions.size());
+        for (int i = 0; i < transactions.size(); i++) {
+            grown[from + i] = rows.size();
+            rows.add(transactions.get(i));
+        }
+        order = grown;
+        beginChange();
+        nextAdd(from, order.length);
+        endChange();
+    }
+
+    /**
+     * Removes the transactions with the given ids, from the table and from the backing rows.
+     * @param ids the ids of the transactions to remove
+     */
+    public void removeAllById(Set<Long> ids) {
+        // the kept rows keep the order of the query result
+        List<Transaction> previous = rows;
+        int[] newIndex = new int[previous.size()];
+        rows = new ArrayList<>(previous.size());
+        for (int i = 0; i < previous.size(); i++) {
+            Transaction t = previous.get(i);
+            if (ids.contains(t.id())) {
+                newIndex[i] = -1;
+            } else {
+                newIndex[i] = rows.size();
+                rows.add(t);
+            }
+        }
+
+        beginChange();
+        int kept = 0;
+        for (int i = 0; i < order.length; i++) {
+            int index = newIndex[order[i]];
+            if (index < 0) {
+                nextRemove(kept, previous.get(order[i]));
+            } else {
+                order[kept++] = index;
+            }
+        }
+        order = Arrays.copyOf(order, kept);
+        endChange();
+    }
+
+    /**
+     * Sorts the rows by the given key.
+     * @param key the key to sort by, or null to restore the order of the query result
+     * @param ascending true for ascending order, false for descending order
+     */
+    public void sortBy(SortKey key, boolean ascending) {
+        int[] sorted = order.clone();
+        if (key == null) {
+            Arrays.sort(sorted);
+        } else {
+            IndexComparator comparator = comparatorFor(key);
+            IndexComparator directed = ascending ? comparator : (a, b) -> comparator.compare(b, a);
+            mergeSort(sorted, new int[sorted.length], 0, sorted.length, directed);
+        }
+
+        int[] oldPosition = new int[rows.size()];
+        for (int i = 0; i < order.length; i++) {
+            oldPosition[order[i]] = i;
+        }
+        int[] permutation = new int[order.length];
+        for (int i = 0; i < sorted.length; i++) {
+            permutation[oldPosition[sorted[i]]] = i;
+        }
+        order = sorted;
+
+        beginChange();
+        nextPermutation(0, order.length, permutation);
+        endChange();
+    }
+
+    /**
+     * Formats the tags of a transaction as shown in the table.
+     * @param t the transaction
+     * @return the names of the tags, separated by commas
+     */
+    public static String formatTags(Transaction t) {
+        return t.tags().stream().map(Tag::name).collect(Collectors.joining(", "));
+    }
+
+    /**
+     * Creates the comparator of row indexes for a key, extracting the key of every row once.
+     * @param key the key to compare
+     * @return the comparator of the row indexes
+     */
+    private IndexComparator comparatorFor(SortKey key) {
+        int n = rows.size();
+        switch (key) {
+            case DATE -> {
+                long[] days = new long[n];
+                for (int i = 0; i < n; i++) {
+                    days[i] = rows.get(i).transactionDate().toEpochDay();
+                }
+                return (a, b) -> Long.compare(days[a], days[b]);
+            }
+            case TYPE -> {
+                int[] types = new int[n];
+                for (int i = 0; i < n; i++) {
+                    types[i] = rows.get(i).transactionType().ordinal();
+                }
+                return (a, b) -> Integer.compare(types[a], types[b]);
+            }
+            case AMOUNT -> {
+                double[] amounts = new double[n];
+                for (int i = 0; i < n; i++) {
+                    amounts[i] = rows.get(i).amount();
+                }
+                return (a, b) -> Double.compare(amounts[a], amounts[b]);
+            }
+            default -> {
+                String[] tags = new String[n];
+                for (int i = 0; i < n; i++) {
+                    tags[i] = formatTags(rows.get(i));
+                }
+                return (a, b) -> tags[a].compareTo(tags[b]);
+            }
+        }
+    }
+
+    /**
+     * Stable merge sort of an array of indexes.
+     * @param a the indexes to sort
+     * @param tmp a buffer as long as the array
+     * @param from the first position to sort, inclusive
+     * @param to the last position to sort, exclusive
+     * @param comparator the comparator of the indexes
+     */
+    private static void mergeSort(int[] a, int[] tmp, int from, int to, IndexComparator comparator) {
+        if (to - from <= 16) {
+            for (int i = from + 1; i < to; i++) {
+                int value = a[i];
+                int j = i - 1;
+                while (j >= from && comparator.compare(a[j], value) > 0) {
+                    a[j + 1] = a[j];
+                    j--;
+                }
+                a[j + 1] = value;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(a, tmp, from, mid, comparator);
+        mergeSort(a, tmp, mid, to, comparator);
+        if (comparator.compare(a[mid - 1], a[mid]) <= 0) {
+            return;
+        }
+        System.arraycopy(a, from, tmp, from, to - from);
+        int i = from;
+        int j = mid;
+        for (int k = from; k < to; k++) {
+            if (j >= to || (i < mid && comparator.compare(tmp[i], tmp[j]) <= 0)) {
+                a[k] = tmp[i++];
+            } else {
+                a[k] = tmp[j++];
+            }
+        }
+    }
+
+    private static int[] identity(int size) {
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        return order;
+    }
+
+    /**
+     * Comparator of row indexes, which avoids boxing the indexes.
+     */
+    @FunctionalInterface
+    private interface IndexComparator {
+        int compare(int a, int b);
+    }
+}
@@ -25,35 +25,60 @@
 
 package it.unicam.cs.mpgc.jbudget126118.view.JavaFX;
 
+import it.unicam.cs.mpgc.jbudget126118.controller.exporter.TransactionExporter;
 import it.unicam.cs.mpgc.jbudget126118.controller.filter.FilteredTransactions;
 import it.unicam.cs.mpgc.jbudget126118.model.Period;
-import it.unicam.cs.mpgc.jbudget126118.model.Tag;
 import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
 import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.EventSourcedTransactionStore;
+import it.unicam.cs.mpgc.jbudget126118.persistency.ObservableTransactionPersistency;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionChange;
 import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
 import it.unicam.cs.mpgc.jbudget126118.persistency.XmlPersistency;
-import javafx.collections.FXCollections;
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyStringWrapper;
 import javafx.geometry.Insets;
 import javafx.scene.control.*;
 import javafx.scene.layout.*;
-import javafx.scene.control.cell.PropertyValueFactory;
+import javafx.stage.FileChooser;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
 
 /**
  * ViewTransactionPane is a JavaFX pane that provides an interface for viewing and filtering transactions.
  * It allows users to filter transactions by type and date, and displays the results in a table.
+ * If the persistency notifies its changes, the table is kept up to date by applying only the
+ * transactions added or removed, without running the query again.
+ * The transactions of the applied filter can be exported to CSV or JSON Lines,
+ * and the selected transaction can be deleted, if the persistency supports deletes.
+ * If the persistency is an EventSourcedTransactionStore, the last change can be undone and redone.
  */
 public class ViewTransactionPane extends VBox {
     private final ComboBox<String> modeFilterBox = new ComboBox<>();
     private final ComboBox<TransactionType> typeFilterBox = new ComboBox<>();
     private final DatePicker startDatePicker = new DatePicker();
     private final DatePicker endDatePicker = new DatePicker();
-    private final TableView<TransactionTableModel> transactionTable = new TableView<>();
+    private final TableView<Transaction> transactionTable = new TableView<>();
+    private final Map<TableColumn<Transaction, ?>, TransactionRowList.SortKey> sortKeys = new HashMap<>();
+    private TransactionRowList rows = new TransactionRowList(List.of());
+    private final ProgressBar progressBar = new ProgressBar();
+    private final BackgroundQueryRunner queryRunner = new BackgroundQueryRunner();
 
     private final TransactionPersistency persistency;
 
+    // filter of the table content, changes are applied only if they match it
+    private FilteredTransactions.Mode appliedMode;
+    private Period appliedPeriod;
+    private TransactionType appliedType;
+    private boolean staleResult; // a change arrived while the query was running
+
     /**
      * Constructor for ViewTransactionPane.
      * Initializes the pane with controls for filtering transactions,
@@ -74,51 +99,99 @@ public class ViewTransactionPane extends VBox {
         Button filterButton = new Button("Applica Filtro");
         filterButton.setOnAction(e -> updateTransactionList());
 
+        Button exportButton = new Button("Esporta...");
+        exportButton.setOnAction(e -> exportTransactions());
+
         setupTransactionTable();
 
+        Button deleteButton = new Button("Elimina");
+        deleteButton.setOnAction(e -> deleteSelectedTransaction());
+        deleteButton.disableProperty().bind(transactionTable.getSelectionModel().selectedItemProperty().isNull());
+
+        HBox actions = new HBox(10, exportButton, deleteButton);
+        if (persistency instanceof EventSourcedTransactionStore history) {
+            Button undoButton = new Button("Annulla");
+            undoButton.setOnAction(e -> undoOrRedo(history::undo, "Nessuna modifica da annullare."));
+            Button redoButton = new Button("Ripeti");
+            redoButton.setOnAction(e -> undoOrRedo(history::redo, "Nessuna modifica da ripetere."));
+            actions.getChildren().addAll(undoButton, redoButton);
+        }
+
+        progressBar.progressProperty().bind(queryRunner.progressProperty());
+        progressBar.visibleProperty().bind(queryRunner.runningProperty());
+
         getChildren().addAll(
                 new Label("Tipo transazione:"), typeFilterBox,
                 new Label("Filtro temporale:"), modeFilterBox,
                 new Label("Data inizio (opzionale):"), startDatePicker,
                 new Label("Data fine (opzionale):"), endDatePicker,
                 filterButton,
+                progressBar,
+                actions,
                 new Label("Transazioni:"),
                 transactionTable
         );
 
+        if (persistency instanceof ObservableTransactionPersistency observable) {
+            observable.addChangeListener(change -> Platform.runLater(() -> applyChange(change)));
+        }
+
         updateTransactionList();
     }
 
     /**
      * Sets up the transaction table with columns for date, type, amount, and tags.
-     * Each column is bound to a property of the TransactionTableModel.
+     * Cells format their value only when they are shown, and sorting is delegated
+     * to the TransactionRowList, which sorts on primitive keys.
      */
     private void setupTransactionTable() {
-        TableColumn<TransactionTableModel, String> dateCol = new TableColumn<>("Data");
-        dateCol.setCellValueFactory(new PropertyValueFactory<>("date"));
+        TableColumn<Transaction, String> dateCol = new TableColumn<>("Data");
+        dateCol.setCellValueFactory(cd -> new ReadOnlyStringWrapper(cd.getValue().transactionDate().toString()));
+
+        TableColumn<Transaction, String> typeCol = new TableColumn<>("Tipo");
+        typeCol.setCellValueFactory(cd -> new ReadOnlyStringWrapper(cd.getValue().transactionType().toString()));
 
-        TableColumn<TransactionTableModel, String> typeCol = new TableColumn<>("Tipo");
-        typeCol.setCellValueFactory(new PropertyValueFactory<>("type"));
+        TableColumn<Transaction, String> amountCol = new TableColumn<>("Importo");
+        amountCol.setCellValueFactory(cd -> new ReadOnlyStringWrapper(String.format("%.2f", cd.getValue().amount())));
 
-        TableColumn<TransactionTableModel, String> amountCol = new TableColumn<>("Importo");
-        amountCol.setCellValueFactory(new PropertyValueFactory<>("amount"));
+        TableColumn<Transaction, String> tagsCol = new TableColumn<>("Tags");
+        tagsCol.setCellValueFactory(cd -> new ReadOnlyStringWrapper(TransactionRowList.formatTags(cd.getValue())));
 
-        TableColumn<TransactionTableModel, String> tagsCol = new TableColumn<>("Tags");
-        tagsCol.setCellValueFactory(new PropertyValueFactory<>("tags"));
+        sortKeys.put(dateCol, TransactionRowList.SortKey.DATE);
+        sortKeys.put(typeCol, TransactionRowList.SortKey.TYPE);
+        sortKeys.put(amountCol, TransactionRowList.SortKey.AMOUNT);
+        sortKeys.put(tagsCol, TransactionRowList.SortKey.TAGS);
 
         transactionTable.getColumns().addAll(dateCol, typeCol, amountCol, tagsCol);
+        transactionTable.setSortPolicy(table -> {
+            sortRows();
+            return true;
+        });
 
         transactionTable.setColumnResizePolicy(TableView.CONSTRAINED_RESIZE_POLICY_FLEX_LAST_COLUMN);
     }
 
+    /**
+     * Sorts the rows by the first column of the sort order of the table,
+     * or restores the order of the query result if the table is not sorted.
+     */
+    private void sortRows() {
+        if (transactionTable.getSortOrder().isEmpty()) {
+            rows.sortBy(null, true);
+        } else {
+            TableColumn<Transaction, ?> column = transactionTable.getSortOrder().get(0);
+            rows.sortBy(sortKeys.get(column), column.getSortType() == TableColumn.SortType.ASCENDING);
+        }
+    }
+
     /**
      * Updates the transaction list based on the selected filters.
      * It retrieves all transactions, applies the filters for date and type,
      * and updates the table with the filtered results.
+     * The query runs in background and replaces any query still running for this pane;
+     * the table is updated once, when the query completes.
      */
     private void updateTransactionList() {
-        List<Transaction> allTransactions = persistency.load();
-
         Period period = null;
         if (startDatePicker.getValue() != null || endDatePicker.getValue() != null) {
             period = new Period(startDatePicker.getValue(), endDatePicker.getValue());
@@ -130,53 +203,144 @@ public class ViewTransactionPane extends VBox {
             default -> FilteredTransactions.Mode.ALL;
         };
 
-        TransactionType type = typeFilterBox.getValue();
+        runQuery(mode, period, typeFilterBox.getValue());
+    }
 
-        FilteredTransactions filtered = new FilteredTransactions(allTransactions, mode, period, type);
+    /**
+     * Runs again the query of the applied filter, for changes that do not come from the persistency,
+     * such as future transactions becoming past ones when their date is reached.
+     */
+    public void refresh() {
+        runQuery(appliedMode, appliedPeriod, appliedType);
+    }
 
-        List<TransactionTableModel> tableData = filtered.filteredItems().stream()
-                .map(t -> new TransactionTableModel(
-                        t.transactionDate().toString(),
-                        t.transactionType().toString(),
-                        String.format("%.2f", t.amount()),
-                        t.tags().stream().map(Tag::name).collect(Collectors.joining(", "))
-                ))
-                .toList();
+    /**
+     * Runs in background the query that fills the table.
+     * @param mode the filtering mode
+     * @param period the period to filter transactions (can be null)
+     * @param type the type of transactions to show
+     */
+    private void runQuery(FilteredTransactions.Mode mode, Period period, TransactionType type) {
+        appliedMode = mode;
+        appliedPeriod = period;
+        appliedType = type;
+        staleResult = false;
 
-        transactionTable.setItems(FXCollections.observableArrayList(tableData));
+        queryRunner.submit(progress -> {
+            progress.update(0, 2);
+            List<Transaction> allTransactions = persistency.load();
+            if (progress.isCancelled()) {
+                return null;
+            }
+            progress.update(1, 2);
+            FilteredTransactions filtered = new FilteredTransactions(allTransactions, mode, period, type);
+            List<Transaction> items = filtered.filteredItems();
+            if (progress.isCancelled()) {
+                return null;
+            }
+            progress.update(2, 2);
+            return new TransactionRowList(items);
+        }, result -> {
+            rows = result;
+            transactionTable.setItems(rows);
+            sortRows();
+            if (staleResult) {
+                runQuery(appliedMode, appliedPeriod, appliedType);
+            }
+        });
     }
 
     /**
-     * TransactionTableModel is a model class for representing a transaction in the table.
-     * It contains properties for date, type, amount, and tags.
+     * Deletes the selected transaction from the persistency, after asking the user to confirm.
+     * The delete runs in background, because the persistency may rewrite its file; the table is updated
+     * by the change the persistency notifies.
      */
-    public static class TransactionTableModel {
-        private final String date;
-        private final String type;
-        private final String amount;
-        private final String tags;
-
-        public TransactionTableModel(String date, String type, String amount, String tags) {
-            this.date = date;
-            this.type = type;
-            this.amount = amount;
-            this.tags = tags;
+    private void deleteSelectedTransaction() {
+        Transaction selected = transactionTable.getSelectionModel().getSelectedItem();
+        if (selected == null) {
+            return;
         }
-
-        public String getDate() {
-            return date;
+        Alert confirm = new Alert(Alert.AlertType.CONFIRMATION, String.format("Eliminare la transazione del %s di %.2f?",
+                selected.transactionDate(), selected.amount()));
+        if (confirm.showAndWait().orElse(ButtonType.CANCEL) != ButtonType.OK) {
+            return;
         }
+        Thread.ofVirtual().start(() -> {
+            try {
+                if (!persistency.delete(selected.id())) {
+                    Platform.runLater(() -> new Alert(Alert.AlertType.WARNING, "La transazione non esiste più.").show());
+                }
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "Eliminazione non riuscita: " + e.getMessage()).show());
+            }
+        });
+    }
 
-        public String getType() {
-            return type;
-        }
+    /**
+     * Undoes or redoes the last change in background, like a delete; the table is updated
+     * by the change the persistency notifies.
+     * @param action the undo or the redo, which returns false if there is no change to apply
+     * @param nothingToDo the message shown when there is no change to apply
+     */
+    private void undoOrRedo(BooleanSupplier action, String nothingToDo) {
+        Thread.ofVirtual().start(() -> {
+            try {
+                if (!action.getAsBoolean()) {
+                    Platform.runLater(() -> new Alert(Alert.AlertType.INFORMATION, nothingToDo).show());
+                }
+            } catch (RuntimeException e) {
+                Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "Operazione non riuscita: " + e.getMessage()).show());
+            }
+        });
+    }
 
-        public String getAmount() {
-            return amount;
+    /**
+     * Exports the transactions of the applied filter to a file chosen by the user.
+     * The export reads the transactions from the persistency in background and writes them
+     * as they are read, so it does not copy the content of the table.
+     */
+    private void exportTransactions() {
+        FileChooser chooser = new FileChooser();
+        chooser.setTitle("Esporta transazioni");
+        FileChooser.ExtensionFilter csv = new FileChooser.ExtensionFilter("CSV", "*.csv");
+        FileChooser.ExtensionFilter jsonLines = new FileChooser.ExtensionFilter("JSON Lines", "*.jsonl");
+        chooser.getExtensionFilters().addAll(csv, jsonLines);
+        File file = chooser.showSaveDialog(getScene().getWindow());
+        if (file == null) {
+            return;
         }
+        TransactionExporter.Format format = chooser.getSelectedExtensionFilter() == jsonLines
+                ? TransactionExporter.Format.JSON_LINES : TransactionExporter.Format.CSV;
+        var filter = FilteredTransactions.predicate(appliedMode, appliedPeriod, appliedType);
+
+        Thread.ofVirtual().start(() -> {
+            try {
+                long count = new TransactionExporter(persistency.loadTags()).export(persistency, filter, format, file.toPath());
+                Platform.runLater(() -> new Alert(Alert.AlertType.INFORMATION, "Esportate " + count + " transazioni.").show());
+            } catch (IOException e) {
+                Platform.runLater(() -> new Alert(Alert.AlertType.ERROR, "Esportazione non riuscita: " + e.getMessage()).show());
+            }
+        });
+    }
 
-        public String getTags() {
-            return tags;
+    /**
+     * Applies a change of the persistency to the table.
+     * Only the added transactions that match the current filter are appended,
+     * so the cost of a single insert does not depend on the size of the table.
+     * If the query is still running, its result may or may not contain the change,
+     * so the query is run again as soon as it completes.
+     * @param change the change to apply
+     */
+    private void applyChange(TransactionChange change) {
+        if (queryRunner.runningProperty().get()) {
+            staleResult = true;
+            return;
+        }
+        if (!change.removed().isEmpty()) {
+            Set<Long> removedIds = new HashSet<>();
+            change.removed().forEach(t -> removedIds.add(t.id()));
+            rows.removeAllById(removedIds);
         }
+        rows.append(new FilteredTransactions(change.added(), appliedMode, appliedPeriod, appliedType).filteredItems());
     }
 }
\ No newline at end of file
@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.budget;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Budget measures a hot path and compares it with its budget of allocated bytes or of elapsed time.
+ * Budgets are read from budgets.properties, in the test resources; for each check:
+ * - {@code <check>.allocationRows}: the size of the ledger of the allocation check
+ * - {@code <check>.maxAllocatedBytes}: the bytes the measuring thread may allocate in one run
+ * - {@code <check>.rows}: the size of the ledger of the time check
+ * - {@code <check>.maxMillis}: the median time of a run
+ * Allocation is the minimum over the measured runs, counted by the ThreadMXBean of the JVM,
+ * so it does not depend on the speed of the machine and is checked by the test task on a small ledger.
+ * Time depends on the machine, so it is checked only by the budgetTest task; its limits can be scaled
+ * for slower machines with the system property {@code budgets.timeScale}.
+ */
+final class Budget {
+
+    private static final int WARMUP_RUNS = 10;
+    private static final int MEASURED_RUNS = 7;
+    private static final Properties BUDGETS = load();
+    private static final com.sun.management.ThreadMXBean THREADS =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    private static volatile int sink;
+
+    private Budget() {
+    }
+
+    /**
+     * Measures the allocation of an operation and fails if it exceeds the budget of the check.
+     * @param check the name of the check
+     * @param operation the operation to measure, prepared beforehand for a ledger of the given size
+     */
+    static void assertAllocationWithin(String check, IntFunction<Supplier<Object>> operation) {
+        int rows = rows(check, "allocationRows");
+        long maxBytes = Long.parseLong(property(check, "maxAllocatedBytes"));
+        Supplier<Object> prepared = operation.apply(rows);
+
+        warmUp(prepared);
+        long overhead = allocatedBy(() -> null);
+        long minBytes = Long.MAX_VALUE;
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            minBytes = Math.min(minBytes, allocatedBy(prepared) - overhead);
+        }
+
+        String report = String.format("%s rows=%d allocated=%,d B (budget %,d B)", check, rows, minBytes, maxBytes);
+        System.out.println(report);
+        assertTrue(minBytes <= maxBytes, "Allocation budget exceeded: " + report);
+    }
+
+    /**
+     * Measures the median time of an operation and fails if it exceeds the budget of the check.
+     * @param check the name of the check
+     * @param operation the operation to measure, prepared beforehand for a ledger of the given size
+     */
+    static void assertTimeWithin(String check, IntFunction<Supplier<Object>> operation) {
+        int rows = rows(check, "rows");
+        double maxMillis = Double.parseDouble(property(check, "maxMillis"))
+                * Double.parseDouble(System.getProperty("budgets.timeScale", "1"));
+        Supplier<Object> prepared = operation.apply(rows);
+
+        warmUp(prepared);
+        long[] nanos = new long[MEASURED_RUNS];
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            long start = System.nanoTime();
+            consume(prepared.get());
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        double medianMillis = nanos[MEASURED_RUNS / 2] / 1e6;
+
+        String report = String.format("%s rows=%d time=%.2f ms (budget %.2f ms)", check, rows, medianMillis, maxMillis);
+        System.out.println(report);
+        assertTrue(medianMillis <= maxMillis, "Time budget exceeded: " + report);
+    }
+
+    private static void warmUp(Supplier<Object> operation) {
+        for (int i = 0; i < WARMUP_RUNS; i++) {
+            consume(operation.get());
+        }
+    }
+
+    private static int rows(String check, String key) {
+        return Integer.parseInt(property(check, key));
+    }
+
+    private static String property(String check, String key) {
+        String value = BUDGETS.getProperty(check + "." + key);
+        if (value == null) {
+            throw new IllegalArgumentException("No " + key + " in the budget of " + check);
+        }
+        return value;
+    }
+
+    private static long allocatedBy(Supplier<Object> operation) {
+        long before = THREADS.getCurrentThreadAllocatedBytes();
+        Object result = operation.get();
+        long after = THREADS.getCurrentThreadAllocatedBytes();
+        consume(result);
+        return after - before;
+    }
+
+    /**
+     * Keeps a result alive, so that the measured operation cannot be optimized away.
+     */
+    private static void consume(Object result) {
+        sink = System.identityHashCode(result);
+    }
+
+    private static Properties load() {
+        Properties budgets = new Properties();
+        try (InputStream in = Budget.class.getResourceAsStream("/budgets.properties")) {
+            if (in == null) {
+                throw new IOException("budgets.properties not found");
+            }
+            try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+                budgets.load(reader);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return budgets;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.budget;
+
+import it.unicam.cs.mpgc.jbudget126118.controller.filter.FilteredTransactions;
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.TransactionBalance;
+import it.unicam.cs.mpgc.jbudget126118.model.Period;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.XmlPersistency;
+import it.unicam.cs.mpgc.jbudget126118.tools.LedgerGenerator;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Allocation and latency budgets of the hot paths, so that regressions fail the build without running
+ * the whole JMH suite. The limits are in budgets.properties, see Budget.
+ * Allocation checks run with the test task on small ledgers. Time checks run on ledgers of 10^6 rows and
+ * depend on the machine, so they are tagged budget and run by the budgetTest task only.
+ * Ledgers are generated with the seed and the number of tags of the benchmarks, so results can be compared.
+ */
+class HotPathBudgetTest {
+
+    private static final long SEED = 42;
+    private static final int TAG_COUNT = 64;
+    private static final Map<Integer, List<Transaction>> LEDGERS = new HashMap<>(); // shared by the checks
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void balanceTotalsAllocation() {
+        Budget.assertAllocationWithin("balance.totals", HotPathBudgetTest::balanceTotals);
+    }
+
+    @Test
+    @Tag("budget")
+    void balanceTotalsTime() {
+        Budget.assertTimeWithin("balance.totals", HotPathBudgetTest::balanceTotals);
+    }
+
+    @Test
+    void balanceTagsAmountMapAllocation() {
+        Budget.assertAllocationWithin("balance.tagsAmountMap", HotPathBudgetTest::balanceTagsAmountMap);
+    }
+
+    @Test
+    @Tag("budget")
+    void balanceTagsAmountMapTime() {
+        Budget.assertTimeWithin("balance.tagsAmountMap", HotPathBudgetTest::balanceTagsAmountMap);
+    }
+
+    @Test
+    void filterAllAllocation() {
+        Budget.assertAllocationWithin("filter.all", rows -> filter(rows, FilteredTransactions.Mode.ALL, null));
+    }
+
+    @Test
+    @Tag("budget")
+    void filterAllTime() {
+        Budget.assertTimeWithin("filter.all", rows -> filter(rows, FilteredTransactions.Mode.ALL, null));
+    }
+
+    @Test
+    void filterPastAllocation() {
+        Budget.assertAllocationWithin("filter.past", rows -> filter(rows, FilteredTransactions.Mode.PAST, null));
+    }
+
+    @Test
+    @Tag("budget")
+    void filterPastTime() {
+        Budget.assertTimeWithin("filter.past", rows -> filter(rows, FilteredTransactions.Mode.PAST, null));
+    }
+
+    @Test
+    void filterPeriodAllocation() {
+        Budget.assertAllocationWithin("filter.period", rows -> filter(rows, FilteredTransactions.Mode.ALL, lastYear()));
+    }
+
+    @Test
+    @Tag("budget")
+    void filterPeriodTime() {
+        Budget.assertTimeWithin("filter.period", rows -> filter(rows, FilteredTransactions.Mode.ALL, lastYear()));
+    }
+
+    @Test
+    void persistencyLoadAllocation() {
+        Budget.assertAllocationWithin("persistency.load", this::persistencyLoad);
+    }
+
+    @Test
+    @Tag("budget")
+    void persistencyLoadTime() {
+        Budget.assertTimeWithin("persistency.load", this::persistencyLoad);
+    }
+
+    private static Supplier<Object> balanceTotals(int rows) {
+        TransactionBalance balance = new TransactionBalance(ledger(rows));
+        return () -> balance.getTotalIncome() + balance.getTotalExpense();
+    }
+
+    private static Supplier<Object> balanceTagsAmountMap(int rows) {
+        TransactionBalance balance = new TransactionBalance(ledger(rows));
+        return balance::getTagsAmountMap;
+    }
+
+    private static Supplier<Object> filter(int rows, FilteredTransactions.Mode mode, Period period) {
+        List<Transaction> ledger = ledger(rows);
+        return () -> new FilteredTransactions(ledger, mode, period, TransactionType.EXPENSE).filteredItems();
+    }
+
+    private Supplier<Object> persistencyLoad(int rows) {
+        Path transactionFile = directory.resolve("transaction.xml");
+        Path tagFile = directory.resolve("Tags.xml");
+        try (Writer transactionOut = Files.newBufferedWriter(transactionFile, StandardCharsets.UTF_8);
+             Writer tagOut = Files.newBufferedWriter(tagFile, StandardCharsets.UTF_8)) {
+            generator().writeXml(rows, transactionOut, tagOut);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        XmlPersistency persistency = new XmlPersistency(transactionFile.toString(), tagFile.toString());
+        return persistency::load;
+    }
+
+    private static Period lastYear() {
+        return new Period(LocalDate.now().minusYears(1), LocalDate.now());
+    }
+
+    private static synchronized List<Transaction> ledger(int rows) {
+        return LEDGERS.computeIfAbsent(rows, size -> generator().transactions(size).toList());
+    }
+
+    private static LedgerGenerator generator() {
+        LedgerGenerator.Options defaults = LedgerGenerator.Options.defaults(SEED);
+        return new LedgerGenerator(new LedgerGenerator.Options(defaults.seed(), defaults.incomeRatio(),
+                defaults.futureRatio(), defaults.years(), TAG_COUNT, defaults.tagFanout(), defaults.today()));
+    }
+}
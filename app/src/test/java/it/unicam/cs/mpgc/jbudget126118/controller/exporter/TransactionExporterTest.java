@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.exporter;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.XmlPersistency;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransactionExporterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void exportsEveryMatchingTransaction() throws IOException {
+        XmlPersistency xml = ledger(100);
+
+        StringWriter out = new StringWriter();
+        long count = new TransactionExporter(List.of()).export(xml, t -> t.transactionType() == TransactionType.INCOME,
+                TransactionExporter.Format.CSV, out);
+
+        assertEquals(50, count);
+        assertEquals(51, out.toString().lines().count());
+    }
+
+    @Test
+    void truncatedLedgerFailsTheExport() throws IOException {
+        XmlPersistency xml = ledger(100);
+        Path file = directory.resolve("transaction.xml");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(Files.size(file) / 2);
+        }
+
+        assertThrows(IOException.class, () -> new TransactionExporter(List.of())
+                .export(xml, t -> true, TransactionExporter.Format.JSON_LINES, new StringWriter()));
+    }
+
+    @Test
+    void missingLedgerFailsTheExport() {
+        XmlPersistency xml = new XmlPersistency(directory.resolve("missing.xml").toString(),
+                directory.resolve("Tags.xml").toString());
+
+        assertThrows(IOException.class, () -> new TransactionExporter(List.of())
+                .export(xml, t -> true, TransactionExporter.Format.CSV, new StringWriter()));
+    }
+
+    private XmlPersistency ledger(int size) {
+        XmlPersistency xml = new XmlPersistency(directory.resolve("transaction.xml").toString(),
+                directory.resolve("Tags.xml").toString());
+        List<Transaction> transactions = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            transactions.add(new Transaction(i + 1, 10 + i, i % 2 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+                    LocalDate.of(2024, 1, 1).plusDays(i), List.of()));
+        }
+        xml.saveAll(transactions);
+        return xml;
+    }
+}
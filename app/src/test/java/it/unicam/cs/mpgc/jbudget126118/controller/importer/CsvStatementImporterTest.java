@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionIds;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.ConcurrentTransactionStore;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CsvStatementImporterTest {
+
+    @Test
+    void importedIdsDoNotCollideWithTransactionsAddedMeanwhile() throws Exception {
+        int rows = 100_000;
+        StringBuilder statement = new StringBuilder("date,amount,description\n");
+        for (int i = 0; i < rows; i++) {
+            statement.append(LocalDate.of(2024, 1, 1).plusDays(i % 365)).append(',').append(-(i % 90 + 1)).append(",row\n");
+        }
+        ConcurrentTransactionStore store = new ConcurrentTransactionStore(null);
+        CsvStatementImporter importer = new CsvStatementImporter(store, StatementFormat.defaults(), TagRules.none(), 5_000);
+
+        // transactions added from the panes while the import runs
+        Thread adder = new Thread(() -> {
+            for (int i = 0; i < 5_000; i++) {
+                store.save(new Transaction(TransactionIds.next(), 1, TransactionType.INCOME, LocalDate.of(2024, 6, 1), List.of()));
+            }
+        });
+        adder.start();
+        ImportReport report = importer.importFrom(new StringReader(statement.toString()), progress -> { });
+        adder.join();
+
+        assertEquals(rows, report.imported());
+        assertEquals(rows + 5_000, store.size());
+        Set<Long> ids = new HashSet<>();
+        long maxId = 0;
+        for (Transaction t : store.load()) {
+            ids.add(t.id());
+            maxId = Math.max(maxId, t.id());
+        }
+        assertEquals(rows + 5_000, ids.size());
+        assertTrue(TransactionIds.next() > maxId);
+    }
+
+    @Test
+    void readRowsAreNumberedByLine() throws IOException {
+        List<Transaction> read = new ArrayList<>();
+        new CsvStatementImporter(new ConcurrentTransactionStore(null), StatementFormat.defaults(), TagRules.none(), 10)
+                .readFrom(new StringReader("date,amount,description\n2024-01-01,-5,a\n\n2024-01-02,7,b\n"), read::addAll);
+
+        assertEquals(2, read.size());
+        assertEquals(2, read.get(0).id());
+        assertEquals(4, read.get(1).id());
+    }
+}
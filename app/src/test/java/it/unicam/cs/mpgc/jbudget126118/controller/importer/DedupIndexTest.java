@@ -0,0 +1,129 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.ConcurrentTransactionStore;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the DedupIndex: transactions are counted by content, a row of an import is a duplicate only as many
+ * times as the ledger holds it, and a saved index is used only while the ledger it describes is unchanged.
+ */
+class DedupIndexTest {
+
+    private static final Tag FOOD = new Tag(1, "food", null);
+    private static final Tag HOME = new Tag(2, "home", null);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void transactionsAreCountedByContent() {
+        Transaction rent = transaction(1, 500, FOOD, HOME);
+        DedupIndex index = DedupIndex.of(List.of(rent, transaction(2, 500, HOME, FOOD), transaction(3, 20, FOOD)));
+
+        // the id and the order of the tags are not part of the content
+        assertEquals(DedupIndex.fingerprint(rent), DedupIndex.fingerprint(transaction(9, 500, HOME, FOOD)));
+        assertNotEquals(DedupIndex.fingerprint(rent), DedupIndex.fingerprint(transaction(1, 500, FOOD)));
+        assertEquals(2, index.count(DedupIndex.fingerprint(rent)));
+        assertEquals(1, index.count(DedupIndex.fingerprint(transaction(4, 20, FOOD))));
+        assertEquals(0, index.count(DedupIndex.fingerprint(transaction(5, 21, FOOD))));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void repeatedRowsAreDuplicatesAsManyTimesAsTheLedgerHoldsThem() {
+        Transaction coffee = transaction(1, 2, FOOD);
+        DedupIndex index = DedupIndex.of(List.of(coffee, transaction(2, 2, FOOD)));
+
+        DedupIndex.Check check = index.newCheck();
+        assertTrue(check.isDuplicate(transaction(10, 2, FOOD)));
+        assertTrue(check.isDuplicate(transaction(11, 2, FOOD)));
+        assertFalse(check.isDuplicate(transaction(12, 2, FOOD)));
+        check.saved(List.of(transaction(12, 2, FOOD)));
+        // a row saved by the import is not a duplicate of the later rows of the same import
+        assertFalse(check.isDuplicate(transaction(13, 2, FOOD)));
+        assertEquals(3, index.count(DedupIndex.fingerprint(coffee)));
+
+        DedupIndex.Check next = index.newCheck();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(next.isDuplicate(transaction(20 + i, 2, FOOD)));
+        }
+        assertFalse(next.isDuplicate(transaction(23, 2, FOOD)));
+    }
+
+    @Test
+    void aSavedIndexIsLoadedWhileTheLedgerFileIsUnchanged() throws IOException {
+        Path ledger = directory.resolve("transaction.xml");
+        Files.writeString(ledger, "<transactions/>");
+        Path indexFile = directory.resolve("transaction.xml.dedup");
+        Transaction rent = transaction(1, 500, HOME);
+        DedupIndex.of(List.of(rent, transaction(2, 500, HOME))).save(indexFile, ledger);
+        // an empty persistency, so that an index rebuilt instead of loaded counts nothing
+        ConcurrentTransactionStore empty = new ConcurrentTransactionStore(null);
+
+        assertEquals(2, DedupIndex.forLedger(indexFile, ledger, empty).count(DedupIndex.fingerprint(rent)));
+
+        Files.writeString(ledger, "<transaction/>", StandardOpenOption.APPEND);
+        assertEquals(0, DedupIndex.forLedger(indexFile, ledger, empty).count(DedupIndex.fingerprint(rent)));
+    }
+
+    @Test
+    void aSavedIndexIsLoadedWhileTheStoreDirectoryIsUnchanged() throws IOException {
+        Path ledger = Files.createDirectory(directory.resolve("ledger.segments"));
+        Files.writeString(ledger.resolve("segment-000001.dat"), "records");
+        Path indexFile = directory.resolve("ledger.segments.dedup");
+        Transaction rent = transaction(1, 500, HOME);
+        DedupIndex.of(List.of(rent)).save(indexFile, ledger);
+        ConcurrentTransactionStore empty = new ConcurrentTransactionStore(null);
+
+        assertEquals(1, DedupIndex.forLedger(indexFile, ledger, empty).count(DedupIndex.fingerprint(rent)));
+
+        // a store that appends to its files, or adds new ones, changes the state of the directory
+        Files.writeString(ledger.resolve("segment-000002.dat"), "more records");
+        assertEquals(0, DedupIndex.forLedger(indexFile, ledger, empty).count(DedupIndex.fingerprint(rent)));
+    }
+
+    private static Transaction transaction(long id, double amount, Tag... tags) {
+        return new Transaction(id, amount, TransactionType.EXPENSE, LocalDate.of(2024, 3, 1), List.of(tags));
+    }
+}
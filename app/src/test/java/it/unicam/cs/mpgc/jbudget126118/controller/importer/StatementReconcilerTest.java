@@ -0,0 +1,135 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.importer;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the StatementReconciler: exact matches come first, close ones within the tolerances next,
+ * equally close ones are ambiguous, and the ledger transactions of the period left unpaired are reported.
+ */
+class StatementReconcilerTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 10);
+
+    @Test
+    void exactMatchesArePairedBeforeCloseOnes() {
+        Transaction monday = expense(1, 10, DAY);
+        Transaction tuesday = expense(2, 10, DAY.plusDays(1));
+        Transaction tuesdayRow = expense(101, 10, DAY.plusDays(1));
+        Transaction mondayRow = expense(100, 10, DAY);
+
+        // the first row is as close to both, but the second one matches monday exactly
+        ReconciliationReport report = new StatementReconciler(List.of(monday, tuesday), ReconciliationRules.defaults())
+                .reconcile(List.of(tuesdayRow, mondayRow));
+
+        assertEquals(List.of(new ReconciliationReport.Match(tuesdayRow, tuesday),
+                new ReconciliationReport.Match(mondayRow, monday)), report.matched());
+        assertEquals(List.of(), report.ambiguous());
+        assertEquals(List.of(), report.unmatchedLedger());
+    }
+
+    @Test
+    void closeTransactionsArePairedWithinTheTolerances() {
+        Transaction booked = expense(1, 10.02, DAY.minusDays(2));
+        Transaction far = expense(2, 30, DAY.minusDays(10));
+        Transaction row = expense(100, 10, DAY);
+        Transaction tooLarge = expense(101, 10.10, DAY);
+        Transaction income = new Transaction(102, 30, TransactionType.INCOME, DAY.minusDays(10), List.of());
+
+        ReconciliationReport report = new StatementReconciler(List.of(booked, far), new ReconciliationRules(3, 0.05, 0))
+                .reconcile(List.of(row, tooLarge, income));
+
+        assertEquals(List.of(new ReconciliationReport.Match(row, booked)), report.matched());
+        // the type must match too
+        assertEquals(List.of(tooLarge, income), report.unmatchedStatement());
+        assertEquals(List.of(far), report.unmatchedLedger());
+    }
+
+    @Test
+    void equallyCloseTransactionsAreAmbiguous() {
+        Transaction before = expense(1, 10, DAY.minusDays(1));
+        Transaction after = expense(2, 10, DAY.plusDays(1));
+        Transaction row = expense(100, 10, DAY);
+
+        ReconciliationReport report = new StatementReconciler(List.of(before, after), ReconciliationRules.defaults())
+                .reconcile(List.of(row));
+
+        assertEquals(List.of(new ReconciliationReport.Ambiguity(row, List.of(before, after))), report.ambiguous());
+        assertEquals(List.of(), report.matched());
+        // the candidates are not reported as ledger transactions missing from the statement
+        assertEquals(List.of(), report.unmatchedLedger());
+    }
+
+    @Test
+    void aCandidateTakenByAnotherRowResolvesTheAmbiguity() {
+        Transaction before = expense(1, 10, DAY.minusDays(1));
+        Transaction after = expense(2, 10, DAY.plusDays(1));
+        Transaction ambiguousRow = expense(100, 10, DAY);
+        Transaction laterRow = expense(101, 10, DAY.plusDays(3));
+        StatementReconciler reconciler = new StatementReconciler(List.of(before, after), ReconciliationRules.defaults());
+
+        // whatever the order of the statement, the later row can only be the transaction after
+        for (List<Transaction> statement : List.of(List.of(ambiguousRow, laterRow), List.of(laterRow, ambiguousRow))) {
+            ReconciliationReport report = reconciler.reconcile(statement);
+
+            assertEquals(2, report.matched().size(), statement.toString());
+            assertTrue(report.matched().contains(new ReconciliationReport.Match(laterRow, after)));
+            assertTrue(report.matched().contains(new ReconciliationReport.Match(ambiguousRow, before)));
+            assertEquals(List.of(), report.ambiguous());
+        }
+    }
+
+    @Test
+    void ledgerTransactionsOfThePeriodMissingFromTheStatementAreReported() {
+        Transaction paired = expense(1, 10, DAY);
+        Transaction missing = expense(2, 25, DAY.plusDays(2));
+        Transaction withinTolerance = expense(3, 40, DAY.plusDays(7));
+        Transaction outside = expense(4, 50, DAY.plusDays(30));
+        Transaction first = expense(100, 10, DAY);
+        Transaction last = expense(101, 99, DAY.plusDays(5));
+
+        ReconciliationReport report = new StatementReconciler(List.of(paired, missing, withinTolerance, outside),
+                ReconciliationRules.defaults()).reconcile(List.of(first, last));
+
+        assertEquals(List.of(new ReconciliationReport.Match(first, paired)), report.matched());
+        assertEquals(List.of(last), report.unmatchedStatement());
+        // the period of the statement is widened by the date tolerance
+        assertEquals(List.of(missing, withinTolerance), report.unmatchedLedger());
+    }
+
+    private static Transaction expense(long id, double amount, LocalDate date) {
+        return new Transaction(id, amount, TransactionType.EXPENSE, date, List.of());
+    }
+}
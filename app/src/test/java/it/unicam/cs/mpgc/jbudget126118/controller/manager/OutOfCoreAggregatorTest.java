@@ -0,0 +1,114 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.manager;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.persistency.ConcurrentTransactionStore;
+import it.unicam.cs.mpgc.jbudget126118.tools.LedgerGenerator;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the OutOfCoreAggregator against TransactionBalance: with a tiny number of groups in memory
+ * the groups are spilled to many runs, merged in more than one pass, and must add up to the same totals.
+ */
+class OutOfCoreAggregatorTest {
+
+    private static final int ROWS = 10_000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void spilledGroupsAddUpToTheBalance() throws IOException {
+        List<Transaction> ledger = ledger();
+        ConcurrentTransactionStore store = new ConcurrentTransactionStore(null);
+        store.saveAll(ledger);
+        TransactionBalance balance = new TransactionBalance(ledger);
+
+        // one group per type, tag and day, spilled every 5 groups
+        OutOfCoreAggregator aggregator = new OutOfCoreAggregator(true, OutOfCoreAggregator.Granularity.DAY, 5, directory);
+        Map<Tag, Double> expenseByTag = new HashMap<>();
+        long aggregated = aggregator.aggregate(store, t -> true, group -> {
+            if (group.type() == TransactionType.EXPENSE) {
+                expenseByTag.merge(group.tag(), group.total(), Double::sum);
+            }
+        });
+
+        assertEquals(ROWS, aggregated);
+        // more runs than two merge passes of 64 runs can reduce to one
+        assertTrue(aggregator.spilledRuns() > 64 * 64, "runs " + aggregator.spilledRuns());
+        Map<Tag, Double> expected = balance.getTagsAmountMap();
+        assertEquals(expected.keySet(), expenseByTag.keySet());
+        for (Map.Entry<Tag, Double> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), expenseByTag.get(entry.getKey()), 1e-6, entry.getKey().name());
+        }
+        try (var left = Files.list(directory)) {
+            assertEquals(0, left.count(), "run files left");
+        }
+    }
+
+    @Test
+    void spilledTotalsMatchTheBalance() throws IOException {
+        List<Transaction> ledger = ledger();
+        ConcurrentTransactionStore store = new ConcurrentTransactionStore(null);
+        store.saveAll(ledger);
+        TransactionBalance balance = new TransactionBalance(ledger);
+
+        OutOfCoreAggregator aggregator = new OutOfCoreAggregator(false, OutOfCoreAggregator.Granularity.DAY, 10, directory);
+        double[] totals = new double[TransactionType.values().length];
+        long[] counts = new long[totals.length];
+        aggregator.aggregate(store, t -> true, group -> {
+            totals[group.type().ordinal()] += group.total();
+            counts[group.type().ordinal()] += group.count();
+        });
+
+        assertTrue(aggregator.spilledRuns() > 64, "runs " + aggregator.spilledRuns());
+        assertEquals(balance.getTotalIncome(), totals[TransactionType.INCOME.ordinal()], 1e-6);
+        assertEquals(balance.getTotalExpense(), totals[TransactionType.EXPENSE.ordinal()], 1e-6);
+        assertEquals(ROWS, counts[TransactionType.INCOME.ordinal()] + counts[TransactionType.EXPENSE.ordinal()]);
+    }
+
+    private static List<Transaction> ledger() {
+        LedgerGenerator.Options defaults = LedgerGenerator.Options.defaults(7);
+        return new LedgerGenerator(new LedgerGenerator.Options(defaults.seed(), defaults.incomeRatio(),
+                defaults.futureRatio(), defaults.years(), defaults.tagCount(), defaults.tagFanout(),
+                LocalDate.of(2024, 6, 30))).transactions(ROWS).toList();
+    }
+}
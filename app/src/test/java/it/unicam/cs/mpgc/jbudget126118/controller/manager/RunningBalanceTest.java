@@ -0,0 +1,69 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.manager;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Tests of the RunningBalance kept up to date one change at a time.
+ */
+class RunningBalanceTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 3, 1);
+
+    @Test
+    void aDayWhoseTransactionsAreRemovedLeavesTheSeries() {
+        Transaction salary = new Transaction(1, 1000.1, TransactionType.INCOME, DAY, List.of());
+        Transaction rent = new Transaction(2, 400.3, TransactionType.EXPENSE, DAY.plusDays(1), List.of());
+        Transaction food = new Transaction(3, 20.7, TransactionType.EXPENSE, DAY.plusDays(1), List.of());
+        RunningBalance balance = new RunningBalance(List.of(salary, rent, food));
+
+        balance.apply(List.of(rent, food), -1);
+
+        assertEquals(List.of(new RunningBalance.Point(DAY, 1000.1)), balance.series(null, null, 100));
+        assertEquals(1000.1, balance.balanceAt(DAY.plusDays(1)), 1e-9);
+    }
+
+    @Test
+    void aDayWithBalancedTransactionsStaysInTheSeries() {
+        Transaction income = new Transaction(1, 50, TransactionType.INCOME, DAY, List.of());
+        Transaction expense = new Transaction(2, 50, TransactionType.EXPENSE, DAY, List.of());
+        Transaction later = new Transaction(3, 10, TransactionType.INCOME, DAY.plusDays(3), List.of());
+        RunningBalance balance = new RunningBalance(List.of(income, expense));
+
+        balance.apply(List.of(later), 1);
+        balance.apply(List.of(later), -1);
+
+        assertEquals(List.of(new RunningBalance.Point(DAY, 0)), balance.series(null, null, 100));
+    }
+}
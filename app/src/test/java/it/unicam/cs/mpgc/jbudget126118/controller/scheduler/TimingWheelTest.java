@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.controller.scheduler;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the TimingWheel: items expire in order of deadline on every level and in the overflow list,
+ * and cancelled items never expire, even when they are cancelled by the action of an expiring item.
+ */
+
+class TimingWheelTest {
+
+    private static final long SPAN = 1L << 24; // 64^4 ticks, the reach of the four levels
+
+    @Test
+    void itemsExpireInOrderOfDeadlineUnlessCancelled() {
+        TimingWheel<Long> wheel = new TimingWheel<>(0);
+        Random random = new Random(1);
+        List<TimingWheel.Timeout<Long>> timeouts = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            long deadline = 1 + (i % 10 == 0 ? SPAN + random.nextInt(1 << 20) : random.nextInt(1 << 20));
+            timeouts.add(wheel.schedule(deadline, deadline));
+        }
+        List<Long> expected = new ArrayList<>();
+        for (int i = 0; i < timeouts.size(); i++) {
+            if (i % 3 == 0) {
+                assertTrue(wheel.cancel(timeouts.get(i)));
+                assertFalse(wheel.cancel(timeouts.get(i)));
+            } else {
+                expected.add(timeouts.get(i).deadline());
+            }
+        }
+        expected.sort(null);
+        assertEquals(expected.size(), wheel.size());
+
+        List<Long> expired = new ArrayList<>();
+        wheel.advanceTo(2 * SPAN, expired::add);
+
+        assertEquals(expected, expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void theActionCanCancelTheOtherItemsOfItsSlot() {
+        TimingWheel<String> wheel = new TimingWheel<>(0);
+        wheel.schedule("first", 5);
+        TimingWheel.Timeout<String> second = wheel.schedule("second", 5);
+        TimingWheel.Timeout<String> third = wheel.schedule("third", 5);
+        wheel.schedule("later", 6);
+
+        List<String> expired = new ArrayList<>();
+        wheel.advanceTo(10, item -> {
+            expired.add(item);
+            wheel.cancel(second);
+            wheel.cancel(third);
+        });
+
+        // the slot is a stack: the last scheduled item of a tick expires first
+        assertEquals(List.of("third", "first", "later"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void rescheduledItemsDoNotAccumulate() {
+        TimingWheel<Integer> wheel = new TimingWheel<>(0);
+        TimingWheel.Timeout<Integer> timeout = wheel.schedule(0, 100);
+        for (int i = 1; i <= 100_000; i++) {
+            assertTrue(wheel.cancel(timeout));
+            timeout = wheel.schedule(i, 100 + i % 5_000);
+        }
+        assertEquals(1, wheel.size());
+        List<Integer> expired = new ArrayList<>();
+        wheel.advanceTo(10_000, expired::add);
+        assertEquals(List.of(100_000), expired);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the BlockCompressedTransactionStore: saving transactions one at a time must give an archive
+ * about as small as saving them in a batch, both while the store is open and after it is closed.
+ */
+class BlockCompressedTransactionStoreTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    private static final int BLOCK_ROWS = 1024;
+    private static final int SAVES = 4000;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void smallSavesDoNotGrowTheArchive() throws IOException {
+        List<Transaction> transactions = new ArrayList<>();
+        for (long id = 0; id < SAVES; id++) {
+            transactions.add(new Transaction(id, 1 + id % 500, id % 3 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+                    FIRST_DAY.plusDays(id / 4), List.of()));
+        }
+        Path batchFile = directory.resolve("batch.jbz");
+        double batchRatio;
+        try (BlockCompressedTransactionStore batch = open(batchFile)) {
+            batch.saveAll(transactions);
+            batchRatio = batch.compressionRatio();
+        }
+        long batchSize = Files.size(batchFile);
+
+        Path file = directory.resolve("single.jbz");
+        try (BlockCompressedTransactionStore store = open(file)) {
+            long largest = 0;
+            for (Transaction t : transactions) {
+                store.save(t);
+                largest = Math.max(largest, Files.size(file));
+            }
+            assertEquals(SAVES, store.size());
+            assertEquals((SAVES + BLOCK_ROWS - 1) / BLOCK_ROWS, store.blockCount());
+            assertTrue(largest < 2 * batchSize, "largest size " + largest + " against a batch of " + batchSize);
+            assertTrue(store.compressionRatio() > 0.9 * batchRatio,
+                    "ratio " + store.compressionRatio() + " against a batch of " + batchRatio);
+        }
+        assertTrue(Files.size(file) < batchSize * 5 / 4, "closed size " + Files.size(file) + " against " + batchSize);
+        try (BlockCompressedTransactionStore reopened = open(file)) {
+            List<Transaction> loaded = new ArrayList<>(reopened.load());
+            loaded.sort(Comparator.comparingLong(Transaction::id));
+            assertEquals(transactions, loaded);
+        }
+    }
+
+    private static BlockCompressedTransactionStore open(Path file) throws IOException {
+        return new BlockCompressedTransactionStore(file, List::of, BLOCK_ROWS, -1);
+    }
+}
@@ -0,0 +1,190 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Multi-threaded tests of the ConcurrentTransactionStore: several writer threads save their own transactions
+ * into the same store, and no write may be lost, with or without a delegate behind the store.
+ */
+class ConcurrentTransactionStoreTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void concurrentSavesAreNotLost() throws InterruptedException {
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors());
+        ConcurrentTransactionStore store = new ConcurrentTransactionStore(null);
+
+        run(store, threads, 20_000);
+
+        assertNoLostWrites(store.load(), threads * 20_000);
+        assertEquals(threads * 20_000, store.size());
+    }
+
+    @Test
+    void concurrentSavesThroughTheXmlFileAreNotLost() throws InterruptedException {
+        // every save goes through the single write lock of the XML file, as in the application
+        XmlPersistency xml = new XmlPersistency(directory.resolve("transaction.xml").toString(),
+                directory.resolve("Tags.xml").toString());
+        ConcurrentTransactionStore store = new ConcurrentTransactionStore(xml);
+
+        run(store, 4, 50);
+
+        assertNoLostWrites(store.load(), 200);
+        assertNoLostWrites(xml.load(), 200);
+        assertNoLostWrites(new ConcurrentTransactionStore(xml).load(), 200);
+    }
+
+    @Test
+    void updatesAndDeletesAreWrittenThroughAndNotified() {
+        XmlPersistency xml = new XmlPersistency(directory.resolve("transaction.xml").toString(),
+                directory.resolve("Tags.xml").toString());
+        ConcurrentTransactionStore store = new ConcurrentTransactionStore(xml);
+        Transaction first = new Transaction(1, 10, TransactionType.EXPENSE, FIRST_DAY, List.of());
+        Transaction second = new Transaction(2, 20, TransactionType.INCOME, FIRST_DAY, List.of());
+        store.saveAll(List.of(first, second));
+        List<TransactionChange> changes = new ArrayList<>();
+        store.addChangeListener(changes::add);
+
+        // the new date moves the transaction to the partition of another month
+        Transaction moved = new Transaction(1, 15, TransactionType.EXPENSE, FIRST_DAY.plusMonths(2), List.of());
+        assertTrue(store.update(1, moved));
+        assertTrue(store.delete(2));
+        assertFalse(store.delete(2));
+        assertFalse(store.update(3, moved));
+
+        assertEquals(List.of(new TransactionChange(List.of(moved), List.of(first)),
+                new TransactionChange(List.of(), List.of(second))), changes);
+        assertEquals(List.of(moved), store.load());
+        assertEquals(List.of(moved), xml.load());
+    }
+
+    @Test
+    void addLoadedSkipsTransactionsAlreadyInTheStore() {
+        ConcurrentTransactionStore store = new ConcurrentTransactionStore(null);
+        Transaction saved = new Transaction(1, 10, TransactionType.EXPENSE, FIRST_DAY, List.of());
+        Transaction appended = new Transaction(2, 20, TransactionType.EXPENSE, FIRST_DAY, List.of());
+        store.save(saved);
+        List<TransactionChange> changes = new ArrayList<>();
+        store.addChangeListener(changes::add);
+
+        store.addLoaded(List.of(saved, appended));
+        store.addLoaded(List.of(appended));
+
+        assertEquals(List.of(TransactionChange.added(List.of(appended))), changes);
+        assertNoLostWrites(store.load(), 2);
+    }
+
+    /**
+     * Reports the throughput from 1 up to the number of processors, doubling the writer threads each time.
+     * It takes several seconds, so it is tagged and run by the stressTest task only.
+     */
+    @Test
+    @Tag("stress")
+    void throughputScalesWithWriters() throws InterruptedException {
+        int writesPerThread = 200_000;
+        double singleThreadRate = 0;
+        for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+            ConcurrentTransactionStore store = new ConcurrentTransactionStore(null);
+            long elapsed = run(store, threads, writesPerThread);
+
+            int expected = threads * writesPerThread;
+            double rate = expected / (elapsed / 1e9);
+            if (threads == 1) {
+                singleThreadRate = rate;
+            }
+            System.out.printf("threads=%d writes=%d time=%.1f ms throughput=%.0f ops/s scaling=%.2fx%n",
+                    threads, expected, elapsed / 1e6, rate, rate / singleThreadRate);
+            assertNoLostWrites(store.load(), expected);
+        }
+    }
+
+    /**
+     * Runs the given number of writer threads, each saving its own transactions spread over several months.
+     * @param store the store under test
+     * @param threads the number of writer threads
+     * @param writesPerThread the number of transactions saved by each thread
+     * @return the elapsed time in nanoseconds
+     */
+    private static long run(ConcurrentTransactionStore store, int threads, int writesPerThread) throws InterruptedException {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> writers = new ArrayList<>();
+        for (int w = 0; w < threads; w++) {
+            final long base = (long) w * writesPerThread;
+            Thread writer = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < writesPerThread; i++) {
+                    long id = base + i;
+                    store.save(new Transaction(id, 1 + id % 500, id % 3 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+                            FIRST_DAY.plusDays(id % 3650), List.of()));
+                }
+            });
+            writer.start();
+            writers.add(writer);
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        return System.nanoTime() - begin;
+    }
+
+    private static void assertNoLostWrites(List<Transaction> transactions, int expected) {
+        Set<Long> ids = new HashSet<>();
+        for (Transaction t : transactions) {
+            ids.add(t.id());
+        }
+        assertEquals(expected, transactions.size(), "transactions");
+        assertEquals(expected, ids.size(), "distinct ids");
+    }
+}
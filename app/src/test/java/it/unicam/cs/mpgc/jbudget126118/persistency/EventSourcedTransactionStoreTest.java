@@ -0,0 +1,194 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the EventSourcedTransactionStore: a reopen must load the snapshot and replay the events after it,
+ * undo and redo must carry over to the next session, and neither a torn event nor a snapshot that covers
+ * more than the log holds may lose or invent transactions.
+ */
+class EventSourcedTransactionStoreTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+    private static final Tag FOOD = new Tag(1, "food", null);
+    private static final int SNAPSHOT_INTERVAL = 10;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void reopenLoadsTheSnapshotAndReplaysTheTail() throws IOException {
+        List<Transaction> expected = new ArrayList<>();
+        try (EventSourcedTransactionStore store = open()) {
+            for (long id = 1; id <= 25; id++) {
+                store.save(transaction(id, id));
+                expected.add(transaction(id, id));
+            }
+            // the snapshot at the twentieth event leaves these changes to the tail of the log
+            assertTrue(store.update(22, transaction(22, 220)));
+            assertTrue(store.delete(24));
+            expected.set(21, transaction(22, 220));
+            expected.remove(23);
+        }
+        assertTrue(Files.exists(directory.resolve("snapshot.bin")));
+        try (EventSourcedTransactionStore store = open()) {
+            assertEquals(expected, store.load());
+            List<EventSourcedTransactionStore.Event> events = new ArrayList<>();
+            store.history(events::add);
+            assertEquals(27, events.size());
+            assertEquals(EventSourcedTransactionStore.Kind.DELETE, events.get(26).kind());
+        }
+    }
+
+    @Test
+    void undoAndRedoCarryOverToTheNextSession() throws IOException {
+        List<Transaction> batch = List.of(transaction(1, 10), transaction(2, 20), transaction(3, 30));
+        try (EventSourcedTransactionStore store = open()) {
+            store.saveAll(batch);
+            assertTrue(store.update(2, transaction(2, 200)));
+            assertTrue(store.delete(3));
+            // enough edits of another transaction for a snapshot to hold part of the history
+            for (int i = 0; i < SNAPSHOT_INTERVAL; i++) {
+                store.save(transaction(4, i));
+            }
+            for (int i = 0; i < SNAPSHOT_INTERVAL; i++) {
+                assertTrue(store.undo());
+            }
+            assertEquals(List.of(transaction(1, 10), transaction(2, 200)), store.load());
+        }
+        try (EventSourcedTransactionStore store = open()) {
+            assertTrue(store.canUndo());
+            assertTrue(store.canRedo());
+            assertTrue(store.undo());
+            assertEquals(List.of(transaction(1, 10), transaction(2, 200), transaction(3, 30)), store.load());
+        }
+        try (EventSourcedTransactionStore store = open()) {
+            assertTrue(store.undo());
+            assertTrue(store.undo());
+            // the batch is undone at once
+            assertTrue(store.load().isEmpty());
+            assertFalse(store.undo());
+            assertTrue(store.redo());
+            assertEquals(batch, store.load());
+        }
+        try (EventSourcedTransactionStore store = open()) {
+            assertTrue(store.redo());
+            assertEquals(List.of(transaction(1, 10), transaction(2, 200), transaction(3, 30)), store.load());
+            // an edit discards the changes that could be redone
+            store.save(transaction(5, 50));
+            assertFalse(store.canRedo());
+        }
+        try (EventSourcedTransactionStore store = open()) {
+            assertFalse(store.redo());
+            assertTrue(store.undo());
+            assertEquals(List.of(transaction(1, 10), transaction(2, 200), transaction(3, 30)), store.load());
+        }
+    }
+
+    @Test
+    void reopenDropsATornEvent() throws IOException {
+        try (EventSourcedTransactionStore store = open()) {
+            for (long id = 1; id <= 5; id++) {
+                store.save(transaction(id, id));
+            }
+        }
+        Path log = directory.resolve("events.log");
+        long complete = Files.size(log);
+        // the length of an event followed by only part of it, as left by a crash in the middle of a write
+        Files.write(log, new byte[] {0, 0, 0, 60, 0, 0, 0, 0, 0, 0, 0, 6}, StandardOpenOption.APPEND);
+
+        try (EventSourcedTransactionStore store = open()) {
+            assertEquals(5, store.load().size());
+            assertEquals(complete, Files.size(log));
+            store.save(transaction(6, 6));
+        }
+        try (EventSourcedTransactionStore store = open()) {
+            List<Transaction> loaded = store.load();
+            assertEquals(6, loaded.size());
+            assertEquals(transaction(6, 6), loaded.get(5));
+        }
+    }
+
+    @Test
+    void aSnapshotPastTheEndOfTheLogIsIgnored() throws IOException {
+        List<Transaction> saved = new ArrayList<>();
+        try (EventSourcedTransactionStore store = open()) {
+            for (long id = 1; id <= 25; id++) {
+                store.save(transaction(id, id));
+                saved.add(transaction(id, id));
+            }
+        }
+        // a crash that loses the end of the log, as if its last writes had never reached the disk
+        Path log = directory.resolve("events.log");
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() / 2);
+        }
+
+        try (EventSourcedTransactionStore store = open()) {
+            List<Transaction> loaded = store.load();
+            assertTrue(loaded.size() < 20, "the snapshot of 20 events must not be used");
+            assertEquals(saved.subList(0, loaded.size()), loaded);
+            // enough events for the log to grow past the position of the snapshot that was ignored,
+            // too few for a new snapshot to replace it
+            for (long id = 101; id < 101 + SNAPSHOT_INTERVAL - 1; id++) {
+                store.save(transaction(id, id));
+            }
+            saved = store.load();
+        }
+        try (EventSourcedTransactionStore store = open()) {
+            assertEquals(saved, store.load());
+        }
+    }
+
+    private EventSourcedTransactionStore open() throws IOException {
+        return new EventSourcedTransactionStore(directory, List::of, SNAPSHOT_INTERVAL,
+                EventSourcedTransactionStore.DEFAULT_UNDO_LIMIT);
+    }
+
+    private static Transaction transaction(long id, double amount) {
+        return new Transaction(id, amount, id % 2 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+                FIRST_DAY.plusDays(id % 365), List.of(FOOD));
+    }
+}
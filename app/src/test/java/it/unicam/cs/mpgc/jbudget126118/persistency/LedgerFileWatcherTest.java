@@ -0,0 +1,138 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the LedgerFileWatcher wired to a ConcurrentTransactionStore, as in the application:
+ * the saves of the persistency are never reported, and a transaction appended by another program
+ * right after one of them is reported alone, so the store never holds a transaction twice.
+ */
+class LedgerFileWatcherTest {
+
+    private static final LocalDate DAY = LocalDate.of(2024, 5, 1);
+    private static final long EVENT_TIMEOUT_SECONDS = 10;
+    private static final long QUIET_MILLIS = 1_000; // well beyond the quiet time of the watcher
+
+    @TempDir
+    Path directory;
+
+    private XmlPersistency xml;
+    private ConcurrentTransactionStore store;
+    private LedgerFileWatcher watcher;
+    private final BlockingQueue<String> events = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void startWatcher() throws IOException {
+        xml = persistency();
+        xml.save(transaction(1));
+        store = new ConcurrentTransactionStore(xml);
+        watcher = new LedgerFileWatcher(xml);
+        watcher.addListener(new LedgerFileListener() {
+            @Override
+            public void onTransactionsAppended(List<Transaction> appended) {
+                store.addLoaded(appended);
+                events.add("appended " + ids(appended));
+            }
+
+            @Override
+            public void onTransactionsReloaded(List<Transaction> transactions) {
+                store.replaceAll(transactions);
+                events.add("reloaded " + ids(transactions));
+            }
+        });
+        watcher.start();
+    }
+
+    @AfterEach
+    void stopWatcher() throws IOException {
+        watcher.close();
+    }
+
+    @Test
+    void ownSavesAreNotReported() throws InterruptedException {
+        store.save(transaction(2));
+        store.save(transaction(3));
+
+        assertNull(events.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(List.of(1L, 2L, 3L), ids(store.load()));
+    }
+
+    @Test
+    void anAppendRightAfterAnOwnSaveIsReportedAlone() throws InterruptedException {
+        store.save(transaction(2));
+        persistency().save(transaction(3)); // another program, within the quiet time of the watcher
+
+        String event = events.poll(EVENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertEquals("appended [3]", event);
+        assertNull(events.poll(QUIET_MILLIS, TimeUnit.MILLISECONDS));
+        assertEquals(List.of(1L, 2L, 3L), ids(store.load()));
+    }
+
+    @Test
+    void aChangeBeforeAnOwnSaveReloadsTheFile() throws InterruptedException {
+        persistency().save(transaction(2)); // another program, then a save of the application on top of it
+        store.save(transaction(3));
+
+        String event = events.poll(EVENT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        assertNotNull(event);
+        assertTrue(event.startsWith("reloaded"), event);
+        assertEquals(List.of(1L, 2L, 3L), ids(store.load()));
+    }
+
+    private XmlPersistency persistency() {
+        return new XmlPersistency(directory.resolve("transaction.xml").toString(),
+                directory.resolve("Tags.xml").toString());
+    }
+
+    private static Transaction transaction(long id) {
+        return new Transaction(id, 10 * id, TransactionType.EXPENSE, DAY, List.of());
+    }
+
+    private static List<Long> ids(List<Transaction> transactions) {
+        return transactions.stream().map(Transaction::id).sorted().toList();
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.controller.filter.FilteredTransactions;
+import it.unicam.cs.mpgc.jbudget126118.controller.manager.TransactionBalance;
+import it.unicam.cs.mpgc.jbudget126118.model.Period;
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import it.unicam.cs.mpgc.jbudget126118.tools.LedgerGenerator;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+/**
+ * Tests of the OffHeapTransactionStore: every query of the store must give the results of the same query
+ * on the list of its transactions, whether the store is seeded from a delegate or saved into,
+ * including the transactions with more tags than the columns hold.
+ */
+class OffHeapTransactionStoreTest {
+
+    private static final LocalDate TODAY = LocalDate.of(2024, 6, 15);
+
+    @Test
+    void seededStoreMatchesTheListPath() {
+        List<Transaction> ledger = ledger();
+        ConcurrentTransactionStore delegate = new ConcurrentTransactionStore(null);
+        delegate.saveAll(ledger);
+        try (OffHeapTransactionStore store = new OffHeapTransactionStore(delegate)) {
+            assertSameResults(ledger, store);
+        }
+    }
+
+    @Test
+    void savedStoreMatchesTheListPath() {
+        List<Transaction> ledger = ledger();
+        try (OffHeapTransactionStore store = new OffHeapTransactionStore(null)) {
+            store.saveAll(ledger.subList(0, ledger.size() / 2));
+            for (Transaction t : ledger.subList(ledger.size() / 2, ledger.size())) {
+                store.save(t);
+            }
+            assertSameResults(ledger, store);
+        }
+    }
+
+    private static void assertSameResults(List<Transaction> ledger, OffHeapTransactionStore store) {
+        assertEquals(ledger, store.load());
+        for (int row = 0; row < ledger.size(); row += 997) {
+            assertEquals(ledger.get(row), store.get(row));
+            assertEquals(ledger.get(row).tags(), store.tags(row));
+        }
+        List<Period> periods = new ArrayList<>();
+        periods.add(null);
+        periods.add(new Period(TODAY.minusYears(1), TODAY.plusDays(10)));
+        for (TransactionType type : TransactionType.values()) {
+            for (FilteredTransactions.Mode mode : FilteredTransactions.Mode.values()) {
+                for (Period period : periods) {
+                    assertEquals(new FilteredTransactions(ledger, mode, period, type).filteredItems(),
+                            new FilteredTransactions(store, mode, period, type).filteredItems(),
+                            type + " " + mode + " " + period);
+                }
+            }
+        }
+
+        TransactionBalance fromList = new TransactionBalance(ledger);
+        TransactionBalance fromStore = new TransactionBalance(store);
+        assertEquals(fromList.getTotalIncome(), fromStore.getTotalIncome(), 1e-6);
+        assertEquals(fromList.getTotalExpense(), fromStore.getTotalExpense(), 1e-6);
+        Map<Tag, Double> expected = fromList.getTagsAmountMap();
+        Map<Tag, Double> actual = fromStore.getTagsAmountMap();
+        assertEquals(expected.keySet(), actual.keySet());
+        for (Map.Entry<Tag, Double> entry : expected.entrySet()) {
+            assertNotNull(actual.get(entry.getKey()));
+            assertEquals(entry.getValue(), actual.get(entry.getKey()), 1e-6);
+        }
+    }
+
+    /**
+     * Returns a generated ledger, with a transaction every hundred given two extra tags,
+     * more than the columns of the store hold.
+     */
+    private static List<Transaction> ledger() {
+        LedgerGenerator.Options defaults = LedgerGenerator.Options.defaults(7);
+        LedgerGenerator generator = new LedgerGenerator(new LedgerGenerator.Options(defaults.seed(), defaults.incomeRatio(),
+                defaults.futureRatio(), defaults.years(), defaults.tagCount(), defaults.tagFanout(), TODAY));
+        List<Tag> tags = generator.tags();
+        List<Transaction> ledger = new ArrayList<>(generator.transactions(20_000).toList());
+        for (int i = 0; i < ledger.size(); i += 100) {
+            Transaction t = ledger.get(i);
+            List<Tag> more = new ArrayList<>(t.tags());
+            more.add(tags.get(i % tags.size()));
+            more.add(new Tag(-i - 1, "Extra" + i, null));
+            ledger.set(i, new Transaction(t.id(), t.amount(), t.transactionType(), t.transactionDate(), more));
+        }
+        return ledger;
+    }
+}
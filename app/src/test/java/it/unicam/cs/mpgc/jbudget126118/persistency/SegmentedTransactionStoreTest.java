@@ -0,0 +1,197 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.persistency;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.model.TransactionType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Tests of the SegmentedTransactionStore: tombstones and updates must survive a reopen, a compaction
+ * running alongside writers must not lose or resurrect records, and a record cut short by a crash is dropped.
+ */
+class SegmentedTransactionStoreTest {
+
+    private static final LocalDate FIRST_DAY = LocalDate.of(2020, 1, 1);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void tombstonesAndUpdatesSurviveReopen() throws IOException {
+        Map<Long, Transaction> expected = new HashMap<>();
+        try (SegmentedTransactionStore store = open()) {
+            for (long id = 1; id <= 10; id++) {
+                store.save(transaction(id, id));
+                expected.put(id, transaction(id, id));
+            }
+            assertTrue(store.delete(3));
+            assertTrue(store.delete(7));
+            assertFalse(store.delete(7));
+            // the update keeps the id it replaces, whatever the id of the new content
+            assertTrue(store.update(5, new Transaction(99, 50, TransactionType.EXPENSE, FIRST_DAY.plusDays(5), List.of())));
+            assertFalse(store.update(42, transaction(42, 1)));
+            expected.remove(3L);
+            expected.remove(7L);
+            expected.put(5L, transaction(5, 50));
+            assertContains(expected, store.load());
+        }
+        try (SegmentedTransactionStore store = open()) {
+            assertContains(expected, store.load());
+            assertEquals(8, store.size());
+            assertTrue(store.deadRatio() > 0);
+        }
+    }
+
+    @Test
+    void compactionRacingWithWritersKeepsTheLatestVersions() throws Exception {
+        int writers = 4;
+        int operations = 5_000;
+        Map<Long, Transaction> expected = new ConcurrentHashMap<>();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        // small segments and a low threshold, so background compactions run as well as the explicit ones
+        try (SegmentedTransactionStore store = new SegmentedTransactionStore(directory, List::of, 4096, 0.1)) {
+            AtomicBoolean writing = new AtomicBoolean(true);
+            Thread compactor = new Thread(() -> {
+                try {
+                    while (writing.get()) {
+                        store.compact();
+                    }
+                } catch (Throwable e) {
+                    failure.set(e);
+                }
+            });
+            compactor.start();
+            List<Thread> threads = new ArrayList<>();
+            for (int w = 0; w < writers; w++) {
+                final long base = w * 1_000L;
+                final Random random = new Random(w);
+                Thread writer = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < operations; i++) {
+                            long id = base + random.nextInt(200);
+                            int operation = random.nextInt(3);
+                            if (operation == 0 && expected.containsKey(id)) {
+                                assertTrue(store.delete(id));
+                                expected.remove(id);
+                            } else if (operation == 1 && expected.containsKey(id)) {
+                                assertTrue(store.update(id, transaction(id, i)));
+                                expected.put(id, transaction(id, i));
+                            } else {
+                                store.save(transaction(id, i));
+                                expected.put(id, transaction(id, i));
+                            }
+                        }
+                    } catch (Throwable e) {
+                        failure.set(e);
+                    }
+                });
+                writer.start();
+                threads.add(writer);
+            }
+            for (Thread writer : threads) {
+                writer.join();
+            }
+            writing.set(false);
+            compactor.join();
+            assertNull(failure.get());
+
+            assertContains(expected, store.load());
+            store.compact();
+            assertContains(expected, store.load());
+        }
+        try (SegmentedTransactionStore store = open()) {
+            assertContains(expected, store.load());
+        }
+    }
+
+    @Test
+    void reopenDropsATornTail() throws IOException {
+        try (SegmentedTransactionStore store = open()) {
+            for (long id = 1; id <= 5; id++) {
+                store.save(transaction(id, id));
+            }
+        }
+        Path active = activeSegment();
+        long complete = Files.size(active);
+        // the length of a record followed by only part of it, as left by a crash in the middle of a write
+        Files.write(active, new byte[] {0, 0, 0, 40, 1, 0, 0}, StandardOpenOption.APPEND);
+
+        try (SegmentedTransactionStore store = open()) {
+            assertEquals(5, store.load().size());
+            assertEquals(complete, Files.size(active));
+            store.save(transaction(6, 6));
+        }
+        try (SegmentedTransactionStore store = open()) {
+            List<Transaction> loaded = store.load();
+            assertEquals(6, loaded.size());
+            assertEquals(transaction(6, 6), loaded.get(5));
+        }
+    }
+
+    private SegmentedTransactionStore open() throws IOException {
+        return new SegmentedTransactionStore(directory, List::of);
+    }
+
+    private Path activeSegment() throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".dat")).sorted().reduce((a, b) -> b).orElseThrow();
+        }
+    }
+
+    private static Transaction transaction(long id, double amount) {
+        return new Transaction(id, amount, id % 2 == 0 ? TransactionType.INCOME : TransactionType.EXPENSE,
+                FIRST_DAY.plusDays(id % 365), List.of());
+    }
+
+    private static void assertContains(Map<Long, Transaction> expected, List<Transaction> loaded) {
+        Map<Long, Transaction> byId = new HashMap<>();
+        for (Transaction t : loaded) {
+            assertNull(byId.put(t.id(), t), "duplicate id " + t.id());
+        }
+        assertEquals(expected, byId);
+    }
+}
@@ -0,0 +1,186 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2025 Francesco Scotti
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in
+ * all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN
+ * THE SOFTWARE.
+ *
+ */
+
+package it.unicam.cs.mpgc.jbudget126118.view.HTTP;
+
+import it.unicam.cs.mpgc.jbudget126118.model.Tag;
+import it.unicam.cs.mpgc.jbudget126118.model.Transaction;
+import it.unicam.cs.mpgc.jbudget126118.persistency.ConcurrentTransactionStore;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionJson;
+import it.unicam.cs.mpgc.jbudget126118.persistency.TransactionPersistency;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+/**
+ * Tests of the HTTP API, on an in-memory store whose ledger has two tags.
+ */
+class LedgerHttpServerTest {
+
+    private static final Tag SPESA = new Tag(1, "Spesa", null);
+    private static final Tag CASA = new Tag(2, "Casa", SPESA);
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private ConcurrentTransactionStore store;
+    private LedgerHttpServer server;
+
+    @BeforeEach
+    void start() throws IOException {
+        store = new ConcurrentTransactionStore(new TransactionPersistency() {
+            @Override
+            public List<Transaction> load() {
+                return List.of();
+            }
+
+            @Override
+            public List<Tag> loadTags() {
+                return List.of(SPESA, CASA);
+            }
+
+            @Override
+            public void save(Transaction t) {
+            }
+        });
+        server = new LedgerHttpServer(store, 0);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    @Test
+    void unknownPathsAreNotFound() throws Exception {
+        assertEquals(404, send("GET", "/transactions/foo", null).statusCode());
+        assertEquals(404, send("POST", "/transactions/batch/1", "[]").statusCode());
+        assertEquals(404, send("GET", "/balance/foo", null).statusCode());
+    }
+
+    @Test
+    void unsupportedMethodsAreNotAllowed() throws Exception {
+        assertEquals(405, send("DELETE", "/transactions", null).statusCode());
+        assertEquals(405, send("GET", "/transactions/batch", null).statusCode());
+        assertEquals(405, send("POST", "/balance", "{}").statusCode());
+    }
+
+    @Test
+    void negativeAndNonFiniteAmountsAreRejected() throws Exception {
+        assertEquals(400, send("POST", "/transactions",
+                "{\"amount\":-5,\"type\":\"EXPENSE\",\"date\":\"2025-06-01\"}").statusCode());
+        assertEquals(400, send("POST", "/transactions",
+                "{\"amount\":1e400,\"type\":\"EXPENSE\",\"date\":\"2025-06-01\"}").statusCode());
+        assertEquals(400, send("POST", "/transactions/batch",
+                "[{\"amount\":5,\"type\":\"INCOME\",\"date\":\"2025-06-01\"},"
+                        + "{\"amount\":-1,\"type\":\"INCOME\",\"date\":\"2025-06-01\"}]").statusCode());
+        assertEquals(0, store.size());
+
+        assertEquals(201, send("POST", "/transactions",
+                "{\"amount\":5,\"type\":\"EXPENSE\",\"date\":\"2025-06-01\"}").statusCode());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void postedTransactionsGetNewIds() throws Exception {
+        HttpResponse<String> response = send("POST", "/transactions",
+                "{\"id\":1,\"amount\":5,\"type\":\"EXPENSE\",\"date\":\"2025-06-01\"}");
+        assertEquals(201, response.statusCode());
+        long id = TransactionJson.parse(response.body(), name -> null, () -> 0).id();
+        assertNotEquals(1, id);
+
+        assertEquals(201, send("POST", "/transactions/batch",
+                "[{\"id\":" + id + ",\"amount\":7,\"type\":\"EXPENSE\",\"date\":\"2025-06-01\"}]").statusCode());
+        assertEquals(2, store.size());
+        assertEquals(2, store.load().stream().mapToLong(Transaction::id).distinct().count());
+    }
+
+    @Test
+    void tagsAreResolvedAgainstTheLedger() throws Exception {
+        assertEquals(201, send("POST", "/transactions", "{\"amount\":5,\"type\":\"EXPENSE\",\"date\":\"2025-06-01\","
+                + "\"tags\":[\"Spesa\",{\"id\":2,\"name\":\"Casa\"}]}").statusCode());
+        assertEquals(List.of(SPESA, CASA), store.load().get(0).tags());
+
+        assertEquals(400, send("POST", "/transactions", "{\"amount\":5,\"type\":\"EXPENSE\",\"date\":\"2025-06-01\","
+                + "\"tags\":[{\"id\":9,\"name\":\"Casa\"}]}").statusCode());
+        assertEquals(400, send("POST", "/transactions", "{\"amount\":5,\"type\":\"EXPENSE\",\"date\":\"2025-06-01\","
+                + "\"tags\":[{\"id\":2,\"name\":\"Affitto\"}]}").statusCode());
+        assertEquals(400, send("POST", "/transactions", "{\"amount\":5,\"type\":\"EXPENSE\",\"date\":\"2025-06-01\","
+                + "\"tags\":[\"Affitto\"]}").statusCode());
+        assertEquals(1, store.size());
+    }
+
+    @Test
+    void transactionsAreFilteredByTypeAndPeriod() throws Exception {
+        postSampleLedger();
+
+        List<Transaction> june = query("/transactions?type=EXPENSE&from=2025-06-01&to=2025-06-30");
+        assertEquals(1, june.size());
+        assertEquals(20.0, june.get(0).amount());
+        assertEquals(2, query("/transactions?type=EXPENSE").size());
+        assertEquals(List.of(100.0), query("/transactions?type=INCOME").stream().map(Transaction::amount).toList());
+    }
+
+    @Test
+    void balanceSumsTheTotalsAndTheExpensesByTag() throws Exception {
+        postSampleLedger();
+
+        HttpResponse<String> all = send("GET", "/balance", null);
+        assertEquals(200, all.statusCode());
+        assertEquals("{\"income\":100.0,\"expense\":30.0,\"balance\":70.0,\"tags\":{\"Spesa\":30.0}}", all.body());
+        assertEquals("{\"income\":100.0,\"expense\":20.0,\"balance\":80.0,\"tags\":{\"Spesa\":20.0}}",
+                send("GET", "/balance?from=2025-06-01&to=2025-06-30", null).body());
+        assertEquals(400, send("GET", "/balance?from=June", null).statusCode());
+    }
+
+    private void postSampleLedger() throws Exception {
+        assertEquals(201, send("POST", "/transactions/batch", "["
+                + "{\"amount\":10,\"type\":\"EXPENSE\",\"date\":\"2025-01-10\",\"tags\":[\"Spesa\"]},"
+                + "{\"amount\":20,\"type\":\"EXPENSE\",\"date\":\"2025-06-01\",\"tags\":[\"Spesa\"]},"
+                + "{\"amount\":100,\"type\":\"INCOME\",\"date\":\"2025-06-15\"}]").statusCode());
+    }
+
+    private List<Transaction> query(String path) throws Exception {
+        HttpResponse<String> response = send("GET", path, null);
+        assertEquals(200, response.statusCode());
+        return TransactionJson.parseArray(response.body(), name -> null, () -> 0);
+    }
+
+    private HttpResponse<String> send(String method, String path, String body) throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.getPort() + path))
+                .method(method, body == null ? HttpRequest.BodyPublishers.noBody() : HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}